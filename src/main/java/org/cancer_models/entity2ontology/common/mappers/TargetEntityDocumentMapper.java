@@ -5,11 +5,16 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexableField;
+import org.cancer_models.entity2ontology.common.model.OntologyEntityDataFieldName;
 import org.cancer_models.entity2ontology.common.model.TargetEntity;
 import org.cancer_models.entity2ontology.common.model.TargetEntityDataFields;
 import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
 import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+import org.cancer_models.entity2ontology.common.utils.TrigramUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
@@ -24,6 +29,21 @@ public class TargetEntityDocumentMapper {
 
     private static final List<String> MULTIVALUED_ATTRIBUTES = List.of("synonyms");
 
+    /**
+     * Version of the document layout. It is part of the content hash, so it must be increased every time the way
+     * an entity is converted into a document changes: that way, incremental indexing rewrites all the documents.
+     */
+    public static final int SCHEMA_VERSION = 2;
+
+    // Prefix of the (not stored) fields with the trigrams of a data field
+    private static final String TRIGRAM_FIELD_PREFIX = "trigram.";
+
+    // Data fields of ontology terms whose trigrams are indexed. All the data fields of rules are indexed
+    private static final Set<String> ONTOLOGY_TRIGRAM_FIELDS = Set.of(
+        OntologyEntityDataFieldName.LABEL.getValue(), OntologyEntityDataFieldName.SYNONYMS.getValue());
+
+    private static final String UNIQUE_ID_SEPARATOR = "|";
+
     public static Document targetEntityToDocument(TargetEntity targetEntity) {
         Document document = new Document();
         document.add(
@@ -34,6 +54,13 @@ public class TargetEntityDocumentMapper {
             TargetEntityFieldName.TARGET_TYPE.getValue(), targetEntity.targetType().getValue(), Field.Store.YES));
         document.add(new TextField(TargetEntityFieldName.LABEL.getValue(), targetEntity.label(), Field.Store.YES));
         document.add(new StringField(TargetEntityFieldName.URL.getValue(), targetEntity.url(), Field.Store.YES));
+        document.add(new StringField(
+            TargetEntityFieldName.UNIQUE_ID.getValue(), getUniqueId(targetEntity), Field.Store.YES));
+        document.add(new StringField(
+            TargetEntityFieldName.CONTENT_HASH.getValue(), calculateContentHash(targetEntity), Field.Store.YES));
+
+        // Trigrams per data field, so the ones of a multivalued field are only added once
+        Map<String, Set<String>> trigramsByField = new LinkedHashMap<>();
 
         // Add string data fields if any
         Map<String, String> stringFields = targetEntity.dataFields().getStringFields();
@@ -41,6 +68,10 @@ public class TargetEntityDocumentMapper {
             stringFields.forEach((k, v) -> {
                 String fieldName = targetEntity.targetType().getValue() + "." + k;
                 document.add(new TextField(fieldName, v, Field.Store.YES));
+                if (hasTrigramField(targetEntity.targetType(), k)) {
+                    trigramsByField.computeIfAbsent(fieldName, x -> new LinkedHashSet<>())
+                        .addAll(TrigramUtils.extractTrigrams(v));
+                }
             });
         }
 
@@ -51,13 +82,104 @@ public class TargetEntityDocumentMapper {
                 for (var element : v) {
                     String fieldName = targetEntity.targetType().getValue() + "." + k;
                     document.add(new TextField(fieldName, element, Field.Store.YES));
+                    if (hasTrigramField(targetEntity.targetType(), k)) {
+                        trigramsByField.computeIfAbsent(fieldName, x -> new LinkedHashSet<>())
+                            .addAll(TrigramUtils.extractTrigrams(element));
+                    }
                 }
             });
         }
 
+        // Trigrams are only searched, never read, so they are not stored
+        trigramsByField.forEach((fieldName, trigrams) -> {
+            for (String trigram : trigrams) {
+                document.add(new StringField(getTrigramFieldName(fieldName), trigram, Field.Store.NO));
+            }
+        });
+
         return document;
     }
 
+    /**
+     * Returns the name of the field with the trigrams of a data field. Trigram fields are indexed for all the data
+     * fields of rules and for the label and synonyms of ontology terms.
+     *
+     * @param dataFieldName the name of the data field in the document, for example {@code ontology.label}
+     * @return the name of the field with the trigrams of the data field
+     */
+    public static String getTrigramFieldName(String dataFieldName) {
+        return TRIGRAM_FIELD_PREFIX + dataFieldName;
+    }
+
+    private static boolean hasTrigramField(TargetEntityType targetType, String dataFieldName) {
+        return targetType == TargetEntityType.RULE || ONTOLOGY_TRIGRAM_FIELDS.contains(dataFieldName);
+    }
+
+    /**
+     * Returns the key that identifies {@code targetEntity} in the index across indexing runs. The id alone is not
+     * enough, as the same id can be used by entities of different types.
+     *
+     * @param targetEntity the entity
+     * @return a string combining target type, entity type and id
+     */
+    public static String getUniqueId(TargetEntity targetEntity) {
+        return targetEntity.targetType().getValue() + UNIQUE_ID_SEPARATOR
+            + targetEntity.entityType() + UNIQUE_ID_SEPARATOR
+            + targetEntity.id();
+    }
+
+    /**
+     * Calculates a hash of all the content of {@code targetEntity} that is written into its document. Two entities
+     * with the same hash produce the same document, so an unchanged entity does not need to be indexed again.
+     *
+     * <p>Data fields are processed in key order and list values are sorted, so the hash does not depend on the
+     * order in which the data was extracted.
+     *
+     * @param targetEntity the entity
+     * @return the SHA-256 hash of the entity content, as an hexadecimal string
+     */
+    public static String calculateContentHash(TargetEntity targetEntity) {
+        StringBuilder content = new StringBuilder();
+        appendHashValue(content, String.valueOf(SCHEMA_VERSION));
+        appendHashValue(content, targetEntity.id());
+        appendHashValue(content, targetEntity.entityType());
+        appendHashValue(content, targetEntity.targetType().getValue());
+        appendHashValue(content, targetEntity.label());
+        appendHashValue(content, targetEntity.url());
+
+        TargetEntityDataFields dataFields = targetEntity.dataFields();
+        if (dataFields != null) {
+            new TreeMap<>(dataFields.getStringFields()).forEach((k, v) -> {
+                appendHashValue(content, k);
+                appendHashValue(content, v);
+            });
+            new TreeMap<>(dataFields.getListFields()).forEach((k, v) -> {
+                appendHashValue(content, k);
+                List<String> values = new ArrayList<>(v);
+                values.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+                appendHashValue(content, String.valueOf(values.size()));
+                values.forEach(value -> appendHashValue(content, value));
+            });
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Values are prefixed by their length, so different sequences of values never produce the same content
+    private static void appendHashValue(StringBuilder content, String value) {
+        if (value == null) {
+            content.append("-1:");
+        } else {
+            content.append(value.length()).append(':').append(value);
+        }
+    }
+
     public static TargetEntity documentToTargetEntity(Document document) {
         String id = document.get(TargetEntityFieldName.ID.getValue());
         String entityType = document.get(TargetEntityFieldName.ENTITY_TYPE.getValue());
@@ -8,7 +8,11 @@ public enum TargetEntityFieldName {
     ENTITY_TYPE("entityType"),
     TARGET_TYPE("targetType"),
     LABEL("label"),
-    URL("url");
+    URL("url"),
+    // Identifies the entity across indexing runs: targetType, entityType and id
+    UNIQUE_ID("uniqueId"),
+    // Hash of the content of the entity, used to detect changes when the index is updated
+    CONTENT_HASH("contentHash");
 
     private final String value;
 
@@ -11,6 +11,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 /**
  * Utility class to handle files.
@@ -19,6 +20,16 @@ public class FileUtils {
 
     private static final Logger logger = LogManager.getLogger(FileUtils.class);
 
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+    // Client shared by all the requests, so connections (and HTTP/2 streams) are reused instead of opening a new
+    // connection per request. HttpClient is thread safe
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .connectTimeout(CONNECT_TIMEOUT)
+        .build();
+
     // Suppress default constructor for non-instantiability
     private FileUtils() {
         throw new AssertionError();
@@ -40,8 +51,17 @@ public class FileUtils {
         return file;
     }
 
+    /**
+     * Returns the HTTP client shared by the application.
+     *
+     * @return a thread safe {@link HttpClient} that prefers HTTP/2
+     */
+    public static HttpClient getHttpClient() {
+        return HTTP_CLIENT;
+    }
+
     public static String getStringFromUrl(String url) throws IOException {
-        HttpClient client = HttpClient.newHttpClient();
+        HttpClient client = HTTP_CLIENT;
         HttpRequest request = HttpRequest.newBuilder()
             .uri(URI.create(url))
             .build();
@@ -0,0 +1,79 @@
+package org.cancer_models.entity2ontology.common.utils;
+
+import java.util.*;
+
+/**
+ * Splits texts into character trigrams, used to find words that are similar without comparing them one by one.
+ *
+ * <p>A text is lower-cased and split into words (sequences of letters and digits). Each word is padded with
+ * {@link #PADDING} at both ends, so a word of {@code n} characters has {@code n} trigrams and its first and last
+ * characters weigh as much as the others. One edit (insertion, deletion or substitution) changes at most
+ * {@link #TRIGRAMS_CHANGED_PER_EDIT} of the trigrams of a word.
+ */
+public class TrigramUtils {
+
+    // Suppress default constructor for non-instantiability
+    private TrigramUtils() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Character added at the beginning and at the end of a word before splitting it.
+     */
+    public static final char PADDING = '$';
+
+    /**
+     * Maximum number of trigrams of a word that differ from those of a word at one edit of distance.
+     */
+    public static final int TRIGRAMS_CHANGED_PER_EDIT = 3;
+
+    private static final String WORDS_SEPARATOR_REGEXP = "[^\\p{L}\\p{N}]+";
+
+    /**
+     * Splits a text into lower-cased words.
+     *
+     * @param text the text to split
+     * @return the words of the text, in order. Empty if the text is null or has no letters nor digits
+     */
+    public static List<String> extractWords(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split(WORDS_SEPARATOR_REGEXP)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the distinct trigrams of a word.
+     *
+     * @param word a lower-cased word, as returned by {@link #extractWords(String)}
+     * @return the trigrams of the padded word, in order of appearance
+     */
+    public static Set<String> extractWordTrigrams(String word) {
+        String padded = PADDING + word + PADDING;
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Returns the distinct trigrams of all the words of a text.
+     *
+     * @param text the text to split
+     * @return the trigrams of the text, in order of appearance
+     */
+    public static Set<String> extractTrigrams(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String word : extractWords(text)) {
+            trigrams.addAll(extractWordTrigrams(word));
+        }
+        return trigrams;
+    }
+}
@@ -2,6 +2,8 @@ package org.cancer_models.entity2ontology.index.command;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.cancer_models.entity2ontology.index.model.IndexingRequest;
+import org.cancer_models.entity2ontology.index.model.OntologyCacheSettings;
 import org.cancer_models.entity2ontology.index.service.IndexingRequestService;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine;
@@ -40,6 +42,28 @@ public class IndexCommand implements Runnable {
     @CommandLine.Option(names = "--request", required = true, description = "Indexing request JSON file.")
     private String requestFile;
 
+    /**
+     * If set, no indexing is done. Instead, the index defined in the request goes back to its previous version.
+     */
+    @CommandLine.Option(
+        names = "--rollback",
+        description = "Restores the previous version of the index defined in the request (atomic swap indexes only).")
+    private boolean rollback;
+
+    /**
+     * If set, ontologies are indexed using only the pages in the local cache, without contacting OLS.
+     */
+    @CommandLine.Option(
+        names = "--offline",
+        description = "Reads the ontologies only from the local cache, without contacting OLS.")
+    private boolean offline;
+
+    /**
+     * Directory of the local cache of ontology pages. Overrides the one in the request, if any.
+     */
+    @CommandLine.Option(names = "--cache-dir", description = "Directory of the local cache of ontology pages.")
+    private String cacheDirectory;
+
     public IndexCommand(IndexingRequestService indexingRequestService) {
         this.indexingRequestService = indexingRequestService;
     }
@@ -48,11 +72,29 @@ public class IndexCommand implements Runnable {
     public void run() {
 
         try {
-            // Read the mapping request
-            indexingRequestService.processRequest(requestFile);
+            if (rollback) {
+                IndexingRequest request = IndexingRequestService.readIndexingRequest(requestFile);
+                indexingRequestService.rollback(request.indexPath());
+            } else {
+                // Read the mapping request
+                IndexingRequest request = IndexingRequestService.readIndexingRequest(requestFile);
+                indexingRequestService.processRequest(applyCacheOptions(request));
+            }
         } catch (IOException | IllegalArgumentException e) {
             logger.error("Failed to perform indexing: {}", e.getMessage());
             System.exit(1);
         }
     }
+
+    // The command line options take precedence over the cache settings in the request
+    private IndexingRequest applyCacheOptions(IndexingRequest request) {
+        if (!offline && cacheDirectory == null) {
+            return request;
+        }
+        OntologyCacheSettings settings = request.ontologyCache();
+        String directory = cacheDirectory != null ? cacheDirectory : (settings == null ? null : settings.directory());
+        Integer ttlMinutes = settings == null ? null : settings.ttlMinutes();
+        boolean offlineMode = offline || (settings != null && settings.offline());
+        return request.withOntologyCache(new OntologyCacheSettings(directory, ttlMinutes, offlineMode));
+    }
 }
@@ -12,9 +12,27 @@ import java.util.List;
  * @param indexPath         The path to the directory where the index will be created
  * @param ruleLocations     The locations of the rules to index
  * @param ontologyLocations The locations of the ontologies to index
+ * @param atomicSwap        If true, the index is built in a new version directory next to {@code indexPath} and,
+ *                          once validated, {@code indexPath} is atomically switched to point to it. The previous
+ *                          version is kept so it can be restored with a rollback
+ * @param ontologyCache     Settings of the local cache of OLS pages. If null, ontologies are always downloaded
  * @see org.cancer_models.entity2ontology.index.command.IndexCommand
  * @see org.cancer_models.entity2ontology.index.service.IndexingService
  */
 public record IndexingRequest(
-    String indexPath, List<RuleLocation> ruleLocations, List<OntologyLocation> ontologyLocations) {
+    String indexPath,
+    List<RuleLocation> ruleLocations,
+    List<OntologyLocation> ontologyLocations,
+    boolean atomicSwap,
+    OntologyCacheSettings ontologyCache) {
+
+    /**
+     * Returns a copy of this request with different ontology cache settings.
+     *
+     * @param ontologyCache the new cache settings
+     * @return a new {@code IndexingRequest}
+     */
+    public IndexingRequest withOntologyCache(OntologyCacheSettings ontologyCache) {
+        return new IndexingRequest(indexPath, ruleLocations, ontologyLocations, atomicSwap, ontologyCache);
+    }
 }
@@ -0,0 +1,39 @@
+package org.cancer_models.entity2ontology.index.model;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Configuration of the local cache of pages downloaded from OLS.
+ *
+ * <p>Cached pages younger than {@code ttlMinutes} are used without contacting OLS. Older pages are revalidated with
+ * a conditional request (ETag/Last-Modified), so they are only downloaded again if they changed.
+ *
+ * @param directory  Directory where the pages are stored. If not set, {@code ~/.entity2ontology/ols-cache} is used
+ * @param ttlMinutes Minutes a cached page is considered fresh. If not set, one day
+ * @param offline    If true, no request is sent to OLS: all the pages must be in the cache, regardless of their age
+ */
+public record OntologyCacheSettings(String directory, Integer ttlMinutes, boolean offline) {
+
+    private static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".entity2ontology", "ols-cache");
+    private static final Duration DEFAULT_TTL = Duration.ofDays(1);
+
+    /**
+     * Returns the directory where the pages are stored.
+     *
+     * @return the configured directory, or the default one if none was configured
+     */
+    public Path getDirectoryOrDefault() {
+        return directory == null || directory.isBlank() ? DEFAULT_DIRECTORY : Paths.get(directory);
+    }
+
+    /**
+     * Returns how long a cached page is considered fresh.
+     *
+     * @return the configured time to live, or the default one if none was configured
+     */
+    public Duration getTtlOrDefault() {
+        return ttlMinutes == null ? DEFAULT_TTL : Duration.ofMinutes(ttlMinutes);
+    }
+}
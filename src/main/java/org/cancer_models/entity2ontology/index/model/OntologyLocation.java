@@ -1,5 +1,7 @@
 package org.cancer_models.entity2ontology.index.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 
@@ -19,7 +21,23 @@ import java.util.List;
  *                 ("Malignant Neoplasm" and "Neoplasm", respectively).
  * @param ignore   Flag that if set to true ignores this ruleset to be indexed (or re-indexed). Useful when you only need to
  *                 index specific JSON files or ontologies
+ * @param filePath Optional path to a local OBO or OWL (RDF/XML) file, optionally compressed (.gz or .zip). If set,
+ *                 the terms are read from this file instead of being downloaded from OLS
  */
-public record OntologyLocation(String ontoId, String name, List<String> branches, boolean ignore) {
+public record OntologyLocation(
+    String ontoId, String name, List<String> branches, boolean ignore, String filePath) {
+
+    public OntologyLocation(String ontoId, String name, List<String> branches, boolean ignore) {
+        this(ontoId, name, branches, ignore, null);
+    }
 
+    /**
+     * Indicates whether the terms must be read from a local file instead of OLS.
+     *
+     * @return true if {@code filePath} is set
+     */
+    @JsonIgnore
+    public boolean isLocalFile() {
+        return filePath != null && !filePath.isBlank();
+    }
 }
@@ -0,0 +1,21 @@
+package org.cancer_models.entity2ontology.index.model;
+
+/**
+ * Represents the changes applied to an index when a set of entities is synchronized with it.
+ *
+ * @param added     Number of entities that were not in the index and were added
+ * @param updated   Number of entities whose content changed and were rewritten
+ * @param deleted   Number of entities that were in the index but not in the new data, so they were deleted
+ * @param unchanged Number of entities that did not change, so their documents were left untouched
+ */
+public record SynchronizationResult(int added, int updated, int deleted, int unchanged) {
+
+    /**
+     * Total number of entities in the new data.
+     *
+     * @return the number of added, updated and unchanged entities
+     */
+    public int total() {
+        return added + updated + unchanged;
+    }
+}
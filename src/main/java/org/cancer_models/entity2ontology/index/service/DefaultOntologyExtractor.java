@@ -3,11 +3,14 @@ package org.cancer_models.entity2ontology.index.service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.cancer_models.entity2ontology.common.model.*;
+import org.cancer_models.entity2ontology.index.model.OntologyCacheSettings;
 import org.cancer_models.entity2ontology.index.model.OntologyLocation;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The OntologyExtractor class is responsible for downloading and processing ontologies from specified locations.
@@ -31,6 +34,7 @@ import java.util.*;
  * @see TargetEntity
  */
 @Component
+@Qualifier("defaultOntologyExtractor")
 class DefaultOntologyExtractor implements OntologyExtractor {
 
     private final OntologyDownloader ontologyDownloader = new OntologyDownloader();
@@ -48,47 +52,117 @@ class DefaultOntologyExtractor implements OntologyExtractor {
      * @return a list of {@link TargetEntity} objects representing the extracted ontology data
      */
     public List<TargetEntity> extract(OntologyLocation ontologyLocation) throws IOException {
+        return extract(ontologyLocation, null);
+    }
+
+    /**
+     * Extracts a list of {@link TargetEntity} objects from the specified {@link OntologyLocation}, reading the
+     * pages from a local cache when possible.
+     *
+     * @param ontologyLocation the location of the ontology, including the URL and branches of interest
+     * @param cacheSettings    settings of the cache, or null to download everything from OLS
+     * @return a list of {@link TargetEntity} objects representing the extracted ontology data
+     */
+    @Override
+    public List<TargetEntity> extract(OntologyLocation ontologyLocation, OntologyCacheSettings cacheSettings)
+        throws IOException {
+        OntologyPageCache pageCache = cacheSettings == null ? null : new OntologyPageCache(cacheSettings);
         List<TargetEntity> targetEntities = new ArrayList<>();
-        Set<OntologyTerm> ontologyTerms = new HashSet<>();
-        for (String branch : ontologyLocation.branches()) {
+        // Branches can share descendants, so terms are merged by id
+        Map<String, OntologyTerm> ontologyTerms = new LinkedHashMap<>();
+        for (String branch : selectBranchesToDownload(ontologyLocation, pageCache)) {
             logger.info("Processing branch {}", branch);
             Set<OntologyTerm> ontologyTermsByBranch = downloadOntologyTerms(
-                ontologyLocation.ontoId(), branch, ontologyLocation.name());
+                ontologyLocation.ontoId(), branch, ontologyLocation.name(), pageCache);
             if (ontologyTermsByBranch != null) {
-                ontologyTerms.addAll(ontologyTermsByBranch);
+                ontologyTermsByBranch.forEach(term -> ontologyTerms.putIfAbsent(term.id(), term));
             }
         }
-        ontologyTerms.forEach(ontologyTerm -> targetEntities.add(termToTargetEntity(ontologyTerm)));
+        ontologyTerms.values().forEach(
+            ontologyTerm -> targetEntities.add(OntologyTermMapper.termToTargetEntity(ontologyTerm)));
         return targetEntities;
     }
 
-    private TargetEntity termToTargetEntity(OntologyTerm ontologyTerm) {
+    /**
+     * Extracts the {@link TargetEntity} objects from the specified {@link OntologyLocation}, passing the terms of
+     * each downloaded page to {@code consumer} without waiting for the rest of the pages.
+     *
+     * @param ontologyLocation the location of the ontology, including the URL and branches of interest
+     * @param cacheSettings    settings of the cache, or null to download everything from OLS
+     * @param consumer         receives the target entities. It is called from the threads downloading the pages
+     * @return the number of target entities passed to the consumer
+     * @throws IOException if there is an error downloading the ontology or the consumer fails
+     */
+    @Override
+    public int extract(
+        OntologyLocation ontologyLocation, OntologyCacheSettings cacheSettings, TargetEntityConsumer consumer)
+        throws IOException {
+        OntologyPageCache pageCache = cacheSettings == null ? null : new OntologyPageCache(cacheSettings);
+        // Branches can share descendants, so each term is passed only once
+        Set<String> extractedIds = ConcurrentHashMap.newKeySet();
+        for (String branch : selectBranchesToDownload(ontologyLocation, pageCache)) {
+            logger.info("Processing branch {}", branch);
+            downloadOntologyTerms(ontologyLocation.ontoId(), branch, ontologyLocation.name(), pageCache, terms -> {
+                for (OntologyTerm term : terms) {
+                    if (extractedIds.add(term.id())) {
+                        consumer.accept(OntologyTermMapper.termToTargetEntity(term));
+                    }
+                }
+            });
+        }
+        return extractedIds.size();
+    }
 
-        TargetEntityDataFields dataFields = new TargetEntityDataFields();
-        dataFields.addStringField(OntologyEntityDataFieldName.LABEL.getValue(), ontologyTerm.label());
-        dataFields.addStringField(OntologyEntityDataFieldName.DESCRIPTION.getValue(),  ontologyTerm.description());
-        dataFields.addListField(OntologyEntityDataFieldName.SYNONYMS.getValue(), formatSynonyms(ontologyTerm));
+    /**
+     * Returns the branches whose subtrees need to be downloaded. A branch that descends from another branch in the
+     * same location is skipped, as its terms are already part of the descendants of that other branch.
+     *
+     * <p>If the ancestors of the branches cannot be obtained, all the branches are downloaded.
+     */
+    private List<String> selectBranchesToDownload(OntologyLocation ontologyLocation, OntologyPageCache pageCache) {
+        Set<String> branches = new LinkedHashSet<>(ontologyLocation.branches());
+        if (branches.size() < 2) {
+            return new ArrayList<>(branches);
+        }
+        List<String> selectedBranches = new ArrayList<>();
+        for (String branch : branches) {
+            Set<String> ancestorIds;
+            try {
+                ancestorIds = findAncestorIds(ontologyLocation.ontoId(), branch, pageCache);
+            } catch (IOException | IllegalArgumentException e) {
+                // The downloader reports an ontology it cannot verify in OLS as an IllegalArgumentException
+                logger.warn("Cannot get the ancestors of {} ({}). Downloading all the branches", branch, e.getMessage());
+                return new ArrayList<>(branches);
+            }
+            Optional<String> containingBranch = branches.stream().filter(ancestorIds::contains).findFirst();
+            if (containingBranch.isPresent()) {
+                logger.info("Skipping branch {}: it is a descendant of branch {}", branch, containingBranch.get());
+            } else {
+                selectedBranches.add(branch);
+            }
+        }
+        return selectedBranches;
+    }
 
+    Set<OntologyTerm> downloadOntologyTerms(String ontologyId, String termId, String type) throws IOException {
+        return ontologyDownloader.downloadOntologyTerms(ontologyId, termId, type);
+    }
 
-        return new TargetEntity(
-            ontologyTerm.id(),
-            ontologyTerm.type(),
-            TargetEntityType.ONTOLOGY,
-            dataFields, ontologyTerm.label(),
-            ontologyTerm.url());
+    private Set<OntologyTerm> downloadOntologyTerms(
+        String ontologyId, String termId, String type, OntologyPageCache pageCache) throws IOException {
+        if (pageCache == null) {
+            return downloadOntologyTerms(ontologyId, termId, type);
+        }
+        return ontologyDownloader.downloadOntologyTerms(ontologyId, termId, type, pageCache);
     }
 
-    private List<String> formatSynonyms(OntologyTerm ontologyTerm) {
-        Set<String> uniqueValues = new HashSet<>();
-        ontologyTerm.synonyms().forEach(e -> {
-            uniqueValues.add(e.toLowerCase());
-        });
-        // We don't need the synonyms to contain the value that the label already has
-        uniqueValues.remove(ontologyTerm.label().toLowerCase());
-        return new ArrayList<>(uniqueValues);
+    void downloadOntologyTerms(
+        String ontologyId, String termId, String type, OntologyPageCache pageCache,
+        OntologyDownloader.TermsConsumer consumer) throws IOException {
+        ontologyDownloader.downloadOntologyTerms(ontologyId, termId, type, pageCache, consumer);
     }
 
-    Set<OntologyTerm> downloadOntologyTerms(String ontologyId, String termId, String type) throws IOException {
-        return ontologyDownloader.downloadOntologyTerms(ontologyId, termId, type);
+    Set<String> findAncestorIds(String ontologyId, String termId, OntologyPageCache pageCache) throws IOException {
+        return ontologyDownloader.downloadAncestorIds(ontologyId, termId, pageCache);
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import org.cancer_models.entity2ontology.common.model.TargetEntityType;
 import org.cancer_models.entity2ontology.common.utils.FileUtils;
 import org.cancer_models.entity2ontology.index.model.RuleLocation;
 import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -40,8 +41,10 @@ import java.util.*;
  *
  * @see RuleLocation
  * @see TargetEntity
+ * @see StreamingRulesetExtractor
  */
 @Component
+@Qualifier("defaultRulesetExtractor")
 class DefaultRulesetExtractor implements RulesetExtractor {
 
     /**
@@ -57,7 +60,7 @@ class DefaultRulesetExtractor implements RulesetExtractor {
      */
     public List<TargetEntity> extract(RuleLocation ruleLocation) throws IOException {
         List<TargetEntity> targetEntities = new ArrayList<>();
-        validateRuleSetTarget(ruleLocation);
+        RuleFieldsConversion.validate(ruleLocation);
         File jsonFile = FileUtils.getNonEmptyFileFromPath(ruleLocation.filePath());
         Map<String, String> fieldsConversion = ruleLocation.fieldsConversion();
         ObjectMapper objectMapper = new ObjectMapper();
@@ -110,38 +113,4 @@ class DefaultRulesetExtractor implements RulesetExtractor {
         }
         return node;
     }
-
-    private void validateRuleSetTarget(RuleLocation ruleLocation) {
-        if (ruleLocation == null) {
-            throw new IllegalArgumentException("Invalid ruleset target. It must not be null.");
-        }
-        if (ruleLocation.filePath() == null || ruleLocation.filePath().isEmpty()) {
-            throw new IllegalArgumentException("Invalid ruleset target. File path is empty.");
-        }
-        if (ruleLocation.name() == null || ruleLocation.name().isEmpty()) {
-            throw new IllegalArgumentException("Invalid ruleset target. Name is empty.");
-        }
-
-        Map<String, String> fieldsConversion = ruleLocation.fieldsConversion();
-
-        if (fieldsConversion== null || fieldsConversion.isEmpty()) {
-            throw new IllegalArgumentException("Invalid ruleset target. FieldsConversion is empty.");
-        }
-        validateFieldConversionField(fieldsConversion, "id");
-        validateFieldConversionField(fieldsConversion, "entityType");
-        validateFieldConversionField(fieldsConversion, "data");
-        validateFieldConversionField(fieldsConversion, "label");
-        validateFieldConversionField(fieldsConversion, "url");
-    }
-
-    private void validateFieldConversionField(Map<String, String> entry, String fieldName) {
-        if (!entry.containsKey(fieldName)) {
-            throw new IllegalArgumentException(
-                "Invalid ruleset target. Field conversion section is missing an entry for '" + fieldName + "'");
-        }
-        if (entry.get(fieldName) == null || entry.get(fieldName).isEmpty()) {
-            throw new IllegalArgumentException(
-                "Invalid ruleset target. Field conversion section has an empty value for '" + fieldName);
-        }
-    }
 }
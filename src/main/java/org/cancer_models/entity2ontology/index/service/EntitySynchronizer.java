@@ -0,0 +1,183 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.cancer_models.entity2ontology.common.mappers.TargetEntityDocumentMapper;
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.index.model.SynchronizationResult;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies to an index only the changes needed to make the documents of an entity type and target type match a new
+ * set of entities.
+ *
+ * <p>When created, it loads the unique id and content hash of the documents already in the index. Then each entity
+ * passed to {@link #accept(TargetEntity)} is compared with them:
+ * <ul>
+ *   <li>If there is no document for the entity, it is added.</li>
+ *   <li>If there is a document with a different hash, it is replaced.</li>
+ *   <li>If the hash is the same, nothing is written.</li>
+ * </ul>
+ * {@link #finish()} deletes the documents whose entities were not received, and commits.
+ *
+ * <p>Indexes created before content hashes were stored are fully replaced the first time they are synchronized.
+ */
+class EntitySynchronizer {
+
+    private static final Logger logger = LogManager.getLogger(EntitySynchronizer.class);
+
+    private static final String UNIQUE_ID_FIELD = TargetEntityFieldName.UNIQUE_ID.getValue();
+    private static final String CONTENT_HASH_FIELD = TargetEntityFieldName.CONTENT_HASH.getValue();
+
+    private final IndexWriter writer;
+    private final String entityType;
+    private final String targetType;
+
+    // Hash per unique id of the documents in the index. A null hash means there are several documents with the
+    // same unique id, so they are always rewritten
+    private final Map<String, String> existingHashes;
+
+    // Unique ids received so far
+    private final Set<String> receivedIds = new HashSet<>();
+
+    private int added;
+    private int updated;
+    private int unchanged;
+
+    EntitySynchronizer(IndexWriter writer, String entityType, String targetType) throws IOException {
+        this.writer = writer;
+        this.entityType = entityType;
+        this.targetType = targetType;
+        this.existingHashes = loadExistingHashes();
+    }
+
+    /**
+     * An entity already converted into its document, with the values needed to synchronize it.
+     *
+     * @param uniqueId    the unique id of the entity
+     * @param contentHash the hash of the content of the entity
+     * @param document    the document of the entity
+     */
+    record PreparedEntity(String uniqueId, String contentHash, Document document) {
+    }
+
+    /**
+     * Converts an entity into its document. This is the expensive part of the synchronization, and it does not
+     * depend on the state of the synchronizer, so it can be done in other threads.
+     *
+     * @param targetEntity the entity to convert
+     * @return the entity ready to be passed to {@link #accept(PreparedEntity)}
+     */
+    static PreparedEntity prepare(TargetEntity targetEntity) {
+        Document document = TargetEntityDocumentMapper.targetEntityToDocument(targetEntity);
+        return new PreparedEntity(document.get(UNIQUE_ID_FIELD), document.get(CONTENT_HASH_FIELD), document);
+    }
+
+    /**
+     * Writes the document of {@code targetEntity} if it is new or its content changed.
+     *
+     * @param targetEntity an entity of the entity type and target type being synchronized
+     * @throws IOException if there is an error writing the index
+     */
+    void accept(TargetEntity targetEntity) throws IOException {
+        accept(prepare(targetEntity));
+    }
+
+    /**
+     * Writes the document of an already converted entity if it is new or its content changed.
+     *
+     * @param entity an entity of the entity type and target type being synchronized
+     * @throws IOException if there is an error writing the index
+     */
+    void accept(PreparedEntity entity) throws IOException {
+        String uniqueId = entity.uniqueId();
+
+        if (!receivedIds.add(uniqueId)) {
+            // Same unique id received more than once: keep all the documents, as a full reindex would do
+            writer.addDocument(entity.document());
+            added++;
+            return;
+        }
+
+        boolean exists = existingHashes.containsKey(uniqueId);
+        String existingHash = existingHashes.get(uniqueId);
+        if (exists && existingHash != null && existingHash.equals(entity.contentHash())) {
+            unchanged++;
+            return;
+        }
+
+        if (exists) {
+            writer.updateDocument(new Term(UNIQUE_ID_FIELD, uniqueId), entity.document());
+            updated++;
+        } else {
+            writer.addDocument(entity.document());
+            added++;
+        }
+    }
+
+    /**
+     * Deletes the documents of the entities that were not received and commits the changes.
+     *
+     * @return the summary of the changes applied to the index
+     * @throws IOException if there is an error writing the index
+     */
+    SynchronizationResult finish() throws IOException {
+        int deleted = 0;
+        for (String uniqueId : existingHashes.keySet()) {
+            if (!receivedIds.contains(uniqueId)) {
+                writer.deleteDocuments(new Term(UNIQUE_ID_FIELD, uniqueId));
+                deleted++;
+            }
+        }
+        writer.commit();
+        SynchronizationResult result = new SynchronizationResult(added, updated, deleted, unchanged);
+        logger.info("Synchronized entityType '{}', targetType '{}': {}", entityType, targetType, result);
+        return result;
+    }
+
+    private Map<String, String> loadExistingHashes() throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        Query query = Indexer.buildEntityTypeAndTargetTypeQuery(entityType, targetType);
+        // Reader over the writer, so changes not committed yet are also seen
+        try (DirectoryReader reader = DirectoryReader.open(writer)) {
+            if (reader.numDocs() == 0) {
+                return hashes;
+            }
+            IndexSearcher searcher = new IndexSearcher(reader);
+            TopDocs topDocs = searcher.search(query, reader.numDocs());
+            StoredFields storedFields = searcher.storedFields();
+            Set<String> fieldsToLoad = Set.of(UNIQUE_ID_FIELD, CONTENT_HASH_FIELD);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Document document = storedFields.document(scoreDoc.doc, fieldsToLoad);
+                String uniqueId = document.get(UNIQUE_ID_FIELD);
+                String hash = document.get(CONTENT_HASH_FIELD);
+                if (uniqueId == null || hash == null) {
+                    logger.info(
+                        "Documents without content hash found for entityType '{}', targetType '{}'. "
+                            + "All of them will be replaced", entityType, targetType);
+                    writer.deleteDocuments(query);
+                    hashes.clear();
+                    return hashes;
+                }
+                if (hashes.containsKey(uniqueId)) {
+                    hashes.put(uniqueId, null);
+                } else {
+                    hashes.put(uniqueId, hash);
+                }
+            }
+        }
+        return hashes;
+    }
+}
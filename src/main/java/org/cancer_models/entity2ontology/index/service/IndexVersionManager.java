@@ -0,0 +1,294 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.cancer_models.entity2ontology.common.utils.FileUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Manages versioned (blue/green) copies of a Lucene index.
+ *
+ * <p>When an index is managed by this class, {@code indexPath} is a symbolic link that points to a version directory
+ * inside {@code <indexPath>.versions}. A new version is always built in its own directory (staging), so processes
+ * reading the index never see a half-built index. Once the new version is validated, the link is replaced atomically,
+ * and processes that resolve {@code indexPath} afterwards (see {@code Searcher}) start using the new version.
+ *
+ * <p>Layout example:
+ * <pre>
+ * /data/index                  -&gt; index.versions/v20250101-101500-123
+ * /data/index.versions/
+ *     v20241231-090000-001     (previous version, kept for rollback)
+ *     v20250101-101500-123     (live version)
+ *     published                (the versions that were live, oldest first, ending with the live one)
+ *     rolled-back              (the versions replaced by a rollback, removed on the next publication)
+ * </pre>
+ *
+ * <p>A rollback goes back to the version that was live before the current one, as recorded in the
+ * {@code published} file, not to the version with the previous name: after rolling back from a bad version and
+ * publishing a new one, a second rollback restores the good version, and the bad one is never live again.
+ */
+@Component
+public class IndexVersionManager {
+
+    private static final Logger logger = LogManager.getLogger(IndexVersionManager.class);
+
+    // Suffix of the directory (sibling of the index path) that contains all the versions of an index
+    private static final String VERSIONS_DIR_SUFFIX = ".versions";
+
+    // Suffix of the temporary link used to swap versions atomically
+    private static final String SWAP_LINK_SUFFIX = ".swap";
+
+    // Prefix of a version directory. The rest of the name is a timestamp, so versions sort chronologically by name
+    private static final String VERSION_PREFIX = "v";
+
+    // Name given to an index that existed before versions were used. It sorts before any timestamped version
+    private static final String LEGACY_VERSION_NAME = VERSION_PREFIX + "00000000-000000-000";
+
+    private static final DateTimeFormatter VERSION_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    // Number of versions kept on disk: the live one and the previous one (for rollback)
+    private static final int VERSIONS_TO_KEEP = 2;
+
+    // File (in the versions directory) with the names of the versions that were published, oldest first
+    private static final String PUBLISHED_FILE = "published";
+
+    // File (in the versions directory) with the names of the versions that were replaced by a rollback
+    private static final String ROLLED_BACK_FILE = "rolled-back";
+
+    /**
+     * Creates a new, empty version directory for the index at {@code indexPath}. The index must be built there
+     * and then published with {@link #publish(String, Path)}.
+     *
+     * @param indexPath the path used by clients to access the index
+     * @return the path of the new version directory
+     * @throws IOException if the directory cannot be created
+     */
+    public Path createStagingVersion(String indexPath) throws IOException {
+        Path versionsDir = getVersionsDir(indexPath);
+        Files.createDirectories(versionsDir);
+        Path version = versionsDir.resolve(VERSION_PREFIX + LocalDateTime.now().format(VERSION_FORMATTER));
+        // Two versions created in the same millisecond would collide
+        while (Files.exists(version)) {
+            version = versionsDir.resolve(version.getFileName() + "0");
+        }
+        Files.createDirectory(version);
+        logger.info("Created staging version {} for index {}", version, indexPath);
+        return version;
+    }
+
+    /**
+     * Checks that the index built at {@code version} can be opened and contains at least {@code minimumDocuments}
+     * documents.
+     *
+     * @param version          the version directory to validate
+     * @param minimumDocuments the minimum number of live documents the index must contain
+     * @throws IOException if the index cannot be opened or does not contain the expected documents
+     */
+    public void validate(Path version, int minimumDocuments) throws IOException {
+        try (Directory directory = FSDirectory.open(version);
+             DirectoryReader reader = DirectoryReader.open(directory)) {
+            if (reader.numDocs() < minimumDocuments) {
+                throw new IOException(String.format(
+                    "Validation of index version %s failed: expected at least %d documents but found %d",
+                    version, minimumDocuments, reader.numDocs()));
+            }
+            logger.info("Index version {} is valid ({} documents)", version, reader.numDocs());
+        }
+    }
+
+    /**
+     * Makes {@code version} the live version of the index at {@code indexPath}, by atomically replacing the link
+     * {@code indexPath}. Versions replaced by a rollback are removed first, and then old versions, except the one
+     * that was live before, which is kept for rollback.
+     *
+     * <p>If {@code indexPath} is a regular directory (an index created before versions were used), it is moved into
+     * the versions directory first, so it becomes the previous version.
+     *
+     * @param indexPath the path used by clients to access the index
+     * @param version   the version directory to publish
+     * @throws IOException if the link cannot be replaced
+     */
+    public void publish(String indexPath, Path version) throws IOException {
+        Path link = Paths.get(indexPath).toAbsolutePath();
+        migrateUnversionedIndex(link);
+        List<String> published = readPublishedVersions(indexPath);
+        switchLink(link, version);
+        logger.info("Index {} now points to version {}", indexPath, version.getFileName());
+        published.add(version.getFileName().toString());
+        removeOldVersions(indexPath, published);
+    }
+
+    /**
+     * Points {@code indexPath} back to the version that was live before the current one. The current version is
+     * recorded as rolled back, so it is removed on the next publication instead of being kept as the previous one.
+     *
+     * @param indexPath the path used by clients to access the index
+     * @return the version that is now live
+     * @throws IOException if there is no previous version or the link cannot be replaced
+     */
+    public Path rollback(String indexPath) throws IOException {
+        Path link = Paths.get(indexPath).toAbsolutePath();
+        if (!Files.isSymbolicLink(link)) {
+            throw new IOException("Index " + indexPath + " is not versioned, so it cannot be rolled back");
+        }
+        Path current = getLiveVersion(indexPath);
+        List<String> published = readPublishedVersions(indexPath);
+        if (published.isEmpty() || !published.getLast().equals(current.getFileName().toString())) {
+            throw new IOException(String.format(
+                "Version %s of index %s was not published, so it cannot be rolled back", current, indexPath));
+        }
+        published.removeLast();
+        if (published.isEmpty()) {
+            throw new IOException("No previous version found for index " + indexPath);
+        }
+        Path previous = getVersionsDir(indexPath).resolve(published.getLast()).toRealPath();
+        switchLink(link, previous);
+        writeVersionNames(indexPath, PUBLISHED_FILE, published);
+        List<String> rolledBack = readVersionNames(indexPath, ROLLED_BACK_FILE);
+        rolledBack.add(current.getFileName().toString());
+        writeVersionNames(indexPath, ROLLED_BACK_FILE, rolledBack);
+        logger.info("Index {} rolled back from version {} to {}",
+            indexPath, current.getFileName(), previous.getFileName());
+        return previous;
+    }
+
+    /**
+     * Deletes a version directory that was not published (for instance, because building or validating it failed).
+     *
+     * @param version the version directory to delete
+     */
+    public void discard(Path version) {
+        logger.info("Discarding index version {}", version);
+        FileUtils.deleteRecursively(version.toFile());
+    }
+
+    /**
+     * Returns the version directory currently pointed by {@code indexPath}.
+     *
+     * @param indexPath the path used by clients to access the index
+     * @return the live version directory, or {@code indexPath} itself if the index is not versioned
+     * @throws IOException if the link cannot be resolved
+     */
+    public Path getLiveVersion(String indexPath) throws IOException {
+        Path link = Paths.get(indexPath).toAbsolutePath();
+        if (Files.isSymbolicLink(link)) {
+            return link.toRealPath();
+        }
+        return link;
+    }
+
+    private void migrateUnversionedIndex(Path link) throws IOException {
+        if (Files.exists(link, LinkOption.NOFOLLOW_LINKS) && !Files.isSymbolicLink(link)) {
+            Path versionsDir = getVersionsDir(link.toString());
+            Files.createDirectories(versionsDir);
+            Path legacyVersion = versionsDir.resolve(LEGACY_VERSION_NAME);
+            logger.info("Moving unversioned index {} to {}", link, legacyVersion);
+            Files.move(link, legacyVersion);
+            switchLink(link, legacyVersion);
+        }
+    }
+
+    // Creates a temporary link to the version and renames it over the existing link, which is an atomic operation
+    private void switchLink(Path link, Path version) throws IOException {
+        Path swapLink = link.resolveSibling(link.getFileName() + SWAP_LINK_SUFFIX);
+        Files.deleteIfExists(swapLink);
+        // Relative target, so the index and its versions can be moved together
+        Path target = link.getParent().relativize(version.toAbsolutePath());
+        Files.createSymbolicLink(swapLink, target);
+        Files.move(swapLink, link, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Removes the rolled back versions and the published versions older than the ones to keep, and records the
+    // published versions that are left
+    private void removeOldVersions(String indexPath, List<String> published) throws IOException {
+        Path versionsDir = getVersionsDir(indexPath);
+        for (String rolledBack : readVersionNames(indexPath, ROLLED_BACK_FILE)) {
+            logger.info("Removing rolled back index version {}", rolledBack);
+            FileUtils.deleteRecursively(versionsDir.resolve(rolledBack).toFile());
+            published.remove(rolledBack);
+        }
+        writeVersionNames(indexPath, ROLLED_BACK_FILE, List.of());
+        while (published.size() > VERSIONS_TO_KEEP) {
+            String old = published.removeFirst();
+            logger.info("Removing old index version {}", old);
+            FileUtils.deleteRecursively(versionsDir.resolve(old).toFile());
+        }
+        writeVersionNames(indexPath, PUBLISHED_FILE, published);
+    }
+
+    // The versions that were published, oldest first. Indexes versioned before the publications were recorded are
+    // assumed to have published their versions in the order of their names, up to the live one
+    private List<String> readPublishedVersions(String indexPath) throws IOException {
+        if (Files.exists(getVersionsDir(indexPath).resolve(PUBLISHED_FILE))) {
+            return readVersionNames(indexPath, PUBLISHED_FILE);
+        }
+        List<String> published = new ArrayList<>();
+        Path link = Paths.get(indexPath).toAbsolutePath();
+        if (Files.isSymbolicLink(link)) {
+            String live = getLiveVersion(indexPath).getFileName().toString();
+            for (Path version : listVersions(indexPath)) {
+                String name = version.getFileName().toString();
+                if (name.compareTo(live) <= 0) {
+                    published.add(name);
+                }
+            }
+        }
+        return published;
+    }
+
+    private List<String> readVersionNames(String indexPath, String fileName) throws IOException {
+        Path file = getVersionsDir(indexPath).resolve(fileName);
+        List<String> names = new ArrayList<>();
+        if (Files.exists(file)) {
+            Files.readAllLines(file).stream().filter(line -> !line.isBlank()).forEach(names::add);
+        }
+        return names;
+    }
+
+    // Writes a temporary file and renames it over the existing one, so the file is never half written
+    private void writeVersionNames(String indexPath, String fileName, List<String> names) throws IOException {
+        Path file = getVersionsDir(indexPath).resolve(fileName);
+        Path temporaryFile = file.resolveSibling(fileName + ".tmp");
+        Files.write(temporaryFile, names);
+        Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Versions sorted from the oldest to the newest
+    private List<Path> listVersions(String indexPath) throws IOException {
+        Path versionsDir = getVersionsDir(indexPath);
+        List<Path> versions = new ArrayList<>();
+        if (Files.isDirectory(versionsDir)) {
+            try (Stream<Path> children = Files.list(versionsDir)) {
+                children
+                    .filter(Files::isDirectory)
+                    .filter(p -> p.getFileName().toString().startsWith(VERSION_PREFIX))
+                    .map(p -> {
+                        try {
+                            return p.toRealPath();
+                        } catch (IOException e) {
+                            return p;
+                        }
+                    })
+                    .sorted()
+                    .forEach(versions::add);
+            }
+        }
+        return versions;
+    }
+
+    private Path getVersionsDir(String indexPath) {
+        Path link = Paths.get(indexPath).toAbsolutePath();
+        return link.resolveSibling(link.getFileName() + VERSIONS_DIR_SUFFIX);
+    }
+}
@@ -6,11 +6,14 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.cancer_models.entity2ontology.common.mappers.TargetEntityDocumentMapper;
 import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.index.model.SynchronizationResult;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -106,16 +109,83 @@ public class Indexer {
     public void deleteAllByEntityTypeAndTargetType(
         String entityType, String targetType, String indexPath) throws IOException {
         IndexWriter writer = getIndexWriter(indexPath);
-        // Create a BooleanQuery to match both entityType and targetType
-        BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
-        queryBuilder.add(new TermQuery(new Term("entityType", entityType)), BooleanClause.Occur.MUST);
-        queryBuilder.add(new TermQuery(new Term("targetType", targetType)), BooleanClause.Occur.MUST);
-
         // Delete documents matching the query
-        writer.deleteDocuments(queryBuilder.build());
+        writer.deleteDocuments(buildEntityTypeAndTargetTypeQuery(entityType, targetType));
         writer.commit();
     }
 
+    /**
+     * Updates the documents which entityType is {@code entityType} and target type is {@code targetType} so they
+     * match {@code entities}, writing only the entities that are new or changed (according to their content hash)
+     * and deleting the ones that are not in {@code entities} anymore.
+     *
+     * @param entities   the complete set of entities of the given entity type and target type
+     * @param entityType The type of entity to update (treatment or diagnosis, for instance).
+     * @param targetType The target type of the entities (rule or ontology).
+     * @param indexPath  Path of the index.
+     * @return the summary of the changes applied to the index
+     * @throws IOException if there is an issue writing to the index
+     */
+    public SynchronizationResult synchronizeEntities(
+        List<TargetEntity> entities, String entityType, String targetType, String indexPath) throws IOException {
+        EntitySynchronizer synchronizer = startSynchronization(entityType, targetType, indexPath);
+        for (TargetEntity entity : entities) {
+            synchronizer.accept(entity);
+        }
+        return synchronizer.finish();
+    }
+
+    /**
+     * Same as {@link #synchronizeEntities(List, String, String, String)}, but the entities are written while the
+     * producer is still extracting them (see {@link IndexingPipeline}). If the producer or the writing fails, the
+     * changes made to the index since the last commit are discarded, so the index never contains only part of
+     * the entities.
+     *
+     * @param entityType The type of entity to update (treatment or diagnosis, for instance).
+     * @param targetType The target type of the entities (rule or ontology).
+     * @param indexPath  Path of the index.
+     * @param producer   Produces the complete set of entities of the given entity type and target type.
+     * @return the summary of the changes applied to the index
+     * @throws IOException if there is an issue extracting the entities or writing to the index
+     */
+    SynchronizationResult synchronizeEntities(
+        String entityType, String targetType, String indexPath, IndexingPipeline.EntityProducer producer)
+        throws IOException {
+        EntitySynchronizer synchronizer = startSynchronization(entityType, targetType, indexPath);
+        try {
+            new IndexingPipeline(synchronizer).run(producer);
+        } catch (IOException | RuntimeException e) {
+            rollback(indexPath);
+            throw e;
+        }
+        return synchronizer.finish();
+    }
+
+    /**
+     * Starts a synchronization of the documents which entityType is {@code entityType} and target type is
+     * {@code targetType}, so entities can be passed one by one as they are produced.
+     *
+     * @param entityType The type of entity to update (treatment or diagnosis, for instance).
+     * @param targetType The target type of the entities (rule or ontology).
+     * @param indexPath  Path of the index.
+     * @return an {@link EntitySynchronizer} that must be finished once all the entities are accepted
+     * @throws IOException if the current content of the index cannot be read
+     */
+    EntitySynchronizer startSynchronization(String entityType, String targetType, String indexPath)
+        throws IOException {
+        return new EntitySynchronizer(getIndexWriter(indexPath), entityType, targetType);
+    }
+
+    // A query matching all the documents with the given entityType and targetType
+    static Query buildEntityTypeAndTargetTypeQuery(String entityType, String targetType) {
+        BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
+        queryBuilder.add(new TermQuery(
+            new Term(TargetEntityFieldName.ENTITY_TYPE.getValue(), entityType)), BooleanClause.Occur.MUST);
+        queryBuilder.add(new TermQuery(
+            new Term(TargetEntityFieldName.TARGET_TYPE.getValue(), targetType)), BooleanClause.Occur.MUST);
+        return queryBuilder.build();
+    }
+
     /**
      * Delete all documents in a given index {@code entityType}.
      * @param indexPath Path of the index.
@@ -127,6 +197,47 @@ public class Indexer {
         logger.info("All documents at {} deleted", indexPath);
     }
 
+    /**
+     * Copies all the documents of the index at {@code sourcePath} into the index at {@code targetPath}. If there is
+     * an open writer for the source index, it is closed first so all its changes are visible.
+     * @param sourcePath Path of the index to copy.
+     * @param targetPath Path of the index receiving the documents.
+     */
+    public void copyIndex(String sourcePath, String targetPath) throws IOException {
+        close(sourcePath);
+        IndexWriter writer = getIndexWriter(targetPath);
+        try (Directory source = FSDirectory.open(Paths.get(sourcePath))) {
+            writer.addIndexes(source);
+        }
+        writer.commit();
+        logger.info("Copied index {} into {}", sourcePath, targetPath);
+    }
+
+    /**
+     * Discards the changes made to the index at {@code indexPath} since the last commit and closes its writer, if
+     * there is one open. A new writer is created the next time the index is written.
+     * @param indexPath Path of the index.
+     */
+    public void rollback(String indexPath) throws IOException {
+        IndexWriter writer = indexes.remove(indexPath);
+        if (writer != null) {
+            writer.rollback();
+            logger.info("Uncommitted changes in index {} discarded", indexPath);
+        }
+    }
+
+    /**
+     * Commits and closes the writer of the index at {@code indexPath}, if there is one open.
+     * @param indexPath Path of the index.
+     */
+    public void close(String indexPath) throws IOException {
+        IndexWriter writer = indexes.remove(indexPath);
+        if (writer != null) {
+            writer.close();
+            logger.info("Index {} closed", indexPath);
+        }
+    }
+
     /**
      * Checks if the given path contains a valid Lucene index.
      *
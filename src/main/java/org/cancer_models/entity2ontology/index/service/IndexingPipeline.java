@@ -0,0 +1,216 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the extraction of entities, their conversion into documents and the writing of the documents as overlapping
+ * stages, connected by bounded queues:
+ * <pre>
+ *   producer --(entities)--&gt; converters --(prepared documents)--&gt; writer
+ * </pre>
+ * <ul>
+ *   <li>The producer (an extractor reading a rules file or downloading ontology pages) runs in its own thread and
+ *   puts each entity in the queue as soon as it is extracted.</li>
+ *   <li>Several converters turn entities into documents and calculate their content hashes.</li>
+ *   <li>The writer, which runs in the calling thread, passes the documents to an {@link EntitySynchronizer}.</li>
+ * </ul>
+ * When a queue is full, the stage filling it blocks until there is room, so a fast producer never holds more than
+ * a bounded number of entities in memory. The total time is then close to the time of the slowest stage instead of
+ * the sum of all of them.
+ *
+ * <p>The converters finish in any order, but the writer passes the documents in the order the producer extracted
+ * them. Lucene breaks ties between equal scores by document id, so this keeps the ranking of equal-score suggestions
+ * the same in every build from the same input. The price is that documents converted ahead of a slower one wait in
+ * the writer until it is done. The number of entities between the producer and the writer is limited, so that
+ * buffer is bounded too.
+ *
+ * <p>If any stage fails, the others are interrupted and the first error is thrown by {@link #run(EntityProducer)}.
+ */
+class IndexingPipeline {
+
+    private static final Logger logger = LogManager.getLogger(IndexingPipeline.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final int DEFAULT_CONVERTERS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // How often the writer checks if another stage failed while it waits for documents
+    private static final long FAILURE_CHECK_INTERVAL_MS = 100;
+
+    // Markers telling the next stage that there are no more elements
+    private static final TargetEntity END_OF_ENTITIES = new TargetEntity(null, null, null, null, null, null);
+    private static final EntitySynchronizer.PreparedEntity END_OF_DOCUMENTS =
+        new EntitySynchronizer.PreparedEntity(null, null, null);
+
+    // An element together with its position in the order of the producer
+    private record Sequenced<T>(long sequence, T element) {
+    }
+
+    /**
+     * Produces the entities to index, passing them to a consumer.
+     */
+    @FunctionalInterface
+    interface EntityProducer {
+        void produce(TargetEntityConsumer consumer) throws IOException;
+    }
+
+    private final EntitySynchronizer synchronizer;
+    private final int converters;
+    private final BlockingQueue<Sequenced<TargetEntity>> entities;
+    private final BlockingQueue<Sequenced<EntitySynchronizer.PreparedEntity>> documents;
+
+    // Entities produced and not written yet. The documents queue does not need a capacity of its own, as its size is
+    // bounded by these permits, and so it never blocks a converter holding the document the writer is waiting for
+    private final Semaphore inFlight;
+
+    // Sequence of the next entity produced. Only used by the producer thread
+    private long nextSequence;
+
+    // First error raised by the producer or a converter
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    IndexingPipeline(EntitySynchronizer synchronizer) {
+        this(synchronizer, DEFAULT_CONVERTERS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a pipeline writing into the given synchronizer.
+     *
+     * @param synchronizer  receives the documents, from a single thread
+     * @param converters    number of threads converting entities into documents
+     * @param queueCapacity maximum number of elements waiting between two stages. Up to twice as many entities can
+     *                      be between the producer and the writer
+     */
+    IndexingPipeline(EntitySynchronizer synchronizer, int converters, int queueCapacity) {
+        if (converters < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The number of converters and the queue capacity must be positive");
+        }
+        this.synchronizer = synchronizer;
+        this.converters = converters;
+        this.entities = new ArrayBlockingQueue<>(queueCapacity);
+        this.documents = new LinkedBlockingQueue<>();
+        this.inFlight = new Semaphore(2 * queueCapacity);
+    }
+
+    /**
+     * Runs the pipeline until the producer has no more entities and all of them are written.
+     *
+     * @param producer the source of the entities
+     * @return the number of entities passed to the synchronizer
+     * @throws IOException if any of the stages fails with an I/O error
+     */
+    int run(EntityProducer producer) throws IOException {
+        int written = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(executor.submit(() -> runProducer(producer)));
+            for (int i = 0; i < converters; i++) {
+                tasks.add(executor.submit(this::runConverter));
+            }
+            try {
+                written = runWriter();
+            } catch (IOException | RuntimeException | InterruptedException e) {
+                failure.compareAndSet(null, e);
+            }
+            if (failure.get() != null) {
+                tasks.forEach(task -> task.cancel(true));
+            }
+        }
+        throwIfFailed();
+        logger.debug("{} entities written by the indexing pipeline", written);
+        return written;
+    }
+
+    private void runProducer(EntityProducer producer) {
+        try {
+            producer.produce(this::putEntity);
+            for (int i = 0; i < converters; i++) {
+                entities.put(new Sequenced<>(-1, END_OF_ENTITIES));
+            }
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void putEntity(TargetEntity targetEntity) throws IOException {
+        try {
+            inFlight.acquire();
+            entities.put(new Sequenced<>(nextSequence++, targetEntity));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing " + targetEntity.id(), e);
+        }
+    }
+
+    private void runConverter() {
+        try {
+            Sequenced<TargetEntity> sequenced;
+            while ((sequenced = entities.take()).element() != END_OF_ENTITIES) {
+                documents.put(new Sequenced<>(sequenced.sequence(), EntitySynchronizer.prepare(sequenced.element())));
+            }
+            documents.put(new Sequenced<>(-1, END_OF_DOCUMENTS));
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writes documents, in the order of the producer, until all the converters are finished, or another stage fails
+    private int runWriter() throws IOException, InterruptedException {
+        int written = 0;
+        int finishedConverters = 0;
+        // Documents converted before the ones preceding them, by sequence
+        Map<Long, EntitySynchronizer.PreparedEntity> waiting = new HashMap<>();
+        while (finishedConverters < converters) {
+            Sequenced<EntitySynchronizer.PreparedEntity> sequenced =
+                documents.poll(FAILURE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (failure.get() != null) {
+                return written;
+            }
+            if (sequenced == null) {
+                continue;
+            }
+            if (sequenced.element() == END_OF_DOCUMENTS) {
+                finishedConverters++;
+                continue;
+            }
+            waiting.put(sequenced.sequence(), sequenced.element());
+            EntitySynchronizer.PreparedEntity document;
+            while ((document = waiting.remove((long) written)) != null) {
+                synchronizer.accept(document);
+                written++;
+                inFlight.release();
+            }
+        }
+        return written;
+    }
+
+    private void throwIfFailed() throws IOException {
+        Throwable error = failure.get();
+        if (error == null) {
+            return;
+        }
+        if (error instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (error instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (error instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        throw new IOException("Indexing pipeline failed", error);
+    }
+}
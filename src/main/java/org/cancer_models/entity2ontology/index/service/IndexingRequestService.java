@@ -6,12 +6,14 @@ import org.cancer_models.entity2ontology.common.utils.FileUtils;
 import org.cancer_models.entity2ontology.common.utils.JsonConverter;
 import org.cancer_models.entity2ontology.index.model.IndexingRequest;
 import org.cancer_models.entity2ontology.index.model.IndexingResponse;
+import org.cancer_models.entity2ontology.index.model.OntologyCacheSettings;
 import org.cancer_models.entity2ontology.index.model.OntologyLocation;
 import org.cancer_models.entity2ontology.index.model.RuleLocation;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -41,9 +43,11 @@ public class IndexingRequestService {
 
     private static final Logger logger = LogManager.getLogger(IndexingRequestService.class);
     private final IndexingService indexingService;
+    private final IndexVersionManager indexVersionManager;
 
-    public IndexingRequestService(IndexingService indexingService) {
+    public IndexingRequestService(IndexingService indexingService, IndexVersionManager indexVersionManager) {
         this.indexingService = indexingService;
+        this.indexVersionManager = indexVersionManager;
     }
 
     /**
@@ -80,13 +84,72 @@ public class IndexingRequestService {
         // Set the time the mapping process starts
         LocalDateTime start = LocalDateTime.now();
 
+        Map<String, Integer> indexedElementsPerLocation;
+        if (request.atomicSwap()) {
+            indexedElementsPerLocation = indexIntoNewVersion(request);
+        } else {
+            indexedElementsPerLocation = indexLocations(request, request.indexPath());
+        }
+
+        LocalDateTime end = LocalDateTime.now();
+        return new IndexingResponse(
+            start, end, request.indexPath(), indexedElementsPerLocation
+        );
+    }
+
+    /**
+     * Builds a new version of the index in a staging directory and, if the build succeeds and the new index is
+     * valid, makes it the live version. The current index keeps serving searches until the switch, and is kept
+     * as the previous version so it can be restored with {@link #rollback(String)}.
+     *
+     * <p>The new version starts as a copy of the current index, so locations not included in the request are
+     * preserved, as they are when indexing in place.
+     *
+     * @param request the {@link IndexingRequest} containing the information needed for indexing
+     * @return the number of indexed elements per location
+     * @throws IOException if there is an error building, validating or publishing the new version
+     */
+    private Map<String, Integer> indexIntoNewVersion(IndexingRequest request) throws IOException {
+        String indexPath = request.indexPath();
+        Path stagingVersion = indexVersionManager.createStagingVersion(indexPath);
+        String stagingPath = stagingVersion.toString();
+        try {
+            if (Indexer.isValidLuceneIndex(indexPath)) {
+                indexingService.copyIndex(indexPath, stagingPath);
+            }
+            Map<String, Integer> indexedElementsPerLocation = indexLocations(request, stagingPath);
+            indexingService.closeIndex(stagingPath);
+            int expectedDocuments = indexedElementsPerLocation.values().stream().mapToInt(Integer::intValue).sum();
+            indexVersionManager.validate(stagingVersion, expectedDocuments);
+            indexVersionManager.publish(indexPath, stagingVersion);
+            return indexedElementsPerLocation;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Building a new version of index {} failed. The current version is kept", indexPath);
+            indexingService.closeIndex(stagingPath);
+            indexVersionManager.discard(stagingVersion);
+            throw e;
+        }
+    }
+
+    /**
+     * Makes the previous version of the index at {@code indexPath} the live version again.
+     *
+     * @param indexPath the path of the index
+     * @throws IOException if the index is not versioned or there is no previous version
+     */
+    public void rollback(String indexPath) throws IOException {
+        indexVersionManager.rollback(indexPath);
+    }
+
+    // Indexes all the (non-ignored) locations in the request into the index at indexPath
+    private Map<String, Integer> indexLocations(IndexingRequest request, String indexPath) throws IOException {
         Map<String, Integer> indexedElementsPerLocation = new HashMap<>();
 
         // Process the rules defined in the rule locations, if any (and excluding the ones that need to be ignored)
         if (request.ruleLocations() != null) {
             for (RuleLocation ruleLocation : request.ruleLocations()) {
                 if (!ruleLocation.ignore()) {
-                    int count = processRuleLocation(ruleLocation, request.indexPath());
+                    int count = processRuleLocation(ruleLocation, indexPath);
                     indexedElementsPerLocation.put(ruleLocation.name(), count);
                 }
             }
@@ -96,16 +159,12 @@ public class IndexingRequestService {
         if (request.ontologyLocations() != null) {
             for (OntologyLocation ontologyLocation : request.ontologyLocations()) {
                 if (!ontologyLocation.ignore()) {
-                    int count = processOntologyLocation(ontologyLocation, request.indexPath());
+                    int count = processOntologyLocation(ontologyLocation, indexPath, request.ontologyCache());
                     indexedElementsPerLocation.put(ontologyLocation.name(), count);
                 }
             }
         }
-
-        LocalDateTime end = LocalDateTime.now();
-        return new IndexingResponse(
-            start, end, request.indexPath(), indexedElementsPerLocation
-        );
+        return indexedElementsPerLocation;
     }
 
     /**
@@ -122,10 +181,12 @@ public class IndexingRequestService {
      * Processes a ruleset by reading the JSON file from the given location and indexing the data
      * @param ontologyLocation {@link OntologyLocation} which contains the path and an identifier for the ontologies
      * @param indexPath Path to the Lucene index
+     * @param cacheSettings Settings of the local cache of ontology data (can be null)
      * @return the number of indexed elements
      */
-    private int processOntologyLocation(OntologyLocation ontologyLocation, String indexPath) throws IOException {
-        return indexingService.indexOntologies(ontologyLocation, indexPath);
+    private int processOntologyLocation(
+        OntologyLocation ontologyLocation, String indexPath, OntologyCacheSettings cacheSettings) throws IOException {
+        return indexingService.indexOntologies(ontologyLocation, indexPath, cacheSettings);
     }
 
     /**
@@ -3,13 +3,14 @@ package org.cancer_models.entity2ontology.index.service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+import org.cancer_models.entity2ontology.index.model.OntologyCacheSettings;
 import org.cancer_models.entity2ontology.index.model.OntologyLocation;
 import org.cancer_models.entity2ontology.index.model.RuleLocation;
-import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.index.model.SynchronizationResult;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.List;
 
 /**
  * Service class responsible for indexing rules and ontologies.
@@ -30,11 +31,19 @@ public class IndexingService {
 
     private final OntologyExtractor ontologyExtractor;
 
+    // Used instead of ontologyExtractor for locations that point to a local ontology file
+    private final OntologyExtractor localFileOntologyExtractor;
+
     private final Indexer indexer;
 
-    public IndexingService(RulesetExtractor rulesetExtractor, OntologyExtractor ontologyExtractor, Indexer indexer) {
+    public IndexingService(
+        @Qualifier("streamingRulesetExtractor") RulesetExtractor rulesetExtractor,
+        @Qualifier("defaultOntologyExtractor") OntologyExtractor ontologyExtractor,
+        @Qualifier("localFileOntologyExtractor") OntologyExtractor localFileOntologyExtractor,
+        Indexer indexer) {
         this.rulesetExtractor = rulesetExtractor;
         this.ontologyExtractor = ontologyExtractor;
+        this.localFileOntologyExtractor = localFileOntologyExtractor;
         this.indexer = indexer;
     }
 
@@ -42,8 +51,9 @@ public class IndexingService {
      * Indexes the given rule set target into a Lucene index at the specified path.
      *
      * <p>This method reads the rules from the specified {@link RuleLocation} and indexes them into a Lucene
-     * index at the given {@code indexPath}. The method returns an integer representing the number of rules
-     * successfully indexed.
+     * index at the given {@code indexPath}, writing each rule while the next ones are still being read. Only the
+     * rules that are new or changed since the last indexing are written, and the ones that are not in the ruleset
+     * anymore are deleted. The method returns an integer representing the number of rules successfully indexed.
      *
      * <p>Example usage:
      * <pre>
@@ -66,19 +76,20 @@ public class IndexingService {
     public int indexRules(RuleLocation ruleLocation, String indexPath) throws IOException {
         logger.info("Processing rule location: {} ({})", ruleLocation.filePath(), ruleLocation.name());
         logger.info("Rules will be indexed at {}", indexPath);
-        List<TargetEntity> targetEntities = rulesetExtractor.extract(ruleLocation);
-        logger.info("Deleting all rules documents with type '{}'", ruleLocation.name());
-        indexer.deleteAllByEntityTypeAndTargetType(ruleLocation.name(), TargetEntityType.RULE.getValue(), indexPath);
-        indexer.indexEntities(targetEntities, indexPath);
-        return targetEntities.size();
+        logger.info("Updating rules documents with type '{}'", ruleLocation.name());
+        SynchronizationResult result = indexer.synchronizeEntities(
+            ruleLocation.name(), TargetEntityType.RULE.getValue(), indexPath,
+            consumer -> rulesetExtractor.extract(ruleLocation, consumer));
+        return result.total();
     }
 
     /**
      * Indexes the ontologies defined in the {@link OntologyLocation} into a Lucene index at the specified path.
      *
-     * <p>This method downloads the ontologies from the specified {@link OntologyLocation} and indexes them into a Lucene
-     * index at the given {@code indexPath}. The method returns an integer representing the number of ontologies
-     * successfully indexed.
+     * <p>This method downloads the ontologies from the specified {@link OntologyLocation} (or reads them from a local
+     * file, if the location has a file path) and indexes them into a Lucene index at the given {@code indexPath}.
+     * Terms are written as soon as their page is downloaded. As with rules, only new or changed terms are written.
+     * The method returns an integer representing the number of ontologies successfully indexed.
      *
      * <p>Example usage:
      * <pre>
@@ -100,12 +111,49 @@ public class IndexingService {
      * @throws IOException if there is an error processing the ontologies or writing to the index
      */
     public int indexOntologies(OntologyLocation ontologyLocation, String indexPath) throws IOException {
+        return indexOntologies(ontologyLocation, indexPath, null);
+    }
+
+    /**
+     * Indexes the ontologies defined in the {@link OntologyLocation} into a Lucene index at the specified path,
+     * reading the ontology data from a local cache when possible.
+     *
+     * @param ontologyLocation the location of the ontologies to process
+     * @param indexPath the path where the Lucene index will be created
+     * @param cacheSettings settings of the local cache of ontology data, or null to not use a cache
+     * @return the number of ontologies successfully indexed
+     * @throws IOException if there is an error processing the ontologies or writing to the index
+     */
+    public int indexOntologies(
+        OntologyLocation ontologyLocation, String indexPath, OntologyCacheSettings cacheSettings) throws IOException {
         logger.info("Processing ontology location: {}", ontologyLocation.name());
         logger.info("Ontologies will be indexed at {}", indexPath);
-        List<TargetEntity> targetEntities = ontologyExtractor.extract(ontologyLocation);
-        logger.info("Deleting all ontologies documents with type '{}'", ontologyLocation.name());
-        indexer.deleteAllByEntityTypeAndTargetType(ontologyLocation.name(), TargetEntityType.ONTOLOGY.getValue(), indexPath);
-        indexer.indexEntities(targetEntities, indexPath);
-        return targetEntities.size();
+        OntologyExtractor extractor = ontologyLocation.isLocalFile() ? localFileOntologyExtractor : ontologyExtractor;
+        logger.info("Updating ontologies documents with type '{}'", ontologyLocation.name());
+        SynchronizationResult result = indexer.synchronizeEntities(
+            ontologyLocation.name(), TargetEntityType.ONTOLOGY.getValue(), indexPath,
+            consumer -> extractor.extract(ontologyLocation, cacheSettings, consumer));
+        return result.total();
+    }
+
+    /**
+     * Copies all the documents of the index at {@code sourcePath} into the index at {@code targetPath}.
+     *
+     * @param sourcePath the path of the index to copy
+     * @param targetPath the path of the index receiving the documents
+     * @throws IOException if there is an error reading or writing the indexes
+     */
+    public void copyIndex(String sourcePath, String targetPath) throws IOException {
+        indexer.copyIndex(sourcePath, targetPath);
+    }
+
+    /**
+     * Commits and closes the index at {@code indexPath}, so it can be opened by a reader.
+     *
+     * @param indexPath the path of the index
+     * @throws IOException if there is an error closing the index
+     */
+    public void closeIndex(String indexPath) throws IOException {
+        indexer.close(indexPath);
     }
 }
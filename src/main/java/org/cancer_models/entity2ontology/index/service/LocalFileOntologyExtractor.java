@@ -0,0 +1,210 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cancer_models.entity2ontology.common.model.OntologyTerm;
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.common.utils.FileUtils;
+import org.cancer_models.entity2ontology.index.model.OntologyCacheSettings;
+import org.cancer_models.entity2ontology.index.model.OntologyLocation;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * An {@link OntologyExtractor} that reads the terms from a local ontology file instead of OLS.
+ *
+ * <p>Supported formats are OBO ({@code .obo}) and OWL in RDF/XML syntax ({@code .owl}, {@code .rdf},
+ * {@code .xml}). The file can be compressed with gzip ({@code .gz}) or be the first ontology file inside a
+ * {@code .zip} archive, as ontology releases are usually distributed.
+ *
+ * <p>The file is streamed twice, so the document is never held in memory:
+ * <ol>
+ *   <li>The first pass only keeps the is_a (subClassOf) edges, which are used to find the descendants of the
+ *   branches in the {@link OntologyLocation}.</li>
+ *   <li>The second pass converts the terms that belong to those branches into {@link TargetEntity} objects.</li>
+ * </ol>
+ * Obsolete terms are skipped, as OLS does not return them as descendants.
+ *
+ * @see OntologyLocation#filePath()
+ */
+@Component
+@Qualifier("localFileOntologyExtractor")
+class LocalFileOntologyExtractor implements OntologyExtractor {
+
+    private static final Logger logger = LogManager.getLogger(LocalFileOntologyExtractor.class);
+
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final String OBO_EXTENSION = ".obo";
+    private static final List<String> OWL_EXTENSIONS = List.of(".owl", ".rdf", ".xml");
+
+    private final OboFileReader oboFileReader = new OboFileReader();
+    private final OwlFileReader owlFileReader = new OwlFileReader();
+
+    /**
+     * Extracts a list of {@link TargetEntity} objects from the file in the specified {@link OntologyLocation}.
+     *
+     * @param ontologyLocation the location of the ontology, including the file path and branches of interest
+     * @return a list of {@link TargetEntity} objects with the terms in the branches
+     * @throws IOException if the file cannot be read or has an invalid format
+     */
+    @Override
+    public List<TargetEntity> extract(OntologyLocation ontologyLocation) throws IOException {
+        List<TargetEntity> targetEntities = new ArrayList<>();
+        extract(ontologyLocation, null, targetEntities::add);
+        return targetEntities;
+    }
+
+    /**
+     * Extracts the {@link TargetEntity} objects from the file in the specified {@link OntologyLocation}, passing
+     * each of them to {@code consumer} while the file is read. Local files are not cached, so the cache settings
+     * are ignored.
+     *
+     * @param ontologyLocation the location of the ontology, including the file path and branches of interest
+     * @param cacheSettings    ignored
+     * @param consumer         receives the target entities
+     * @return the number of target entities passed to the consumer
+     * @throws IOException if the file cannot be read, has an invalid format, or the consumer fails
+     */
+    @Override
+    public int extract(
+        OntologyLocation ontologyLocation, OntologyCacheSettings cacheSettings, TargetEntityConsumer consumer)
+        throws IOException {
+        validateLocation(ontologyLocation);
+        File file = FileUtils.getNonEmptyFileFromPath(ontologyLocation.filePath());
+        logger.info("Reading ontology file {}", file);
+
+        // First pass: hierarchy
+        Map<String, List<String>> childrenByParent = new HashMap<>();
+        Set<String> termIds = new HashSet<>();
+        readTerms(file, term -> {
+            termIds.add(term.id());
+            for (String parentId : term.parentIds()) {
+                childrenByParent.computeIfAbsent(parentId, k -> new ArrayList<>()).add(term.id());
+            }
+        });
+        Set<String> selectedIds = findBranchesTerms(ontologyLocation.branches(), childrenByParent, termIds);
+        logger.info("{} terms found in {} branches", selectedIds.size(), ontologyLocation.branches().size());
+
+        // Second pass: data of the terms in the branches
+        Set<String> emittedIds = new HashSet<>();
+        try {
+            readTerms(file, term -> {
+                if (selectedIds.contains(term.id()) && emittedIds.add(term.id())) {
+                    OntologyTerm ontologyTerm = new OntologyTerm(
+                        term.id(), term.url(), term.label(), ontologyLocation.name(), term.description(),
+                        term.synonyms());
+                    try {
+                        consumer.accept(OntologyTermMapper.termToTargetEntity(ontologyTerm));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return emittedIds.size();
+    }
+
+    private void validateLocation(OntologyLocation ontologyLocation) {
+        if (!ontologyLocation.isLocalFile()) {
+            throw new IllegalArgumentException("Invalid ontology location. File path is empty.");
+        }
+        if (ontologyLocation.branches() == null || ontologyLocation.branches().isEmpty()) {
+            throw new IllegalArgumentException("Invalid ontology location. Branches are empty.");
+        }
+    }
+
+    // The branch roots and all their (non obsolete) descendants
+    private Set<String> findBranchesTerms(
+        List<String> branches, Map<String, List<String>> childrenByParent, Set<String> termIds) {
+        Set<String> selectedIds = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (String branch : branches) {
+            if (!termIds.contains(branch)) {
+                logger.warn("Branch {} not found in the ontology file", branch);
+                continue;
+            }
+            pending.add(branch);
+        }
+        while (!pending.isEmpty()) {
+            String termId = pending.poll();
+            if (selectedIds.add(termId)) {
+                pending.addAll(childrenByParent.getOrDefault(termId, List.of()));
+            }
+        }
+        return selectedIds;
+    }
+
+    private void readTerms(File file, Consumer<OntologyFileTerm> consumer) throws IOException {
+        Consumer<OntologyFileTerm> activeTermsConsumer = term -> {
+            if (!term.obsolete()) {
+                consumer.accept(term);
+            }
+        };
+        String fileName = file.getName().toLowerCase();
+        try (InputStream fileStream = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            if (fileName.endsWith(ZIP_EXTENSION)) {
+                readZipEntry(fileStream, file, activeTermsConsumer);
+            } else if (fileName.endsWith(GZIP_EXTENSION)) {
+                try (InputStream gzipStream = new GZIPInputStream(fileStream)) {
+                    readOntology(gzipStream, fileName.substring(0, fileName.length() - GZIP_EXTENSION.length()),
+                        activeTermsConsumer);
+                }
+            } else {
+                readOntology(fileStream, fileName, activeTermsConsumer);
+            }
+        }
+    }
+
+    private void readZipEntry(InputStream fileStream, File file, Consumer<OntologyFileTerm> consumer)
+        throws IOException {
+        try (ZipInputStream zipStream = new ZipInputStream(fileStream)) {
+            ZipEntry entry;
+            while ((entry = zipStream.getNextEntry()) != null) {
+                String entryName = entry.getName().toLowerCase();
+                if (!entry.isDirectory() && getFormat(entryName) != null) {
+                    logger.info("Reading {} from {}", entry.getName(), file);
+                    readOntology(zipStream, entryName, consumer);
+                    return;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No OBO or OWL file found in " + file);
+    }
+
+    private void readOntology(InputStream inputStream, String fileName, Consumer<OntologyFileTerm> consumer)
+        throws IOException {
+        String format = getFormat(fileName);
+        if (format == null) {
+            throw new IllegalArgumentException(
+                "Unsupported ontology file: " + fileName + ". Expected an OBO or OWL (RDF/XML) file.");
+        }
+        if (OBO_EXTENSION.equals(format)) {
+            oboFileReader.read(inputStream, consumer);
+        } else {
+            owlFileReader.read(inputStream, consumer);
+        }
+    }
+
+    // Returns the extension that identifies the format of the file, or null if it is not supported
+    private String getFormat(String fileName) {
+        if (fileName.endsWith(OBO_EXTENSION)) {
+            return OBO_EXTENSION;
+        }
+        return OWL_EXTENSIONS.stream().filter(fileName::endsWith).findFirst().orElse(null);
+    }
+}
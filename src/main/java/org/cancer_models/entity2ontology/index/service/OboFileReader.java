@@ -0,0 +1,102 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the terms of an ontology in OBO format, line by line, passing each {@code [Term]} stanza to a consumer as
+ * soon as it is complete. Other stanzas (like {@code [Typedef]}) and header tags are ignored.
+ */
+class OboFileReader {
+
+    private static final String OBO_PURL = "http://purl.obolibrary.org/obo/";
+
+    void read(InputStream inputStream, Consumer<OntologyFileTerm> consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        StanzaBuilder stanza = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (line.startsWith("[")) {
+                emit(stanza, consumer);
+                stanza = "[Term]".equals(line) ? new StanzaBuilder() : null;
+            } else if (stanza != null && !line.isEmpty() && !line.startsWith("!")) {
+                int separator = line.indexOf(':');
+                if (separator > 0) {
+                    stanza.addTag(line.substring(0, separator), line.substring(separator + 1).strip());
+                }
+            }
+        }
+        emit(stanza, consumer);
+    }
+
+    private void emit(StanzaBuilder stanza, Consumer<OntologyFileTerm> consumer) {
+        if (stanza != null && stanza.id != null) {
+            consumer.accept(stanza.build());
+        }
+    }
+
+    // OBO ids have the format PREFIX:LOCAL_ID, while the short form used in the index is PREFIX_LOCAL_ID
+    static String toShortForm(String oboId) {
+        return oboId.replace(':', '_');
+    }
+
+    // Extracts the text between the first pair of (non escaped) double quotes, as used in def and synonym tags
+    static String extractQuotedText(String value) {
+        int start = value.indexOf('"');
+        if (start < 0) {
+            return value;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = start + 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                text.append(value.charAt(++i));
+            } else if (c == '"') {
+                break;
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    private static class StanzaBuilder {
+        private String id;
+        private String label = "";
+        private String description = "";
+        private final List<String> synonyms = new ArrayList<>();
+        private final List<String> parentIds = new ArrayList<>();
+        private boolean obsolete;
+
+        void addTag(String tag, String value) {
+            switch (tag) {
+                case "id" -> id = toShortForm(value);
+                case "name" -> label = value;
+                case "def" -> description = extractQuotedText(value);
+                case "synonym" -> synonyms.add(extractQuotedText(value));
+                case "is_a" -> {
+                    // is_a: NCIT:C1234 {qualifiers} ! label
+                    String parent = value.split("[\\s!{]", 2)[0];
+                    if (!parent.isEmpty()) {
+                        parentIds.add(toShortForm(parent));
+                    }
+                }
+                case "is_obsolete" -> obsolete = "true".equals(value);
+                default -> {
+                    // Other tags are not needed
+                }
+            }
+        }
+
+        OntologyFileTerm build() {
+            return new OntologyFileTerm(id, OBO_PURL + id, label, description, synonyms, parentIds, obsolete);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.cancer_models.entity2ontology.common.model.OntologyTerm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses responses of the OLS API with a streaming {@link JsonParser}, reading only the fields needed to build
+ * {@link OntologyTerm}s. No intermediate tree or String with the whole response is created, and the rest of the
+ * fields (some of them large, like annotations) are skipped token by token.
+ */
+class OlsResponseParser {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * A term and the link to its descendants.
+     *
+     * @param term             the parsed term
+     * @param descendantsHref  link to the hierarchical descendants of the term, or null if it has none
+     */
+    record RootTerm(OntologyTerm term, String descendantsHref) {
+    }
+
+    /**
+     * The content of a page of terms.
+     *
+     * @param terms      the terms in the page
+     * @param totalPages total number of pages, or -1 if the response has no pagination information
+     * @param nextHref   link to the next page, or null if this is the last one
+     */
+    record TermsPage(List<OntologyTerm> terms, int totalPages, String nextHref) {
+    }
+
+    /**
+     * Parses the response for a single term.
+     *
+     * @param inputStream  the response body
+     * @param ontologyType the type assigned to the term
+     * @return the term and the link to its descendants
+     * @throws IOException if the response is not valid JSON
+     */
+    RootTerm parseRootTerm(InputStream inputStream, String ontologyType) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            expectStartObject(parser);
+            TermBuilder termBuilder = new TermBuilder();
+            String descendantsHref = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                parser.nextToken();
+                if ("_links".equals(fieldName)) {
+                    descendantsHref = readHref(parser, "hierarchicalDescendants");
+                } else if (!termBuilder.readField(fieldName, parser)) {
+                    parser.skipChildren();
+                }
+            }
+            return new RootTerm(termBuilder.build(ontologyType), descendantsHref);
+        }
+    }
+
+    /**
+     * Parses a page of terms, like the ones returned for the descendants of a term.
+     *
+     * @param inputStream  the response body
+     * @param ontologyType the type assigned to the terms
+     * @return the terms and pagination information in the page
+     * @throws IOException if the response is not valid JSON
+     */
+    TermsPage parseTermsPage(InputStream inputStream, String ontologyType) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            expectStartObject(parser);
+            List<OntologyTerm> terms = new ArrayList<>();
+            int totalPages = -1;
+            String nextHref = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+                switch (fieldName) {
+                    case "_embedded" -> readEmbeddedTerms(parser, ontologyType, terms);
+                    case "_links" -> nextHref = readHref(parser, "next");
+                    case "page" -> totalPages = readTotalPages(parser);
+                    default -> {
+                        if (valueToken.isStructStart()) {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+            return new TermsPage(terms, totalPages, nextHref);
+        }
+    }
+
+    // Reads {"terms": [...]}
+    private void readEmbeddedTerms(JsonParser parser, String ontologyType, List<OntologyTerm> terms)
+        throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if ("terms".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    terms.add(readTerm(parser, ontologyType));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private OntologyTerm readTerm(JsonParser parser, String ontologyType) throws IOException {
+        TermBuilder termBuilder = new TermBuilder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            if (!termBuilder.readField(fieldName, parser)) {
+                parser.skipChildren();
+            }
+        }
+        return termBuilder.build(ontologyType);
+    }
+
+    // Reads {"totalPages": n, ...}
+    private int readTotalPages(JsonParser parser) throws IOException {
+        int totalPages = -1;
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return totalPages;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            if ("totalPages".equals(fieldName)) {
+                totalPages = parser.getValueAsInt(-1);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return totalPages;
+    }
+
+    // Reads the href of the given link in {"<link>": {"href": "..."}, ...}
+    private String readHref(JsonParser parser, String linkName) throws IOException {
+        String href = null;
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return href;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            if (linkName.equals(fieldName) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String linkField = parser.currentName();
+                    parser.nextToken();
+                    if ("href".equals(linkField)) {
+                        href = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return href;
+    }
+
+    private void expectStartObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Invalid OLS response: a JSON object was expected");
+        }
+    }
+
+    // Collects the fields of a term while it is being parsed. Missing values are empty, as in the OLS model
+    private static class TermBuilder {
+        private String id = "";
+        private String label = "";
+        private String url = "";
+        private String description = "";
+        private final List<String> synonyms = new ArrayList<>();
+
+        // Reads the value of the field, if it is one of the fields of a term. Returns false otherwise
+        boolean readField(String fieldName, JsonParser parser) throws IOException {
+            switch (fieldName) {
+                case "short_form" -> id = readText(parser);
+                case "label" -> label = readText(parser);
+                case "iri" -> url = readText(parser);
+                case "description" -> description = readFirstText(parser);
+                case "synonyms" -> readTexts(parser, synonyms);
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        OntologyTerm build(String ontologyType) {
+            return new OntologyTerm(id, url, label, ontologyType, description, synonyms);
+        }
+
+        private static String readText(JsonParser parser) throws IOException {
+            if (parser.currentToken().isStructStart()) {
+                parser.skipChildren();
+                return "";
+            }
+            String text = parser.getValueAsString();
+            return text == null ? "" : text;
+        }
+
+        // Only the first element of an array of texts is used
+        private static String readFirstText(JsonParser parser) throws IOException {
+            String text = "";
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return text;
+            }
+            boolean first = true;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                String value = readText(parser);
+                if (first) {
+                    text = value;
+                    first = false;
+                }
+            }
+            return text;
+        }
+
+        private static void readTexts(JsonParser parser, List<String> texts) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return;
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                texts.add(readText(parser));
+            }
+        }
+    }
+}
@@ -1,28 +1,87 @@
 package org.cancer_models.entity2ontology.index.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.cancer_models.entity2ontology.common.model.OntologyTerm;
 import org.cancer_models.entity2ontology.common.utils.FileUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
 
 /**
  * Class responsible for downloading ontology terms from the OLS API.
+ *
+ * <p>All the requests use a shared HTTP/2 client. Once the first page of descendants of a term is downloaded, the
+ * total number of pages is known and the remaining pages are requested in parallel, with at most
+ * {@code maxConcurrentRequests} requests in flight. Requests that fail because of network errors or because the
+ * server is temporarily unavailable are retried with exponential backoff.
  */
 class OntologyDownloader {
     private static final String BASE_URL = "https://www.ebi.ac.uk/ols4/api/ontologies/";
-    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Number of terms requested per page of descendants
+    private static final int PAGE_SIZE = 1000;
+
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+    private static final int DEFAULT_MAX_RETRIES = 4;
+    private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(500);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    // Status codes for which a request is retried. OLS answers 500 for unknown resources, so it is not retried
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(408, 429, 502, 503, 504);
+
+    private final OlsResponseParser responseParser = new OlsResponseParser();
     private static final Logger logger = LogManager.getLogger(OntologyDownloader.class);
 
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final int maxConcurrentRequests;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+
+    // Ontologies already known to exist in OLS, so the check is done only once per ontology
+    private final Set<String> validatedOntologies = ConcurrentHashMap.newKeySet();
+
+    OntologyDownloader() {
+        this(BASE_URL, FileUtils.getHttpClient(),
+            DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF);
+    }
+
+    /**
+     * Creates a downloader for an OLS compatible API.
+     *
+     * @param baseUrl               URL of the ontologies endpoint, ending with "/"
+     * @param httpClient            client used for all the requests
+     * @param maxConcurrentRequests maximum number of requests in flight at the same time
+     * @param maxRetries            number of times a failed request is retried
+     * @param initialBackoff        time to wait before the first retry. It doubles with each retry
+     */
+    OntologyDownloader(
+        String baseUrl, HttpClient httpClient, int maxConcurrentRequests, int maxRetries, Duration initialBackoff) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        }
+        this.baseUrl = baseUrl;
+        this.httpClient = httpClient;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+    }
+
     /**
      * Downloads the ontology terms for a given ontology name and term ID.
      *
@@ -33,37 +92,121 @@ class OntologyDownloader {
      */
     public Set<OntologyTerm> downloadOntologyTerms(
         String ontologyId, String termId, String type) throws IOException {
-        validateInput(ontologyId, termId);
-        Set<OntologyTerm> terms = new HashSet<>();
-        String encodedTermId = URLEncoder.encode("http://purl.obolibrary.org/obo/" + termId, StandardCharsets.UTF_8);
-        // This needs double encoding (OLS documentation)
-        encodedTermId = URLEncoder.encode(encodedTermId, StandardCharsets.UTF_8);
+        return downloadOntologyTerms(ontologyId, termId, type, null);
+    }
+
+    /**
+     * Downloads the ontology terms for a given ontology name and term ID, using a local cache of the pages.
+     *
+     * @param ontologyId The id of the ontology (e.g., "ncit").
+     * @param termId     The ID of the root term (e.g., "NCIT_C35814").
+     * @param type       The type assigned to the terms.
+     * @param pageCache  The cache of pages to use, or null to always download the pages from OLS.
+     * @return A list of OntologyTerm objects containing the root term and its descendants.
+     * @throws IOException if an I/O error occurs, or a page is missing from the cache in offline mode.
+     */
+    public Set<OntologyTerm> downloadOntologyTerms(
+        String ontologyId, String termId, String type, OntologyPageCache pageCache) throws IOException {
+        Set<OntologyTerm> terms = ConcurrentHashMap.newKeySet();
+        downloadOntologyTerms(ontologyId, termId, type, pageCache, terms::addAll);
+        return new HashSet<>(terms);
+    }
 
-        String rootUrl = BASE_URL + ontologyId + "/terms/" + encodedTermId;
+    /**
+     * Downloads the ontology terms for a given ontology name and term ID, passing the terms of each page to
+     * {@code consumer} as soon as the page is downloaded. As pages are downloaded in parallel, the consumer can be
+     * called from several threads at the same time.
+     *
+     * @param ontologyId The id of the ontology (e.g., "ncit").
+     * @param termId     The ID of the root term (e.g., "NCIT_C35814").
+     * @param type       The type assigned to the terms.
+     * @param pageCache  The cache of pages to use, or null to always download the pages from OLS.
+     * @param consumer   Receives the root term and the terms of each page of descendants.
+     * @throws IOException if an I/O error occurs, a page is missing from the cache in offline mode, or the consumer
+     *                     fails.
+     */
+    public void downloadOntologyTerms(
+        String ontologyId, String termId, String type, OntologyPageCache pageCache, TermsConsumer consumer)
+        throws IOException {
+        validateInput(ontologyId, termId, pageCache);
+        PageSource pageSource = new PageSource(pageCache, ontologyId, termId);
+        String rootUrl = getTermUrl(ontologyId, termId);
 
         // Get the root term information
-        String jsonResponse = FileUtils.getStringFromUrl(rootUrl);
-        JsonNode jsonNode = objectMapper.readTree(jsonResponse);
-        OntologyTerm rootTerm = parseTerm(jsonNode, type);
-        terms.add(rootTerm);
+        OlsResponseParser.RootTerm rootTerm = read(
+            pageSource, rootUrl, "root", body -> responseParser.parseRootTerm(body, type));
+        consumer.accept(List.of(rootTerm.term()));
 
         // Get all hierarchical descendants
-        String descendantsUrl = getDescendantsUrl(jsonNode);
+        String descendantsUrl = getDescendantsUrl(rootTerm);
         if (descendantsUrl != null) {
-            terms.addAll(getAllDescendants(descendantsUrl, type));
+            getAllDescendants(descendantsUrl, type, pageSource, consumer);
         }
-        return terms;
     }
 
-    private void validateInput(String ontologyName, String termId) {
+    /**
+     * Receives the terms of a page downloaded from OLS.
+     */
+    @FunctionalInterface
+    interface TermsConsumer {
+        void accept(List<OntologyTerm> terms) throws IOException;
+    }
+
+    /**
+     * Downloads the ids of all the hierarchical ancestors (not only the direct parents) of a term.
+     *
+     * @param ontologyId The id of the ontology (e.g., "ncit").
+     * @param termId     The ID of the term (e.g., "NCIT_C9305").
+     * @param pageCache  The cache of pages to use, or null to always download the pages from OLS.
+     * @return The ids of the ancestors of the term. Empty if the term is a root of the ontology.
+     * @throws IOException if an I/O error occurs, or a page is missing from the cache in offline mode.
+     */
+    public Set<String> downloadAncestorIds(String ontologyId, String termId, OntologyPageCache pageCache)
+        throws IOException {
+        validateInput(ontologyId, termId, pageCache);
+        PageSource pageSource = new PageSource(pageCache, ontologyId, termId);
+        String ancestorsUrl = getTermUrl(ontologyId, termId) + "/hierarchicalAncestors?size=" + PAGE_SIZE;
+
+        Set<String> ancestorIds = new HashSet<>();
+        int pageNumber = 0;
+        String pageUrl = ancestorsUrl + "&page=0";
+        while (pageUrl != null) {
+            OlsResponseParser.TermsPage page = read(
+                pageSource, pageUrl, "ancestors-page-" + pageNumber, body -> responseParser.parseTermsPage(body, ""));
+            page.terms().forEach(term -> ancestorIds.add(term.id()));
+            pageNumber++;
+            if (page.totalPages() < 0) {
+                pageUrl = page.nextHref();
+            } else {
+                pageUrl = pageNumber < page.totalPages() ? ancestorsUrl + "&page=" + pageNumber : null;
+            }
+        }
+        return ancestorIds;
+    }
+
+    private String getTermUrl(String ontologyId, String termId) {
+        String encodedTermId = URLEncoder.encode("http://purl.obolibrary.org/obo/" + termId, StandardCharsets.UTF_8);
+        // This needs double encoding (OLS documentation)
+        encodedTermId = URLEncoder.encode(encodedTermId, StandardCharsets.UTF_8);
+        return baseUrl + ontologyId + "/terms/" + encodedTermId;
+    }
+
+    private void validateInput(String ontologyName, String termId, OntologyPageCache pageCache) {
         if (ontologyName == null) {
             throw new IllegalArgumentException("Ontology name cannot be null");
         }
         if (termId == null) {
             throw new IllegalArgumentException("termId cannot be null");
         }
+        // Pages of the ontology in the cache are proof enough that it exists. Checking it against OLS would fail
+        // when OLS cannot be reached, before the cache could fall back to its stale pages
+        if (validatedOntologies.contains(ontologyName)
+            || (pageCache != null && (pageCache.isOffline() || pageCache.containsOntology(ontologyName)))) {
+            return;
+        }
         try {
             validateOntologyExists(ontologyName);
+            validatedOntologies.add(ontologyName);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException(String.format("The ontology %s does not exist in OLS", ontologyName));
         }
@@ -73,117 +216,187 @@ class OntologyDownloader {
     }
 
     private void validateOntologyExists(String ontologyName) throws IOException {
-        String r = FileUtils.getStringFromUrl(BASE_URL + ontologyName);
-        if (r.contains("\"status\" : 500")) {
+        HttpResponse<InputStream> response = send(baseUrl + ontologyName);
+        response.body().close();
+        if (response.statusCode() != 200) {
             throw new IllegalArgumentException();
         }
     }
 
-    private String getDescendantsUrl(JsonNode jsonNode) {
+    private String getDescendantsUrl(OlsResponseParser.RootTerm rootTerm) {
         String url = null;
-        JsonNode links = jsonNode.path("_links");
-        if (links.has("hierarchicalDescendants")) {
-            JsonNode hierarchicalDescendantsNode = links.path("hierarchicalDescendants");
-            url = hierarchicalDescendantsNode.get("href").asText() + "?size=1000";
+        if (rootTerm.descendantsHref() != null) {
+            url = rootTerm.descendantsHref() + "?size=" + PAGE_SIZE;
         }
 
         return url;
     }
 
-    private Set<OntologyTerm> getAllDescendants(String descendantsUrl, String ontologyType) {
-
-        Set<OntologyTerm> ontologyTerms = new HashSet<>();
-
-        //Start calling it with initial. Then keep until it needs to stop
-        String nextUrl = descendantsUrl;
-
-        String lastUrl = null;
+    private void getAllDescendants(
+        String descendantsUrl, String ontologyType, PageSource pageSource, TermsConsumer consumer)
+        throws IOException {
+        // The first page tells how many pages there are
+        OlsResponseParser.TermsPage firstPage = readTermsPage(pageSource, descendantsUrl + "&page=0", 0, ontologyType);
+        consumer.accept(firstPage.terms());
+        int records = firstPage.terms().size();
 
-        // Flag to indicate if already finished going through all the paginated results
-        boolean finished = false;
-
-        while (!finished) {
-            try {
+        if (firstPage.totalPages() < 0) {
+            // Without pagination information, the pages can only be followed one after another
+            records += followNextLinks(firstPage, ontologyType, pageSource, consumer);
+        } else if (firstPage.totalPages() > 1) {
+            records += getPagesInParallel(descendantsUrl, firstPage.totalPages(), ontologyType, pageSource, consumer);
+        }
+        logger.info("{} records for {}", records, descendantsUrl);
+    }
 
-                String jsonResponse = FileUtils.getStringFromUrl(nextUrl);
-                JsonNode jsonNode = objectMapper.readTree(jsonResponse);
+    // Downloads pages 1 to totalPages - 1, with at most maxConcurrentRequests requests at the same time. Returns
+    // the number of terms in the pages
+    private int getPagesInParallel(
+        String descendantsUrl, int totalPages, String ontologyType, PageSource pageSource, TermsConsumer consumer)
+        throws IOException {
+        Semaphore permits = new Semaphore(maxConcurrentRequests);
+        List<Future<Integer>> pages = new ArrayList<>();
+        int records = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int page = 1; page < totalPages; page++) {
+                String pageUrl = descendantsUrl + "&page=" + page;
+                int pageNumber = page;
+                pages.add(executor.submit(() -> {
+                    List<OntologyTerm> terms;
+                    permits.acquire();
+                    try {
+                        terms = readTermsPage(pageSource, pageUrl, pageNumber, ontologyType).terms();
+                    } finally {
+                        permits.release();
+                    }
+                    // The permit is released first, so a slow consumer does not delay the downloads
+                    consumer.accept(terms);
+                    return terms.size();
+                }));
+            }
+            for (Future<Integer> page : pages) {
+                records += page.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pages.forEach(page -> page.cancel(true));
+            throw new IOException("Interrupted while downloading " + descendantsUrl, e);
+        } catch (ExecutionException e) {
+            pages.forEach(page -> page.cancel(true));
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Error downloading " + descendantsUrl, e.getCause());
+        }
+        return records;
+    }
 
-                ontologyTerms.addAll(parseDescendantsResponseJson(jsonNode, ontologyType));
+    // Returns the number of terms in the pages after the given one
+    private int followNextLinks(
+        OlsResponseParser.TermsPage page, String ontologyType, PageSource pageSource, TermsConsumer consumer)
+        throws IOException {
+        int records = 0;
+        int pageNumber = 0;
+        while (page.nextHref() != null) {
+            pageNumber++;
+            page = readTermsPage(pageSource, page.nextHref(), pageNumber, ontologyType);
+            consumer.accept(page.terms());
+            records += page.terms().size();
+        }
+        return records;
+    }
 
-                if (ontologyTerms.size() % 1000 == 0) {
-                    logger.info("{} records for {}", ontologyTerms.size(), nextUrl);
-                }
-                JsonNode links = jsonNode.path("_links");
+    private OlsResponseParser.TermsPage readTermsPage(
+        PageSource pageSource, String url, int pageNumber, String ontologyType) throws IOException {
+        return read(pageSource, url, "page-" + pageNumber, body -> responseParser.parseTermsPage(body, ontologyType));
+    }
 
-                // Get last url if not yet defined
-                if (lastUrl == null) {
-                    if (links.has("last")) {
-                        JsonNode lastUrlObject = links.path("last");
-                        lastUrl = lastUrlObject.get("href").asText();
-                    }
-                    // If no last, there are no more pages so we can stop
-                    else {
-                        finished = true;
-                    }
-                }
+    // Parses a response body
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(InputStream body) throws IOException;
+    }
 
-                if (nextUrl.equals(lastUrl)) {
-                    finished = true;
-                }
+    // Where the pages of a branch are read from: the cache, if there is one, or OLS
+    private record PageSource(OntologyPageCache pageCache, String ontologyId, String branch) {
+    }
 
-                if (finished) {
-                    break;
+    // Reads a page from the cache if there is one, or directly from the response body otherwise
+    private <T> T read(PageSource pageSource, String url, String pageId, ResponseReader<T> reader) throws IOException {
+        if (pageSource.pageCache() == null) {
+            HttpResponse<InputStream> response = send(url);
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException(
+                        String.format("Unexpected status %d requesting %s", response.statusCode(), url));
                 }
-
-                JsonNode nextUrlObject = links.path("next");
-                nextUrl = nextUrlObject.get("href").asText();
-            } catch (IOException e) {
-                String error = e.getClass().getCanonicalName() + ": " + e.getMessage();
-                logger.error(error);
+                return reader.read(body);
             }
         }
-        return ontologyTerms;
+        Path pageFile = pageSource.pageCache().getPage(
+            pageSource.ontologyId(), pageSource.branch(), pageId, url, this::sendConditional);
+        try (InputStream body = Files.newInputStream(pageFile)) {
+            return reader.read(body);
+        }
     }
 
-    private OntologyTerm parseTerm(JsonNode jsonNode, String ontologyType) {
-
-        String id = jsonNode.path("short_form").asText();
-        String label = jsonNode.path("label").asText();
-        String url = jsonNode.path("iri").asText();
-        String description = "";
+    /**
+     * Sends a GET request, retrying it with exponential backoff if it fails with an I/O error or a retryable status.
+     *
+     * @param url the URL to request
+     * @return the response, with a non retryable status or with the status of the last attempt
+     * @throws IOException if the last attempt fails with an I/O error
+     */
+    private HttpResponse<InputStream> send(String url) throws IOException {
+        return sendConditional(url, null, null);
+    }
 
-        if (jsonNode.has("description")) {
-            JsonNode descriptionNode = jsonNode.path("description");
-            if (descriptionNode.isArray() && !descriptionNode.isEmpty()) {
-                description = descriptionNode.get(0).asText();
-            }
+    /**
+     * Same as {@link #send(String)}, but adding If-None-Match and If-Modified-Since headers when the values are
+     * known, so the server can answer 304 if the resource did not change.
+     */
+    private HttpResponse<InputStream> sendConditional(String url, String etag, String lastModified)
+        throws IOException {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Accept", "application/json");
+        if (etag != null) {
+            requestBuilder.header("If-None-Match", etag);
         }
-
-        List<String> synonyms = new ArrayList<>();
-        if (jsonNode.has("synonyms")) {
-            JsonNode synonymArray = jsonNode.path("synonyms");
-            if (synonymArray.isArray()) {
-                for (JsonNode synonymNode : synonymArray) {
-                    synonyms.add(synonymNode.asText());
+        if (lastModified != null) {
+            requestBuilder.header("If-Modified-Since", lastModified);
+        }
+        HttpRequest request = requestBuilder.build();
+        Duration backoff = initialBackoff;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                if (!RETRYABLE_STATUS_CODES.contains(response.statusCode()) || attempt >= maxRetries) {
+                    return response;
                 }
+                response.body().close();
+                logger.warn("Status {} requesting {}. Retrying in {} ms", response.statusCode(), url, backoff.toMillis());
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                logger.warn("Error requesting {}: {}. Retrying in {} ms", url, e.getMessage(), backoff.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Request interrupted while fetching URL: " + url, e);
             }
+            sleep(backoff, url);
+            backoff = backoff.multipliedBy(2);
         }
-        return new OntologyTerm(id, url, label, ontologyType, description, synonyms);
     }
 
-    private Set<OntologyTerm> parseDescendantsResponseJson(JsonNode node, String ontologyType) {
-        Set<OntologyTerm> ontologyTerms = new HashSet<>();
-
-        if (!node.has("_embedded")) {
-            return ontologyTerms;
-        }
-        JsonNode jsonObject = node.path("_embedded");
-        JsonNode termArray = jsonObject.path("terms");
-        if (termArray.isArray()) {
-            for (JsonNode termNode : termArray) {
-                ontologyTerms.add(parseTerm(termNode, ontologyType));
-            }
+    private void sleep(Duration duration, String url) throws IOException {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request interrupted while fetching URL: " + url, e);
         }
-        return ontologyTerms;
     }
 }
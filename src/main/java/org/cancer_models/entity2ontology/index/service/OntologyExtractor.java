@@ -1,6 +1,7 @@
 package org.cancer_models.entity2ontology.index.service;
 
 import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.index.model.OntologyCacheSettings;
 import org.cancer_models.entity2ontology.index.model.OntologyLocation;
 
 import java.io.IOException;
@@ -23,4 +24,38 @@ public interface OntologyExtractor {
      * @return a list of {@link TargetEntity} objects representing the extracted ontology data
      */
     List<TargetEntity> extract(OntologyLocation ontologyLocation) throws IOException;
+
+    /**
+     * Extracts a list of {@link TargetEntity} objects from the specified {@link OntologyLocation}, using a local
+     * cache of the downloaded data if the implementation supports it.
+     *
+     * @param ontologyLocation the location of the ontology, including the URL and branches of interest
+     * @param cacheSettings    settings of the cache, or null to not use a cache
+     * @return a list of {@link TargetEntity} objects representing the extracted ontology data
+     */
+    default List<TargetEntity> extract(OntologyLocation ontologyLocation, OntologyCacheSettings cacheSettings)
+        throws IOException {
+        return extract(ontologyLocation);
+    }
+
+    /**
+     * Extracts the {@link TargetEntity} objects from the specified {@link OntologyLocation}, passing each of them to
+     * {@code consumer}. Implementations that obtain the terms in parts (like pages) should override this method so
+     * the entities are passed as soon as each part is processed.
+     *
+     * @param ontologyLocation the location of the ontology, including the URL and branches of interest
+     * @param cacheSettings    settings of the cache, or null to not use a cache
+     * @param consumer         receives the target entities. It can be called from several threads
+     * @return the number of target entities passed to the consumer
+     * @throws IOException if there is an error obtaining the ontology or the consumer fails
+     */
+    default int extract(
+        OntologyLocation ontologyLocation, OntologyCacheSettings cacheSettings, TargetEntityConsumer consumer)
+        throws IOException {
+        List<TargetEntity> targetEntities = extract(ontologyLocation, cacheSettings);
+        for (TargetEntity targetEntity : targetEntities) {
+            consumer.accept(targetEntity);
+        }
+        return targetEntities.size();
+    }
 }
@@ -0,0 +1,19 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import java.util.List;
+
+/**
+ * A term read from a local ontology file.
+ *
+ * @param id          Short form of the term id (e.g. "NCIT_C9305")
+ * @param url         IRI of the term
+ * @param label       Label of the term, or an empty string if it has none
+ * @param description Definition of the term, or an empty string if it has none
+ * @param synonyms    Synonyms of the term
+ * @param parentIds   Short form of the ids of the direct parents of the term (is_a/subClassOf)
+ * @param obsolete    Whether the term is deprecated
+ */
+record OntologyFileTerm(
+    String id, String url, String label, String description, List<String> synonyms, List<String> parentIds,
+    boolean obsolete) {
+}
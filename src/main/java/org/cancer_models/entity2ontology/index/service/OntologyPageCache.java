@@ -0,0 +1,185 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.cancer_models.entity2ontology.index.model.OntologyCacheSettings;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+
+/**
+ * Local cache of the pages downloaded from OLS, stored as {@code <directory>/<ontology>/<branch>/<page>.json}.
+ *
+ * <p>Next to each page, a {@code <page>.properties} file keeps the URL it was downloaded from, its ETag and
+ * Last-Modified headers, and when it was fetched or last revalidated. A page is used directly while it is younger
+ * than the configured time to live. After that, it is revalidated with a conditional request: a 304 response keeps
+ * the cached page, and a 200 response replaces it. If OLS cannot be reached, a stale page is used anyway.
+ *
+ * <p>In offline mode no request is sent, and a page that is not in the cache is an error.
+ */
+class OntologyPageCache {
+
+    private static final Logger logger = LogManager.getLogger(OntologyPageCache.class);
+
+    private static final String PAGE_EXTENSION = ".json";
+    private static final String METADATA_EXTENSION = ".properties";
+
+    private static final String URL_PROPERTY = "url";
+    private static final String ETAG_PROPERTY = "etag";
+    private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+    private static final String FETCHED_AT_PROPERTY = "fetchedAt";
+
+    /**
+     * Sends a request for a page, adding the conditional headers if they are not null.
+     */
+    @FunctionalInterface
+    interface PageFetcher {
+        HttpResponse<InputStream> fetch(String url, String etag, String lastModified) throws IOException;
+    }
+
+    private final Path directory;
+    private final Duration ttl;
+    private final boolean offline;
+    private final Clock clock;
+
+    OntologyPageCache(OntologyCacheSettings settings) {
+        this(settings.getDirectoryOrDefault(), settings.getTtlOrDefault(), settings.offline(), Clock.systemUTC());
+    }
+
+    OntologyPageCache(Path directory, Duration ttl, boolean offline, Clock clock) {
+        this.directory = directory;
+        this.ttl = ttl;
+        this.offline = offline;
+        this.clock = clock;
+    }
+
+    boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Tells whether at least one page of an ontology has been downloaded to the cache.
+     *
+     * @param ontologyId the ontology to look for
+     * @return true if the cache has a directory for the ontology
+     */
+    boolean containsOntology(String ontologyId) {
+        return Files.isDirectory(directory.resolve(toFileName(ontologyId)));
+    }
+
+    /**
+     * Returns the file with the content of a page, downloading it only if needed.
+     *
+     * @param ontologyId the ontology the page belongs to
+     * @param branch     the branch (root term) the page belongs to
+     * @param page       identifier of the page within the branch
+     * @param url        URL of the page in OLS
+     * @param fetcher    used to send the (conditional) request when the page is missing or stale
+     * @return the path of the cached page
+     * @throws IOException if the page is not cached and cannot be downloaded
+     */
+    Path getPage(String ontologyId, String branch, String page, String url, PageFetcher fetcher)
+        throws IOException {
+        Path pageFile = getPageFile(ontologyId, branch, page);
+        Path metadataFile = pageFile.resolveSibling(pageFile.getFileName() + METADATA_EXTENSION);
+        Properties metadata = readMetadata(metadataFile);
+        boolean cached = Files.exists(pageFile) && url.equals(metadata.getProperty(URL_PROPERTY));
+
+        if (offline) {
+            if (!cached) {
+                throw new IOException(String.format(
+                    "Page %s of branch %s (%s) is not in the cache at %s and offline mode is enabled",
+                    page, branch, ontologyId, directory));
+            }
+            return pageFile;
+        }
+
+        if (cached && isFresh(metadata)) {
+            return pageFile;
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = cached
+                ? fetcher.fetch(url, metadata.getProperty(ETAG_PROPERTY), metadata.getProperty(LAST_MODIFIED_PROPERTY))
+                : fetcher.fetch(url, null, null);
+        } catch (IOException e) {
+            if (cached) {
+                logger.warn("Could not revalidate {} ({}). Using the cached copy", url, e.getMessage());
+                return pageFile;
+            }
+            throw e;
+        }
+
+        try (InputStream body = response.body()) {
+            if (cached && response.statusCode() == 304) {
+                logger.debug("{} not modified", url);
+                writeMetadata(metadataFile, metadata, url, response);
+                return pageFile;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException(
+                    String.format("Unexpected status %d requesting %s", response.statusCode(), url));
+            }
+            Files.createDirectories(pageFile.getParent());
+            // Write to a temporary file first, so an interrupted download never leaves a truncated page
+            Path temporaryFile = Files.createTempFile(pageFile.getParent(), page, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+                body.transferTo(outputStream);
+            }
+            Files.move(temporaryFile, pageFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writeMetadata(metadataFile, new Properties(), url, response);
+        }
+        return pageFile;
+    }
+
+    private boolean isFresh(Properties metadata) {
+        String fetchedAt = metadata.getProperty(FETCHED_AT_PROPERTY);
+        if (fetchedAt == null) {
+            return false;
+        }
+        return Instant.parse(fetchedAt).plus(ttl).isAfter(clock.instant());
+    }
+
+    private Path getPageFile(String ontologyId, String branch, String page) {
+        return directory
+            .resolve(toFileName(ontologyId))
+            .resolve(toFileName(branch))
+            .resolve(toFileName(page) + PAGE_EXTENSION);
+    }
+
+    // Keeps only characters that are safe in file names on any platform
+    private static String toFileName(String value) {
+        return value.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    private Properties readMetadata(Path metadataFile) throws IOException {
+        Properties metadata = new Properties();
+        if (Files.exists(metadataFile)) {
+            try (InputStream inputStream = Files.newInputStream(metadataFile)) {
+                metadata.load(inputStream);
+            }
+        }
+        return metadata;
+    }
+
+    private void writeMetadata(
+        Path metadataFile, Properties metadata, String url, HttpResponse<InputStream> response) throws IOException {
+        metadata.setProperty(URL_PROPERTY, url);
+        metadata.setProperty(FETCHED_AT_PROPERTY, clock.instant().toString());
+        response.headers().firstValue("ETag").ifPresent(v -> metadata.setProperty(ETAG_PROPERTY, v));
+        response.headers().firstValue("Last-Modified").ifPresent(v -> metadata.setProperty(LAST_MODIFIED_PROPERTY, v));
+        try (OutputStream outputStream = Files.newOutputStream(metadataFile)) {
+            metadata.store(outputStream, null);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.cancer_models.entity2ontology.common.model.OntologyEntityDataFieldName;
+import org.cancer_models.entity2ontology.common.model.OntologyTerm;
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.common.model.TargetEntityDataFields;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converts {@link OntologyTerm}s into the {@link TargetEntity}s that are indexed, regardless of where the terms
+ * were read from.
+ */
+class OntologyTermMapper {
+
+    // Suppress default constructor for non-instantiability
+    private OntologyTermMapper() {
+        throw new AssertionError();
+    }
+
+    static TargetEntity termToTargetEntity(OntologyTerm ontologyTerm) {
+
+        TargetEntityDataFields dataFields = new TargetEntityDataFields();
+        dataFields.addStringField(OntologyEntityDataFieldName.LABEL.getValue(), ontologyTerm.label());
+        dataFields.addStringField(OntologyEntityDataFieldName.DESCRIPTION.getValue(),  ontologyTerm.description());
+        dataFields.addListField(OntologyEntityDataFieldName.SYNONYMS.getValue(), formatSynonyms(ontologyTerm));
+
+
+        return new TargetEntity(
+            ontologyTerm.id(),
+            ontologyTerm.type(),
+            TargetEntityType.ONTOLOGY,
+            dataFields, ontologyTerm.label(),
+            ontologyTerm.url());
+    }
+
+    private static List<String> formatSynonyms(OntologyTerm ontologyTerm) {
+        Set<String> uniqueValues = new HashSet<>();
+        ontologyTerm.synonyms().forEach(e -> {
+            uniqueValues.add(e.toLowerCase());
+        });
+        // We don't need the synonyms to contain the value that the label already has
+        uniqueValues.remove(ontologyTerm.label().toLowerCase());
+        return new ArrayList<>(uniqueValues);
+    }
+}
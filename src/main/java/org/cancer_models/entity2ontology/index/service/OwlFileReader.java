@@ -0,0 +1,180 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads the classes of an ontology in OWL (RDF/XML syntax) with a StAX parser, passing each named
+ * {@code owl:Class} to a consumer as soon as its element ends. The document is never loaded in memory.
+ *
+ * <p>Only the direct children of the root element are considered terms. For each of them, the following properties
+ * are read: {@code rdfs:label}, the IAO definition, the oboInOwl synonyms, {@code owl:deprecated} and the named
+ * parents in {@code rdfs:subClassOf}. Anonymous superclasses (restrictions) are ignored.
+ */
+class OwlFileReader {
+
+    private static final String RDF_NS = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final String RDFS_NS = "http://www.w3.org/2000/01/rdf-schema#";
+    private static final String OWL_NS = "http://www.w3.org/2002/07/owl#";
+    private static final String OBO_IN_OWL_NS = "http://www.geneontology.org/formats/oboInOwl#";
+    private static final String OBO_NS = "http://purl.obolibrary.org/obo/";
+
+    private static final String DEFINITION = "IAO_0000115";
+    private static final Set<String> SYNONYM_PROPERTIES = Set.of(
+        "hasExactSynonym", "hasRelatedSynonym", "hasBroadSynonym", "hasNarrowSynonym");
+
+    // Depth of the class elements: they are direct children of rdf:RDF
+    private static final int CLASS_DEPTH = 2;
+
+    private final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+    void read(InputStream inputStream, Consumer<OntologyFileTerm> consumer) throws IOException {
+        try {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            try {
+                readDocument(reader, consumer);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid OWL file: " + e.getMessage(), e);
+        }
+    }
+
+    private void readDocument(XMLStreamReader reader, Consumer<OntologyFileTerm> consumer)
+        throws XMLStreamException {
+        int depth = 0;
+        ClassBuilder currentClass = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (depth == CLASS_DEPTH && isElement(reader, OWL_NS, "Class")) {
+                    String iri = reader.getAttributeValue(RDF_NS, "about");
+                    currentClass = iri == null ? null : new ClassBuilder(iri);
+                } else if (depth == CLASS_DEPTH + 1 && currentClass != null) {
+                    // Reading the text consumes the end of the element
+                    if (readProperty(reader, currentClass)) {
+                        depth--;
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == CLASS_DEPTH && currentClass != null) {
+                    consumer.accept(currentClass.build());
+                    currentClass = null;
+                }
+                depth--;
+            }
+        }
+    }
+
+    // Returns true if the whole property element was consumed
+    private boolean readProperty(XMLStreamReader reader, ClassBuilder owlClass) throws XMLStreamException {
+        String namespace = reader.getNamespaceURI();
+        String localName = reader.getLocalName();
+        if (RDFS_NS.equals(namespace) && "subClassOf".equals(localName)) {
+            String parent = reader.getAttributeValue(RDF_NS, "resource");
+            if (parent != null) {
+                owlClass.parentIds.add(toShortForm(parent));
+            }
+            return false;
+        }
+        if (RDFS_NS.equals(namespace) && "label".equals(localName)) {
+            String language = reader.getAttributeValue(XMLConstants.XML_NS_URI, "lang");
+            String text = readText(reader);
+            if (owlClass.label == null && (language == null || language.startsWith("en"))) {
+                owlClass.label = text;
+            }
+            return true;
+        }
+        if (OBO_NS.equals(namespace) && DEFINITION.equals(localName)) {
+            String text = readText(reader);
+            if (owlClass.description == null) {
+                owlClass.description = text;
+            }
+            return true;
+        }
+        if (OBO_IN_OWL_NS.equals(namespace) && SYNONYM_PROPERTIES.contains(localName)) {
+            owlClass.synonyms.add(readText(reader));
+            return true;
+        }
+        if (OWL_NS.equals(namespace) && "deprecated".equals(localName)) {
+            owlClass.obsolete = "true".equalsIgnoreCase(readText(reader).strip());
+            return true;
+        }
+        return false;
+    }
+
+    // Reads all the text inside the current element, including nested elements, up to its end
+    private String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int nestedElements = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                    text.append(reader.getText());
+                case XMLStreamConstants.START_ELEMENT -> nestedElements++;
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (nestedElements == 0) {
+                        return text.toString().strip();
+                    }
+                    nestedElements--;
+                }
+                default -> {
+                    // Comments and processing instructions are not part of the text
+                }
+            }
+        }
+        return text.toString().strip();
+    }
+
+    private boolean isElement(XMLStreamReader reader, String namespace, String localName) {
+        return namespace.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+    }
+
+    // The short form of an IRI is its last segment (e.g. http://purl.obolibrary.org/obo/NCIT_C9305 -> NCIT_C9305)
+    static String toShortForm(String iri) {
+        int separator = Math.max(iri.lastIndexOf('/'), iri.lastIndexOf('#'));
+        return iri.substring(separator + 1);
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Internal entities (common in RDF/XML documents) are needed, but external resources must not be fetched
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private static class ClassBuilder {
+        private final String iri;
+        private String label;
+        private String description;
+        private final List<String> synonyms = new ArrayList<>();
+        private final List<String> parentIds = new ArrayList<>();
+        private boolean obsolete;
+
+        ClassBuilder(String iri) {
+            this.iri = iri;
+        }
+
+        OntologyFileTerm build() {
+            return new OntologyFileTerm(
+                toShortForm(iri), iri,
+                label == null ? "" : label,
+                description == null ? "" : description,
+                synonyms, parentIds, obsolete);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.index.model.RuleLocation;
+
+import java.util.*;
+
+/**
+ * The {@code fieldsConversion} of a {@link RuleLocation}, resolved once per ruleset so rules can be converted into
+ * {@link TargetEntity} objects without looking up the conversion for every field of every rule.
+ *
+ * <p>It maps the name of each property of a rule to the {@link TargetField}s it provides. Several fields can be
+ * read from the same property.
+ */
+final class RuleFieldsConversion {
+
+    /**
+     * The fields of a {@link TargetEntity} that are read from a rule, in the order in which missing properties are
+     * reported.
+     */
+    enum TargetField {
+        ID("id"),
+        ENTITY_TYPE("entityType"),
+        DATA("data"),
+        URL("url"),
+        LABEL("label");
+
+        private final String name;
+
+        TargetField(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+
+    private static final TargetField[] NO_FIELDS = new TargetField[0];
+
+    // Target fields per property of the rule
+    private final Map<String, TargetField[]> fieldsByProperty;
+
+    // Property of the rule per target field, indexed by ordinal
+    private final String[] propertyByField;
+
+    private RuleFieldsConversion(Map<String, TargetField[]> fieldsByProperty, String[] propertyByField) {
+        this.fieldsByProperty = fieldsByProperty;
+        this.propertyByField = propertyByField;
+    }
+
+    /**
+     * Validates the rule location and resolves its fields conversion.
+     *
+     * @param ruleLocation the location of the rules
+     * @return the resolved conversion
+     * @throws IllegalArgumentException if the location or its fields conversion are not valid
+     */
+    static RuleFieldsConversion compile(RuleLocation ruleLocation) {
+        validate(ruleLocation);
+        Map<String, String> fieldsConversion = ruleLocation.fieldsConversion();
+        Map<String, List<TargetField>> fields = new HashMap<>();
+        String[] propertyByField = new String[TargetField.values().length];
+        for (TargetField targetField : TargetField.values()) {
+            String property = fieldsConversion.get(targetField.getName());
+            propertyByField[targetField.ordinal()] = property;
+            fields.computeIfAbsent(property, k -> new ArrayList<>()).add(targetField);
+        }
+        Map<String, TargetField[]> fieldsByProperty = new HashMap<>();
+        fields.forEach((property, targetFields) -> fieldsByProperty.put(property, targetFields.toArray(NO_FIELDS)));
+        return new RuleFieldsConversion(fieldsByProperty, propertyByField);
+    }
+
+    /**
+     * Returns the fields of the target entity that are read from the given property of a rule.
+     *
+     * @param property the name of a property of the rule
+     * @return the target fields, or an empty array if the property is not used
+     */
+    TargetField[] getTargetFields(String property) {
+        return fieldsByProperty.getOrDefault(property, NO_FIELDS);
+    }
+
+    /**
+     * Builds the exception thrown when a rule does not have the property that provides a target field.
+     *
+     * @param targetField the field that could not be read
+     * @return the exception to throw
+     */
+    IllegalArgumentException missingPropertyException(TargetField targetField) {
+        return new IllegalArgumentException(
+            "The rule does not have a property called '" + propertyByField[targetField.ordinal()]
+                + "' (the mapping for the field " + targetField.getName() + ")");
+    }
+
+    /**
+     * Checks that the rule location has a file, a name and an entry in the fields conversion for every
+     * {@link TargetField}.
+     *
+     * @param ruleLocation the location of the rules
+     * @throws IllegalArgumentException if the location is not valid
+     */
+    static void validate(RuleLocation ruleLocation) {
+        if (ruleLocation == null) {
+            throw new IllegalArgumentException("Invalid ruleset target. It must not be null.");
+        }
+        if (ruleLocation.filePath() == null || ruleLocation.filePath().isEmpty()) {
+            throw new IllegalArgumentException("Invalid ruleset target. File path is empty.");
+        }
+        if (ruleLocation.name() == null || ruleLocation.name().isEmpty()) {
+            throw new IllegalArgumentException("Invalid ruleset target. Name is empty.");
+        }
+
+        Map<String, String> fieldsConversion = ruleLocation.fieldsConversion();
+
+        if (fieldsConversion == null || fieldsConversion.isEmpty()) {
+            throw new IllegalArgumentException("Invalid ruleset target. FieldsConversion is empty.");
+        }
+        validateFieldConversionField(fieldsConversion, "id");
+        validateFieldConversionField(fieldsConversion, "entityType");
+        validateFieldConversionField(fieldsConversion, "data");
+        validateFieldConversionField(fieldsConversion, "label");
+        validateFieldConversionField(fieldsConversion, "url");
+    }
+
+    private static void validateFieldConversionField(Map<String, String> entry, String fieldName) {
+        if (!entry.containsKey(fieldName)) {
+            throw new IllegalArgumentException(
+                "Invalid ruleset target. Field conversion section is missing an entry for '" + fieldName + "'");
+        }
+        if (entry.get(fieldName) == null || entry.get(fieldName).isEmpty()) {
+            throw new IllegalArgumentException(
+                "Invalid ruleset target. Field conversion section has an empty value for '" + fieldName);
+        }
+    }
+}
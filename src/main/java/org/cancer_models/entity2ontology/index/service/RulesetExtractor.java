@@ -24,4 +24,22 @@ public interface RulesetExtractor {
      * @throws IOException if there is an error reading the rule set from the specified location
      */
     List<TargetEntity> extract(RuleLocation ruleLocation) throws IOException;
+
+    /**
+     * Extracts rules from the given {@link RuleLocation} and passes each resulting {@link TargetEntity} to
+     * {@code consumer}. Implementations that can read the rules one by one should override this method, so the
+     * whole ruleset does not need to be in memory.
+     *
+     * @param ruleLocation the information about the rules to be extracted
+     * @param consumer     receives the target entities, in the order of the rules
+     * @return the number of target entities passed to the consumer
+     * @throws IOException if there is an error reading the rule set or the consumer fails
+     */
+    default int extract(RuleLocation ruleLocation, TargetEntityConsumer consumer) throws IOException {
+        List<TargetEntity> targetEntities = extract(ruleLocation);
+        for (TargetEntity targetEntity : targetEntities) {
+            consumer.accept(targetEntity);
+        }
+        return targetEntities.size();
+    }
 }
@@ -0,0 +1,168 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.common.model.TargetEntityDataFields;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+import org.cancer_models.entity2ontology.common.utils.FileUtils;
+import org.cancer_models.entity2ontology.index.model.RuleLocation;
+import org.cancer_models.entity2ontology.index.service.RuleFieldsConversion.TargetField;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link RulesetExtractor} that reads the rules file with a streaming {@link JsonParser}, building and emitting
+ * one {@link TargetEntity} at a time instead of loading the whole file as a tree.
+ *
+ * <p>The {@code fieldsConversion} of the {@link RuleLocation} is resolved once (see {@link RuleFieldsConversion}),
+ * so each property of a rule is converted with a single lookup and the properties that are not used are skipped
+ * without being parsed into objects. The result and the validation errors are the same as the ones of
+ * {@link DefaultRulesetExtractor}, except for data values that are not strings: numbers and booleans are kept as
+ * text instead of being stored as null values.
+ *
+ * @see RuleLocation
+ * @see TargetEntity
+ */
+@Component
+@Qualifier("streamingRulesetExtractor")
+class StreamingRulesetExtractor implements RulesetExtractor {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Extracts rules from the given {@link RuleLocation} and transforms them into a list of {@link TargetEntity}.
+     *
+     * @param ruleLocation the information about the rules to be extracted
+     * @return a list of {@link TargetEntity} objects transformed from the original rules
+     * @throws IOException if there is an error reading the rule set from the specified location
+     */
+    @Override
+    public List<TargetEntity> extract(RuleLocation ruleLocation) throws IOException {
+        List<TargetEntity> targetEntities = new ArrayList<>();
+        extract(ruleLocation, targetEntities::add);
+        return targetEntities;
+    }
+
+    /**
+     * Reads the rules from the given {@link RuleLocation} one by one, passing each resulting {@link TargetEntity}
+     * to {@code consumer} as soon as its rule is parsed.
+     *
+     * @param ruleLocation the information about the rules to be extracted
+     * @param consumer     receives the target entities, in the order of the rules
+     * @return the number of target entities passed to the consumer
+     * @throws IOException if there is an error reading the rule set or the consumer fails
+     */
+    @Override
+    public int extract(RuleLocation ruleLocation, TargetEntityConsumer consumer) throws IOException {
+        RuleFieldsConversion fieldsConversion = RuleFieldsConversion.compile(ruleLocation);
+        File jsonFile = FileUtils.getNonEmptyFileFromPath(ruleLocation.filePath());
+        int count = 0;
+        try (JsonParser parser = jsonFactory.createParser(jsonFile)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Invalid JSON format in the ruleset file. Expected an array.");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    // A value that is not an object has none of the properties of a rule
+                    throw fieldsConversion.missingPropertyException(TargetField.ID);
+                }
+                consumer.accept(readRule(parser, fieldsConversion));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Reads the properties of a rule, from its START_OBJECT token to its END_OBJECT token
+    private TargetEntity readRule(JsonParser parser, RuleFieldsConversion fieldsConversion) throws IOException {
+        String[] values = new String[TargetField.values().length];
+        TargetEntityDataFields dataFields = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            TargetField[] targetFields = fieldsConversion.getTargetFields(parser.currentName());
+            parser.nextToken();
+            if (targetFields.length == 0) {
+                parser.skipChildren();
+                continue;
+            }
+            TargetEntityDataFields readDataFields = null;
+            String text;
+            if (containsData(targetFields)) {
+                readDataFields = readDataFields(parser);
+                // Same text as JsonNode.asText(): empty for objects and arrays
+                text = parser.currentToken().isStructEnd() ? "" : getText(parser);
+            } else {
+                text = readText(parser);
+            }
+            for (TargetField targetField : targetFields) {
+                if (targetField == TargetField.DATA) {
+                    dataFields = readDataFields;
+                } else {
+                    values[targetField.ordinal()] = text;
+                }
+            }
+        }
+        for (TargetField targetField : TargetField.values()) {
+            boolean missing = targetField == TargetField.DATA ? dataFields == null : values[targetField.ordinal()] == null;
+            if (missing) {
+                throw fieldsConversion.missingPropertyException(targetField);
+            }
+        }
+        return new TargetEntity(
+            values[TargetField.ID.ordinal()],
+            values[TargetField.ENTITY_TYPE.ordinal()],
+            TargetEntityType.RULE,
+            dataFields,
+            values[TargetField.LABEL.ordinal()],
+            values[TargetField.URL.ordinal()]);
+    }
+
+    private boolean containsData(TargetField[] targetFields) {
+        for (TargetField targetField : targetFields) {
+            if (targetField == TargetField.DATA) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Reads an object with the data of the rule. Numbers and booleans are stored as text, while null values,
+    // objects and arrays are skipped. Anything that is not an object results in no data fields
+    private TargetEntityDataFields readDataFields(JsonParser parser) throws IOException {
+        TargetEntityDataFields dataFields = new TargetEntityDataFields();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return dataFields;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            if (valueToken.isScalarValue() && valueToken != JsonToken.VALUE_NULL) {
+                dataFields.addStringField(fieldName, parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return dataFields;
+    }
+
+    // Reads a scalar as text, as JsonNode.asText() does. Objects and arrays are skipped and read as empty text
+    private String readText(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return getText(parser);
+    }
+
+    private String getText(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? "null" : parser.getText();
+    }
+}
@@ -0,0 +1,23 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+
+import java.io.IOException;
+
+/**
+ * Receives the {@link TargetEntity} objects produced by an extractor, one at a time, as soon as they are available.
+ *
+ * <p>Extractors that read their sources concurrently (like the pages of an ontology) may call the consumer from
+ * several threads, so implementations must be thread safe.
+ */
+@FunctionalInterface
+public interface TargetEntityConsumer {
+
+    /**
+     * Receives an extracted entity.
+     *
+     * @param targetEntity the entity
+     * @throws IOException if the entity cannot be processed
+     */
+    void accept(TargetEntity targetEntity) throws IOException;
+}
@@ -2,8 +2,10 @@ package org.cancer_models.entity2ontology.map.command;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.cancer_models.entity2ontology.map.model.SearchExecutorSettings;
 import org.cancer_models.entity2ontology.map.service.MappingIO;
 import org.cancer_models.entity2ontology.map.service.MappingRequestService;
+import org.cancer_models.entity2ontology.map.service.Searcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import picocli.CommandLine;
@@ -27,6 +29,9 @@ import picocli.CommandLine;
  * <ul>
  *   <li>{@code --request}: Specifies the JSON file containing the mapping request.</li>
  *   <li>{@code --output}: Specifies the output file where the mapping results will be written.</li>
+ *   <li>{@code --search-threads}, {@code --virtual-threads}, {@code --max-docs-per-slice},
+ *   {@code --max-segments-per-slice}: Search the segments of the index concurrently within each query
+ *   (see {@link SearchExecutorSettings}).</li>
  * </ul>
  *
  * @see MappingIO
@@ -41,6 +46,7 @@ import picocli.CommandLine;
 public class MapCommand implements Runnable {
 
     private final MappingRequestService mappingRequestService;
+    private final Searcher searcher;
     private static final Logger logger = LogManager.getLogger(MapCommand.class);
 
     /**
@@ -55,14 +61,47 @@ public class MapCommand implements Runnable {
     @CommandLine.Option(names = "--output", required = true, description = "Output file to write the mapping results.")
     private String outputFile;
 
+    /**
+     * Maximum number of slices of the index searched at the same time within a query. If not set, queries are run by a
+     * single thread.
+     */
+    @CommandLine.Option(
+        names = "--search-threads",
+        description = "Maximum number of slices of the index searched at the same time within a query.")
+    private Integer searchThreads;
+
+    /**
+     * If set, the slices are searched by virtual threads instead of by a dedicated pool of threads.
+     */
+    @CommandLine.Option(
+        names = "--virtual-threads",
+        description = "Searches the slices of the index with virtual threads instead of a pool of threads.")
+    private boolean virtualThreads;
+
+    /**
+     * Maximum number of documents in a slice of the index.
+     */
+    @CommandLine.Option(names = "--max-docs-per-slice", description = "Maximum number of documents in a slice.")
+    private Integer maxDocsPerSlice;
+
+    /**
+     * Maximum number of segments in a slice of the index.
+     */
+    @CommandLine.Option(names = "--max-segments-per-slice", description = "Maximum number of segments in a slice.")
+    private Integer maxSegmentsPerSlice;
+
     @Autowired
-    public MapCommand(MappingRequestService mappingRequestService) {
+    public MapCommand(MappingRequestService mappingRequestService, Searcher searcher) {
         this.mappingRequestService = mappingRequestService;
+        this.searcher = searcher;
     }
 
     @Override
     public void run() {
         try {
+            // The executor is set once, before any search, and used by all the entities of the request
+            searcher.configureExecutor(
+                new SearchExecutorSettings(searchThreads, virtualThreads, maxDocsPerSlice, maxSegmentsPerSlice));
             // Read the mapping request
             mappingRequestService.processMappingRequest(requestFile, outputFile);
         } catch (Exception e) {
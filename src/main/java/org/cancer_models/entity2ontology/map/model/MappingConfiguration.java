@@ -52,6 +52,38 @@ public class MappingConfiguration {
          */
         private List<FieldConfiguration> fields;
         @Setter(AccessLevel.PACKAGE) private List<String> ontologyTemplates;
+        /**
+         * How candidates for similar matches are searched. Fuzzy queries are used if not configured.
+         */
+        private SimilarMatchStrategy similarMatchStrategy = SimilarMatchStrategy.FUZZY;
+        /**
+         * Whether the ontology templates are searched with a single query (instead of one query per template), and
+         * each result scored against all of them. Not used with {@link SimilarMatchStrategy#MINHASH}, which does not
+         * query the index.
+         */
+        private boolean singlePassTemplateSearch;
+        /**
+         * Whether the exact and similar ontology searches are run as a single query over all the templates, with each
+         * result tagged as exact or similar and scored once. Not used with {@link SimilarMatchStrategy#MINHASH}.
+         */
+        private boolean combinedOntologySearch;
+        /**
+         * Whether the ontology queries keep the terms with the best final score (calculated for every term they
+         * match while collecting the results) instead of the terms with the best Lucene score. Not used with
+         * {@link #combinedOntologySearch}.
+         */
+        private boolean rankByFinalScore;
+        /**
+         * Settings to skip the search stages that rarely add suggestions for this entity type. If not configured,
+         * all the stages run.
+         */
+        private AdaptiveStages adaptiveStages;
+        /**
+         * Whether the fuzzy queries of similar searches are run as the index terms at one edit of distance, found in a
+         * dictionary built from the index, instead of enumerating the terms of the index. Only used with
+         * {@link SimilarMatchStrategy#FUZZY} and {@link SimilarMatchStrategy#IN_MEMORY} (for ontology terms).
+         */
+        private boolean vocabularyCorrection;
 
         /**
          * Utility to get the weights for the fields.
@@ -64,6 +96,31 @@ public class MappingConfiguration {
         }
     }
 
+    /**
+     * Settings of the adaptive mode of the search stages (exact rules, similar rules, exact ontologies, similar
+     * ontologies). The suggestions finder keeps how often each stage adds suggestions for an entity type, and skips
+     * the stages that rarely do. The stages keep their order, as it is the priority of the suggestions they find.
+     */
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AdaptiveStages {
+        /**
+         * Number of times a stage has to run for an entity type before it can be skipped.
+         */
+        private int minSamples = 200;
+        /**
+         * Safety margin: a stage is only skipped if the fraction of its runs that added suggestions is lower than
+         * this value.
+         */
+        private double minYield = 0.01;
+        /**
+         * Every this number of entities of the type, all the stages run, so the yield of the skipped ones is still
+         * updated.
+         */
+        private int resampleInterval = 20;
+    }
+
     /**
      * Returns the configuration associated to an entity type.
      * @param entityType String indicating the entity type for which we want to find the configuration
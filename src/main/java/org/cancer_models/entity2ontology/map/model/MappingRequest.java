@@ -1,5 +1,6 @@
 package org.cancer_models.entity2ontology.map.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -29,15 +30,26 @@ public class MappingRequest {
     // List of entities to map
     private List<SourceEntity> entities;
 
+    // Maximum time (in milliseconds) to map each entity. If null, there is no limit
+    private Long entityTimeBudgetMillis;
+
+    public MappingRequest(
+        int maxSuggestions, String indexPath, String mappingConfigurationFile, List<SourceEntity> entities) {
+        this(maxSuggestions, indexPath, mappingConfigurationFile, entities, null);
+    }
+
+    @JsonCreator
     public MappingRequest(
         @JsonProperty("maxNumSuggestions") int maxSuggestions,
         @JsonProperty("indexPath") String indexPath,
         @JsonProperty("mappingConfigurationFile") String mappingConfigurationFile,
-        @JsonProperty("entities") List<SourceEntity> entities) {
+        @JsonProperty("entities") List<SourceEntity> entities,
+        @JsonProperty("entityTimeBudgetMillis") Long entityTimeBudgetMillis) {
         this.maxSuggestions = maxSuggestions;
         this.indexPath = indexPath;
         this.mappingConfigurationFile = mappingConfigurationFile;
         this.entities = entities;
+        this.entityTimeBudgetMillis = entityTimeBudgetMillis;
     }
 
     public String toString() {
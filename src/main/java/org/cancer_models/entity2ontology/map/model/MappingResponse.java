@@ -25,6 +25,16 @@ public class MappingResponse {
      */
     private String indexPath;
 
+    /**
+     * The number of distinct entities that were mapped. Entities with the same type and data are mapped once.
+     */
+    private int distinctEntities;
+
+    /**
+     * The fraction of the entities whose suggestions were copied from an identical entity instead of being searched.
+     */
+    private double deduplicationRatio;
+
     /**
      * The list of mapping response entries. Each entry contains a source entity and its list of suggestions.
      */
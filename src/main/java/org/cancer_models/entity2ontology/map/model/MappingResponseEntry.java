@@ -19,4 +19,10 @@ public class MappingResponseEntry {
      * The list of suggestions for the source entity.
      */
     private List<Suggestion> suggestions;
+
+    /**
+     * Whether the time budget of the entity ran out before all the searches were done, so some suggestions may be
+     * missing.
+     */
+    private boolean partial;
 }
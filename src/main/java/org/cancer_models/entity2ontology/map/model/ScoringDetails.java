@@ -2,6 +2,7 @@ package org.cancer_models.entity2ontology.map.model;
 
 import lombok.Data;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,4 +23,22 @@ public class ScoringDetails {
      * Additional information.
      */
     private String note;
+    /**
+     * Indicates if the time budget to map the entity ran out, so better suggestions could exist.
+     */
+    private boolean partial;
+
+    /**
+     * Returns a copy of these details, with its own list of query items.
+     *
+     * @return a new {@code ScoringDetails}
+     */
+    public ScoringDetails copy() {
+        ScoringDetails copy = new ScoringDetails();
+        copy.setExactMatch(exactMatch);
+        copy.setSearchQueryItems(searchQueryItems == null ? null : new ArrayList<>(searchQueryItems));
+        copy.setNote(note);
+        copy.setPartial(partial);
+        return copy;
+    }
 }
@@ -0,0 +1,67 @@
+package org.cancer_models.entity2ontology.map.model;
+
+/**
+ * Configuration of the threads that search the segments of an index concurrently within a single query.
+ *
+ * <p>Without threads, each query visits the segments of the index one after the other. With them, the segments are
+ * grouped into slices that are searched at the same time, which lowers the time to map a single entity on indexes
+ * with several segments, but competes for the CPU with other queries running at the same time.
+ *
+ * @param threads             Maximum number of slices searched at the same time. If not set or 0, queries are run by
+ *                            the calling thread only
+ * @param virtualThreads      If true, slices are searched by virtual threads (at most {@code threads} at a time)
+ *                            instead of by a dedicated pool of {@code threads} platform threads
+ * @param maxDocsPerSlice     Maximum number of documents in a slice. If not set, 250000
+ * @param maxSegmentsPerSlice Maximum number of segments in a slice. If not set, 5
+ */
+public record SearchExecutorSettings(
+    Integer threads, boolean virtualThreads, Integer maxDocsPerSlice, Integer maxSegmentsPerSlice) {
+
+    // Same defaults used by Lucene to slice an index
+    private static final int DEFAULT_MAX_DOCS_PER_SLICE = 250_000;
+    private static final int DEFAULT_MAX_SEGMENTS_PER_SLICE = 5;
+
+    /**
+     * Settings with no search threads: each query is run by the calling thread.
+     */
+    public static final SearchExecutorSettings SINGLE_THREADED = new SearchExecutorSettings(null, false, null, null);
+
+    public SearchExecutorSettings {
+        if (threads != null && threads < 0) {
+            throw new IllegalArgumentException("threads cannot be negative");
+        }
+        if (maxDocsPerSlice != null && maxDocsPerSlice <= 0) {
+            throw new IllegalArgumentException("maxDocsPerSlice must be greater than zero");
+        }
+        if (maxSegmentsPerSlice != null && maxSegmentsPerSlice <= 0) {
+            throw new IllegalArgumentException("maxSegmentsPerSlice must be greater than zero");
+        }
+    }
+
+    /**
+     * Tells whether queries use search threads.
+     *
+     * @return true if {@code threads} is greater than zero
+     */
+    public boolean isConcurrent() {
+        return threads != null && threads > 0;
+    }
+
+    /**
+     * Returns the maximum number of documents in a slice.
+     *
+     * @return the configured number, or the default one if none was configured
+     */
+    public int getMaxDocsPerSliceOrDefault() {
+        return maxDocsPerSlice == null ? DEFAULT_MAX_DOCS_PER_SLICE : maxDocsPerSlice;
+    }
+
+    /**
+     * Returns the maximum number of segments in a slice.
+     *
+     * @return the configured number, or the default one if none was configured
+     */
+    public int getMaxSegmentsPerSliceOrDefault() {
+        return maxSegmentsPerSlice == null ? DEFAULT_MAX_SEGMENTS_PER_SLICE : maxSegmentsPerSlice;
+    }
+}
@@ -0,0 +1,57 @@
+package org.cancer_models.entity2ontology.map.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * How the candidates for similar matches are searched in the index.
+ */
+@Getter
+public enum SimilarMatchStrategy {
+    /**
+     * Each word of the source text is searched with a fuzzy query (one edit allowed). Precise, but each query has to
+     * build an automaton and intersect it with the terms of the field.
+     */
+    FUZZY("fuzzy"),
+    /**
+     * Each word of the source text is searched by its character trigrams, with term queries on the trigram fields.
+     * Cheaper with long texts and large vocabularies. Candidates are close to the ones of {@link #FUZZY}, but not the
+     * same: words at one edit of distance can be missed when they are very short, and some more distant ones are
+     * found.
+     */
+    TRIGRAM("trigram"),
+    /**
+     * The words of the source text are compared as a set with the words of each label, synonym or rule value, using
+     * MinHash signatures held in memory. Finds texts with mostly the same words in any order (Jaccard similarity of
+     * about 0.5 or more), but not misspelled words.
+     */
+    MINHASH("minhash"),
+    /**
+     * Similar rules are found by scoring every rule of the entity type in memory, with the same similarity used to
+     * score the results of a query, instead of only the candidates a fuzzy query returns. Ontology terms are searched
+     * as with {@link #FUZZY}.
+     */
+    IN_MEMORY("inMemory");
+
+    private final String value;
+
+    SimilarMatchStrategy(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static SimilarMatchStrategy fromString(String value) {
+        return Arrays.stream(values())
+            .filter(e -> e.value.equalsIgnoreCase(value))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No enum constant for value: " + value));
+    }
+}
@@ -52,6 +52,22 @@ public class Suggestion {
 
     private ScoringDetails scoringDetails;
 
+    /**
+     * Returns a copy of this suggestion, with its own copy of the scoring details, so it can be changed without
+     * changing this one.
+     *
+     * @return a new {@code Suggestion}
+     */
+    public Suggestion copy() {
+        Suggestion copy = new Suggestion(targetEntity);
+        copy.setTermLabel(termLabel);
+        copy.setTermUrl(termUrl);
+        copy.setScore(score);
+        copy.setRawScore(rawScore);
+        copy.setScoringDetails(scoringDetails == null ? null : scoringDetails.copy());
+        return copy;
+    }
+
     private String calculateUniqueSuggestionId(TargetEntity targetEntity) {
         return targetEntity.targetType() + "|" + targetEntity.entityType() + "|" + targetEntity.id();
     }
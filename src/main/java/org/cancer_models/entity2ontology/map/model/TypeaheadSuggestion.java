@@ -0,0 +1,13 @@
+package org.cancer_models.entity2ontology.map.model;
+
+/**
+ * An ontology term suggested for a partially typed text.
+ *
+ * @param id          Identifier of the ontology term.
+ * @param label       Label of the ontology term.
+ * @param url         Url of the ontology term.
+ * @param matchedText The label or synonym of the term that matched the typed text.
+ * @param synonym     Whether {@code matchedText} is a synonym (as opposed to the label).
+ */
+public record TypeaheadSuggestion(String id, String label, String url, String matchedText, boolean synonym) {
+}
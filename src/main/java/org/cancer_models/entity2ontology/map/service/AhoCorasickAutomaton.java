@@ -0,0 +1,177 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import java.util.*;
+
+/**
+ * An Aho-Corasick automaton over sequences of words, to find all the occurrences of a set of phrases in a text in
+ * a single pass over its words, whatever the number of phrases.
+ *
+ * <p>The phrases form a trie of words. Each node also links to the node of its longest proper suffix that is in the
+ * trie (failure link) and to the nearest of those suffixes that ends a phrase (output link), so when a word cannot
+ * continue the current match the scan goes on from the suffix instead of starting again, and all the phrases ending
+ * at a word are listed without visiting the nodes that do not end any.
+ *
+ * <p>The automaton is built once with a {@link Builder} and is then immutable, so it can be used by several threads.
+ *
+ * @param <T> type of the value attached to each phrase
+ */
+final class AhoCorasickAutomaton<T> {
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    /**
+     * An occurrence of a phrase in a text.
+     *
+     * @param start the position of the first word of the phrase in the text
+     * @param end   the position after the last word of the phrase in the text
+     * @param value the value attached to the phrase
+     * @param <T>   type of the value
+     */
+    record Match<T>(int start, int end, T value) {
+
+        /**
+         * Returns the number of words of the phrase.
+         *
+         * @return the number of words
+         */
+        int length() {
+            return end - start;
+        }
+    }
+
+    // Per node: the child for each word, the failure link, the output link, its depth and the values of its phrases
+    private final List<Map<String, Integer>> children;
+    private final int[] failureLinks;
+    private final int[] outputLinks;
+    private final int[] depths;
+    private final List<List<T>> values;
+
+    private AhoCorasickAutomaton(
+        List<Map<String, Integer>> children, int[] failureLinks, int[] outputLinks, int[] depths,
+        List<List<T>> values) {
+        this.children = children;
+        this.failureLinks = failureLinks;
+        this.outputLinks = outputLinks;
+        this.depths = depths;
+        this.values = values;
+    }
+
+    /**
+     * Finds all the occurrences of the phrases in a text, including the ones that overlap or are inside others.
+     *
+     * @param words the words of the text, normalised like the phrases
+     * @return the occurrences, ordered by end position and, for the same end, from the longest to the shortest
+     */
+    List<Match<T>> scan(List<String> words) {
+        List<Match<T>> matches = new ArrayList<>();
+        int node = ROOT;
+        for (int position = 0; position < words.size(); position++) {
+            String word = words.get(position);
+            Integer next = children.get(node).get(word);
+            while (next == null && node != ROOT) {
+                node = failureLinks[node];
+                next = children.get(node).get(word);
+            }
+            node = next == null ? ROOT : next;
+            int output = values.get(node).isEmpty() ? outputLinks[node] : node;
+            while (output != NONE) {
+                for (T value : values.get(output)) {
+                    matches.add(new Match<>(position + 1 - depths[output], position + 1, value));
+                }
+                output = outputLinks[output];
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the number of nodes of the automaton.
+     *
+     * @return the number of nodes, including the root
+     */
+    int size() {
+        return depths.length;
+    }
+
+    /**
+     * Collects the phrases of an automaton.
+     *
+     * @param <T> type of the value attached to each phrase
+     */
+    static final class Builder<T> {
+
+        private final List<Map<String, Integer>> children = new ArrayList<>();
+        private final List<Integer> depths = new ArrayList<>();
+        private final List<List<T>> values = new ArrayList<>();
+
+        Builder() {
+            addNode(0);
+        }
+
+        /**
+         * Adds a phrase.
+         *
+         * @param words the words of the phrase. Phrases without words are ignored
+         * @param value the value to return with the occurrences of the phrase
+         * @return this builder
+         */
+        Builder<T> add(List<String> words, T value) {
+            if (words.isEmpty()) {
+                return this;
+            }
+            int node = ROOT;
+            for (String word : words) {
+                Integer next = children.get(node).get(word);
+                if (next == null) {
+                    next = addNode(depths.get(node) + 1);
+                    children.get(node).put(word, next);
+                }
+                node = next;
+            }
+            values.get(node).add(value);
+            return this;
+        }
+
+        private int addNode(int depth) {
+            children.add(new HashMap<>(2));
+            depths.add(depth);
+            values.add(new ArrayList<>(1));
+            return depths.size() - 1;
+        }
+
+        /**
+         * Computes the links of the nodes, visiting them by depth, and builds the automaton.
+         *
+         * @return the automaton
+         */
+        AhoCorasickAutomaton<T> build() {
+            int numNodes = depths.size();
+            int[] failureLinks = new int[numNodes];
+            int[] outputLinks = new int[numNodes];
+            Arrays.fill(outputLinks, NONE);
+            // Nodes at depth 1 fail to the root, which is the default value
+            Deque<Integer> queue = new ArrayDeque<>(children.get(ROOT).values());
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (Map.Entry<String, Integer> child : children.get(node).entrySet()) {
+                    int fallback = failureLinks[node];
+                    Integer failure = children.get(fallback).get(child.getKey());
+                    while (failure == null && fallback != ROOT) {
+                        fallback = failureLinks[fallback];
+                        failure = children.get(fallback).get(child.getKey());
+                    }
+                    int childNode = child.getValue();
+                    failureLinks[childNode] = failure == null ? ROOT : failure;
+                    int failureNode = failureLinks[childNode];
+                    outputLinks[childNode] = values.get(failureNode).isEmpty()
+                        ? outputLinks[failureNode]
+                        : failureNode;
+                    queue.add(childNode);
+                }
+            }
+            return new AhoCorasickAutomaton<>(
+                children, failureLinks, outputLinks, depths.stream().mapToInt(Integer::intValue).toArray(), values);
+        }
+    }
+}
@@ -26,7 +26,17 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
 
     // This parameter allows to control the score for matches in synonyms, giving it a slightly lower value than a label
     // match
-    private static final double SYNONYM_MATCH_MULTIPLIER = 0.99;
+    static final double SYNONYM_MATCH_MULTIPLIER = 0.99;
+
+    // A word of an item matches a word of the target text if their similarity is greater than this value
+    private static final double WORD_MATCH_THRESHOLD = 0.8;
+
+    // Margin for the rounding differences between the upper bounds of the scores and the scores themselves
+    private static final double UPPER_BOUND_MARGIN = 1e-9;
+
+    // Scores of ontology terms are rounded to 9 decimal places, so the rounding errors of adding up the weighted scores
+    // of the items do not turn a perfect match (100) into 99.99999999999999, which would not count as a perfect match
+    private static final double SCORE_ROUNDING_SCALE = 1e9;
 
     // Method to filter out stop words
     private static List<String> filterStopWords(String[] words) {
@@ -39,7 +49,13 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
         return filteredWords;
     }
 
-    private static List<String> textToList(String text) {
+    /**
+     * Splits a text into the lower-cased words used to compare it, without stop words.
+     *
+     * @param text the text to split
+     * @return the words of the text
+     */
+    static List<String> textToList(String text) {
         return new ArrayList<>(filterStopWords(text.toLowerCase().split(WORDS_SEPARATOR_REGEXP)));
     }
 
@@ -76,17 +92,37 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
     private double calculateScorePerField(
         String sourceEntityFieldValue, String suggestionFieldValue, double fieldWeight, double totalWeight) {
 
+        if (suggestionFieldValue == null || suggestionFieldValue.isEmpty()) {
+            throw new IllegalArgumentException("Error calculating mapping score: target text is null or empty");
+        }
+
+        // Calculate how important the field is in the global calculation of the score
+        double fieldRelevance = fieldWeight / totalWeight;
+
+        return calculateScorePerField(
+            textToList(sourceEntityFieldValue), textToList(suggestionFieldValue), fieldRelevance);
+    }
+
+    /**
+     * Calculates the contribution of a field to the score of a rule, from the words (obtained with
+     * {@link #textToList(String)}) of the value of the field in the source entity and in the rule.
+     *
+     * @param sourceEntityWords the words of the value in the source entity
+     * @param suggestionWords   the words of the value in the rule. Cannot be empty
+     * @param fieldRelevance    the weight of the field divided by the total weight of the fields
+     * @return the score of the field, between 0 and {@code fieldRelevance} * 100
+     */
+    static double calculateScorePerField(
+        List<String> sourceEntityWords, List<String> suggestionWords, double fieldRelevance) {
+
         // Calculate the similarity between the value of the source entity field vs the one in the suggestion (0 - 100).
-        double stringsSimilarityPercentage = calculateScoreWeightedItems(sourceEntityFieldValue, suggestionFieldValue);
+        double stringsSimilarityPercentage = calculateScoreWords(sourceEntityWords, suggestionWords);
 
         // A field contributes only if its similarity with the value is greater than a specified threshold
         if (stringsSimilarityPercentage < SIMILARITY_THRESHOLD) {
             return 0;
         }
 
-        // Calculate how important the field is in the global calculation of the score
-        double fieldRelevance = fieldWeight / totalWeight;
-
         // Get the field score by multiplying the similarity percentage and the relevance of the field
         return stringsSimilarityPercentage * fieldRelevance;
     }
@@ -102,6 +138,23 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
      */
     @Override
     public double computeScoreOntology(Suggestion suggestion) {
+        return computeScoreOntology(suggestion, 0);
+    }
+
+    /**
+     * Calculates the suggestion (an ontology term) score as a percentage, like
+     * {@link #computeScoreOntology(Suggestion)}, without calculating the scores that cannot change the result.
+     * An upper bound of the score of the label and of each synonym is calculated first (see
+     * {@link #upperBoundScoreWeightedWords}): if none of them reaches {@code minimumScore}, the score is 0, and
+     * synonyms whose bound cannot beat the best score found so far are not scored.
+     *
+     * @param suggestion   The suggestion for the mapping
+     * @param minimumScore The minimum score the suggestion needs to be useful
+     * @return A number (percentage) representing how similar the suggestion and the source entity are, or 0 if the
+     * suggestion cannot reach {@code minimumScore}.
+     */
+    @Override
+    public double computeScoreOntology(Suggestion suggestion, double minimumScore) {
         double score;
 
         List<SearchQueryItem> items = getCleanedItemsFromSuggestion(suggestion);
@@ -112,6 +165,8 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
             itemsTexts.add(i.getValue());
             itemsWeights.add(i.getWeight());
         });
+        List<List<String>> itemsWords = itemsTexts.stream().map(DefaultSuggestionScoreCalculator::textToList).toList();
+        List<List<WordChars>> itemsWordChars = itemsWords.stream().map(WordChars::ofWords).toList();
 
         String mappingDetailNote = "";
         String suggestionLabel = suggestion.getTermLabel();
@@ -122,8 +177,24 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
 
         double highestScore;
 
+        // Skip the suggestion if neither the label nor a synonym can reach the minimum score
+        List<String> labelWords = targetTextToList(suggestionLabel);
+        if (minimumScore > 0) {
+            double highestBound =
+                upperBoundScoreWeightedWords(itemsWordChars, itemsWeights, WordChars.ofWords(labelWords));
+            for (int i = 0; i < suggestionSynonyms.size() && highestBound + UPPER_BOUND_MARGIN < minimumScore; i++) {
+                double synonymBound = upperBoundScoreWeightedWords(
+                    itemsWordChars, itemsWeights, WordChars.ofWords(targetTextToList(suggestionSynonyms.get(i))));
+                highestBound = Math.max(highestBound, synonymBound * SYNONYM_MATCH_MULTIPLIER);
+            }
+            if (highestBound + UPPER_BOUND_MARGIN < minimumScore) {
+                suggestion.getScoringDetails().setNote("Below minimum score:[" + minimumScore + "]");
+                return 0;
+            }
+        }
+
         // First we check the score of the label
-        double labelScore = calculateScoreWeightedItems(itemsTexts, itemsWeights, suggestionLabel);
+        double labelScore = calculateScoreWeightedWords(itemsWords, itemsWeights, labelWords);
 
         highestScore = labelScore;
         mappingDetailNote = "Matched label:[" + suggestionLabel + "]";
@@ -132,7 +203,14 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
         if (labelScore < MAX_SCORE && !suggestionSynonyms.isEmpty()) {
 
             for (String synonym : suggestionSynonyms) {
-                double synonymScore = calculateScoreWeightedItems(itemsTexts, itemsWeights, synonym);
+                List<String> synonymWords = targetTextToList(synonym);
+                // No need to score a synonym that cannot beat the highest score
+                double synonymBound = upperBoundScoreWeightedWords(
+                    itemsWordChars, itemsWeights, WordChars.ofWords(synonymWords)) * SYNONYM_MATCH_MULTIPLIER;
+                if (synonymBound + UPPER_BOUND_MARGIN <= highestScore) {
+                    continue;
+                }
+                double synonymScore = calculateScoreWeightedWords(itemsWords, itemsWeights, synonymWords);
                 synonymScore *= SYNONYM_MATCH_MULTIPLIER;
                 if (synonymScore > highestScore) {
                     mappingDetailNote = "Matched synonym:[" + synonym + "]";
@@ -141,10 +219,57 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
             }
         }
         suggestion.getScoringDetails().setNote(mappingDetailNote);
-        score = highestScore;
+        score = roundScore(highestScore);
         return score;
     }
 
+    /**
+     * The words of the search query items an ontology term is scored against, cleaned and split like
+     * {@link #computeScoreOntology(Suggestion)} does.
+     *
+     * @param itemsWords   the words of each item
+     * @param itemsWeights the weight of each item
+     */
+    record OntologyQueryWords(List<List<String>> itemsWords, List<Double> itemsWeights) {
+
+        /**
+         * Cleans and splits search query items.
+         *
+         * @param searchQueryItems the items of a template
+         * @return the words and weights of the items
+         */
+        static OntologyQueryWords of(List<SearchQueryItem> searchQueryItems) {
+            List<SearchQueryItem> items = cleanSearchQueryItems(searchQueryItems);
+            return new OntologyQueryWords(
+                items.stream().map(item -> textToList(item.getValue())).toList(),
+                items.stream().map(SearchQueryItem::getWeight).toList());
+        }
+    }
+
+    /**
+     * Calculates the same score as {@link #computeScoreOntology(Suggestion)}, from the label and synonyms of the
+     * ontology term already split with {@link #textToList(String)}, and without the scoring details. Meant to score
+     * many terms, for instance while the results of a query are being collected.
+     *
+     * @param queryWords    the words of the search query items
+     * @param labelWords    the words of the label of the term
+     * @param synonymsWords the words of each synonym of the term
+     * @return A number (percentage) representing how similar the term and the search query items are.
+     */
+    static double computeScoreOntologyWords(
+        OntologyQueryWords queryWords, List<String> labelWords, List<List<String>> synonymsWords) {
+        double highestScore =
+            calculateScoreWeightedWords(queryWords.itemsWords(), queryWords.itemsWeights(), labelWords);
+        if (highestScore < MAX_SCORE) {
+            for (List<String> synonymWords : synonymsWords) {
+                double synonymScore = calculateScoreWeightedWords(
+                    queryWords.itemsWords(), queryWords.itemsWeights(), synonymWords) * SYNONYM_MATCH_MULTIPLIER;
+                highestScore = Math.max(highestScore, synonymScore);
+            }
+        }
+        return roundScore(highestScore);
+    }
+
     private List<SearchQueryItem> getCleanedItemsFromSuggestion(Suggestion suggestion) {
         List<SearchQueryItem> items = null;
         ScoringDetails scoringDetails = suggestion.getScoringDetails();
@@ -157,27 +282,75 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
         return cleanSearchQueryItems(suggestion.getScoringDetails().getSearchQueryItems());
     }
 
-    private double calculateScoreWeightedItems(String itemsText, String targetText) {
-        List<String> itemsTexts = new ArrayList<>();
-        itemsTexts.add(itemsText);
-        List<Double> itemWeightedTexts = new ArrayList<>();
-        itemWeightedTexts.add(1.0);
-        return calculateScoreWeightedItems(itemsTexts, itemWeightedTexts, targetText);
-    }
+    // Same as calculateScoreWeightedItems with a single item, for texts already split into words
+    private static double calculateScoreWords(List<String> itemWords, List<String> targetWords) {
+        int initialTargetWordsSize = targetWords.stream().mapToInt(String::length).sum();
 
-    private double calculateScoreWeightedItems(List<String> itemsTexts, List<Double> itemsWeights, String targetText) {
-        double score = 0;
-        if (itemsTexts.size() != itemsWeights.size()) {
-            throw new IllegalArgumentException("Error calculating mapping score: number of weights does not" +
-                "match number of items");
+        ItemScoreResult result = calculateItemScore(itemWords, targetWords);
+        double score = result.score;
+
+        // Calculate the penalty: how much of the target words were not matched
+        int remainingTargetTextSize = result.remainingTargetWords.stream().mapToInt(String::length).sum();
+        double penalty = (double) (remainingTargetTextSize * 100) / initialTargetWordsSize;
+        if (penalty < score) {
+            score -= penalty;
         }
+        return score;
+    }
 
+    // Splits the text a suggestion is scored against into words
+    private static List<String> targetTextToList(String targetText) {
         if (targetText == null || targetText.isEmpty()) {
             throw new IllegalArgumentException("Error calculating mapping score: target text is null or empty");
         }
+        return textToList(targetText);
+    }
+
+    /**
+     * Calculates an upper bound of {@link #calculateScoreWeightedWords}, without calculating Levenshtein distances.
+     * A word of an item only adds to the score if its similarity with a word of the target text is greater than
+     * {@code WORD_MATCH_THRESHOLD}. The distance between two words is at least the length of the longest one minus
+     * the characters they share, so their similarity is at most the shared characters divided by that length, and at
+     * most the length of the shortest word divided by the length of the longest one. The penalty for the words of the
+     * target text not matched is ignored, as it can only lower the score.
+     *
+     * @param itemsWords   the words of each item
+     * @param itemsWeights the weight of each item
+     * @param targetWords  the words of the target text
+     * @return a number not lower than the score
+     */
+    private static double upperBoundScoreWeightedWords(
+        List<List<WordChars>> itemsWords, List<Double> itemsWeights, List<WordChars> targetWords) {
+        double bound = 0;
+        double totalWeight = itemsWeights.stream().reduce(0.0, Double::sum);
+        for (int i = 0; i < itemsWords.size(); i++) {
+            double itemRelevance = itemsWeights.get(i) / totalWeight;
+            bound += upperBoundItemScore(itemsWords.get(i), targetWords) * itemRelevance;
+        }
+        return bound;
+    }
 
-        List<String> targetWords = textToList(targetText);
+    // Upper bound of the score calculateItemScore calculates
+    private static double upperBoundItemScore(List<WordChars> itemWords, List<WordChars> targetWords) {
+        double bound = 0;
+        int itemWordsContentSize = itemWords.stream().mapToInt(w -> w.word().length()).sum();
+        for (WordChars element : itemWords) {
+            double highestSimilarity = 0;
+            for (WordChars targetWord : targetWords) {
+                highestSimilarity = Math.max(highestSimilarity, element.upperBoundSimilarity(targetWord));
+            }
+            if (highestSimilarity + UPPER_BOUND_MARGIN > WORD_MATCH_THRESHOLD) {
+                double itemRelevanceInPhrase = (double) (element.word().length()) / itemWordsContentSize;
+                bound += highestSimilarity * itemRelevanceInPhrase * 100;
+            }
+        }
+        return bound;
+    }
 
+    // Same as calculateScoreWeightedItems, for texts already split into words
+    private static double calculateScoreWeightedWords(
+        List<List<String>> itemsWords, List<Double> itemsWeights, List<String> targetWords) {
+        double score = 0;
         int initialTargetWordsSize = targetWords.stream().mapToInt(String::length).sum();
 
         List<String> remainingTargetWords = new ArrayList<>();
@@ -185,9 +358,8 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
         // The total weight of the items
         double totalWeight = itemsWeights.stream().reduce(0.0, Double::sum);
 
-        for (int i = 0; i < itemsTexts.size(); i++) {
-            String itemText = itemsTexts.get(i);
-            List<String> itemWords = textToList(itemText);
+        for (int i = 0; i < itemsWords.size(); i++) {
+            List<String> itemWords = itemsWords.get(i);
 
             double weight = itemsWeights.get(i);
             double itemRelevance = weight / totalWeight;
@@ -206,7 +378,11 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
         return score;
     }
 
-    private ItemScoreResult calculateItemScore(List<String> itemWords, List<String> targetWords) {
+    private static double roundScore(double score) {
+        return Math.round(score * SCORE_ROUNDING_SCALE) / SCORE_ROUNDING_SCALE;
+    }
+
+    private static ItemScoreResult calculateItemScore(List<String> itemWords, List<String> targetWords) {
         double itemScore = 0;
         Set<String> matchedTargetWords = new HashSet<>();
         List<String> remainingTargetWords = new ArrayList<>(targetWords);
@@ -216,7 +392,7 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
             for (String targetWord : targetWords) {
                 double similarity = StringsSimilarityScoreCalculator.calculateSimilarityScore(element, targetWord);
 
-                if (similarity > 0.8) {
+                if (similarity > WORD_MATCH_THRESHOLD) {
                     matchedTargetWords.add(targetWord);
                     double itemRelevanceInPhrase = (double) (element.length()) / itemWordsContentSize;
                     itemScore += similarity * itemRelevanceInPhrase * 100;
@@ -229,7 +405,7 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
     }
 
     // Return a copy of searchQueryItems without overlapping information or non-meaningful words
-    private List<SearchQueryItem> cleanSearchQueryItems(List<SearchQueryItem> searchQueryItems) {
+    private static List<SearchQueryItem> cleanSearchQueryItems(List<SearchQueryItem> searchQueryItems) {
         List<SearchQueryItem> items = SearchQueryItemUtil.removeNonMeaningItems(searchQueryItems, NON_MEANINGFUL_WORDS);
         items = SearchQueryItemUtil.removeOverlappingTerms(items);
         return items;
@@ -238,4 +414,50 @@ class DefaultSuggestionScoreCalculator implements SuggestionScoreCalculator {
     // A record to help in intermediate calculations of score
     private record ItemScoreResult(double score, List<String> remainingTargetWords) {
     }
+
+    // A word with its characters sorted, to count the characters it shares with another word
+    private record WordChars(String word, char[] sortedChars) {
+
+        static WordChars of(String word) {
+            char[] chars = word.toCharArray();
+            Arrays.sort(chars);
+            return new WordChars(word, chars);
+        }
+
+        static List<WordChars> ofWords(List<String> words) {
+            return words.stream().map(WordChars::of).toList();
+        }
+
+        // Upper bound of the similarity StringsSimilarityScoreCalculator calculates for two words
+        double upperBoundSimilarity(WordChars other) {
+            if (word.equalsIgnoreCase(other.word)) {
+                return 1;
+            }
+            int maxLength = Math.max(word.length(), other.word.length());
+            double lengthRatio = (double) Math.min(word.length(), other.word.length()) / maxLength;
+            if (lengthRatio <= WORD_MATCH_THRESHOLD) {
+                return lengthRatio;
+            }
+            return (double) sharedChars(other) / maxLength;
+        }
+
+        // Size of the intersection of the characters of both words, repetitions included
+        private int sharedChars(WordChars other) {
+            int shared = 0;
+            int i = 0;
+            int j = 0;
+            while (i < sortedChars.length && j < other.sortedChars.length) {
+                if (sortedChars[i] == other.sortedChars[j]) {
+                    shared++;
+                    i++;
+                    j++;
+                } else if (sortedChars[i] < other.sortedChars[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return shared;
+        }
+    }
 }
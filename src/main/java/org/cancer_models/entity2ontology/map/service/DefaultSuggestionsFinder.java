@@ -1,9 +1,12 @@
 package org.cancer_models.entity2ontology.map.service;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
 import org.cancer_models.entity2ontology.map.model.SourceEntity;
 import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.cancer_models.entity2ontology.map.service.StageStatistics.Stage;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
@@ -21,9 +24,14 @@ import java.util.List;
 @Qualifier("defaultSuggestionsFinder")
 class DefaultSuggestionsFinder implements SuggestionsFinder {
 
+    private static final Logger logger = LogManager.getLogger(DefaultSuggestionsFinder.class);
+
     private final RulesSearcher rulesSearcher;
     private final OntologiesSearcher ontologiesSearcher;
-    private static final double MINIMUM_ACCEPTABLE_SCORE = 50;
+    private static final double MINIMUM_ACCEPTABLE_SCORE = OntologiesSearcher.MINIMUM_ACCEPTABLE_SCORE;
+
+    // How often each stage adds suggestions, per entity type
+    private final StageStatistics stageStatistics = new StageStatistics();
 
     DefaultSuggestionsFinder(RulesSearcher rulesSearcher, OntologiesSearcher ontologiesSearcher) {
         this.rulesSearcher = rulesSearcher;
@@ -40,6 +48,14 @@ class DefaultSuggestionsFinder implements SuggestionsFinder {
      *  <li> Search ontologies  (exact match: label or synonyms)</li>
      *  <li> Search similar ontologies (fuzzy match: label or synonyms)</li>
      *  </ul>
+     * If the combined ontology search is configured for the entity type, the last two steps are done with a single
+     * query, still preferring the exact matches to the similar ones.
+     * </p>
+     * <p>
+     * How often each step adds suggestions is recorded per entity type (see {@link StageStatistics}). If the entity
+     * type has {@code adaptiveStages} configured, the steps that rarely add anything are skipped, except for some
+     * entities that run all of them to keep the statistics updated. Exact rules are always searched, and a step cut
+     * short by the time budget of the entity is not recorded.
      * </p>
      * <p>
      * Only suggestions with {@code score} equal or greater than 50% are considered as valid results.
@@ -61,43 +77,145 @@ class DefaultSuggestionsFinder implements SuggestionsFinder {
         boolean done = false;
 
         List<Suggestion> suggestions = new ArrayList<>();
+        StageRun stageRun = startStageRun(entity, config, suggestions);
 
         // Check if there are enough exact matches in rules
-        done = SuggestionCollector.addSuggestionsUntilLimitReached(
+        done = stageRun.run(Stage.EXACT_RULES, () -> SuggestionCollector.addSuggestionsUntilLimitReached(
             suggestions,
-            rulesSearcher.findExactMatchingRules(entity, indexPath, config),
+            rulesSearcher.findExactMatchingRules(entity, indexPath, config, maxNumSuggestions),
             maxNumSuggestions,
-            MINIMUM_ACCEPTABLE_SCORE);
+            MINIMUM_ACCEPTABLE_SCORE));
+
+        // No more stages are started once the time budget of the entity runs out
+        done = done || MappingDeadline.hasExpired();
 
         // Check if there are enough similar matches in rules
         if (!done) {
-            done = SuggestionCollector.addSuggestionsUntilLimitReached(
+            done = stageRun.run(Stage.SIMILAR_RULES, () -> SuggestionCollector.addSuggestionsUntilLimitReached(
                 suggestions,
-                rulesSearcher.findSimilarRules(entity, indexPath, config),
+                rulesSearcher.findSimilarRules(entity, indexPath, config, maxNumSuggestions),
                 maxNumSuggestions,
-                MINIMUM_ACCEPTABLE_SCORE);
+                MINIMUM_ACCEPTABLE_SCORE));
+        }
+        done = done || MappingDeadline.hasExpired();
+
+        // Exact and similar matches in ontologies found with a single query
+        if (!done && ontologiesSearcher.isCombinedSearch(entity, config)) {
+            stageRun.run(Stage.COMBINED_ONTOLOGIES, () -> SuggestionCollector.addExactThenSimilarUntilLimitReached(
+                suggestions,
+                ontologiesSearcher.findMatchingOntologies(
+                    entity, indexPath, config, maxNumSuggestions - suggestions.size()),
+                maxNumSuggestions,
+                MINIMUM_ACCEPTABLE_SCORE));
+            return SuggestionsSorter.sortSuggestionsByScoreDesc(suggestions);
         }
 
         // Check if there are enough exact matches in ontologies
         if (!done) {
-            done = SuggestionCollector.addSuggestionsUntilLimitReached(
+            done = stageRun.run(Stage.EXACT_ONTOLOGIES, () -> SuggestionCollector.addSuggestionsUntilLimitReached(
                 suggestions,
-                ontologiesSearcher.findExactMatchingOntologies(entity, indexPath, config),
+                ontologiesSearcher.findExactMatchingOntologies(
+                    entity, indexPath, config, maxNumSuggestions - suggestions.size()),
                 maxNumSuggestions,
-                MINIMUM_ACCEPTABLE_SCORE);
+                MINIMUM_ACCEPTABLE_SCORE));
         }
+        done = done || MappingDeadline.hasExpired();
 
         // Check if there are enough similar matches in ontologies
         if (!done) {
-            SuggestionCollector.addSuggestionsUntilLimitReached(
+            stageRun.run(Stage.SIMILAR_ONTOLOGIES, () -> SuggestionCollector.addSuggestionsUntilLimitReached(
                 suggestions,
-                ontologiesSearcher.findSimilarMatchingOntologies(entity, indexPath, config),
+                ontologiesSearcher.findSimilarMatchingOntologies(
+                    entity, indexPath, config, maxNumSuggestions - suggestions.size()),
                 maxNumSuggestions,
-                MINIMUM_ACCEPTABLE_SCORE);
+                MINIMUM_ACCEPTABLE_SCORE));
         }
         // Suggestions need to be sorted (descending order) by 'score'
         return SuggestionsSorter.sortSuggestionsByScoreDesc(suggestions);
 
     }
 
+    /**
+     * Returns how often each stage of the search added suggestions, per entity type, and how long the stages and
+     * their bookkeeping took.
+     *
+     * @return the statistics of the stages
+     */
+    StageStatistics getStageStatistics() {
+        return stageStatistics;
+    }
+
+    @Override
+    public void logStatistics() {
+        logger.info("Search stages per entity type:{}{}", System.lineSeparator(), stageStatistics);
+    }
+
+    // A search done in a stage. Returns true if it reached the maximum number of suggestions
+    private interface StageSearch {
+        boolean search() throws MappingException;
+    }
+
+    private StageRun startStageRun(SourceEntity entity, MappingConfiguration config, List<Suggestion> suggestions) {
+        long start = System.nanoTime();
+        MappingConfiguration.AdaptiveStages settings =
+            config.getConfigurationByEntityType(entity.getType()).getAdaptiveStages();
+        long entityNumber = stageStatistics.countEntity(entity.getType());
+        // Some entities run all the stages, so the yield of the skipped ones is still updated
+        boolean resampling = settings == null || entityNumber % Math.max(1, settings.getResampleInterval()) == 0;
+        stageStatistics.recordOverhead(entity.getType(), System.nanoTime() - start);
+        return new StageRun(entity.getType(), resampling ? null : settings, suggestions);
+    }
+
+    /**
+     * Runs the stages of the search for an entity, recording what each one did and skipping the ones with a low
+     * yield when the adaptive mode is on.
+     */
+    private final class StageRun {
+        private final String entityType;
+        // Null if no stage can be skipped for this entity
+        private final MappingConfiguration.AdaptiveStages settings;
+        // The suggestions found for the entity, which the stages add to
+        private final List<Suggestion> suggestions;
+
+        private StageRun(
+            String entityType, MappingConfiguration.AdaptiveStages settings, List<Suggestion> suggestions) {
+            this.entityType = entityType;
+            this.settings = settings;
+            this.suggestions = suggestions;
+        }
+
+        /**
+         * Runs a stage, unless it can be skipped.
+         *
+         * @param stage       the stage
+         * @param stageSearch the search of the stage
+         * @return true if the maximum number of suggestions was reached
+         * @throws MappingException if an error occurs during the search
+         */
+        private boolean run(Stage stage, StageSearch stageSearch) throws MappingException {
+            long start = System.nanoTime();
+            // The last stage always runs if nothing was found yet, so the entity is not left without suggestions
+            boolean canSkip = settings != null
+                && stage.isSkippable()
+                && !(stage.isLastResort() && suggestions.isEmpty());
+            if (canSkip && stageStatistics.isLowYield(entityType, stage, settings)) {
+                stageStatistics.recordSkip(entityType, stage);
+                stageStatistics.recordOverhead(entityType, System.nanoTime() - start);
+                logger.debug("Stage {} skipped for entity type {} because of its low yield", stage, entityType);
+                return false;
+            }
+            int numSuggestionsBefore = suggestions.size();
+            long searchStart = System.nanoTime();
+            boolean done = stageSearch.search();
+            long searchEnd = System.nanoTime();
+            // A stage stopped by the deadline may have missed suggestions, so its run does not tell its yield
+            if (!MappingDeadline.hasExpired()) {
+                boolean productive = suggestions.size() > numSuggestionsBefore;
+                stageStatistics.recordRun(entityType, stage, productive, searchEnd - searchStart);
+            }
+            stageStatistics.recordOverhead(entityType, (searchStart - start) + (System.nanoTime() - searchEnd));
+            return done;
+        }
+    }
+
 }
@@ -0,0 +1,90 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.cancer_models.entity2ontology.common.model.OntologyEntityDataFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * An in-memory table from the normalised labels and synonyms of the ontology terms in an index to the ids of their
+ * documents, so a text can be checked against all of them with a single hash lookup.
+ *
+ * <p>Texts are normalised with {@link TextNormalizer}. Document ids are only valid for the reader the table was
+ * built from, which is why tables are kept in a {@link ReaderScopedCache}.
+ */
+final class ExactLabelIndex {
+
+    private static final String ONTOLOGY_PREFIX = TargetEntityType.ONTOLOGY.getValue() + ".";
+    private static final String LABEL_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.LABEL.getValue();
+    private static final String SYNONYMS_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.SYNONYMS.getValue();
+
+    private static final int[] NO_DOCS = new int[0];
+
+    // Document ids (sorted, without duplicates) per normalised label or synonym
+    private final Map<String, int[]> docsByText;
+
+    private ExactLabelIndex(Map<String, int[]> docsByText) {
+        this.docsByText = docsByText;
+    }
+
+    /**
+     * Builds the table with the labels and synonyms of all the ontology documents read by {@code indexSearcher}.
+     *
+     * @param indexSearcher  the searcher whose documents are loaded
+     * @param textNormalizer the normaliser applied to the labels and synonyms
+     * @return the table
+     * @throws IOException if the index cannot be read
+     */
+    static ExactLabelIndex build(IndexSearcher indexSearcher, TextNormalizer textNormalizer) throws IOException {
+        TermQuery ontologiesQuery = new TermQuery(
+            new Term(TargetEntityFieldName.TARGET_TYPE.getValue(), TargetEntityType.ONTOLOGY.getValue()));
+        int[] ontologyDocs = Searcher.collectDocIds(ontologiesQuery, indexSearcher);
+        Map<String, Set<Integer>> docsByText = new HashMap<>();
+        StoredFields storedFields = indexSearcher.storedFields();
+        Set<String> fieldsToLoad = Set.of(LABEL_FIELD, SYNONYMS_FIELD);
+        for (int docId : ontologyDocs) {
+            Document document = storedFields.document(docId, fieldsToLoad);
+            addText(docsByText, textNormalizer, document.get(LABEL_FIELD), docId);
+            for (String synonym : document.getValues(SYNONYMS_FIELD)) {
+                addText(docsByText, textNormalizer, synonym, docId);
+            }
+        }
+        Map<String, int[]> table = new HashMap<>(docsByText.size() * 4 / 3 + 1);
+        docsByText.forEach((text, docs) -> table.put(text, docs.stream().mapToInt(Integer::intValue).toArray()));
+        return new ExactLabelIndex(table);
+    }
+
+    private static void addText(
+        Map<String, Set<Integer>> docsByText, TextNormalizer textNormalizer, String text, int docId) {
+        String normalizedText = textNormalizer.normalize(text);
+        if (!normalizedText.isEmpty()) {
+            docsByText.computeIfAbsent(normalizedText, k -> new TreeSet<>()).add(docId);
+        }
+    }
+
+    /**
+     * Returns the ids of the documents with a label or a synonym equal to {@code normalizedText}.
+     *
+     * @param normalizedText a text normalised with the same {@link TextNormalizer} used to build the table
+     * @return the document ids, in ascending order. Empty if there are none
+     */
+    int[] find(String normalizedText) {
+        return docsByText.getOrDefault(normalizedText, NO_DOCS);
+    }
+
+    /**
+     * Returns the number of distinct normalised texts in the table.
+     *
+     * @return the size of the table
+     */
+    int size() {
+        return docsByText.size();
+    }
+}
@@ -0,0 +1,76 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.map.model.SearchQueryItem;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A component that finds the ontology terms whose label or one of whose synonyms is the same text as a phrase,
+ * without running a Lucene query.
+ *
+ * <p>The labels and synonyms of each index are loaded into an {@link ExactLabelIndex} the first time the index is
+ * used, and kept while the reader of the index is open. A phrase and a label are the same text if they have the
+ * same words once normalised with {@link TextNormalizer}, so the check is independent of case, punctuation, stop
+ * words and word order.
+ */
+@Component
+class ExactLabelMatcher {
+
+    private final Searcher searcher;
+    private final TextNormalizer textNormalizer;
+    private final ReaderScopedCache<ExactLabelIndex> labelIndexes;
+
+    public ExactLabelMatcher(Searcher searcher, TextNormalizer textNormalizer) {
+        this.searcher = searcher;
+        this.textNormalizer = textNormalizer;
+        this.labelIndexes = new ReaderScopedCache<>(
+            "ontology labels table", indexSearcher -> ExactLabelIndex.build(indexSearcher, textNormalizer));
+    }
+
+    /**
+     * Finds the ontology terms whose label or a synonym is the phrase formed by the values of the search query
+     * items, in order.
+     *
+     * @param searchQueryItems the items whose values form the phrase
+     * @param indexPath        the path of the index to search in
+     * @return a list of suggestions with no score calculated. Empty if no label or synonym matches the phrase
+     * @throws MappingException if the index cannot be read
+     */
+    public List<Suggestion> findExactMatches(List<SearchQueryItem> searchQueryItems, String indexPath)
+        throws MappingException {
+        Objects.requireNonNull(searchQueryItems, "searchQueryItems cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+
+        String phrase = searchQueryItems.stream().map(SearchQueryItem::getValue).collect(Collectors.joining(" "));
+        String normalizedPhrase = textNormalizer.normalize(phrase);
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (normalizedPhrase.isEmpty()) {
+            return suggestions;
+        }
+        try {
+            // The same searcher is used to build the table and to read the documents, so the ids are valid
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                int[] docIds = labelIndexes.get(indexSearcher).find(normalizedPhrase);
+                StoredFields storedFields = docIds.length == 0 ? null : indexSearcher.storedFields();
+                for (int docId : docIds) {
+                    suggestions.add(QueryProcessor.documentToSuggestion(storedFields.document(docId), 0));
+                }
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            throw new MappingException(e);
+        }
+        return suggestions;
+    }
+}
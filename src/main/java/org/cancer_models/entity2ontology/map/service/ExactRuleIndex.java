@@ -0,0 +1,130 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory table of the rules in an index, keyed by entity type and the normalised values of a list of fields,
+ * so the rules with exactly the same values as a source entity are found with a single hash lookup.
+ *
+ * <p>The data of every rule is loaded (and normalised with {@link TextNormalizer}) when the table is built. As the
+ * fields that identify a rule depend on the mapping configuration, the hash table for a list of fields is created
+ * the first time that list is used, and then reused. Document ids are only valid for the reader the table was
+ * built from, which is why tables are kept in a {@link ReaderScopedCache}.
+ */
+final class ExactRuleIndex {
+
+    // Rule exclusive fields in a document have this prefix.
+    private static final String RULE_PREFIX = TargetEntityType.RULE.getValue() + ".";
+
+    // Separates the parts of a key. The analyser never keeps control characters in a token
+    private static final char KEY_SEPARATOR = '\u001F';
+
+    private static final int[] NO_DOCS = new int[0];
+
+    // A rule document, with the normalised value of each of its data fields
+    private record RuleValues(int docId, String entityType, Map<String, String> normalizedValues) {
+    }
+
+    private final List<RuleValues> rules;
+
+    // Hash table (key to sorted document ids) per list of fields
+    private final Map<List<String>, Map<String, int[]>> tablesByFields = new ConcurrentHashMap<>();
+
+    private ExactRuleIndex(List<RuleValues> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Loads the entity type and the normalised data of all the rule documents read by {@code indexSearcher}.
+     *
+     * @param indexSearcher  the searcher whose documents are loaded
+     * @param textNormalizer the normaliser applied to the values of the fields
+     * @return the table
+     * @throws IOException if the index cannot be read
+     */
+    static ExactRuleIndex build(IndexSearcher indexSearcher, TextNormalizer textNormalizer) throws IOException {
+        TermQuery rulesQuery = new TermQuery(
+            new Term(TargetEntityFieldName.TARGET_TYPE.getValue(), TargetEntityType.RULE.getValue()));
+        int[] ruleDocs = Searcher.collectDocIds(rulesQuery, indexSearcher);
+        List<RuleValues> rules = new ArrayList<>(ruleDocs.length);
+        StoredFields storedFields = indexSearcher.storedFields();
+        for (int docId : ruleDocs) {
+            Document document = storedFields.document(docId);
+            Map<String, String> normalizedValues = new HashMap<>();
+            for (IndexableField field : document.getFields()) {
+                if (field.name().startsWith(RULE_PREFIX)) {
+                    normalizedValues.put(
+                        field.name().substring(RULE_PREFIX.length()), textNormalizer.normalize(field.stringValue()));
+                }
+            }
+            rules.add(new RuleValues(
+                docId, document.get(TargetEntityFieldName.ENTITY_TYPE.getValue()), normalizedValues));
+        }
+        return new ExactRuleIndex(rules);
+    }
+
+    /**
+     * Returns the ids of the rules of type {@code entityType} whose fields have exactly the given values.
+     *
+     * @param entityType       the entity type of the rules
+     * @param fieldNames       the fields to compare
+     * @param normalizedValues the values of the fields, in the same order, normalised with the same
+     *                         {@link TextNormalizer} used to build the table
+     * @return the document ids, in ascending order. Empty if there are none
+     */
+    int[] find(String entityType, List<String> fieldNames, List<String> normalizedValues) {
+        Map<String, int[]> table = tablesByFields.computeIfAbsent(List.copyOf(fieldNames), this::createTable);
+        return table.getOrDefault(createKey(entityType, normalizedValues), NO_DOCS);
+    }
+
+    // Rules without some of the fields cannot match, so they are not added
+    private Map<String, int[]> createTable(List<String> fieldNames) {
+        Map<String, List<Integer>> docsByKey = new HashMap<>();
+        for (RuleValues rule : rules) {
+            List<String> values = new ArrayList<>(fieldNames.size());
+            for (String fieldName : fieldNames) {
+                String value = rule.normalizedValues().get(fieldName);
+                if (value == null) {
+                    break;
+                }
+                values.add(value);
+            }
+            if (values.size() == fieldNames.size()) {
+                docsByKey.computeIfAbsent(createKey(rule.entityType(), values), k -> new ArrayList<>())
+                    .add(rule.docId());
+            }
+        }
+        Map<String, int[]> table = new HashMap<>(docsByKey.size() * 4 / 3 + 1);
+        // Rules are loaded in document order, so the ids are already sorted
+        docsByKey.forEach((key, docs) -> table.put(key, docs.stream().mapToInt(Integer::intValue).toArray()));
+        return table;
+    }
+
+    private static String createKey(String entityType, List<String> values) {
+        StringBuilder key = new StringBuilder(entityType);
+        for (String value : values) {
+            key.append(KEY_SEPARATOR).append(value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the number of rules in the table.
+     *
+     * @return the number of rules
+     */
+    int size() {
+        return rules.size();
+    }
+}
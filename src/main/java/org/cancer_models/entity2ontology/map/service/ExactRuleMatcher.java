@@ -0,0 +1,80 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.cancer_models.entity2ontology.common.utils.MapUtils;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A component that finds the rules with exactly the same values as a source entity in the fields configured for
+ * its type, without running a Lucene query.
+ *
+ * <p>The rules of each index are loaded into an {@link ExactRuleIndex} the first time the index is used, and kept
+ * while the reader of the index is open. Values are compared once normalised with {@link TextNormalizer}, so the
+ * comparison is independent of case, punctuation, stop words and word order.
+ */
+@Component
+class ExactRuleMatcher {
+
+    private final Searcher searcher;
+    private final TextNormalizer textNormalizer;
+    private final ReaderScopedCache<ExactRuleIndex> ruleIndexes;
+
+    public ExactRuleMatcher(Searcher searcher, TextNormalizer textNormalizer) {
+        this.searcher = searcher;
+        this.textNormalizer = textNormalizer;
+        this.ruleIndexes = new ReaderScopedCache<>(
+            "rules table", indexSearcher -> ExactRuleIndex.build(indexSearcher, textNormalizer));
+    }
+
+    /**
+     * Finds the rules of the same type as {@code entity} whose configured fields have the same values as the entity.
+     *
+     * @param entity    the entity to match against rules
+     * @param indexPath the path of the index to search in
+     * @param config    the mapping configuration with the fields to compare
+     * @return a list of suggestions with no score calculated. Empty if no rule matches
+     * @throws MappingException if the index cannot be read
+     */
+    public List<Suggestion> findExactMatches(SourceEntity entity, String indexPath, MappingConfiguration config)
+        throws MappingException {
+        Objects.requireNonNull(entity, "entity cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+
+        MappingConfiguration.ConfigurationPerType configuration = config.getConfigurationByEntityType(entity.getType());
+        List<String> fieldNames = new ArrayList<>();
+        List<String> normalizedValues = new ArrayList<>();
+        for (MappingConfiguration.FieldConfiguration field : configuration.getFields()) {
+            String text = MapUtils.getValueOrThrow(entity.getData(), field.getName(), "source entity data");
+            fieldNames.add(field.getName());
+            normalizedValues.add(textNormalizer.normalize(text));
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>();
+        try {
+            // The same searcher is used to build the table and to read the documents, so the ids are valid
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                int[] docIds = ruleIndexes.get(indexSearcher).find(entity.getType(), fieldNames, normalizedValues);
+                StoredFields storedFields = docIds.length == 0 ? null : indexSearcher.storedFields();
+                for (int docId : docIds) {
+                    suggestions.add(QueryProcessor.documentToSuggestion(storedFields.document(docId), 0));
+                }
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            throw new MappingException(e);
+        }
+        return suggestions;
+    }
+}
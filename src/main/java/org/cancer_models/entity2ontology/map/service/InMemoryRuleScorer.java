@@ -0,0 +1,200 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.cancer_models.entity2ontology.common.utils.MapUtils;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.SimilarMatchStrategy;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A component that finds the rules most similar to a source entity by scoring every rule of the same type in memory,
+ * with the same per-field similarity {@link DefaultSuggestionScoreCalculator#computeScoreRule} uses.
+ *
+ * <p>Unlike a Lucene query, which only scores the candidates that share a (fuzzy) word with the entity and keeps a
+ * fixed number of them, all the rules are compared. Fields are scored from the most to the least relevant, and a rule
+ * is discarded as soon as the score it could still reach is not better than the worst of the best rules found so far.
+ * Large rulesets are split into chunks that are scored in parallel by a pool of threads owned by this scorer.
+ * The scoring stops when the {@link MappingDeadline} of the entity passes, keeping the best rules scored until then.
+ *
+ * <p>Used when the entity type is configured with {@link SimilarMatchStrategy#IN_MEMORY}. As when scoring the results
+ * of a query, every rule must have a value for each configured field.
+ */
+@Component
+class InMemoryRuleScorer {
+
+    // Number of rules from which they are scored in parallel
+    private static final int PARALLEL_THRESHOLD = 20_000;
+
+    // Number of rules per chunk when they are scored in parallel
+    private static final int CHUNK_SIZE = 5_000;
+
+    // Number of rules scored between two checks of the deadline
+    private static final int DEADLINE_CHECK_INTERVAL = 1_000;
+
+    private static final double MAX_SCORE = 100;
+
+    // A rule, by its position in the table, with its score
+    private record ScoredRule(int position, double score) {
+    }
+
+    // The worst rule first: lowest score and, among equal scores, the last one in the table
+    private static final Comparator<ScoredRule> WORST_FIRST =
+        Comparator.comparingDouble(ScoredRule::score).thenComparing(ScoredRule::position, Comparator.reverseOrder());
+
+    // Data of a field needed to score it
+    private record FieldToScore(List<String> sourceWords, List<List<String>> ruleWords, double relevance) {
+    }
+
+    private final Searcher searcher;
+    private final ReaderScopedCache<RuleSimilarityTable> ruleTables;
+
+    // Scores the chunks of large rulesets, without competing with other users of the common fork-join pool
+    private final ExecutorService chunkExecutor = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), Thread.ofPlatform().name("rule-scorer-", 0).daemon().factory());
+
+    public InMemoryRuleScorer(Searcher searcher) {
+        this.searcher = searcher;
+        this.ruleTables = new ReaderScopedCache<>("rules similarity table", RuleSimilarityTable::build);
+    }
+
+    /**
+     * Finds the rules of the same type as {@code entity} with the highest scores.
+     *
+     * @param entity            the entity to find similar rules for
+     * @param indexPath         the path of the index to search in
+     * @param config            the mapping configuration with the fields and weights to use
+     * @param maxNumSuggestions the maximum number of suggestions to return
+     * @return a list of suggestions with a score greater than zero, sorted by score (descending)
+     * @throws MappingException if the index cannot be read
+     * @throws IllegalArgumentException if a rule of the entity type does not have a value for a configured field
+     */
+    public List<Suggestion> findSimilarRules(
+        SourceEntity entity, String indexPath, MappingConfiguration config, int maxNumSuggestions)
+        throws MappingException {
+        Objects.requireNonNull(entity, "entity cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+        if (maxNumSuggestions <= 0) {
+            throw new IllegalArgumentException("maxNumSuggestions must be greater than zero");
+        }
+
+        Map<String, Double> fieldsWeights = config.getFieldsWeightsByEntityType(entity.getType());
+        double totalWeight = fieldsWeights.values().stream().reduce(0.0, Double::sum);
+        List<Map.Entry<String, Double>> sortedFields = new ArrayList<>(fieldsWeights.entrySet());
+        sortedFields.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+
+        List<Suggestion> suggestions = new ArrayList<>();
+        try {
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                RuleSimilarityTable.Rules rules = ruleTables.get(indexSearcher).getRules(entity.getType());
+                List<FieldToScore> fields = new ArrayList<>();
+                for (Map.Entry<String, Double> field : sortedFields) {
+                    String text = MapUtils.getValueOrThrow(entity.getData(), field.getKey(), "source entity data");
+                    List<List<String>> ruleWords = rules.words(field.getKey());
+                    if (rules.size() > 0 && (ruleWords == null || ruleWords.contains(null))) {
+                        throw new IllegalArgumentException(
+                            "Error calculating mapping score: target text is null or empty");
+                    }
+                    fields.add(new FieldToScore(
+                        DefaultSuggestionScoreCalculator.textToList(text), ruleWords, field.getValue() / totalWeight));
+                }
+
+                List<ScoredRule> best = findBestRules(rules.size(), fields, maxNumSuggestions);
+
+                StoredFields storedFields = indexSearcher.storedFields();
+                for (ScoredRule scoredRule : best) {
+                    int docId = rules.docIds()[scoredRule.position()];
+                    Suggestion suggestion = QueryProcessor.documentToSuggestion(storedFields.document(docId), 0);
+                    suggestion.setScore(scoredRule.score());
+                    suggestions.add(suggestion);
+                }
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            throw new MappingException(e);
+        }
+        return suggestions;
+    }
+
+    // The best rules, sorted by score (descending) and then by position
+    private List<ScoredRule> findBestRules(int numRules, List<FieldToScore> fields, int maxNumSuggestions)
+        throws MappingException {
+        // The threads of the pool do not see the deadline of the thread mapping the entity
+        MappingDeadline deadline = MappingDeadline.current();
+        List<ScoredRule> candidates = new ArrayList<>();
+        if (numRules < PARALLEL_THRESHOLD) {
+            candidates.addAll(scoreRules(0, numRules, fields, maxNumSuggestions, deadline));
+        } else {
+            List<Callable<Collection<ScoredRule>>> chunks = new ArrayList<>();
+            for (int from = 0; from < numRules; from += CHUNK_SIZE) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(numRules, from + CHUNK_SIZE);
+                chunks.add(() -> scoreRules(chunkFrom, chunkTo, fields, maxNumSuggestions, deadline));
+            }
+            try {
+                for (Future<Collection<ScoredRule>> chunk : chunkExecutor.invokeAll(chunks)) {
+                    candidates.addAll(chunk.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MappingException("Interrupted while scoring the rules", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new MappingException("Error scoring the rules", e.getCause());
+            }
+        }
+        candidates.sort(WORST_FIRST.reversed());
+        return candidates.size() > maxNumSuggestions ? candidates.subList(0, maxNumSuggestions) : candidates;
+    }
+
+    // Scores the rules in positions [from, to) and returns the best ones, or the best ones scored before the deadline
+    private Collection<ScoredRule> scoreRules(
+        int from, int to, List<FieldToScore> fields, int maxNumSuggestions, MappingDeadline deadline) {
+        PriorityQueue<ScoredRule> best = new PriorityQueue<>(Math.min(maxNumSuggestions, to - from) + 1, WORST_FIRST);
+        for (int position = from; position < to; position++) {
+            if (deadline != null && (position - from) % DEADLINE_CHECK_INTERVAL == 0 && deadline.shouldExit()) {
+                deadline.markPartial();
+                break;
+            }
+            double score = 0;
+            double reachableScore = MAX_SCORE;
+            boolean discarded = false;
+            for (FieldToScore field : fields) {
+                List<String> ruleWords = field.ruleWords().get(position);
+                // A value made only of stop words has nothing to compare
+                if (!ruleWords.isEmpty()) {
+                    score += DefaultSuggestionScoreCalculator.calculateScorePerField(
+                        field.sourceWords(), ruleWords, field.relevance());
+                }
+                reachableScore = Math.max(0, reachableScore - MAX_SCORE * field.relevance());
+                // Rules are visited in order, so a rule with the same score as the worst kept one would rank after it
+                if (best.size() == maxNumSuggestions && score + reachableScore <= best.peek().score()) {
+                    discarded = true;
+                    break;
+                }
+            }
+            if (!discarded && score > 0) {
+                best.add(new ScoredRule(position, score));
+                if (best.size() > maxNumSuggestions) {
+                    best.poll();
+                }
+            }
+        }
+        return best;
+    }
+}
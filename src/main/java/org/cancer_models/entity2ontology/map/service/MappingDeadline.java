@@ -0,0 +1,109 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.QueryTimeout;
+
+import java.time.Duration;
+
+/**
+ * The time an entity has to be mapped. {@link MappingService} starts a deadline for the thread mapping the entity, so
+ * the components searching the index can check it without receiving it as a parameter: {@link Searcher} stops the
+ * queries running when it passes, and the suggestions finders do not start new stages after it.
+ *
+ * <p>When a query or a stage is cut short, the deadline remembers it, so the suggestions found can be flagged as
+ * partial.
+ */
+final class MappingDeadline implements QueryTimeout, AutoCloseable {
+
+    private static final ThreadLocal<MappingDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    // The deadline of the thread before this one was started (null if none), restored when this one is closed
+    private final MappingDeadline previous;
+
+    // Queries running with the deadline can be searching slices in other threads
+    private volatile boolean partial;
+
+    private MappingDeadline(long deadlineNanos, MappingDeadline previous) {
+        this.deadlineNanos = deadlineNanos;
+        this.previous = previous;
+    }
+
+    /**
+     * Starts a deadline for the current thread, which lasts until it is closed.
+     *
+     * @param timeBudget the time from now until the deadline. If null, no deadline is started
+     * @return the deadline, or null if {@code timeBudget} is null
+     */
+    static MappingDeadline start(Duration timeBudget) {
+        if (timeBudget == null) {
+            return null;
+        }
+        if (timeBudget.isNegative() || timeBudget.isZero()) {
+            throw new IllegalArgumentException("timeBudget must be greater than zero");
+        }
+        MappingDeadline deadline = new MappingDeadline(System.nanoTime() + timeBudget.toNanos(), CURRENT.get());
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    /**
+     * Returns the deadline of the current thread.
+     *
+     * @return the deadline, or null if the thread is not mapping an entity with a time budget
+     */
+    static MappingDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Tells whether the deadline of the current thread has passed, in which case the mapping is marked as partial, as
+     * the caller is not going to look for more suggestions.
+     *
+     * @return true if the thread has a deadline and it has passed
+     */
+    static boolean hasExpired() {
+        MappingDeadline deadline = CURRENT.get();
+        if (deadline != null && deadline.shouldExit()) {
+            deadline.markPartial();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether the deadline has passed.
+     *
+     * @return true if there is no time left
+     */
+    @Override
+    public boolean shouldExit() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Records that a query or a stage of the mapping was cut short by the deadline.
+     */
+    void markPartial() {
+        partial = true;
+    }
+
+    /**
+     * Tells whether the suggestions found before the deadline may not be all the ones a mapping without time budget
+     * would find.
+     *
+     * @return true if a query or a stage was cut short
+     */
+    boolean isPartial() {
+        return partial;
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
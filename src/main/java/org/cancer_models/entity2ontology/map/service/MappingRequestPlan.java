@@ -0,0 +1,106 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.cancer_models.entity2ontology.map.model.MappingRequest;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+
+import java.util.*;
+
+/**
+ * The order in which the entities of a {@link MappingRequest} are mapped.
+ *
+ * <p>Entities with the same type and the same data, once cleaned as {@link MappingService} does before searching,
+ * get the same suggestions. They are grouped, so each group is mapped once and its suggestions are copied to all the
+ * entities in it. Groups are mapped by type, so consecutive searches use the same configuration and templates and
+ * find the data they read from the index already cached. The results are still returned in the order of the request.
+ *
+ * <p>Entities that cannot be mapped (null type, id, data or values) are not grouped with others, so they fail with
+ * the same error they would if mapped one by one.
+ */
+final class MappingRequestPlan {
+
+    /**
+     * Entities with the same type and data.
+     *
+     * @param representative the entity that is mapped
+     * @param positions      the positions in the request of all the entities in the group, in ascending order. The
+     *                       first one is the position of {@code representative}
+     */
+    record Group(SourceEntity representative, List<Integer> positions) {
+    }
+
+    // Type and cleaned data of an entity. Position is only set for entities that are not grouped with others
+    private record EntityKey(String type, Map<String, String> data, int position) {
+    }
+
+    private final int numEntities;
+    private final List<Group> groups;
+
+    private MappingRequestPlan(int numEntities, List<Group> groups) {
+        this.numEntities = numEntities;
+        this.groups = groups;
+    }
+
+    /**
+     * Plans the mapping of a list of entities.
+     *
+     * @param entities the entities of the request
+     * @return the plan, with the groups in the order they should be mapped
+     */
+    static MappingRequestPlan of(List<SourceEntity> entities) {
+        Map<EntityKey, List<Integer>> positionsByKey = new LinkedHashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            positionsByKey.computeIfAbsent(keyOf(entities.get(i), i), k -> new ArrayList<>()).add(i);
+        }
+
+        // Types are kept in the order they first appear in the request, and so are the groups within each type
+        Map<String, List<Group>> groupsByType = new LinkedHashMap<>();
+        positionsByKey.forEach((key, positions) -> groupsByType
+            .computeIfAbsent(key.type(), k -> new ArrayList<>())
+            .add(new Group(entities.get(positions.get(0)), positions)));
+
+        List<Group> groups = new ArrayList<>();
+        groupsByType.values().forEach(groups::addAll);
+        return new MappingRequestPlan(entities.size(), groups);
+    }
+
+    private static EntityKey keyOf(SourceEntity entity, int position) {
+        if (entity == null) {
+            return new EntityKey(null, null, position);
+        }
+        Map<String, String> data = entity.getData();
+        if (entity.getId() == null || entity.getType() == null || data == null
+            || data.values().stream().anyMatch(Objects::isNull)) {
+            return new EntityKey(entity.getType(), null, position);
+        }
+        Map<String, String> cleanedData = new HashMap<>();
+        data.forEach((key, value) -> cleanedData.put(key, MappingService.cleanValue(value)));
+        return new EntityKey(entity.getType(), cleanedData, -1);
+    }
+
+    /**
+     * Returns the groups of entities, in the order they should be mapped.
+     *
+     * @return the groups
+     */
+    List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Returns the number of entities in the request.
+     *
+     * @return the number of entities
+     */
+    int getNumEntities() {
+        return numEntities;
+    }
+
+    /**
+     * Returns the fraction of the entities whose suggestions are copied from another entity instead of being searched.
+     *
+     * @return a number between 0 (all the entities are distinct) and 1
+     */
+    double getDeduplicationRatio() {
+        return numEntities == 0 ? 0 : 1 - (double) groups.size() / numEntities;
+    }
+}
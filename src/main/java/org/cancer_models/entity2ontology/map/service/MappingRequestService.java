@@ -9,9 +9,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Service class responsible for processing mapping requests and generating mapping suggestions for each entity.
@@ -98,14 +100,43 @@ public class MappingRequestService {
             throw new MappingException(e);
         }
 
-        List<MappingResponseEntry> entries = new ArrayList<>();
+        Duration entityTimeBudget = request.getEntityTimeBudgetMillis() == null
+            ? null
+            : Duration.ofMillis(request.getEntityTimeBudgetMillis());
+
+        List<SourceEntity> entities = request.getEntities();
+        MappingRequestPlan plan = MappingRequestPlan.of(entities);
+        logger.info("Mapping {} distinct entities (deduplication ratio: {})",
+            plan.getGroups().size(), String.format("%.3f", plan.getDeduplicationRatio()));
+        response.setDistinctEntities(plan.getGroups().size());
+        response.setDeduplicationRatio(plan.getDeduplicationRatio());
+
+        // Entries by the position of their entity in the request, so they are returned in the same order
+        MappingResponseEntry[] entriesByPosition = new MappingResponseEntry[entities.size()];
 
-        for (SourceEntity entity : request.getEntities()) {
+        for (MappingRequestPlan.Group group : plan.getGroups()) {
             try {
-                entries.add(processEntity(entity, config, request.getIndexPath(), request.getMaxSuggestions()));
+                MappingResponseEntry entry = processEntity(
+                    group.representative(), config, request.getIndexPath(), request.getMaxSuggestions(),
+                    entityTimeBudget);
+                for (int position : group.positions()) {
+                    SourceEntity entity = entities.get(position);
+                    entriesByPosition[position] = entity == group.representative()
+                        ? entry
+                        : createDuplicateEntry(entity, entry);
+                }
             } catch (MappingException e) {
-                logger.error("Mapping error in entity {}", entity);
-                logger.error(e.getMessage());
+                for (int position : group.positions()) {
+                    logger.error("Mapping error in entity {}", entities.get(position));
+                    logger.error(e.getMessage());
+                }
+            }
+        }
+
+        List<MappingResponseEntry> entries = new ArrayList<>();
+        for (MappingResponseEntry entry : entriesByPosition) {
+            if (entry != null) {
+                entries.add(entry);
             }
         }
 
@@ -114,6 +145,8 @@ public class MappingRequestService {
         // Set the time the mapping process ends
         response.setEnd(LocalDateTime.now());
 
+        mappingService.logSearchStatistics();
+
         logger.info("Ended processing mapping request");
         return response;
     }
@@ -133,6 +166,24 @@ public class MappingRequestService {
         return config;
     }
 
+    /**
+     * Creates the entry of an entity identical to one already mapped, with a copy of each of its suggestions, so
+     * changing the suggestions of an entry does not change the others. The data of the entity is cleaned, as it would
+     * have been if it had been mapped.
+     *
+     * @param entity the entity
+     * @param mapped the entry of the identical entity that was mapped
+     * @return a MappingResponseEntry object (entity - list of suggestions)
+     */
+    private MappingResponseEntry createDuplicateEntry(SourceEntity entity, MappingResponseEntry mapped) {
+        MappingService.cleanSourceEntityData(entity);
+        MappingResponseEntry entry = new MappingResponseEntry();
+        entry.setEntity(entity);
+        entry.setSuggestions(mapped.getSuggestions().stream().map(Suggestion::copy).collect(Collectors.toList()));
+        entry.setPartial(mapped.isPartial());
+        return entry;
+    }
+
     /**
      * Gets the list of suggestions for an entity and creates a MappingResponseEntry object with that information
      *
@@ -140,17 +191,20 @@ public class MappingRequestService {
      * @param config         Configuration with the fields to use per entity type
      * @param indexPath      The location of the Lucene index to use
      * @param maxSuggestions Maximum number of suggestions
-     * @return a MappingResponseEntry object (entity - list of suggestions)
+     * @param timeBudget     Maximum time to map the entity. If null, there is no limit
+     * @return a MappingResponseEntry object (entity - list of suggestions), partial if the time budget ran out
      * @throws MalformedMappingConfigurationException If the used configuration is invalid
      * @throws MappingException If an error occurs while searching the index
      */
     private MappingResponseEntry processEntity(
-        SourceEntity entity, MappingConfiguration config, String indexPath, int maxSuggestions)
+        SourceEntity entity, MappingConfiguration config, String indexPath, int maxSuggestions, Duration timeBudget)
         throws MalformedMappingConfigurationException, MappingException {
         MappingResponseEntry entry = new MappingResponseEntry();
-        List<Suggestion> suggestions = mappingService.mapEntity(entity, indexPath, maxSuggestions, config);
+        MappingService.EntityMapping mapping =
+            mappingService.mapEntityWithinBudget(entity, indexPath, maxSuggestions, config, timeBudget);
         entry.setEntity(entity);
-        entry.setSuggestions(suggestions);
+        entry.setSuggestions(mapping.suggestions());
+        entry.setPartial(mapping.partial());
         return entry;
     }
 }
@@ -6,11 +6,13 @@ import org.cancer_models.entity2ontology.exceptions.MalformedMappingConfiguratio
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.index.service.Indexer;
 import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.ScoringDetails;
 import org.cancer_models.entity2ontology.map.model.SourceEntity;
 import org.cancer_models.entity2ontology.map.model.Suggestion;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -25,19 +27,25 @@ public class MappingService {
     private static final Logger logger = LogManager.getLogger(MappingService.class);
 
     private final SuggestionsFinder suggestionsFinder;
+    private final MentionMatcher mentionMatcher;
 
     // The maximum number of words an attribute value in an entity can be.
     private static final int MAX_NUM_WORDS = 30;
     // The maximum length of an attribute value in an entity.
     private static final int MAX_TEXT_LENGTH = 200;
 
-    public MappingService(@Qualifier("defaultSuggestionsFinder") SuggestionsFinder suggestionsFinder) {
+    public MappingService(
+        @Qualifier("defaultSuggestionsFinder") SuggestionsFinder suggestionsFinder, MentionMatcher mentionMatcher) {
         this.suggestionsFinder = suggestionsFinder;
+        this.mentionMatcher = mentionMatcher;
     }
 
     /**
      * Generates a list of suggestions (sorted by score) for a given entity.
      *
+     * <p>Entities with a text too long to be searched as a whole are mapped to the ontology terms mentioned in their
+     * texts (see {@link MentionMatcher}).
+     *
      * @param entity            the source entity to be mapped
      * @param indexPath         the path of the index to use for the mapping
      * @param maxNumSuggestions the max number of suggestions to get
@@ -49,30 +57,120 @@ public class MappingService {
     public List<Suggestion> mapEntity(
         SourceEntity entity, String indexPath, int maxNumSuggestions, MappingConfiguration config)
         throws MalformedMappingConfigurationException, MappingException {
+        return mapEntity(entity, indexPath, maxNumSuggestions, config, null);
+    }
+
+    /**
+     * Generates a list of suggestions (sorted by score) for a given entity, within a time budget.
+     *
+     * <p>When the budget runs out, the queries running are stopped and no more stages of the search are started (see
+     * {@link MappingDeadline}). The suggestions found until then are returned, flagged as partial in their
+     * {@link ScoringDetails}.
+     *
+     * @param entity            the source entity to be mapped
+     * @param indexPath         the path of the index to use for the mapping
+     * @param maxNumSuggestions the max number of suggestions to get
+     * @param config            information about how to build the queries to find matches
+     * @param timeBudget        the time the mapping can take. If null, there is no limit
+     * @return a list of suggestions for the source entity
+     * @throws MalformedMappingConfigurationException  if the mapping configuration is not correct
+     * @throws MappingException  if there were issues trying to map the entity
+     */
+    public List<Suggestion> mapEntity(
+        SourceEntity entity, String indexPath, int maxNumSuggestions, MappingConfiguration config, Duration timeBudget)
+        throws MalformedMappingConfigurationException, MappingException {
+        return mapEntityWithinBudget(entity, indexPath, maxNumSuggestions, config, timeBudget).suggestions();
+    }
+
+    /**
+     * The suggestions found for an entity.
+     *
+     * @param suggestions the suggestions, sorted by score
+     * @param partial     whether the time budget ran out before all the searches were done, even if no suggestion was
+     *                    found
+     */
+    record EntityMapping(List<Suggestion> suggestions, boolean partial) {
+    }
+
+    /**
+     * Generates a list of suggestions (sorted by score) for a given entity, within a time budget, like
+     * {@link #mapEntity(SourceEntity, String, int, MappingConfiguration, Duration)}, and tells whether the budget ran
+     * out.
+     *
+     * @param entity            the source entity to be mapped
+     * @param indexPath         the path of the index to use for the mapping
+     * @param maxNumSuggestions the max number of suggestions to get
+     * @param config            information about how to build the queries to find matches
+     * @param timeBudget        the time the mapping can take. If null, there is no limit
+     * @return the suggestions for the source entity, and whether they are partial
+     * @throws MalformedMappingConfigurationException  if the mapping configuration is not correct
+     * @throws MappingException  if there were issues trying to map the entity
+     */
+    EntityMapping mapEntityWithinBudget(
+        SourceEntity entity, String indexPath, int maxNumSuggestions, MappingConfiguration config, Duration timeBudget)
+        throws MalformedMappingConfigurationException, MappingException {
         logger.info("Mapping entity: {}", entity);
         logger.info("Using index: [{}]", indexPath);
         logger.info("Using configuration: {}", config.getName());
 
         List<Suggestion> suggestions = new ArrayList<>();
+        boolean partial = false;
 
         validateSourceEntity(entity);
         validateIndex(indexPath);
         validateMappingConfiguration(config);
         cleanSourceEntityData(entity);
 
-        // Only process the entity if the text of its attributes is not too long
-        if (!shouldIgnoreEntity(entity)) {
-            suggestions = suggestionsFinder.findSuggestions(entity, indexPath, maxNumSuggestions, config);
+        try (MappingDeadline deadline = MappingDeadline.start(timeBudget)) {
+            // Long texts make queries too expensive, so the terms mentioned in them are looked for instead
+            if (hasTextTooLong(entity, config)) {
+                suggestions = mentionMatcher.findMentionedTerms(entity, indexPath, maxNumSuggestions, config);
+            } else {
+                suggestions = suggestionsFinder.findSuggestions(entity, indexPath, maxNumSuggestions, config);
+            }
+            if (deadline != null && deadline.isPartial()) {
+                logger.warn("Time budget of {} ms ran out mapping entity {}", timeBudget.toMillis(), entity.getId());
+                markAsPartial(suggestions);
+                partial = true;
+            }
         }
 
-        return suggestions;
+        return new EntityMapping(suggestions, partial);
+    }
+
+    private void markAsPartial(List<Suggestion> suggestions) {
+        for (Suggestion suggestion : suggestions) {
+            if (suggestion.getScoringDetails() == null) {
+                suggestion.setScoringDetails(new ScoringDetails());
+            }
+            suggestion.getScoringDetails().setPartial(true);
+        }
     }
 
-    private void cleanSourceEntityData(SourceEntity entity) {
-        entity.getData().forEach((key, value) -> {
-            String cleanedValue = value.trim().replaceAll(" +", " ");
-            entity.getData().put(key, cleanedValue);
-        });
+    /**
+     * Logs what the searches of the entities mapped so far did (see {@link SuggestionsFinder#logStatistics()}).
+     */
+    void logSearchStatistics() {
+        suggestionsFinder.logStatistics();
+    }
+
+    /**
+     * Removes the leading and trailing spaces of the values in the data of an entity, and collapses the repeated ones.
+     *
+     * @param entity the entity whose data is cleaned
+     */
+    static void cleanSourceEntityData(SourceEntity entity) {
+        entity.getData().forEach((key, value) -> entity.getData().put(key, cleanValue(value)));
+    }
+
+    /**
+     * Cleans a value of the data of an entity as {@link #cleanSourceEntityData(SourceEntity)} does.
+     *
+     * @param value the value to clean
+     * @return the cleaned value
+     */
+    static String cleanValue(String value) {
+        return value.trim().replaceAll(" +", " ");
     }
 
     private void validateSourceEntity(SourceEntity entity) throws MappingException {
@@ -150,11 +248,13 @@ public class MappingService {
         }
     }
 
-    private boolean shouldIgnoreEntity(SourceEntity entity) {
-        for (Map.Entry<String, String> entry : entity.getData().entrySet()) {
-            if (isTextTooLong(entry.getValue())) {
+    // Only the fields used to search are checked, as they are the ones the mentions are looked for in
+    private boolean hasTextTooLong(SourceEntity entity, MappingConfiguration config) {
+        for (String fieldName : config.getFieldsWeightsByEntityType(entity.getType()).keySet()) {
+            String value = entity.getData().get(fieldName);
+            if (value != null && isTextTooLong(value)) {
                 logger.info(
-                    "Ignoring text too long. Attribute: {}, value: {}", entry.getKey(), entry.getValue());
+                    "Looking for mentions in text too long. Attribute: {}, value: {}", fieldName, value);
                 return true;
             }
         }
@@ -0,0 +1,173 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.cancer_models.entity2ontology.common.model.OntologyEntityDataFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+import org.cancer_models.entity2ontology.common.utils.MapUtils;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.ScoringDetails;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A component that maps entities with long texts (for instance, pathology notes) by finding the labels and synonyms
+ * of ontology terms mentioned in them, instead of searching the whole text in the index.
+ *
+ * <p>The labels and synonyms of each index are loaded into an {@link AhoCorasickAutomaton} the first time the index is
+ * used, and kept while the reader of the index is open. A text is scanned once, in time linear in its number of
+ * words, and every label or synonym that appears in it (with the words normalised by {@link TextNormalizer}, in the
+ * same order) is a mention. Mentions inside a longer one ("carcinoma" in "breast carcinoma") are discarded.
+ *
+ * <p>The score of a mention is the percentage of the words of the field it covers, so only a mention that is the whole
+ * value of the field scores 100, and a short mention in a long text gets a low score. It is lowered like the scores
+ * of the queries when the mention is a synonym, and weighted by the relevance of the field the text is in, relative
+ * to the most relevant field.
+ *
+ * <p>Rules with exactly the same values as the entity (see {@link ExactRuleMatcher}) are curated mappings, so they are
+ * returned first, with a score of 100. No more mentions are looked for once the time budget of the entity (see
+ * {@link MappingDeadline}) runs out.
+ */
+@Component
+class MentionMatcher {
+
+    private static final String ONTOLOGY_PREFIX = TargetEntityType.ONTOLOGY.getValue() + ".";
+    private static final String LABEL_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.LABEL.getValue();
+    private static final String SYNONYMS_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.SYNONYMS.getValue();
+
+    private static final double MAX_SCORE = 100;
+
+    // A label or a synonym of the ontology term in a document
+    private record Mention(int docId, boolean synonym) {
+    }
+
+    private final Searcher searcher;
+    private final TextNormalizer textNormalizer;
+    private final ExactRuleMatcher exactRuleMatcher;
+    private final ReaderScopedCache<AhoCorasickAutomaton<Mention>> automatons;
+
+    public MentionMatcher(Searcher searcher, TextNormalizer textNormalizer, ExactRuleMatcher exactRuleMatcher) {
+        this.searcher = searcher;
+        this.textNormalizer = textNormalizer;
+        this.exactRuleMatcher = exactRuleMatcher;
+        this.automatons = new ReaderScopedCache<>("ontology mentions automaton", this::buildAutomaton);
+    }
+
+    private AhoCorasickAutomaton<Mention> buildAutomaton(IndexSearcher indexSearcher) throws IOException {
+        TermQuery ontologiesQuery = new TermQuery(
+            new Term(TargetEntityFieldName.TARGET_TYPE.getValue(), TargetEntityType.ONTOLOGY.getValue()));
+        AhoCorasickAutomaton.Builder<Mention> builder = new AhoCorasickAutomaton.Builder<>();
+        StoredFields storedFields = indexSearcher.storedFields();
+        Set<String> fieldsToLoad = Set.of(LABEL_FIELD, SYNONYMS_FIELD);
+        for (int docId : Searcher.collectDocIds(ontologiesQuery, indexSearcher)) {
+            Document document = storedFields.document(docId, fieldsToLoad);
+            builder.add(textNormalizer.tokenize(document.get(LABEL_FIELD)), new Mention(docId, false));
+            for (String synonym : document.getValues(SYNONYMS_FIELD)) {
+                builder.add(textNormalizer.tokenize(synonym), new Mention(docId, true));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Finds the rules with the same values as {@code entity} and the ontology terms mentioned in the values of the
+     * fields configured for its type.
+     *
+     * @param entity            the entity whose texts are scanned
+     * @param indexPath         the path of the index to search in
+     * @param maxNumSuggestions the maximum number of suggestions to return
+     * @param config            the mapping configuration with the fields and weights to use
+     * @return a list of suggestions, with the rules first and then one per mentioned term, sorted by score
+     * (descending)
+     * @throws MappingException if the index cannot be read
+     */
+    public List<Suggestion> findMentionedTerms(
+        SourceEntity entity, String indexPath, int maxNumSuggestions, MappingConfiguration config)
+        throws MappingException {
+        Objects.requireNonNull(entity, "entity cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+
+        // Rules with the same values are curated mappings, so they are preferred to any mention
+        List<Suggestion> suggestions = new ArrayList<>(exactRuleMatcher.findExactMatches(entity, indexPath, config));
+        suggestions.forEach(suggestion -> suggestion.setScore(MAX_SCORE));
+        if (suggestions.size() >= maxNumSuggestions) {
+            return suggestions.subList(0, maxNumSuggestions);
+        }
+
+        Map<String, Double> fieldsWeights = config.getFieldsWeightsByEntityType(entity.getType());
+        double maxWeight = fieldsWeights.values().stream().mapToDouble(Double::doubleValue).max().orElse(1);
+        Map<Integer, Suggestion> suggestionsByDoc = new HashMap<>();
+        try {
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                AhoCorasickAutomaton<Mention> automaton = automatons.get(indexSearcher);
+                StoredFields storedFields = indexSearcher.storedFields();
+                for (Map.Entry<String, Double> field : fieldsWeights.entrySet()) {
+                    if (MappingDeadline.hasExpired()) {
+                        break;
+                    }
+                    String text = MapUtils.getValueOrThrow(entity.getData(), field.getKey(), "source entity data");
+                    List<String> words = textNormalizer.tokenize(text);
+                    List<AhoCorasickAutomaton.Match<Mention>> mentions = keepOutermost(automaton.scan(words));
+                    for (AhoCorasickAutomaton.Match<Mention> mention : mentions) {
+                        if (MappingDeadline.hasExpired()) {
+                            break;
+                        }
+                        // How much of the field the mention covers
+                        double score = MAX_SCORE * mention.length() / words.size() * field.getValue() / maxWeight;
+                        if (mention.value().synonym()) {
+                            score *= DefaultSuggestionScoreCalculator.SYNONYM_MATCH_MULTIPLIER;
+                        }
+                        Suggestion existing = suggestionsByDoc.get(mention.value().docId());
+                        if (existing == null || existing.getScore() < score) {
+                            Document document = storedFields.document(mention.value().docId());
+                            Suggestion suggestion = QueryProcessor.documentToSuggestion(document, 0);
+                            suggestion.setScore(score);
+                            suggestion.setScoringDetails(createScoringDetails(
+                                field.getKey(), words.subList(mention.start(), mention.end())));
+                            suggestionsByDoc.put(mention.value().docId(), suggestion);
+                        }
+                    }
+                }
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            throw new MappingException(e);
+        }
+        List<Suggestion> mentioned =
+            SuggestionsSorter.sortSuggestionsByScoreDesc(new ArrayList<>(suggestionsByDoc.values()));
+        suggestions.addAll(mentioned.subList(0, Math.min(mentioned.size(), maxNumSuggestions - suggestions.size())));
+        return suggestions;
+    }
+
+    // The mentions that are not inside a longer mention
+    static <T> List<AhoCorasickAutomaton.Match<T>> keepOutermost(List<AhoCorasickAutomaton.Match<T>> mentions) {
+        List<AhoCorasickAutomaton.Match<T>> sorted = new ArrayList<>(mentions);
+        sorted.sort(Comparator.comparingInt(AhoCorasickAutomaton.Match<T>::length).reversed());
+        List<AhoCorasickAutomaton.Match<T>> kept = new ArrayList<>();
+        for (AhoCorasickAutomaton.Match<T> mention : sorted) {
+            boolean inside = kept.stream().anyMatch(longer -> longer.length() > mention.length()
+                && longer.start() <= mention.start() && mention.end() <= longer.end());
+            if (!inside) {
+                kept.add(mention);
+            }
+        }
+        return kept;
+    }
+
+    private ScoringDetails createScoringDetails(String fieldName, List<String> mentionWords) {
+        ScoringDetails scoringDetails = new ScoringDetails();
+        scoringDetails.setNote(String.format("Mentioned in %s: '%s'", fieldName, String.join(" ", mentionWords)));
+        return scoringDetails;
+    }
+}
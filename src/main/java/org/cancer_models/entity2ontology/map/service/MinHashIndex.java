@@ -0,0 +1,301 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.cancer_models.entity2ontology.common.model.OntologyEntityDataFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * An in-memory MinHash index of the word sets of the labels and synonyms of the ontology terms and of the values of
+ * the rules in an index, so the texts with a high Jaccard similarity to a phrase are found without comparing the
+ * phrase with all of them, and regardless of the order of the words.
+ *
+ * <p>Each text is reduced to a signature of {@link #NUM_HASHES} minimum hashes of its words. The fraction of
+ * positions in which two signatures are equal estimates the Jaccard similarity of the word sets. Signatures are
+ * split into {@link #NUM_BANDS} bands (locality-sensitive hashing), and only the texts that share a whole band with
+ * the phrase are compared with it. Texts with a similarity of about {@link #BANDING_THRESHOLD} or more share a band
+ * with high probability, while texts with a lower similarity rarely do.
+ *
+ * <p>Words are the tokens of {@link TextNormalizer}, so case, punctuation and stop words are ignored. Texts are
+ * grouped: the labels and synonyms of the ontology terms form a group, and the values of a field of the rules of an
+ * entity type form another. Document ids are only valid for the reader the index was built from, which is why
+ * indexes are kept in a {@link ReaderScopedCache}.
+ */
+final class MinHashIndex {
+
+    /**
+     * Number of hashes in a signature.
+     */
+    static final int NUM_HASHES = 64;
+
+    /**
+     * Number of bands a signature is split into.
+     */
+    static final int NUM_BANDS = 16;
+
+    private static final int ROWS_PER_BAND = NUM_HASHES / NUM_BANDS;
+
+    /**
+     * Similarity from which texts are likely to be found: {@code (1 / NUM_BANDS) ^ (1 / ROWS_PER_BAND)}. Lower
+     * thresholds can be used when searching, but more of the texts above them will be missed.
+     */
+    static final double BANDING_THRESHOLD = Math.pow(1.0 / NUM_BANDS, 1.0 / ROWS_PER_BAND);
+
+    private static final String ONTOLOGY_PREFIX = TargetEntityType.ONTOLOGY.getValue() + ".";
+    private static final String LABEL_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.LABEL.getValue();
+    private static final String SYNONYMS_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.SYNONYMS.getValue();
+    private static final String RULE_PREFIX = TargetEntityType.RULE.getValue() + ".";
+
+    // Name of the group with the labels and synonyms of the ontology terms
+    private static final String ONTOLOGIES_GROUP = TargetEntityType.ONTOLOGY.getValue();
+
+    // Separates the entity type from the field name in the names of the groups of rule values
+    private static final char KEY_SEPARATOR = '\u001F';
+
+    // Seeds of the hash functions, one per position of a signature
+    private static final long[] SEEDS = new long[NUM_HASHES];
+
+    static {
+        for (int i = 0; i < NUM_HASHES; i++) {
+            SEEDS[i] = mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    /**
+     * A text found in the index.
+     *
+     * @param docId      the id of the document with the text
+     * @param similarity the estimated Jaccard similarity between the words of the text and the searched ones
+     */
+    record Match(int docId, double similarity) {
+    }
+
+    // The texts of a group
+    private record Group(int[] docIds, int[] signatures, Map<Long, int[]> textsByBand) {
+    }
+
+    // Texts of a group while the index is being built
+    private static class GroupBuilder {
+        private final List<Integer> docIds = new ArrayList<>();
+        private final List<int[]> signatures = new ArrayList<>();
+
+        void add(int docId, Set<String> words) {
+            if (!words.isEmpty()) {
+                docIds.add(docId);
+                signatures.add(signature(words));
+            }
+        }
+
+        Group build() {
+            int[] flatSignatures = new int[signatures.size() * NUM_HASHES];
+            Map<Long, List<Integer>> textsByBand = new HashMap<>();
+            for (int text = 0; text < signatures.size(); text++) {
+                int[] signature = signatures.get(text);
+                System.arraycopy(signature, 0, flatSignatures, text * NUM_HASHES, NUM_HASHES);
+                for (int band = 0; band < NUM_BANDS; band++) {
+                    textsByBand.computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(text);
+                }
+            }
+            Map<Long, int[]> table = new HashMap<>(textsByBand.size() * 4 / 3 + 1);
+            textsByBand.forEach((key, texts) -> table.put(key, texts.stream().mapToInt(Integer::intValue).toArray()));
+            return new Group(docIds.stream().mapToInt(Integer::intValue).toArray(), flatSignatures, table);
+        }
+    }
+
+    private final Map<String, Group> groups;
+
+    private MinHashIndex(Map<String, Group> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * Builds the index with the labels and synonyms of the ontology documents and the values of the rule documents
+     * read by {@code indexSearcher}.
+     *
+     * @param indexSearcher  the searcher whose documents are loaded
+     * @param textNormalizer the normaliser that splits the texts into words
+     * @return the index
+     * @throws IOException if the index cannot be read
+     */
+    static MinHashIndex build(IndexSearcher indexSearcher, TextNormalizer textNormalizer) throws IOException {
+        Map<String, GroupBuilder> builders = new HashMap<>();
+        StoredFields storedFields = indexSearcher.storedFields();
+
+        GroupBuilder ontologies = builders.computeIfAbsent(ONTOLOGIES_GROUP, k -> new GroupBuilder());
+        for (int docId : collectDocIds(indexSearcher, TargetEntityType.ONTOLOGY)) {
+            Document document = storedFields.document(docId, Set.of(LABEL_FIELD, SYNONYMS_FIELD));
+            ontologies.add(docId, words(textNormalizer, document.get(LABEL_FIELD)));
+            for (String synonym : document.getValues(SYNONYMS_FIELD)) {
+                ontologies.add(docId, words(textNormalizer, synonym));
+            }
+        }
+
+        for (int docId : collectDocIds(indexSearcher, TargetEntityType.RULE)) {
+            Document document = storedFields.document(docId);
+            String entityType = document.get(TargetEntityFieldName.ENTITY_TYPE.getValue());
+            for (IndexableField field : document.getFields()) {
+                if (field.name().startsWith(RULE_PREFIX) && field.stringValue() != null) {
+                    String group = rulesGroup(entityType, field.name().substring(RULE_PREFIX.length()));
+                    builders.computeIfAbsent(group, k -> new GroupBuilder())
+                        .add(docId, words(textNormalizer, field.stringValue()));
+                }
+            }
+        }
+
+        Map<String, Group> groups = new HashMap<>();
+        builders.forEach((name, builder) -> groups.put(name, builder.build()));
+        return new MinHashIndex(groups);
+    }
+
+    private static int[] collectDocIds(IndexSearcher indexSearcher, TargetEntityType targetType) throws IOException {
+        return Searcher.collectDocIds(
+            new TermQuery(new Term(TargetEntityFieldName.TARGET_TYPE.getValue(), targetType.getValue())),
+            indexSearcher);
+    }
+
+    /**
+     * Splits a text into the set of words the index compares.
+     *
+     * @param textNormalizer the normaliser that splits the text
+     * @param text           the text
+     * @return the distinct words of the text. Empty if it has none
+     */
+    static Set<String> words(TextNormalizer textNormalizer, String text) {
+        return new HashSet<>(textNormalizer.tokenize(text));
+    }
+
+    /**
+     * Finds the ontology terms with a label or a synonym similar to a set of words.
+     *
+     * @param words     the words to search
+     * @param threshold the minimum estimated similarity
+     * @return the matches, one per document with its most similar text, sorted by similarity (descending)
+     */
+    List<Match> findOntologies(Set<String> words, double threshold) {
+        return find(groups.get(ONTOLOGIES_GROUP), words, threshold);
+    }
+
+    /**
+     * Finds the rules of an entity type whose value in a field is similar to a set of words.
+     *
+     * @param entityType the entity type of the rules
+     * @param fieldName  the name of the field of the rules, without the target type prefix
+     * @param words      the words to search
+     * @param threshold  the minimum estimated similarity
+     * @return the matches, sorted by similarity (descending)
+     */
+    List<Match> findRules(String entityType, String fieldName, Set<String> words, double threshold) {
+        return find(groups.get(rulesGroup(entityType, fieldName)), words, threshold);
+    }
+
+    private static List<Match> find(Group group, Set<String> words, double threshold) {
+        if (group == null || words.isEmpty()) {
+            return List.of();
+        }
+        int[] signature = signature(words);
+        Map<Integer, Double> bestByDoc = new HashMap<>();
+        BitSet compared = new BitSet(group.docIds().length);
+        for (int band = 0; band < NUM_BANDS; band++) {
+            int[] texts = group.textsByBand().get(bandKey(signature, band));
+            if (texts == null) {
+                continue;
+            }
+            for (int text : texts) {
+                if (compared.get(text)) {
+                    continue;
+                }
+                compared.set(text);
+                double similarity = estimateSimilarity(signature, group.signatures(), text * NUM_HASHES);
+                if (similarity >= threshold) {
+                    bestByDoc.merge(group.docIds()[text], similarity, Math::max);
+                }
+            }
+        }
+        List<Match> matches = new ArrayList<>();
+        bestByDoc.forEach((docId, similarity) -> matches.add(new Match(docId, similarity)));
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed().thenComparingInt(Match::docId));
+        return matches;
+    }
+
+    /**
+     * Estimates the Jaccard similarity of two word sets from their signatures.
+     *
+     * @param words1 a set of words
+     * @param words2 another set of words
+     * @return the fraction of equal positions in the signatures of the sets, between 0 and 1
+     */
+    static double estimateSimilarity(Set<String> words1, Set<String> words2) {
+        return estimateSimilarity(signature(words1), signature(words2), 0);
+    }
+
+    private static double estimateSimilarity(int[] signature, int[] signatures, int offset) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (signature[i] == signatures[offset + i]) {
+                equal++;
+            }
+        }
+        return (double) equal / NUM_HASHES;
+    }
+
+    private static String rulesGroup(String entityType, String fieldName) {
+        return entityType + KEY_SEPARATOR + fieldName;
+    }
+
+    // Minimum hash of the words for each seed
+    private static int[] signature(Set<String> words) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String word : words) {
+            long wordHash = hash(word);
+            for (int i = 0; i < NUM_HASHES; i++) {
+                signature[i] = Math.min(signature[i], (int) mix(wordHash ^ SEEDS[i]));
+            }
+        }
+        return signature;
+    }
+
+    // Key of the bucket of a band of a signature, including the band so equal rows in different bands do not collide
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+            key = mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+
+    private static long hash(String word) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < word.length(); i++) {
+            hash = 31 * hash + word.charAt(i);
+        }
+        return mix(hash);
+    }
+
+    // Finalisation step of MurmurHash3, which spreads the bits of the input over the whole output
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93e2fe53cd3L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Returns the number of texts in the index.
+     *
+     * @return the number of texts of all the groups
+     */
+    int size() {
+        return groups.values().stream().mapToInt(group -> group.docIds().length).sum();
+    }
+}
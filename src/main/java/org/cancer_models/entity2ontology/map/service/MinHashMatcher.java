@@ -0,0 +1,127 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.cancer_models.entity2ontology.common.utils.MapUtils;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.SearchQueryItem;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A component that finds the candidates for similar matches whose words are mostly the same as the ones of the
+ * source entity, in any order, without running a Lucene query.
+ *
+ * <p>The labels, synonyms and rule values of each index are loaded into a {@link MinHashIndex} the first time the
+ * index is used, and kept while the reader of the index is open. A text is a candidate if the estimated Jaccard
+ * similarity between its words and the searched ones is at least {@link MinHashIndex#BANDING_THRESHOLD}, so
+ * "cancer in lung" finds "lung cancer" although the words are not in the same order.
+ */
+@Component
+class MinHashMatcher {
+
+    // Maximum number of candidates returned, as many as a Lucene query returns
+    private static final int MAX_CANDIDATES = 50;
+
+    private final Searcher searcher;
+    private final TextNormalizer textNormalizer;
+    private final ReaderScopedCache<MinHashIndex> minHashIndexes;
+
+    public MinHashMatcher(Searcher searcher, TextNormalizer textNormalizer) {
+        this.searcher = searcher;
+        this.textNormalizer = textNormalizer;
+        this.minHashIndexes = new ReaderScopedCache<>(
+            "MinHash index", indexSearcher -> MinHashIndex.build(indexSearcher, textNormalizer));
+    }
+
+    /**
+     * Finds the ontology terms with a label or a synonym similar to the phrase formed by the values of the search
+     * query items.
+     *
+     * @param searchQueryItems the items whose values form the phrase
+     * @param indexPath        the path of the index to search in
+     * @return a list of suggestions with no score calculated, the most similar first. Empty if there are none
+     * @throws MappingException if the index cannot be read
+     */
+    public List<Suggestion> findSimilarOntologies(List<SearchQueryItem> searchQueryItems, String indexPath)
+        throws MappingException {
+        Objects.requireNonNull(searchQueryItems, "searchQueryItems cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+
+        String phrase = searchQueryItems.stream().map(SearchQueryItem::getValue).collect(Collectors.joining(" "));
+        Set<String> words = MinHashIndex.words(textNormalizer, phrase);
+        try {
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                List<MinHashIndex.Match> matches =
+                    minHashIndexes.get(indexSearcher).findOntologies(words, MinHashIndex.BANDING_THRESHOLD);
+                return toSuggestions(matches.stream().map(MinHashIndex.Match::docId).toList(), indexSearcher);
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            throw new MappingException(e);
+        }
+    }
+
+    /**
+     * Finds the rules of the same type as {@code entity} with at least a field whose value is similar to the value
+     * of the field in the entity. Rules are ranked by the similarity of their fields, weighted as in the
+     * configuration.
+     *
+     * @param entity    the entity to find similar rules for
+     * @param indexPath the path of the index to search in
+     * @param config    the mapping configuration with the fields and weights to use
+     * @return a list of suggestions with no score calculated, the most similar first. Empty if there are none
+     * @throws MappingException if the index cannot be read
+     */
+    public List<Suggestion> findSimilarRules(SourceEntity entity, String indexPath, MappingConfiguration config)
+        throws MappingException {
+        Objects.requireNonNull(entity, "entity cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+
+        Map<String, Double> fieldsWeights = config.getFieldsWeightsByEntityType(entity.getType());
+        double totalWeight = fieldsWeights.values().stream().reduce(0.0, Double::sum);
+        try {
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                MinHashIndex minHashIndex = minHashIndexes.get(indexSearcher);
+                Map<Integer, Double> similarityByDoc = new HashMap<>();
+                for (Map.Entry<String, Double> field : fieldsWeights.entrySet()) {
+                    String text = MapUtils.getValueOrThrow(entity.getData(), field.getKey(), "source entity data");
+                    Set<String> words = MinHashIndex.words(textNormalizer, text);
+                    double relevance = field.getValue() / totalWeight;
+                    for (MinHashIndex.Match match : minHashIndex.findRules(
+                        entity.getType(), field.getKey(), words, MinHashIndex.BANDING_THRESHOLD)) {
+                        similarityByDoc.merge(match.docId(), relevance * match.similarity(), Double::sum);
+                    }
+                }
+                List<Integer> docIds = similarityByDoc.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+                return toSuggestions(docIds, indexSearcher);
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            throw new MappingException(e);
+        }
+    }
+
+    private List<Suggestion> toSuggestions(List<Integer> docIds, IndexSearcher indexSearcher) throws IOException {
+        List<Suggestion> suggestions = new ArrayList<>();
+        StoredFields storedFields = indexSearcher.storedFields();
+        for (int docId : docIds.subList(0, Math.min(docIds.size(), MAX_CANDIDATES))) {
+            suggestions.add(QueryProcessor.documentToSuggestion(storedFields.document(docId), 0));
+        }
+        return suggestions;
+    }
+}
@@ -2,6 +2,8 @@ package org.cancer_models.entity2ontology.map.service;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.map.model.*;
@@ -12,15 +14,40 @@ import java.util.*;
 /**
  * A component responsible for searching ontologies using Lucene queries. The search is based on templates that define
  * how to build queries, with scoring calculated to find the best matching ontologies.
+ *
+ * <p>Exact matches are first looked up in memory with {@link ExactLabelMatcher}, which only finds terms whose whole
+ * label or synonym is the phrase. The Lucene query, which also finds labels and synonyms containing the phrase, is
+ * run when the lookup does not find enough suggestions.
+ *
+ * <p>Templates are searched with one query each, unless the configuration of the entity type enables the single pass
+ * search: then all the templates are combined into one query, each document found is read once and scored against
+ * every template, and the scoring stops when enough documents reached the maximum score.
+ *
+ * <p>{@link #findMatchingOntologies} goes further and runs the exact and the similar queries of all the templates as
+ * a single query, tagging each document found as an exact or a similar match, so the documents both queries find
+ * are read and scored only once. If fewer than the suggestions wanted are exact matches among the top documents of
+ * that query, the exact query is also run on its own, so exact matches ranked below them are not lost.
+ *
+ * <p>Documents that cannot reach {@link #MINIMUM_ACCEPTABLE_SCORE}, the minimum score the suggestions finders
+ * accept, are not scored exactly: their score is 0.
  */
 @Component
 class OntologiesSearcher {
 
     private static final Logger logger = LogManager.getLogger(OntologiesSearcher.class);
+
+    // Maximum score of a suggestion (percentage)
+    private static final double MAX_SCORE = 100;
+
+    // Suggestions with a lower score are discarded by the suggestions finders, so they do not need an exact score
+    static final double MINIMUM_ACCEPTABLE_SCORE = 50;
+
     private final QueryBuilder queryBuilder;
     private final TemplateQueryProcessor templateQueryProcessor;
     private final QueryProcessor queryProcessor;
     private final SuggestionScoreCalculator suggestionScoreCalculator;
+    private final ExactLabelMatcher exactLabelMatcher;
+    private final MinHashMatcher minHashMatcher;
 
     /**
      * Constructs an {@code OntologiesSearcher} with the provided components for building, processing, and scoring
@@ -30,16 +57,22 @@ class OntologiesSearcher {
      * @param templateQueryProcessor            The component responsible for processing query templates.
      * @param queryProcessor                    The component responsible for processing queries.
      * @param suggestionScoreCalculator         The component responsible for calculating scores for ontology suggestions.
+     * @param exactLabelMatcher                 The component responsible for looking up exact labels in memory.
+     * @param minHashMatcher                    The component responsible for finding similar labels in memory.
      */
     public OntologiesSearcher(
         QueryBuilder queryBuilder,
         TemplateQueryProcessor templateQueryProcessor,
         QueryProcessor queryProcessor,
-        SuggestionScoreCalculator suggestionScoreCalculator) {
+        SuggestionScoreCalculator suggestionScoreCalculator,
+        ExactLabelMatcher exactLabelMatcher,
+        MinHashMatcher minHashMatcher) {
         this.queryBuilder = queryBuilder;
         this.templateQueryProcessor = templateQueryProcessor;
         this.queryProcessor = queryProcessor;
         this.suggestionScoreCalculator = suggestionScoreCalculator;
+        this.exactLabelMatcher = exactLabelMatcher;
+        this.minHashMatcher = minHashMatcher;
     }
 
     /**
@@ -54,7 +87,52 @@ class OntologiesSearcher {
      */
     public List<Suggestion> findExactMatchingOntologies(
         SourceEntity entity, String indexPath, MappingConfiguration config) throws MappingException {
-        return findMatchingOntologies(entity, indexPath, config, true);
+        return findExactMatchingOntologies(entity, indexPath, config, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the best matching ontologies for a given {@code SourceEntity}, stopping after the in-memory lookup of
+     * labels and synonyms if it already finds {@code maxNumSuggestions} suggestions. Those suggestions match a whole
+     * label or synonym, so they are the best exact matches the index has.
+     *
+     * @param entity            The source entity to use for the query.
+     * @param indexPath         The path to the Lucene index to search in.
+     * @param config            The configuration object providing the templates and weights to use.
+     * @param maxNumSuggestions The number of suggestions that makes running the Lucene query unnecessary.
+     * @return A list of ontology suggestions with updated scores.
+     * @throws MappingException if an error occurs during the search
+     */
+    public List<Suggestion> findExactMatchingOntologies(
+        SourceEntity entity, String indexPath, MappingConfiguration config, int maxNumSuggestions)
+        throws MappingException {
+        List<List<SearchQueryItem>> searchQueryItemsPerTemplate = extractSearchQueryItems(entity, config);
+        Map<Suggestion, Double> highestScores = new HashMap<>();
+        boolean rankByFinalScore = config.getConfigurationByEntityType(entity.getType()).isRankByFinalScore();
+
+        for (List<SearchQueryItem> searchQueryItems : searchQueryItemsPerTemplate) {
+            List<Suggestion> suggestionsPerTemplate = exactLabelMatcher.findExactMatches(searchQueryItems, indexPath);
+            calculateScores(suggestionsPerTemplate, searchQueryItems);
+            keepHighestScores(highestScores, suggestionsPerTemplate);
+        }
+
+        if (highestScores.size() >= maxNumSuggestions) {
+            logger.debug("{} exact matches found without querying the index", highestScores.size());
+        } else if (isSinglePassTemplateSearch(entity, config)) {
+            keepHighestScores(highestScores, processAllTemplates(
+                searchQueryItemsPerTemplate, indexPath, true, SimilarMatchStrategy.FUZZY, rankByFinalScore, false,
+                maxNumSuggestions));
+        } else {
+            for (List<SearchQueryItem> searchQueryItems : searchQueryItemsPerTemplate) {
+                // The remaining templates are not searched once the time budget of the entity runs out
+                if (MappingDeadline.hasExpired()) {
+                    break;
+                }
+                keepHighestScores(
+                    highestScores, processSearchItems(
+                        searchQueryItems, indexPath, true, SimilarMatchStrategy.FUZZY, rankByFinalScore, false));
+            }
+        }
+        return toSortedSuggestions(highestScores);
     }
 
     /**
@@ -69,27 +147,144 @@ class OntologiesSearcher {
      */
     public List<Suggestion> findSimilarMatchingOntologies(
         SourceEntity entity, String indexPath, MappingConfiguration config) throws MappingException {
-        return findMatchingOntologies(entity, indexPath, config, false);
+        return findSimilarMatchingOntologies(entity, indexPath, config, Integer.MAX_VALUE);
     }
 
     /**
-     * Finds the best matching ontologies for a given {@code SourceEntity} by searching against an index of ontologies.
-     * The method iterates over ontology search templates and updates the highest score for each suggestion.
+     * Finds the similar matching ontologies for a given {@code SourceEntity} by searching against an index of ontologies.
+     * With the single pass search, the scoring stops once {@code maxNumSuggestions} suggestions have the maximum score.
      *
-     * @param entity    The source entity to use for the query.
-     * @param indexPath The path to the Lucene index to search in.
-     * @param config    The configuration object providing the templates and weights to use.
-     * @param exactMatch Indicates if the suggestion should be exact matches or not.
+     * @param entity            The source entity to use for the query.
+     * @param indexPath         The path to the Lucene index to search in.
+     * @param config            The configuration object providing the templates and weights to use.
+     * @param maxNumSuggestions The number of suggestions with the maximum score that makes scoring more unnecessary.
      * @return A list of ontology suggestions with updated scores.
      * @throws MappingException if an error occurs during the search
      */
-    private List<Suggestion> findMatchingOntologies(
-        SourceEntity entity, String indexPath, MappingConfiguration config, boolean exactMatch) throws MappingException {
-
-        List<Suggestion> suggestions;
+    public List<Suggestion> findSimilarMatchingOntologies(
+        SourceEntity entity, String indexPath, MappingConfiguration config, int maxNumSuggestions)
+        throws MappingException {
         // The same suggestion can have different scores if compared against different templates so this structure
         // keeps the best score per suggestion.
         Map<Suggestion, Double> highestScores = new HashMap<>();
+        SimilarMatchStrategy strategy = config.getConfigurationByEntityType(entity.getType()).getSimilarMatchStrategy();
+        boolean rankByFinalScore = config.getConfigurationByEntityType(entity.getType()).isRankByFinalScore();
+        boolean correctVocabulary = config.getConfigurationByEntityType(entity.getType()).isVocabularyCorrection();
+        List<List<SearchQueryItem>> searchQueryItemsPerTemplate = extractSearchQueryItems(entity, config);
+
+        if (isSinglePassTemplateSearch(entity, config) && strategy != SimilarMatchStrategy.MINHASH) {
+            keepHighestScores(highestScores, processAllTemplates(
+                searchQueryItemsPerTemplate, indexPath, false, strategy, rankByFinalScore, correctVocabulary,
+                maxNumSuggestions));
+        } else {
+            // Each template should bring some suggestions. We use all of them
+            for (List<SearchQueryItem> searchQueryItems : searchQueryItemsPerTemplate) {
+                // The remaining templates are not searched once the time budget of the entity runs out
+                if (MappingDeadline.hasExpired()) {
+                    break;
+                }
+                // We get the suggestions for the specific template
+                keepHighestScores(highestScores,
+                    processSearchItems(
+                        searchQueryItems, indexPath, false, strategy, rankByFinalScore, correctVocabulary));
+            }
+        }
+        return toSortedSuggestions(highestScores);
+    }
+
+    /**
+     * Finds both the exact and the similar matching ontologies for a given {@code SourceEntity}, with a single query
+     * over all the templates. Suggestions found by the exact query have {@code exactMatch} set in their scoring
+     * details, so they can still be preferred to the similar ones. Like with
+     * {@link #findExactMatchingOntologies(SourceEntity, String, MappingConfiguration, int)}, the index is not queried
+     * if the in-memory lookup of labels and synonyms finds enough suggestions.
+     *
+     * <p>The {@link SimilarMatchStrategy#MINHASH} strategy does not query the index, so with it the exact and the
+     * similar searches are run one after the other.
+     *
+     * @param entity            The source entity to use for the query.
+     * @param indexPath         The path to the Lucene index to search in.
+     * @param config            The configuration object providing the templates and weights to use.
+     * @param maxNumSuggestions The number of suggestions with the maximum score that makes scoring more unnecessary.
+     * @return A list of ontology suggestions with updated scores, tagged as exact or similar matches.
+     * @throws MappingException if an error occurs during the search
+     */
+    public List<Suggestion> findMatchingOntologies(
+        SourceEntity entity, String indexPath, MappingConfiguration config, int maxNumSuggestions)
+        throws MappingException {
+        SimilarMatchStrategy strategy = config.getConfigurationByEntityType(entity.getType()).getSimilarMatchStrategy();
+        if (strategy == SimilarMatchStrategy.MINHASH) {
+            List<Suggestion> exactSuggestions =
+                findExactMatchingOntologies(entity, indexPath, config, maxNumSuggestions);
+            markAsExactMatches(exactSuggestions);
+            Map<Suggestion, Double> highestScores = new HashMap<>();
+            keepHighestScores(highestScores, exactSuggestions);
+            keepHighestScores(highestScores, findSimilarMatchingOntologies(entity, indexPath, config));
+            return toSortedSuggestions(highestScores);
+        }
+
+        List<List<SearchQueryItem>> searchQueryItemsPerTemplate = extractSearchQueryItems(entity, config);
+        Map<Suggestion, Double> highestScores = new HashMap<>();
+        for (List<SearchQueryItem> searchQueryItems : searchQueryItemsPerTemplate) {
+            List<Suggestion> suggestionsPerTemplate = exactLabelMatcher.findExactMatches(searchQueryItems, indexPath);
+            calculateScores(suggestionsPerTemplate, searchQueryItems);
+            markAsExactMatches(suggestionsPerTemplate);
+            keepHighestScores(highestScores, suggestionsPerTemplate);
+        }
+        if (highestScores.size() >= maxNumSuggestions) {
+            logger.debug("{} exact matches found without querying the index", highestScores.size());
+            return toSortedSuggestions(highestScores);
+        }
+
+        BooleanQuery.Builder exactQueryBuilder = new BooleanQuery.Builder();
+        BooleanQuery.Builder similarQueryBuilder = new BooleanQuery.Builder();
+        for (List<SearchQueryItem> searchQueryItems : searchQueryItemsPerTemplate) {
+            exactQueryBuilder.add(
+                queryBuilder.buildExactMatchOntologiesQuery(searchQueryItems), BooleanClause.Occur.SHOULD);
+            similarQueryBuilder.add(
+                queryBuilder.buildSimilarMatchOntologiesQuery(searchQueryItems, strategy), BooleanClause.Occur.SHOULD);
+        }
+        // Trigram queries already have the terms as they are in the index
+        List<Suggestion> candidates = queryProcessor.executeCombinedQuery(
+            exactQueryBuilder.build(), similarQueryBuilder.build(), strategy != SimilarMatchStrategy.TRIGRAM,
+            config.getConfigurationByEntityType(entity.getType()).isVocabularyCorrection(), maxNumSuggestions,
+            indexPath);
+        keepHighestScores(
+            highestScores, scoreAgainstAllTemplates(candidates, searchQueryItemsPerTemplate, maxNumSuggestions));
+        return toSortedSuggestions(highestScores);
+    }
+
+    /**
+     * Tells whether the configuration of the entity type asks for the exact and the similar searches to be run with
+     * {@link #findMatchingOntologies}.
+     *
+     * @param entity The source entity to search.
+     * @param config The configuration object.
+     * @return {@code true} if the combined search is configured for the type of the entity.
+     */
+    boolean isCombinedSearch(SourceEntity entity, MappingConfiguration config) {
+        return config.getConfigurationByEntityType(entity.getType()).isCombinedOntologySearch();
+    }
+
+    private void markAsExactMatches(List<Suggestion> suggestions) {
+        for (Suggestion suggestion : suggestions) {
+            suggestion.getScoringDetails().setExactMatch(true);
+        }
+    }
+
+    private boolean isSinglePassTemplateSearch(SourceEntity entity, MappingConfiguration config) {
+        return config.getConfigurationByEntityType(entity.getType()).isSinglePassTemplateSearch();
+    }
+
+    /**
+     * Builds the search query items of each of the ontology templates configured for the type of the entity.
+     *
+     * @param entity The source entity to use for the query.
+     * @param config The configuration object providing the templates and weights to use.
+     * @return A list with the search query items per template, in the order the templates are configured.
+     */
+    private List<List<SearchQueryItem>> extractSearchQueryItems(SourceEntity entity, MappingConfiguration config) {
+        List<List<SearchQueryItem>> searchQueryItemsPerTemplate = new ArrayList<>();
 
         // Fields and weights to use according to the entity type
         MappingConfiguration.ConfigurationPerType confByType = config.getConfigurationByEntityType(entity.getType());
@@ -97,69 +292,190 @@ class OntologiesSearcher {
         // All the templates that were configured to use in ontology search
         List<String> ontologyTemplatesAsText = confByType.getOntologyTemplates();
 
-        // Each template should bring some suggestions. We use all of them
         for (String ontologyTemplateAsText : ontologyTemplatesAsText) {
             QueryTemplate queryTemplate = new QueryTemplate(ontologyTemplateAsText);
 
             // Builds the query terms for that template
-            List<SearchQueryItem> searchQueryItems = templateQueryProcessor.extractSearchQueryItems(
-                queryTemplate, entity, confByType.getWeightsMap());
-
-            // We get the suggestions for the specific template
-            List<Suggestion> suggestionsPerTemplate = processSearchItems(searchQueryItems, indexPath, exactMatch);
-
-            // Keep the highest scoring suggestions
-            for (Suggestion suggestion : suggestionsPerTemplate) {
-                if (highestScores.containsKey(suggestion)) {
-                    double existingScore = highestScores.get(suggestion);
-                    if (existingScore < suggestion.getScore()) {
-                        highestScores.put(suggestion, suggestion.getScore());
-                    }
-                } else {
+            searchQueryItemsPerTemplate.add(templateQueryProcessor.extractSearchQueryItems(
+                queryTemplate, entity, confByType.getWeightsMap()));
+        }
+        return searchQueryItemsPerTemplate;
+    }
+
+    // Keep the highest scoring suggestions
+    private void keepHighestScores(Map<Suggestion, Double> highestScores, List<Suggestion> suggestions) {
+        for (Suggestion suggestion : suggestions) {
+            if (highestScores.containsKey(suggestion)) {
+                double existingScore = highestScores.get(suggestion);
+                if (existingScore < suggestion.getScore()) {
                     highestScores.put(suggestion, suggestion.getScore());
                 }
+            } else {
+                highestScores.put(suggestion, suggestion.getScore());
             }
         }
+    }
+
+    private List<Suggestion> toSortedSuggestions(Map<Suggestion, Double> highestScores) {
         // Update the scores with the highest values
         highestScores.keySet().forEach(suggestion -> suggestion.setScore(highestScores.get(suggestion)));
-        suggestions = new ArrayList<>(highestScores.keySet());
-        suggestions = SuggestionsSorter.sortSuggestionsByScoreDesc(suggestions);
-        return suggestions;
+        List<Suggestion> suggestions = new ArrayList<>(highestScores.keySet());
+        return SuggestionsSorter.sortSuggestionsByScoreDesc(suggestions);
     }
 
     /**
      * Searches for ontology suggestions using a given list of search terms, and calculates the scores.
      *
-     * @param searchQueryItems List of {@link SearchQueryItem} to use in the query.
-     * @param indexPath        The path to the Lucene index to search in.
-     * @param exactMatch       If the score is being calculated for a search that is exact or similar.
+     * @param searchQueryItems  List of {@link SearchQueryItem} to use in the query.
+     * @param indexPath         The path to the Lucene index to search in.
+     * @param exactMatch        If the score is being calculated for a search that is exact or similar.
+     * @param strategy          How the words are searched in a similar search. Not used in exact searches.
+     * @param rankByFinalScore  If the results of the query are the ones with the best final score instead of the ones
+     *                          with the best Lucene score.
+     * @param correctVocabulary If the fuzzy queries of a similar search are run as the index terms they match.
      * @return A list of ontology suggestions with calculated scores.
      * @throws MappingException if an error occurs during the search
      */
     private List<Suggestion> processSearchItems(
-        List<SearchQueryItem> searchQueryItems, String indexPath, boolean exactMatch) throws MappingException {
+        List<SearchQueryItem> searchQueryItems, String indexPath, boolean exactMatch, SimilarMatchStrategy strategy,
+        boolean rankByFinalScore, boolean correctVocabulary) throws MappingException {
 
         List<Suggestion> suggestions;
         Query query;
 
+        // MinHash candidates are found in memory, without a query
+        if (!exactMatch && strategy == SimilarMatchStrategy.MINHASH) {
+            suggestions = minHashMatcher.findSimilarOntologies(searchQueryItems, indexPath);
+            calculateScores(suggestions, searchQueryItems);
+            return suggestions;
+        }
+
         if (exactMatch) {
             query = queryBuilder.buildExactMatchOntologiesQuery(searchQueryItems);
         }
 
        else {
-            query = queryBuilder.buildSimilarMatchOntologiesQuery(searchQueryItems);
+            query = queryBuilder.buildSimilarMatchOntologiesQuery(searchQueryItems, strategy);
+        }
+
+        // Trigram queries already have the terms as they are in the index
+        boolean isTrigramQuery = !exactMatch && strategy == SimilarMatchStrategy.TRIGRAM;
+        if (rankByFinalScore) {
+            suggestions = queryProcessor.executeQueryRankedByScore(
+                query, List.of(searchQueryItems), !isTrigramQuery, correctVocabulary, indexPath);
+        } else if (isTrigramQuery) {
+            suggestions = queryProcessor.executeQueryAsIs(query, indexPath);
+        } else {
+            suggestions = queryProcessor.executeQuery(query, indexPath, correctVocabulary);
+        }
+        calculateScores(suggestions, searchQueryItems);
+
+        return suggestions;
+    }
+
+    /**
+     * Searches for ontology suggestions with a single query that combines the queries of all the templates, and
+     * scores each suggestion against every template, keeping the best score. Suggestions are scored in the order
+     * Lucene ranks them, and the scoring stops once {@code maxNumSuggestions} of them have the maximum score.
+     *
+     * @param searchQueryItemsPerTemplate The {@link SearchQueryItem} of each template.
+     * @param indexPath                   The path to the Lucene index to search in.
+     * @param exactMatch                  If the search is exact or similar.
+     * @param strategy                    How the words are searched in a similar search. Not used in exact searches.
+     * @param rankByFinalScore            If the results of the query are the ones with the best final score against
+     *                                    any template instead of the ones with the best Lucene score.
+     * @param correctVocabulary           If the fuzzy queries of a similar search are run as the index terms they
+     *                                    match.
+     * @param maxNumSuggestions           The number of suggestions with the maximum score that stops the scoring.
+     * @return A list of ontology suggestions with calculated scores, with the scoring details of their best template.
+     * @throws MappingException if an error occurs during the search
+     */
+    private List<Suggestion> processAllTemplates(
+        List<List<SearchQueryItem>> searchQueryItemsPerTemplate, String indexPath, boolean exactMatch,
+        SimilarMatchStrategy strategy, boolean rankByFinalScore, boolean correctVocabulary, int maxNumSuggestions)
+        throws MappingException {
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (List<SearchQueryItem> searchQueryItems : searchQueryItemsPerTemplate) {
+            Query templateQuery = exactMatch
+                ? queryBuilder.buildExactMatchOntologiesQuery(searchQueryItems)
+                : queryBuilder.buildSimilarMatchOntologiesQuery(searchQueryItems, strategy);
+            builder.add(templateQuery, BooleanClause.Occur.SHOULD);
         }
+        Query query = builder.build();
 
-        suggestions = queryProcessor.executeQuery(query, indexPath);
-        // Calculate the score for each suggestion
+        // Trigram queries already have the terms as they are in the index
+        boolean isTrigramQuery = !exactMatch && strategy == SimilarMatchStrategy.TRIGRAM;
+        List<Suggestion> candidates;
+        if (rankByFinalScore) {
+            candidates = queryProcessor.executeQueryRankedByScore(
+                query, searchQueryItemsPerTemplate, !isTrigramQuery, correctVocabulary, indexPath);
+        } else if (isTrigramQuery) {
+            candidates = queryProcessor.executeQueryAsIs(query, indexPath);
+        } else {
+            candidates = queryProcessor.executeQuery(query, indexPath, correctVocabulary);
+        }
+
+        return scoreAgainstAllTemplates(candidates, searchQueryItemsPerTemplate, maxNumSuggestions);
+    }
+
+    /**
+     * Scores each candidate against every template, keeping the best score and the scoring details of the template
+     * that gave it. Candidates tagged as exact matches keep the tag. Candidates are scored in the order they are given,
+     * and the scoring stops once {@code maxNumSuggestions} of them have the maximum score.
+     *
+     * @param candidates                  The suggestions found by a query, with no score calculated.
+     * @param searchQueryItemsPerTemplate The {@link SearchQueryItem} of each template.
+     * @param maxNumSuggestions           The number of suggestions with the maximum score that stops the scoring.
+     * @return The scored candidates.
+     */
+    private List<Suggestion> scoreAgainstAllTemplates(
+        List<Suggestion> candidates, List<List<SearchQueryItem>> searchQueryItemsPerTemplate, int maxNumSuggestions) {
+        List<Suggestion> suggestions = new ArrayList<>();
+        int numPerfectSuggestions = 0;
+        for (Suggestion candidate : candidates) {
+            if (numPerfectSuggestions >= maxNumSuggestions) {
+                logger.debug("Scoring stopped after {} of {} candidates", suggestions.size(), candidates.size());
+                break;
+            }
+            boolean exactMatch = candidate.getScoringDetails() != null && candidate.getScoringDetails().isExactMatch();
+            ScoringDetails bestScoringDetails = null;
+            double bestScore = -1;
+            for (List<SearchQueryItem> searchQueryItems : searchQueryItemsPerTemplate) {
+                ScoringDetails scoringDetails = new ScoringDetails();
+                scoringDetails.setExactMatch(exactMatch);
+                scoringDetails.setSearchQueryItems(searchQueryItems);
+                candidate.setScoringDetails(scoringDetails);
+                // A template that cannot beat the best one does not need an exact score
+                double score = suggestionScoreCalculator.computeScoreOntology(
+                    candidate, Math.max(MINIMUM_ACCEPTABLE_SCORE, bestScore));
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestScoringDetails = scoringDetails;
+                }
+                // No other template can improve the score
+                if (score >= MAX_SCORE) {
+                    break;
+                }
+            }
+            candidate.setScoringDetails(bestScoringDetails);
+            candidate.setScore(bestScore);
+            suggestions.add(candidate);
+            if (bestScore >= MAX_SCORE) {
+                numPerfectSuggestions++;
+            }
+        }
+        return suggestions;
+    }
+
+    // Calculate the score for each suggestion
+    private void calculateScores(List<Suggestion> suggestions, List<SearchQueryItem> searchQueryItems) {
         for (Suggestion suggestion : suggestions) {
             ScoringDetails scoringDetails = new ScoringDetails();
             scoringDetails.setSearchQueryItems(searchQueryItems);
             suggestion.setScoringDetails(scoringDetails);
-            double score = suggestionScoreCalculator.computeScoreOntology(suggestion);
+            double score = suggestionScoreCalculator.computeScoreOntology(suggestion, MINIMUM_ACCEPTABLE_SCORE);
             suggestion.setScore(score);
         }
-
-        return suggestions;
     }
 }
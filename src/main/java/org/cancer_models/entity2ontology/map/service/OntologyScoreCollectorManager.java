@@ -0,0 +1,114 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+import java.util.*;
+
+/**
+ * Collects the ontology terms a query matches keeping the ones with the highest final score (the percentage
+ * {@link DefaultSuggestionScoreCalculator#computeScoreOntology} calculates), instead of the ones with the highest
+ * Lucene relevance.
+ *
+ * <p>Each matching document is scored from an {@link OntologyWordsTable} as it is collected, and only the best
+ * {@code maxResults} are kept in a bounded heap. Lucene scores are not needed, so they are not calculated. With a
+ * searcher that searches slices concurrently, each slice has its own collector and their results are merged.
+ */
+final class OntologyScoreCollectorManager
+    implements CollectorManager<OntologyScoreCollectorManager.ScoreCollector, List<OntologyScoreCollectorManager.ScoredDoc>> {
+
+    /**
+     * A document with its final score.
+     *
+     * @param docId the id of the document
+     * @param score the final score of the document (percentage)
+     */
+    record ScoredDoc(int docId, double score) {
+    }
+
+    // The worst document first: lowest score and, among equal scores, the last one in the index
+    private static final Comparator<ScoredDoc> WORST_FIRST =
+        Comparator.comparingDouble(ScoredDoc::score).thenComparing(ScoredDoc::docId, Comparator.reverseOrder());
+
+    private final OntologyWordsTable table;
+    private final List<DefaultSuggestionScoreCalculator.OntologyQueryWords> queryWordsPerTemplate;
+    private final int maxResults;
+
+    /**
+     * Creates a manager.
+     *
+     * @param table                 the words of the ontology terms of the index being searched
+     * @param queryWordsPerTemplate the words of the search query items of each template. A term gets its best score
+     * @param maxResults            the maximum number of documents to return
+     */
+    OntologyScoreCollectorManager(
+        OntologyWordsTable table,
+        List<DefaultSuggestionScoreCalculator.OntologyQueryWords> queryWordsPerTemplate,
+        int maxResults) {
+        if (maxResults <= 0) {
+            throw new IllegalArgumentException("maxResults must be greater than zero");
+        }
+        this.table = table;
+        this.queryWordsPerTemplate = queryWordsPerTemplate;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public ScoreCollector newCollector() {
+        return new ScoreCollector();
+    }
+
+    /**
+     * Merges the documents kept by each collector.
+     *
+     * @param collectors the collectors of the slices
+     * @return the best documents, sorted by score (descending) and then by document id
+     */
+    @Override
+    public List<ScoredDoc> reduce(Collection<ScoreCollector> collectors) {
+        List<ScoredDoc> scoredDocs = new ArrayList<>();
+        for (ScoreCollector collector : collectors) {
+            scoredDocs.addAll(collector.best);
+        }
+        scoredDocs.sort(WORST_FIRST.reversed());
+        return scoredDocs.size() > maxResults ? scoredDocs.subList(0, maxResults) : scoredDocs;
+    }
+
+    /**
+     * Scores the documents of a slice, keeping the best ones.
+     */
+    final class ScoreCollector extends SimpleCollector {
+
+        private final PriorityQueue<ScoredDoc> best = new PriorityQueue<>(maxResults + 1, WORST_FIRST);
+        private int docBase;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) {
+            docBase = context.docBase;
+        }
+
+        @Override
+        public void collect(int doc) {
+            int docId = docBase + doc;
+            double score = table.score(docId, queryWordsPerTemplate);
+            if (score < 0) {
+                return;
+            }
+            // Documents are visited in order, so one with the same score as the worst kept one would rank after it
+            if (best.size() == maxResults && score <= best.peek().score()) {
+                return;
+            }
+            best.add(new ScoredDoc(docId, score));
+            if (best.size() > maxResults) {
+                best.poll();
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+}
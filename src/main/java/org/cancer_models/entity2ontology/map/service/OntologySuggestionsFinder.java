@@ -19,7 +19,7 @@ import java.util.List;
 public class OntologySuggestionsFinder implements SuggestionsFinder {
 
     private final OntologiesSearcher ontologiesSearcher;
-    private static final double MINIMUM_ACCEPTABLE_SCORE = 50;
+    private static final double MINIMUM_ACCEPTABLE_SCORE = OntologiesSearcher.MINIMUM_ACCEPTABLE_SCORE;
 
     OntologySuggestionsFinder(OntologiesSearcher ontologiesSearcher) {
         this.ontologiesSearcher = ontologiesSearcher;
@@ -44,19 +44,32 @@ public class OntologySuggestionsFinder implements SuggestionsFinder {
 
         List<Suggestion> suggestions = new ArrayList<>();
 
+        // Exact and similar matches in ontologies found with a single query
+        if (ontologiesSearcher.isCombinedSearch(entity, config)) {
+            SuggestionCollector.addExactThenSimilarUntilLimitReached(
+                suggestions,
+                ontologiesSearcher.findMatchingOntologies(entity, indexPath, config, maxNumSuggestions),
+                maxNumSuggestions,
+                MINIMUM_ACCEPTABLE_SCORE);
+            return SuggestionsSorter.sortSuggestionsByScoreDesc(suggestions);
+        }
+
         // Check if there are enough exact matches in ontologies
         boolean done = SuggestionCollector.addSuggestionsUntilLimitReached(
             suggestions,
-            ontologiesSearcher.findExactMatchingOntologies(entity, indexPath, config),
+            ontologiesSearcher.findExactMatchingOntologies(entity, indexPath, config, maxNumSuggestions),
             maxNumSuggestions,
             MINIMUM_ACCEPTABLE_SCORE);
 
+        // No more stages are started once the time budget of the entity runs out
+        done = done || MappingDeadline.hasExpired();
 
         // Check if there are enough similar matches in ontologies
         if (!done) {
             SuggestionCollector.addSuggestionsUntilLimitReached(
                 suggestions,
-                ontologiesSearcher.findSimilarMatchingOntologies(entity, indexPath, config),
+                ontologiesSearcher.findSimilarMatchingOntologies(
+                    entity, indexPath, config, maxNumSuggestions - suggestions.size()),
                 maxNumSuggestions,
                 MINIMUM_ACCEPTABLE_SCORE);
         }
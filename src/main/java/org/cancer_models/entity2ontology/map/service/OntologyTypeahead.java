@@ -0,0 +1,63 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.map.model.TypeaheadSuggestion;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Suggests ontology terms for a text while it is being typed, for instance in a curation interface.
+ *
+ * <p>Unlike {@link MappingService#mapEntity}, which runs several searches and scores their results, a suggestion is a
+ * single lookup in an in-memory {@link TypeaheadIndex} built from the labels and synonyms of the ontology terms of the
+ * index. The table is built the first time an index is used, and kept while the reader of the index is open.
+ */
+@Component
+public class OntologyTypeahead {
+
+    private final Searcher searcher;
+    private final ReaderScopedCache<TypeaheadIndex> typeaheadIndexes;
+
+    public OntologyTypeahead(Searcher searcher) {
+        this.searcher = searcher;
+        this.typeaheadIndexes = new ReaderScopedCache<>("typeahead suggesters", TypeaheadIndex::build);
+    }
+
+    /**
+     * Finds the ontology terms with a label or a synonym containing words that start as the typed ones. Terms
+     * matching by their label rank before terms matching by a synonym, and texts starting with the typed words rank
+     * before texts containing them.
+     *
+     * @param text              the text typed so far
+     * @param indexPath         the path of the index to search in
+     * @param maxNumSuggestions the maximum number of terms to return
+     * @param fuzzy             whether to tolerate one typo (not in the first character)
+     * @return the terms, the best first. Empty if the text is blank or no term matches it
+     * @throws MappingException if the index cannot be read
+     */
+    public List<TypeaheadSuggestion> suggest(String text, String indexPath, int maxNumSuggestions, boolean fuzzy)
+        throws MappingException {
+        Objects.requireNonNull(text, "text cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+        if (maxNumSuggestions <= 0) {
+            throw new IllegalArgumentException("maxNumSuggestions must be greater than zero");
+        }
+        if (text.isBlank()) {
+            return List.of();
+        }
+        try {
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                return typeaheadIndexes.get(indexSearcher).lookUp(text, maxNumSuggestions, fuzzy);
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (IOException e) {
+            throw new MappingException(e);
+        }
+    }
+}
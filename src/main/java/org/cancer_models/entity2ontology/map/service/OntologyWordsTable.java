@@ -0,0 +1,95 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.cancer_models.entity2ontology.common.model.OntologyEntityDataFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The labels and synonyms of the ontology terms in an index, split into words with
+ * {@link DefaultSuggestionScoreCalculator#textToList(String)}, so the final score of a term can be calculated from
+ * its document id without reading its stored fields.
+ *
+ * <p>Tables are kept in a {@link ReaderScopedCache}, so document ids are valid for the searcher the table is
+ * requested with.
+ */
+final class OntologyWordsTable {
+
+    private static final String ONTOLOGY_PREFIX = TargetEntityType.ONTOLOGY.getValue() + ".";
+    private static final String LABEL_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.LABEL.getValue();
+    private static final String SYNONYMS_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.SYNONYMS.getValue();
+
+    // Words of the label and of each synonym, by document id. Null for documents that are not ontology terms
+    private final List<String>[] labelWords;
+    private final List<List<String>>[] synonymsWords;
+
+    private OntologyWordsTable(List<String>[] labelWords, List<List<String>>[] synonymsWords) {
+        this.labelWords = labelWords;
+        this.synonymsWords = synonymsWords;
+    }
+
+    /**
+     * Builds the table with the labels and synonyms of all the ontology documents read by {@code indexSearcher}.
+     *
+     * @param indexSearcher the searcher whose documents are loaded
+     * @return the table
+     * @throws IOException if the index cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    static OntologyWordsTable build(IndexSearcher indexSearcher) throws IOException {
+        int maxDoc = indexSearcher.getIndexReader().maxDoc();
+        List<String>[] labelWords = new List[maxDoc];
+        List<List<String>>[] synonymsWords = new List[maxDoc];
+
+        TermQuery ontologiesQuery = new TermQuery(
+            new Term(TargetEntityFieldName.TARGET_TYPE.getValue(), TargetEntityType.ONTOLOGY.getValue()));
+        StoredFields storedFields = indexSearcher.storedFields();
+        Set<String> fieldsToLoad = Set.of(LABEL_FIELD, SYNONYMS_FIELD);
+        for (int docId : Searcher.collectDocIds(ontologiesQuery, indexSearcher)) {
+            Document document = storedFields.document(docId, fieldsToLoad);
+            String label = document.get(LABEL_FIELD);
+            if (label == null || label.isEmpty()) {
+                continue;
+            }
+            labelWords[docId] = DefaultSuggestionScoreCalculator.textToList(label);
+            List<List<String>> words = new ArrayList<>();
+            for (String synonym : document.getValues(SYNONYMS_FIELD)) {
+                if (!synonym.isEmpty()) {
+                    words.add(DefaultSuggestionScoreCalculator.textToList(synonym));
+                }
+            }
+            synonymsWords[docId] = words;
+        }
+        return new OntologyWordsTable(labelWords, synonymsWords);
+    }
+
+    /**
+     * Calculates the highest score of an ontology term against several templates, as
+     * {@link DefaultSuggestionScoreCalculator#computeScoreOntology} would.
+     *
+     * @param docId                 the id of the document of the term
+     * @param queryWordsPerTemplate the words of the search query items of each template
+     * @return the highest score, or -1 if the document is not an ontology term with a label
+     */
+    double score(int docId, List<DefaultSuggestionScoreCalculator.OntologyQueryWords> queryWordsPerTemplate) {
+        List<String> label = labelWords[docId];
+        if (label == null) {
+            return -1;
+        }
+        double highestScore = 0;
+        for (DefaultSuggestionScoreCalculator.OntologyQueryWords queryWords : queryWordsPerTemplate) {
+            highestScore = Math.max(highestScore,
+                DefaultSuggestionScoreCalculator.computeScoreOntologyWords(queryWords, label, synonymsWords[docId]));
+        }
+        return highestScore;
+    }
+}
@@ -3,15 +3,20 @@ package org.cancer_models.entity2ontology.map.service;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.QueryParserBase;
 import org.apache.lucene.search.*;
+import org.cancer_models.entity2ontology.common.mappers.TargetEntityDocumentMapper;
 import org.cancer_models.entity2ontology.common.model.OntologyEntityDataFieldName;
 import org.cancer_models.entity2ontology.common.model.TargetEntityType;
 import org.cancer_models.entity2ontology.common.utils.MapUtils;
+import org.cancer_models.entity2ontology.common.utils.TrigramUtils;
 import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
 import org.cancer_models.entity2ontology.map.model.SearchQueryItem;
+import org.cancer_models.entity2ontology.map.model.SimilarMatchStrategy;
 import org.cancer_models.entity2ontology.map.model.SourceEntity;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The QueryBuilder class is responsible for constructing various Lucene {@link Query} objects
@@ -32,10 +37,10 @@ class QueryBuilder {
     private static final String ONTOLOGY_PREFIX =TargetEntityType.ONTOLOGY.getValue() + ".";
 
     // Factor to control how much important a label match is respect to a synonym match
-    private static final int LABEL_MULTIPLIER = 20;
+    static final int LABEL_MULTIPLIER = 20;
 
     // Factor to represent importance of synonym match. As it is 1, it is a neutral value, but kept for consistency
-    private static final int SYNONYM_MULTIPLIER = 1;
+    static final int SYNONYM_MULTIPLIER = 1;
 
     /**
      * Builds a Lucene {@link Query} for an exact match in already existing rules.
@@ -86,13 +91,16 @@ class QueryBuilder {
 
         // With maxEdits as zero, each word in the sentence must match exactly
         int maxEdits = 1;
+        boolean useTrigrams = configuration.getSimilarMatchStrategy() == SimilarMatchStrategy.TRIGRAM;
 
         for (MappingConfiguration.FieldConfiguration field : configuration.getFields()) {
             String fieldName = field.getName();
             String text = MapUtils.getValueOrThrow(entity.getData(), fieldName, "source entity data");
 
 
-            Query query = buildPhraseQuery(RULE_PREFIX + fieldName, text, maxEdits, BooleanClause.Occur.SHOULD);
+            Query query = useTrigrams
+                ? buildTrigramPhraseQuery(RULE_PREFIX + fieldName, text)
+                : buildPhraseQuery(RULE_PREFIX + fieldName, text, maxEdits, BooleanClause.Occur.SHOULD);
             // The match must occur in all fields
             builder.add(query, BooleanClause.Occur.SHOULD);
         }
@@ -161,11 +169,28 @@ class QueryBuilder {
      * @throws IllegalArgumentException if {@code searchQueryItems} is null or empty.
      */
     public Query buildSimilarMatchOntologiesQuery(List<SearchQueryItem> searchQueryItems) {
+        return buildSimilarMatchOntologiesQuery(searchQueryItems, SimilarMatchStrategy.FUZZY);
+    }
+
+    /**
+     * Builds a Lucene query that performs a similar match search on ontology labels and synonyms, like
+     * {@link #buildSimilarMatchOntologiesQuery(List)}, searching the words with the given strategy.
+     *
+     * <p>Queries built with {@link SimilarMatchStrategy#TRIGRAM} search for terms exactly as they are in the index,
+     * so they must be executed without parsing them again.
+     *
+     * @param searchQueryItems the list of {@link SearchQueryItem} objects, each containing a field, value, and weight.
+     * @param strategy         how the words of the items are searched
+     * @return a {@link Query} object combining the label and synonym similar matches.
+     */
+    public Query buildSimilarMatchOntologiesQuery(
+        List<SearchQueryItem> searchQueryItems, SimilarMatchStrategy strategy) {
         BooleanQuery.Builder labelQueryBuilder = new BooleanQuery.Builder();
         BooleanQuery.Builder synonymsQueryBuilder = new BooleanQuery.Builder();
         BooleanQuery.Builder booleanQueryBuilder = new BooleanQuery.Builder();
 
         int maxEdits = 1;
+        boolean useTrigrams = strategy == SimilarMatchStrategy.TRIGRAM;
 
         String labelFieldName = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.LABEL.getValue();
         String synonymsFieldName = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.SYNONYMS.getValue();
@@ -173,8 +198,16 @@ class QueryBuilder {
         for (SearchQueryItem searchQueryItem : searchQueryItems) {
 
             String value = searchQueryItem.getValue();
-            value = QueryParserBase.escape(value);
             float weight = (float) searchQueryItem.getWeight();
+            if (useTrigrams) {
+                Query labelTrigramsQuery = buildTrigramPhraseQuery(labelFieldName, value);
+                labelQueryBuilder.add(
+                    new BoostQuery(labelTrigramsQuery, weight * LABEL_MULTIPLIER), BooleanClause.Occur.SHOULD);
+                Query synonymsTrigramsQuery = buildTrigramPhraseQuery(synonymsFieldName, value);
+                synonymsQueryBuilder.add(new BoostQuery(synonymsTrigramsQuery, weight), BooleanClause.Occur.SHOULD);
+                continue;
+            }
+            value = QueryParserBase.escape(value);
 
             // The presence of the term in the label is optional
             Query labelPhraseQuery = buildPhraseQuery(labelFieldName, value, maxEdits, BooleanClause.Occur.SHOULD);
@@ -204,4 +237,25 @@ class QueryBuilder {
         return builder.build();
     }
 
+    /**
+     * Builds a query that finds the documents with words similar to the ones in {@code phrase} in the trigram field
+     * of {@code field}. A word matches if the field has all its trigrams but those one edit can change, which is a
+     * cheap approximation of a fuzzy query with one edit.
+     */
+    private Query buildTrigramPhraseQuery(String field, String phrase) {
+        String trigramField = TargetEntityDocumentMapper.getTrigramFieldName(field);
+        Set<String> words = new LinkedHashSet<>(TrigramUtils.extractWords(phrase));
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String word : words) {
+            Set<String> trigrams = TrigramUtils.extractWordTrigrams(word);
+            BooleanQuery.Builder wordBuilder = new BooleanQuery.Builder();
+            for (String trigram : trigrams) {
+                wordBuilder.add(new TermQuery(new Term(trigramField, trigram)), BooleanClause.Occur.SHOULD);
+            }
+            wordBuilder.setMinimumNumberShouldMatch(
+                Math.max(1, trigrams.size() - TrigramUtils.TRIGRAMS_CHANGED_PER_EDIT));
+            builder.add(wordBuilder.build(), BooleanClause.Occur.SHOULD);
+        }
+        return builder.build();
+    }
 }
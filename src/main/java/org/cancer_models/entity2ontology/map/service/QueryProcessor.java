@@ -8,6 +8,8 @@ import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.cancer_models.entity2ontology.common.mappers.TargetEntityDocumentMapper;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.map.model.ScoringDetails;
+import org.cancer_models.entity2ontology.map.model.SearchQueryItem;
 import org.cancer_models.entity2ontology.map.model.Suggestion;
 import org.cancer_models.entity2ontology.common.model.TargetEntity;
 import org.springframework.stereotype.Component;
@@ -21,11 +23,16 @@ import java.util.*;
 @Component
 class QueryProcessor {
 
+    // Maximum number of results of a query ranked by final score, as many as a Lucene query returns
+    private static final int MAX_RANKED_RESULTS = 50;
+
     private final Searcher searcher;
+    private final ReaderScopedCache<OntologyWordsTable> ontologyWordsTables;
 
 
     public QueryProcessor(Searcher searcher) {
         this.searcher = searcher;
+        this.ontologyWordsTables = new ReaderScopedCache<>("ontology words table", OntologyWordsTable::build);
     }
 
     /**
@@ -37,13 +44,146 @@ class QueryProcessor {
      * @throws MappingException If an error occurs while searching the index.
      */
     public List<Suggestion> executeQuery(Query query, String indexPath) throws MappingException {
+        return execute(query, indexPath, true, false);
+    }
+
+    /**
+     * Executes a Lucene query on the specified index and returns the matching suggestions, optionally replacing its
+     * fuzzy queries by the index terms they match (see {@link VocabularyCorrector}).
+     *
+     * @param query             The Lucene query to execute.
+     * @param indexPath         The path to the Lucene index.
+     * @param correctVocabulary Whether the fuzzy queries are corrected.
+     * @return A list of suggestions based on the query results.
+     * @throws MappingException If an error occurs while searching the index.
+     */
+    public List<Suggestion> executeQuery(Query query, String indexPath, boolean correctVocabulary)
+        throws MappingException {
+        return execute(query, indexPath, true, correctVocabulary);
+    }
+
+    /**
+     * Executes a Lucene query on the specified index as it is, without parsing it again with the analyser, and
+     * returns the matching suggestions. Meant for queries on fields whose terms are not analysed, like trigrams.
+     *
+     * @param query     The Lucene query to execute.
+     * @param indexPath The path to the Lucene index.
+     * @return A list of suggestions based on the query results.
+     * @throws MappingException If an error occurs while searching the index.
+     */
+    public List<Suggestion> executeQueryAsIs(Query query, String indexPath) throws MappingException {
+        return execute(query, indexPath, false, false);
+    }
+
+    /**
+     * Executes an exact and a similar query as a single one on the specified index, and returns the matching
+     * suggestions tagged with the query that found them: the scoring details of the suggestions the exact query
+     * matches have {@code exactMatch} set.
+     *
+     * @param exactQuery        The exact query.
+     * @param similarQuery      The similar query.
+     * @param parseSimilarQuery Whether the similar query is parsed again, or executed as it is (trigram queries).
+     * @param correctVocabulary Whether the fuzzy queries of a parsed similar query are corrected.
+     * @param minExactMatches   The number of exact matches below which the exact query is also run on its own (see
+     *                          {@link Searcher#searchCombined}).
+     * @param indexPath         The path to the Lucene index.
+     * @return A list of suggestions based on the query results.
+     * @throws MappingException If an error occurs while searching the index.
+     */
+    public List<Suggestion> executeCombinedQuery(
+        Query exactQuery, Query similarQuery, boolean parseSimilarQuery, boolean correctVocabulary,
+        int minExactMatches, String indexPath) throws MappingException {
+        Objects.requireNonNull(exactQuery, "exactQuery cannot be null");
+        Objects.requireNonNull(similarQuery, "similarQuery cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+
+        List<Suggestion> suggestions = new ArrayList<>();
+        try {
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                Searcher.CombinedTopDocs combinedTopDocs =
+                    searcher.searchCombined(
+                        exactQuery, similarQuery, parseSimilarQuery, correctVocabulary, minExactMatches,
+                        indexSearcher);
+                StoredFields storedFields = indexSearcher.storedFields();
+                for (ScoreDoc scoreDoc : combinedTopDocs.topDocs().scoreDocs) {
+                    Suggestion suggestion = documentToSuggestion(storedFields.document(scoreDoc.doc), scoreDoc.score);
+                    ScoringDetails scoringDetails = new ScoringDetails();
+                    scoringDetails.setExactMatch(combinedTopDocs.exactMatches().contains(scoreDoc.doc));
+                    suggestion.setScoringDetails(scoringDetails);
+                    suggestions.add(suggestion);
+                }
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (Exception e) {
+            throw new MappingException(e);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Executes a Lucene query on ontology terms and returns the matching terms with the highest final score against
+     * any of the templates, instead of the ones with the highest Lucene score. The score is calculated for every
+     * matching term while the results are collected, from a table with the words of the labels and synonyms of the
+     * index that is built the first time the index is used.
+     *
+     * @param query                       The Lucene query to execute.
+     * @param searchQueryItemsPerTemplate The {@link SearchQueryItem} of each template the terms are scored against.
+     * @param parse                       Whether the query is parsed again, or executed as it is (trigram queries).
+     * @param correctVocabulary           Whether the fuzzy queries of a parsed query are corrected.
+     * @param indexPath                   The path to the Lucene index.
+     * @return A list of suggestions sorted by their final score (descending), which is also their 'rawScore'.
+     * @throws MappingException If an error occurs while searching the index.
+     */
+    public List<Suggestion> executeQueryRankedByScore(
+        Query query, List<List<SearchQueryItem>> searchQueryItemsPerTemplate, boolean parse,
+        boolean correctVocabulary, String indexPath) throws MappingException {
         Objects.requireNonNull(query, "query cannot be null");
         Objects.requireNonNull(indexPath, "indexPath cannot be null");
 
+        List<DefaultSuggestionScoreCalculator.OntologyQueryWords> queryWordsPerTemplate = searchQueryItemsPerTemplate
+            .stream()
+            .map(DefaultSuggestionScoreCalculator.OntologyQueryWords::of)
+            .toList();
         List<Suggestion> suggestions = new ArrayList<>();
         try {
-            TopDocs topDocs = searcher.search(query, indexPath);
-            suggestions = processQueryResponse(topDocs, searcher.getIndexSearcher(indexPath));
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                OntologyScoreCollectorManager collectorManager = new OntologyScoreCollectorManager(
+                    ontologyWordsTables.get(indexSearcher), queryWordsPerTemplate, MAX_RANKED_RESULTS);
+                List<OntologyScoreCollectorManager.ScoredDoc> scoredDocs =
+                    searcher.collect(query, parse, correctVocabulary, indexSearcher, collectorManager);
+                StoredFields storedFields = indexSearcher.storedFields();
+                for (OntologyScoreCollectorManager.ScoredDoc scoredDoc : scoredDocs) {
+                    suggestions.add(documentToSuggestion(storedFields.document(scoredDoc.docId()), scoredDoc.score()));
+                }
+            } finally {
+                searcher.release(indexSearcher);
+            }
+        } catch (Exception e) {
+            throw new MappingException(e);
+        }
+        return suggestions;
+    }
+
+    private List<Suggestion> execute(Query query, String indexPath, boolean parse, boolean correctVocabulary)
+        throws MappingException {
+        Objects.requireNonNull(query, "query cannot be null");
+        Objects.requireNonNull(indexPath, "indexPath cannot be null");
+
+        List<Suggestion> suggestions = new ArrayList<>();
+        try {
+            // The same searcher is used to search and to read the documents, even if the index is swapped meanwhile
+            IndexSearcher indexSearcher = searcher.acquire(indexPath);
+            try {
+                TopDocs topDocs = parse
+                    ? searcher.search(query, correctVocabulary, indexSearcher)
+                    : searcher.searchAsIs(query, indexSearcher);
+                suggestions = processQueryResponse(topDocs, indexSearcher);
+            } finally {
+                searcher.release(indexSearcher);
+            }
         } catch (Exception e) {
             throw new MappingException(e);
         }
@@ -64,13 +204,24 @@ class QueryProcessor {
         StoredFields storedFields = searcher.storedFields();
         for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
             Document doc = storedFields.document(scoreDoc.doc);
-            TargetEntity targetEntity = TargetEntityDocumentMapper.documentToTargetEntity(doc);
-            Suggestion suggestion = new Suggestion(targetEntity);
-            suggestion.setRawScore(scoreDoc.score);
-            suggestion.setTermLabel(targetEntity.label());
-            suggestion.setTermUrl(targetEntity.url());
-            suggestions.add(suggestion);
+            suggestions.add(documentToSuggestion(doc, scoreDoc.score));
         }
         return suggestions;
     }
+
+    /**
+     * Creates a {@code Suggestion} for the target entity stored in a document.
+     *
+     * @param doc      a document found in a search
+     * @param rawScore the score Lucene gave to the document
+     * @return a suggestion with the label and url of the target entity ('score' is not calculated)
+     */
+    static Suggestion documentToSuggestion(Document doc, double rawScore) {
+        TargetEntity targetEntity = TargetEntityDocumentMapper.documentToTargetEntity(doc);
+        Suggestion suggestion = new Suggestion(targetEntity);
+        suggestion.setRawScore(rawScore);
+        suggestion.setTermLabel(targetEntity.label());
+        suggestion.setTermUrl(targetEntity.url());
+        return suggestion;
+    }
 }
@@ -0,0 +1,93 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a value derived from the content of an index (for instance, an in-memory lookup table) for as long as the
+ * reader it was built from is open.
+ *
+ * <p>The value is built the first time it is requested for a reader and is dropped when that reader is closed, so
+ * when {@link Searcher} reopens an index that was switched to a new version, the value is built again from the new
+ * content. Document ids stored in the value are therefore always valid for the searcher it is requested with.
+ *
+ * @param <V> type of the cached value
+ */
+class ReaderScopedCache<V> {
+
+    private static final Logger logger = LogManager.getLogger(ReaderScopedCache.class);
+
+    /**
+     * Builds the value for the index read by a searcher.
+     *
+     * @param <V> type of the value
+     */
+    @FunctionalInterface
+    interface Loader<V> {
+        V load(IndexSearcher indexSearcher) throws IOException;
+    }
+
+    private final String name;
+    private final Loader<V> loader;
+    private final Map<IndexReader.CacheKey, V> values = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a cache.
+     *
+     * @param name   description of the cached values, used in the logs
+     * @param loader builds the value for an index
+     */
+    ReaderScopedCache(String name, Loader<V> loader) {
+        this.name = name;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns the value for the index read by {@code indexSearcher}, building it if needed.
+     *
+     * @param indexSearcher a searcher obtained with {@link Searcher#acquire(String)}, not released yet
+     * @return the value built from the reader of the searcher
+     * @throws IOException if the value cannot be built
+     */
+    V get(IndexSearcher indexSearcher) throws IOException {
+        IndexReader reader = indexSearcher.getIndexReader();
+        IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            // The reader cannot tell when it is closed, so the value cannot be kept
+            return loader.load(indexSearcher);
+        }
+        IndexReader.CacheKey key = cacheHelper.getKey();
+        V value = values.get(key);
+        if (value != null) {
+            return value;
+        }
+        synchronized (this) {
+            value = values.get(key);
+            if (value == null) {
+                long start = System.currentTimeMillis();
+                value = loader.load(indexSearcher);
+                values.put(key, value);
+                // The searcher holds a reference to the reader, so it cannot be closed before the listener is added
+                cacheHelper.addClosedListener(values::remove);
+                logger.info("Loaded {} for a reader with {} documents in {} ms",
+                    name, reader.numDocs(), System.currentTimeMillis() - start);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Returns the number of readers with a cached value.
+     *
+     * @return the number of cached values
+     */
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,123 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * An in-memory, column-oriented copy of the rules in an index, with the value of each field already split into the
+ * words {@link DefaultSuggestionScoreCalculator} compares, so every rule of an entity type can be scored without
+ * querying the index.
+ *
+ * <p>Rules are grouped by entity type. For each type, the table keeps the document ids and, per field, the words of
+ * the value of every rule in the same position (or {@code null} if the rule does not have the field). Document ids
+ * are only valid for the reader the table was built from, which is why tables are kept in a
+ * {@link ReaderScopedCache}.
+ */
+final class RuleSimilarityTable {
+
+    // Rule exclusive fields in a document have this prefix.
+    private static final String RULE_PREFIX = TargetEntityType.RULE.getValue() + ".";
+
+    /**
+     * The rules of an entity type.
+     *
+     * @param docIds       the document ids of the rules
+     * @param wordsByField per field, the words of the value of each rule, in the same order as {@code docIds}
+     */
+    record Rules(int[] docIds, Map<String, List<List<String>>> wordsByField) {
+
+        /**
+         * Returns the number of rules.
+         *
+         * @return the number of rules
+         */
+        int size() {
+            return docIds.length;
+        }
+
+        /**
+         * Returns the words of a field for each rule.
+         *
+         * @param fieldName the name of the field
+         * @return the words per rule (an element is {@code null} if the rule does not have the field), or
+         * {@code null} if no rule has the field
+         */
+        List<List<String>> words(String fieldName) {
+            return wordsByField.get(fieldName);
+        }
+    }
+
+    private static final Rules NO_RULES = new Rules(new int[0], Map.of());
+
+    private final Map<String, Rules> rulesByEntityType;
+
+    private RuleSimilarityTable(Map<String, Rules> rulesByEntityType) {
+        this.rulesByEntityType = rulesByEntityType;
+    }
+
+    /**
+     * Loads the entity type and the data of all the rule documents read by {@code indexSearcher}.
+     *
+     * @param indexSearcher the searcher whose documents are loaded
+     * @return the table
+     * @throws IOException if the index cannot be read
+     */
+    static RuleSimilarityTable build(IndexSearcher indexSearcher) throws IOException {
+        TermQuery rulesQuery = new TermQuery(
+            new Term(TargetEntityFieldName.TARGET_TYPE.getValue(), TargetEntityType.RULE.getValue()));
+        int[] ruleDocs = Searcher.collectDocIds(rulesQuery, indexSearcher);
+
+        // Rows are read first, then turned into columns once the number of rules per type is known
+        Map<String, List<Integer>> docIdsByType = new HashMap<>();
+        Map<String, List<Map<String, List<String>>>> rowsByType = new HashMap<>();
+        StoredFields storedFields = indexSearcher.storedFields();
+        for (int docId : ruleDocs) {
+            Document document = storedFields.document(docId);
+            Map<String, List<String>> row = new HashMap<>();
+            for (IndexableField field : document.getFields()) {
+                String value = field.stringValue();
+                if (field.name().startsWith(RULE_PREFIX) && value != null && !value.isEmpty()) {
+                    row.put(field.name().substring(RULE_PREFIX.length()),
+                        List.copyOf(DefaultSuggestionScoreCalculator.textToList(value)));
+                }
+            }
+            String entityType = document.get(TargetEntityFieldName.ENTITY_TYPE.getValue());
+            docIdsByType.computeIfAbsent(entityType, k -> new ArrayList<>()).add(docId);
+            rowsByType.computeIfAbsent(entityType, k -> new ArrayList<>()).add(row);
+        }
+
+        Map<String, Rules> rulesByEntityType = new HashMap<>();
+        rowsByType.forEach((entityType, rows) -> {
+            Map<String, List<List<String>>> wordsByField = new HashMap<>();
+            for (int i = 0; i < rows.size(); i++) {
+                for (Map.Entry<String, List<String>> entry : rows.get(i).entrySet()) {
+                    List<List<String>> column = wordsByField.computeIfAbsent(
+                        entry.getKey(), k -> new ArrayList<>(Collections.nCopies(rows.size(), null)));
+                    column.set(i, entry.getValue());
+                }
+            }
+            int[] docIds = docIdsByType.get(entityType).stream().mapToInt(Integer::intValue).toArray();
+            rulesByEntityType.put(entityType, new Rules(docIds, wordsByField));
+        });
+        return new RuleSimilarityTable(rulesByEntityType);
+    }
+
+    /**
+     * Returns the rules of an entity type.
+     *
+     * @param entityType the entity type
+     * @return the rules. Empty if the index has no rules of that type
+     */
+    Rules getRules(String entityType) {
+        return rulesByEntityType.getOrDefault(entityType, NO_RULES);
+    }
+}
@@ -1,20 +1,36 @@
 package org.cancer_models.entity2ontology.map.service;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.lucene.search.Query;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.SimilarMatchStrategy;
 import org.cancer_models.entity2ontology.map.model.SourceEntity;
 import org.cancer_models.entity2ontology.map.model.Suggestion;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A component responsible for searching rules using Lucene queries.
+ *
+ * <p>Exact matches are first looked up in memory with {@link ExactRuleMatcher}, which only finds rules whose fields
+ * have the same values as the entity. The Lucene query, which also finds rules whose fields contain the values, is
+ * run when the lookup does not find enough suggestions.
+ *
+ * <p>Similar rules are found with the {@link SimilarMatchStrategy} configured for the entity type: with a Lucene
+ * query (fuzzy or trigram), with {@link MinHashMatcher}, or by scoring every rule in memory with
+ * {@link InMemoryRuleScorer}, which is not limited to the candidates the query returns.
  */
 @Component
 class RulesSearcher {
 
+    private static final Logger logger = LogManager.getLogger(RulesSearcher.class);
+
     /**
      * Builds Lucene queries for exact and similar match searches.
      */
@@ -30,6 +46,21 @@ class RulesSearcher {
      */
     private final SuggestionScoreCalculator scoreCalculator;
 
+    /**
+     * Looks up rules with exactly the same values as an entity without running a Lucene query.
+     */
+    private final ExactRuleMatcher exactRuleMatcher;
+
+    /**
+     * Scores all the rules of an entity type in memory.
+     */
+    private final InMemoryRuleScorer inMemoryRuleScorer;
+
+    /**
+     * Finds rules with values that have mostly the same words as an entity without running a Lucene query.
+     */
+    private final MinHashMatcher minHashMatcher;
+
     /**
      * Constructs a new RulesSearcher with dependencies for building, executing,
      * processing queries, and scoring results.
@@ -37,15 +68,24 @@ class RulesSearcher {
      * @param queryBuilder          the query builder for creating Lucene queries
      * @param queryProcessor        the processor for handling query results
      * @param scoreCalculator       the calculator for scoring suggestion relevance
+     * @param exactRuleMatcher      the matcher for looking up exact rules in memory
+     * @param inMemoryRuleScorer    the scorer for finding similar rules in memory
+     * @param minHashMatcher        the matcher for finding rules with similar word sets in memory
      */
     public RulesSearcher(
         QueryBuilder queryBuilder,
         QueryProcessor queryProcessor,
-        SuggestionScoreCalculator scoreCalculator) {
+        SuggestionScoreCalculator scoreCalculator,
+        ExactRuleMatcher exactRuleMatcher,
+        InMemoryRuleScorer inMemoryRuleScorer,
+        MinHashMatcher minHashMatcher) {
 
         this.queryBuilder = queryBuilder;
         this.queryProcessor = queryProcessor;
         this.scoreCalculator = scoreCalculator;
+        this.exactRuleMatcher = exactRuleMatcher;
+        this.inMemoryRuleScorer = inMemoryRuleScorer;
+        this.minHashMatcher = minHashMatcher;
     }
 
     /**
@@ -61,8 +101,35 @@ class RulesSearcher {
      */
     public List<Suggestion> findExactMatchingRules(
         SourceEntity entity, String indexPath, MappingConfiguration config) throws MappingException {
-        Query query = queryBuilder.buildExactMatchRulesQuery(entity, config);
-        List<Suggestion> suggestions = queryProcessor.executeQuery(query, indexPath);
+        return findExactMatchingRules(entity, indexPath, config, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches for rules that exactly match the specified entity and configuration, stopping after the in-memory
+     * lookup if it already finds {@code maxNumSuggestions} rules. Those rules have the same values as the entity, so
+     * they are the best exact matches the index has.
+     *
+     * <p>The results are assigned a score of 100 to indicate a perfect match.
+     *
+     * @param entity            the entity to match against rules
+     * @param indexPath         the path to the Lucene index to search
+     * @param config            the mapping configuration to use
+     * @param maxNumSuggestions the number of suggestions that makes running the Lucene query unnecessary
+     * @return a list of suggestions that match exactly, with the ones found by the lookup first
+     * @throws MappingException if an error occurs during the search
+     */
+    public List<Suggestion> findExactMatchingRules(
+        SourceEntity entity, String indexPath, MappingConfiguration config, int maxNumSuggestions)
+        throws MappingException {
+        Set<Suggestion> matches = new LinkedHashSet<>(exactRuleMatcher.findExactMatches(entity, indexPath, config));
+
+        if (matches.size() >= maxNumSuggestions) {
+            logger.debug("{} exact rules found without querying the index", matches.size());
+        } else {
+            Query query = queryBuilder.buildExactMatchRulesQuery(entity, config);
+            matches.addAll(queryProcessor.executeQuery(query, indexPath));
+        }
+        List<Suggestion> suggestions = new ArrayList<>(matches);
 
         // Assign a `score` of 100 as results are perfect matches
         suggestions.forEach(suggestion -> suggestion.setScore(100));
@@ -74,7 +141,8 @@ class RulesSearcher {
      * Searches for rules that are similar to the specified entity, using a configurable
      * similarity measure.
      *
-     * <p>The results are scored based on field-specific weights defined in the configuration.
+     * <p>The results are scored based on field-specific weights defined in the configuration. Candidates are searched
+     * with the {@link SimilarMatchStrategy} configured for the type of the entity.
      *
      * @param entity    the entity to find similar rules for
      * @param indexPath the path to the Lucene index to search
@@ -84,8 +152,46 @@ class RulesSearcher {
      */
     public List<Suggestion> findSimilarRules(
         SourceEntity entity, String indexPath, MappingConfiguration config) throws MappingException {
-        Query query = queryBuilder.buildSimilarMatchRulesQuery(entity, config);
-        List<Suggestion> suggestions = queryProcessor.executeQuery(query, indexPath);
+        return findSimilarRules(entity, indexPath, config, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches for rules that are similar to the specified entity, using a configurable
+     * similarity measure.
+     *
+     * <p>The results are scored based on field-specific weights defined in the configuration. Candidates are searched
+     * with the {@link SimilarMatchStrategy} configured for the type of the entity. With
+     * {@link SimilarMatchStrategy#IN_MEMORY}, all the rules of the type are scored and only the best
+     * {@code maxNumSuggestions} are returned. The other strategies return all the candidates they find.
+     *
+     * @param entity            the entity to find similar rules for
+     * @param indexPath         the path to the Lucene index to search
+     * @param config            the mapping configuration to use
+     * @param maxNumSuggestions the maximum number of suggestions to keep when scoring all the rules in memory
+     * @return a list of suggestions that closely match the entity, sorted by score (descending)
+     * @throws MappingException if an error occurs during the search
+     */
+    public List<Suggestion> findSimilarRules(
+        SourceEntity entity, String indexPath, MappingConfiguration config, int maxNumSuggestions)
+        throws MappingException {
+        SimilarMatchStrategy strategy = config.getConfigurationByEntityType(entity.getType()).getSimilarMatchStrategy();
+        if (strategy == SimilarMatchStrategy.IN_MEMORY) {
+            // The rules are scored while they are searched, so they already come with their score and sorted
+            return inMemoryRuleScorer.findSimilarRules(entity, indexPath, config, maxNumSuggestions);
+        }
+
+        List<Suggestion> suggestions;
+        if (strategy == SimilarMatchStrategy.MINHASH) {
+            // MinHash candidates are found in memory, without a query
+            suggestions = minHashMatcher.findSimilarRules(entity, indexPath, config);
+        } else {
+            Query query = queryBuilder.buildSimilarMatchRulesQuery(entity, config);
+            // Trigram queries already have the terms as they are in the index
+            suggestions = strategy == SimilarMatchStrategy.TRIGRAM
+                ? queryProcessor.executeQueryAsIs(query, indexPath)
+                : queryProcessor.executeQuery(
+                    query, indexPath, config.getConfigurationByEntityType(entity.getType()).isVocabularyCorrection());
+        }
 
         suggestions.forEach(suggestion -> {
             double score = scoreCalculator.computeScoreRule(suggestion, entity, config);
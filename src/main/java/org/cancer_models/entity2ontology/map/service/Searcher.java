@@ -2,22 +2,49 @@ package org.cancer_models.entity2ontology.map.service;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.IOSupplier;
 import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.cancer_models.entity2ontology.map.model.SearchExecutorSettings;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Searcher class is responsible for managing a Lucene {@link IndexSearcher} and executing queries
@@ -32,12 +59,27 @@ import java.util.Map;
  * <p>
  * Example usage:
  * <pre>
- *     Searcher searcher = new Searcher(indexDirectoryPath);
- *     Query query = new TermQuery(new Term("fieldName", "searchTerm"));
- *     TopDocs results = searcher.executeQuery(query);
+ *     IndexSearcher indexSearcher = searcher.acquire(indexPath);
+ *     try {
+ *         TopDocs results = searcher.search(query, indexSearcher);
+ *     } finally {
+ *         searcher.release(indexSearcher);
+ *     }
  * </pre>
  * </p>
  *
+ * <p>
+ * By default each query visits the segments of the index in the calling thread. With
+ * {@link #configureExecutor(SearchExecutorSettings)} the segments are grouped into slices searched concurrently by a
+ * pool of threads shared by all the indexes.
+ * </p>
+ *
+ * <p>
+ * While an entity is mapped with a time budget (see {@link MappingDeadline}), queries run on a searcher over the same
+ * reader that stops enumerating terms and collecting documents when the deadline passes. The results found until then
+ * are returned, and the deadline is marked as partial.
+ * </p>
+ *
  * @see IndexSearcher
  * @see Query
  * @see TopDocs
@@ -45,54 +87,488 @@ import java.util.Map;
 @Component
 public class Searcher {
 
-    // As there can exist several indexes, this structure keeps a reader per index, so they can be
-    // used multiple times
-    private final Map<String, IndexSearcher> readers = new HashMap<>();
+    // As there can exist several indexes, this structure keeps a searcher per index, so they can be
+    // used multiple times. Each searcher remembers the directory it was opened on, so if the index path is a link
+    // that is switched to a new version of the index (see IndexVersionManager), the searcher is reopened. The link is
+    // resolved again at most once every REAL_PATH_CHECK_INTERVAL_NANOS, not on every acquire
+    private final Map<String, SearcherHolder> searchers = new ConcurrentHashMap<>();
+
+    // A QueryParser keeps the state of the query being parsed, so each thread searching concurrently needs its own
+    private final ThreadLocal<QueryParser> queryParser;
 
-    private final QueryParser queryParser;
+    // Replaces fuzzy queries by term queries with the index terms they would match
+    private final VocabularyCorrector vocabularyCorrector = new VocabularyCorrector();
 
     // Number of results to retrieve from the search
     private static final int NUM_RESULTS = 50;
 
+    // How often the index path is resolved again to find out if it points to a new version of the index
+    private static final long REAL_PATH_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
     private static final Logger logger = LogManager.getLogger(Searcher.class);
 
+    // A searcher, the real path (after resolving links) of the index it reads, when (System.nanoTime()) that path was
+    // last resolved and the executor it searches slices with
+    private record SearcherHolder(
+        IndexSearcher indexSearcher, Path realPath, long realPathCheckedAt, ConfiguredExecutor configuredExecutor) {
+
+        SearcherHolder withRealPathCheckedAt(long checkedAt) {
+            return new SearcherHolder(indexSearcher, realPath, checkedAt, configuredExecutor);
+        }
+    }
+
+    // The executor that searches the slices of the queries (null if they are searched by the calling thread), the
+    // service running its tasks and the settings both were created with
+    private record ConfiguredExecutor(
+        SearchExecutorSettings settings, ExecutorService executorService, Executor executor) {
+    }
+
+    private volatile ConfiguredExecutor configuredExecutor =
+        new ConfiguredExecutor(SearchExecutorSettings.SINGLE_THREADED, null, null);
+
+    // A search run on a searcher that can be the one given to the public methods or one limited by a deadline
+    private interface SearchAction<T> {
+        T run(IndexSearcher indexSearcher) throws IOException;
+    }
+
+    private static final TopDocs NO_RESULTS =
+        new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+
+    /**
+     * The results of a search combining an exact and a similar query.
+     *
+     * @param topDocs      the top results of the combined query
+     * @param exactMatches the ids of the documents in {@code topDocs} that the exact query matches
+     */
+    public record CombinedTopDocs(TopDocs topDocs, Set<Integer> exactMatches) {
+    }
+
     public Searcher(AnalyzerProvider analyzerProvider) {
         // This should be the same used to create the index
-        queryParser = new QueryParser("", analyzerProvider.getAnalyzer());
+        Analyzer analyzer = analyzerProvider.getAnalyzer();
+        queryParser = ThreadLocal.withInitial(() -> new QueryParser("", analyzer));
     }
 
-    private IndexSearcher createSearcher(String indexPath) throws IOException {
-        logger.info("Creating searcher for index at {}", indexPath);
-        Directory dir = FSDirectory.open(Paths.get(indexPath));
+    private SearcherHolder createSearcher(String indexPath, Path realPath, ConfiguredExecutor executor)
+        throws IOException {
+        logger.info("Creating searcher for index at {} ({})", indexPath, realPath);
+        Directory dir = FSDirectory.open(realPath);
         IndexReader reader = DirectoryReader.open(dir);
-        return new IndexSearcher(reader);
+        return new SearcherHolder(newIndexSearcher(reader, executor), realPath, System.nanoTime(), executor);
+    }
+
+    private static IndexSearcher newIndexSearcher(IndexReader reader, ConfiguredExecutor configuredExecutor) {
+        if (configuredExecutor.executor() == null) {
+            return new IndexSearcher(reader);
+        }
+        int maxDocsPerSlice = configuredExecutor.settings().getMaxDocsPerSliceOrDefault();
+        int maxSegmentsPerSlice = configuredExecutor.settings().getMaxSegmentsPerSliceOrDefault();
+        return new IndexSearcher(reader, configuredExecutor.executor()) {
+            @Override
+            protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice);
+            }
+        };
+    }
+
+    /**
+     * Sets how the segments of the indexes are searched within a query. Meant to be called once, when the application
+     * starts (the map command does it with its options). If it is called again, searchers already open are replaced by
+     * new ones, on the same readers, the next time they are acquired, and searches still running with the previous
+     * executor search their remaining slices in the calling thread.
+     *
+     * @param settings the settings of the executor. If null, queries are run by the calling thread only
+     */
+    public void configureExecutor(SearchExecutorSettings settings) {
+        SearchExecutorSettings newSettings = settings == null ? SearchExecutorSettings.SINGLE_THREADED : settings;
+        synchronized (searchers) {
+            ConfiguredExecutor previous = configuredExecutor;
+            if (previous.settings().equals(newSettings)) {
+                return;
+            }
+            logger.info("Search executor configured with {}", newSettings);
+            configuredExecutor = createExecutor(newSettings);
+            if (previous.executorService() != null) {
+                previous.executorService().shutdown();
+            }
+        }
     }
 
-    private IndexSearcher getOrCreateIndexSearcher(String indexPath) throws IOException {
-        if (!readers.containsKey(indexPath)) {
-            logger.info("Index searcher for {} not found. A new one will be created", indexPath);
-            IndexSearcher indexSearcher = createSearcher(indexPath);
-            readers.put(indexPath, indexSearcher);
+    private static ConfiguredExecutor createExecutor(SearchExecutorSettings settings) {
+        if (!settings.isConcurrent()) {
+            return new ConfiguredExecutor(settings, null, null);
+        }
+        ExecutorService executorService;
+        Executor executor;
+        if (settings.virtualThreads()) {
+            executorService = Executors.newVirtualThreadPerTaskExecutor();
+            // Virtual threads are not pooled, so a semaphore bounds how many slices are searched at the same time
+            Semaphore permits = new Semaphore(settings.threads());
+            executor = task -> execute(executorService, () -> {
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } else {
+            executorService = Executors.newFixedThreadPool(
+                settings.threads(), Thread.ofPlatform().name("searcher-", 0).daemon().factory());
+            executor = task -> execute(executorService, task);
         }
-        return readers.get(indexPath);
+        return new ConfiguredExecutor(settings, executorService, executor);
     }
 
+    // A replaced executor is shut down, so searches still using it run their tasks in the calling thread
+    private static void execute(ExecutorService executorService, Runnable task) {
+        try {
+            executorService.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * Returns a searcher for the index at {@code indexPath}, opening a new one if there is none yet or if the
+     * index path now points to a different directory (checked at most once a second). The searcher must be given
+     * back with {@link #release(IndexSearcher)} once the caller is done with it (including reading stored fields), so
+     * the reader of a replaced index version can be closed when no search is using it anymore.
+     *
+     * @param indexPath the path of the index
+     * @return an {@code IndexSearcher} whose reader stays open until it is released
+     * @throws IOException if the index cannot be opened
+     */
+    public IndexSearcher acquire(String indexPath) throws IOException {
+        while (true) {
+            SearcherHolder holder = getOrCreateSearcherHolder(indexPath);
+            // A concurrent swap may have closed the reader after we got the holder. In that case, try again
+            if (holder.indexSearcher().getIndexReader().tryIncRef()) {
+                return holder.indexSearcher();
+            }
+        }
+    }
+
+    /**
+     * Releases a searcher obtained with {@link #acquire(String)}.
+     *
+     * @param indexSearcher the searcher to release
+     * @throws IOException if closing the reader of a replaced index version fails
+     */
+    public void release(IndexSearcher indexSearcher) throws IOException {
+        indexSearcher.getIndexReader().decRef();
+    }
+
+    /**
+     * Returns the searcher currently open for the index at {@code indexPath}, without acquiring it.
+     *
+     * @param indexPath the path of the index
+     * @return the searcher of the index, or null if no search has been run on it yet
+     * @deprecated the reader of the returned searcher is closed when the index is replaced by a new version, even if
+     * it is still in use. Use {@link #acquire(String)} and {@link #release(IndexSearcher)} instead.
+     */
+    @Deprecated
     public IndexSearcher getIndexSearcher(String indexPath) {
-        return readers.get(indexPath);
+        SearcherHolder holder = searchers.get(indexPath);
+        return holder == null ? null : holder.indexSearcher();
     }
 
+    /**
+     * Executes the query against the index at {@code indexPath}.
+     *
+     * @param query     the query to execute. It is parsed again, so it uses the same analyzer used to index
+     * @param indexPath the path of the index
+     * @return the top results
+     * @throws IOException if there is an error reading the index
+     * @deprecated the searcher is released before returning, so the ids of the results may refer to a reader that
+     * has been closed if the index is replaced by a new version. Use {@link #acquire(String)},
+     * {@link #search(Query, IndexSearcher)} and {@link #release(IndexSearcher)} instead.
+     */
+    @Deprecated
     public TopDocs search(Query query, String indexPath) throws IOException {
+        IndexSearcher indexSearcher = acquire(indexPath);
+        try {
+            return search(query, indexSearcher);
+        } finally {
+            release(indexSearcher);
+        }
+    }
+
+    private SearcherHolder getOrCreateSearcherHolder(String indexPath) throws IOException {
+        SearcherHolder current = searchers.get(indexPath);
+        if (current != null && current.configuredExecutor() == configuredExecutor
+            && System.nanoTime() - current.realPathCheckedAt() < REAL_PATH_CHECK_INTERVAL_NANOS) {
+            return current;
+        }
+        Path realPath = Paths.get(indexPath).toRealPath();
+        long checkedAt = System.nanoTime();
+        synchronized (searchers) {
+            current = searchers.get(indexPath);
+            if (isUpToDate(current, realPath)) {
+                SearcherHolder checked = current.withRealPathCheckedAt(checkedAt);
+                searchers.put(indexPath, checked);
+                return checked;
+            }
+            SearcherHolder holder;
+            if (current == null) {
+                logger.info("Index searcher for {} not found. A new one will be created", indexPath);
+                holder = createSearcher(indexPath, realPath, configuredExecutor);
+            } else if (!current.realPath().equals(realPath)) {
+                logger.info("Index {} now points to {}. The searcher will be reopened", indexPath, realPath);
+                holder = createSearcher(indexPath, realPath, configuredExecutor);
+            } else {
+                logger.info("Search executor changed. The searcher for {} will be recreated", indexPath);
+                // The reader is the same, so the caches built for it are kept
+                IndexReader reader = current.indexSearcher().getIndexReader();
+                reader.incRef();
+                holder = new SearcherHolder(
+                    newIndexSearcher(reader, configuredExecutor), realPath, checkedAt, configuredExecutor);
+            }
+            searchers.put(indexPath, holder);
+            if (current != null) {
+                // Drop the reference owned by this cache. The reader is closed once in-flight searches release it
+                current.indexSearcher().getIndexReader().decRef();
+            }
+            return holder;
+        }
+    }
+
+    private boolean isUpToDate(SearcherHolder holder, Path realPath) {
+        return holder != null && holder.realPath().equals(realPath) && holder.configuredExecutor() == configuredExecutor;
+    }
+
+    /**
+     * Executes the query against the given searcher.
+     *
+     * @param query         the query to execute. It is parsed again, so it uses the same analyzer used to index
+     * @param indexSearcher a searcher obtained with {@link #acquire(String)}
+     * @return the top results
+     * @throws IOException if there is an error reading the index
+     */
+    public TopDocs search(Query query, IndexSearcher indexSearcher) throws IOException {
+        return search(query, false, indexSearcher);
+    }
+
+    /**
+     * Executes the query against the given searcher.
+     *
+     * @param query             the query to execute. It is parsed again, so it uses the same analyzer used to index.
+     * @param correctVocabulary whether the fuzzy queries of up to one edit are then replaced by the index terms they
+     *                          match (see {@link VocabularyCorrector})
+     * @param indexSearcher     a searcher obtained with {@link #acquire(String)}
+     * @return the top results
+     * @throws IOException if there is an error reading the index
+     */
+    public TopDocs search(Query query, boolean correctVocabulary, IndexSearcher indexSearcher) throws IOException {
         logger.info("Search with query: {\n{}\n}", query);
-        // To make sure the queries use the same analyser used to index, we rebuild the query by parsing the string version
-        // or the original one
-        String queryAsString = query.toString();
-        Query reparsedQuery;
+        Query finalQuery = prepare(query, correctVocabulary, indexSearcher);
+        return searchWithDeadline(
+            indexSearcher, searcher -> searcher.search(finalQuery, NUM_RESULTS), () -> NO_RESULTS);
+    }
+
+    /**
+     * Executes the query against the given searcher, collecting the results with {@code collectorManager} instead of
+     * keeping the top results by Lucene score.
+     *
+     * @param query             the query to execute
+     * @param parse             whether the query is parsed again like in {@link #search(Query, IndexSearcher)}, or
+     *                          executed as it is (trigram queries)
+     * @param correctVocabulary whether a parsed query is corrected like in
+     *                          {@link #search(Query, boolean, IndexSearcher)}
+     * @param indexSearcher     a searcher obtained with {@link #acquire(String)}
+     * @param collectorManager  creates the collectors of the results and merges what they collected
+     * @param <C>               type of the collectors
+     * @param <T>               type of the result
+     * @return the result of the collector manager
+     * @throws IOException if there is an error reading the index
+     */
+    public <C extends Collector, T> T collect(
+        Query query, boolean parse, boolean correctVocabulary, IndexSearcher indexSearcher,
+        CollectorManager<C, T> collectorManager) throws IOException {
+        Query finalQuery = parse ? prepare(query, correctVocabulary, indexSearcher) : query;
+        logger.info("Search with query: {\n{}\n}", finalQuery);
+        return searchWithDeadline(
+            indexSearcher,
+            searcher -> searcher.search(finalQuery, collectorManager),
+            () -> collectorManager.reduce(List.of()));
+    }
+
+    /**
+     * Executes an exact and a similar query as a single query, and tells which of the results the exact query
+     * matches. Documents found by both queries get both scores, so exact matches usually rank first.
+     *
+     * <p>Only the top results of the combined query are checked against the exact query. An exact match can still rank
+     * below them (for example one on a template with little weight, among many similar matches), so if fewer than
+     * {@code minExactMatches} of them are exact matches and the combined query found more documents, the exact query
+     * is also run on its own, and the exact matches it finds that are not among the top results are added after them.
+     *
+     * <p>If the deadline of the thread passes while looking for the exact matches, the top results of the combined
+     * query are returned with no exact matches.
+     *
+     * @param exactQuery        the exact query. It is parsed again, like in {@link #search(Query, IndexSearcher)}
+     * @param similarQuery      the similar query
+     * @param parseSimilarQuery whether the similar query is parsed again, or executed as it is (trigram queries)
+     * @param correctVocabulary whether a parsed similar query is corrected like in
+     *                          {@link #search(Query, boolean, IndexSearcher)}
+     * @param minExactMatches   the number of exact matches below which the exact query is run on its own
+     * @param indexSearcher     a searcher obtained with {@link #acquire(String)}
+     * @return the top results, with the ones the exact query matches
+     * @throws IOException if there is an error reading the index
+     */
+    public CombinedTopDocs searchCombined(
+        Query exactQuery, Query similarQuery, boolean parseSimilarQuery, boolean correctVocabulary,
+        int minExactMatches, IndexSearcher indexSearcher) throws IOException {
+        Query reparsedExactQuery = reparse(exactQuery);
+        Query finalSimilarQuery = parseSimilarQuery
+            ? prepare(similarQuery, correctVocabulary, indexSearcher)
+            : similarQuery;
+        Query combinedQuery = new BooleanQuery.Builder()
+            .add(reparsedExactQuery, BooleanClause.Occur.SHOULD)
+            .add(finalSimilarQuery, BooleanClause.Occur.SHOULD)
+            .build();
+        logger.info("Search with query: {\n{}\n}", combinedQuery);
+        return searchWithDeadline(indexSearcher, searcher -> {
+            TopDocs topDocs = searcher.search(combinedQuery, NUM_RESULTS);
+            try {
+                return addExactMatches(topDocs, reparsedExactQuery, minExactMatches, searcher);
+            } catch (ExitableDirectoryReader.ExitingReaderException e) {
+                // The results are still valid, only which of them are exact matches is unknown
+                logger.warn("Exact matches not checked, stopped by the deadline: {}", e.getMessage());
+                MappingDeadline.current().markPartial();
+                return new CombinedTopDocs(topDocs, Set.of());
+            }
+        }, () -> new CombinedTopDocs(NO_RESULTS, Set.of()));
+    }
+
+    // Tells which of the top results of a combined query the exact query matches, and adds the exact matches that are
+    // not among them if there are not enough
+    private static CombinedTopDocs addExactMatches(
+        TopDocs topDocs, Query exactQuery, int minExactMatches, IndexSearcher searcher) throws IOException {
+        // The top results are checked against the exact query, without running it on the whole index
+        Weight exactWeight = searcher.createWeight(searcher.rewrite(exactQuery), ScoreMode.COMPLETE_NO_SCORES, 1);
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        Set<Integer> topDocIds = new HashSet<>();
+        Set<Integer> exactMatches = new HashSet<>();
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            topDocIds.add(scoreDoc.doc);
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(scoreDoc.doc, leaves));
+            if (exactWeight.matches(leaf, scoreDoc.doc - leaf.docBase) != null) {
+                exactMatches.add(scoreDoc.doc);
+            }
+        }
+        if (exactMatches.size() >= minExactMatches || topDocs.totalHits.value <= topDocs.scoreDocs.length) {
+            return new CombinedTopDocs(topDocs, exactMatches);
+        }
+
+        List<ScoreDoc> scoreDocs = new ArrayList<>(Arrays.asList(topDocs.scoreDocs));
+        for (ScoreDoc scoreDoc : searcher.search(exactQuery, NUM_RESULTS).scoreDocs) {
+            if (!topDocIds.contains(scoreDoc.doc)) {
+                scoreDocs.add(scoreDoc);
+            }
+            exactMatches.add(scoreDoc.doc);
+        }
+        return new CombinedTopDocs(new TopDocs(topDocs.totalHits, scoreDocs.toArray(new ScoreDoc[0])), exactMatches);
+    }
+
+    /**
+     * Runs a search, limited by the deadline of the current thread if it has one. When the deadline passes while
+     * collecting documents, the ones collected so far are returned. When it passes before that (including while
+     * the terms a query matches are enumerated), there are no results.
+     *
+     * @param indexSearcher a searcher obtained with {@link #acquire(String)}
+     * @param action        the search to run
+     * @param noResults     the result of a search stopped before finding anything
+     * @return the result of the search
+     * @throws IOException if there is an error reading the index
+     */
+    private <T> T searchWithDeadline(IndexSearcher indexSearcher, SearchAction<T> action, IOSupplier<T> noResults)
+        throws IOException {
+        MappingDeadline deadline = MappingDeadline.current();
+        if (deadline == null || !(indexSearcher.getIndexReader() instanceof DirectoryReader reader)) {
+            return action.run(indexSearcher);
+        }
+        if (deadline.shouldExit()) {
+            deadline.markPartial();
+            return noResults.get();
+        }
+        // The wrapper shares the reader cache key, so the caches built for the reader are still valid
+        IndexSearcher timedSearcher =
+            newIndexSearcher(ExitableDirectoryReader.wrap(reader, deadline), configuredExecutor);
+        timedSearcher.setTimeout(deadline);
         try {
-            reparsedQuery = queryParser.parse(queryAsString);
+            T result = action.run(timedSearcher);
+            if (timedSearcher.timedOut()) {
+                logger.warn("Search stopped by the deadline. Returning the results collected so far");
+                deadline.markPartial();
+            }
+            return result;
+        } catch (ExitableDirectoryReader.ExitingReaderException e) {
+            logger.warn("Search stopped by the deadline before collecting results: {}", e.getMessage());
+            deadline.markPartial();
+            return noResults.get();
+        }
+    }
+
+    // Parses the query again and, if asked to, replaces its fuzzy queries by the index terms they match
+    private Query prepare(Query query, boolean correctVocabulary, IndexSearcher indexSearcher) throws IOException {
+        Query reparsedQuery = reparse(query);
+        return correctVocabulary ? vocabularyCorrector.correct(reparsedQuery, indexSearcher) : reparsedQuery;
+    }
+
+    // To make sure the queries use the same analyser used to index, we rebuild the query by parsing the string version
+    // or the original one
+    private Query reparse(Query query) {
+        try {
+            return queryParser.get().parse(query.toString());
         } catch (ParseException e) {
             throw new IllegalArgumentException(e);
         }
-        IndexSearcher indexSearcher = getOrCreateIndexSearcher(indexPath);
-        return indexSearcher.search(reparsedQuery, NUM_RESULTS);
+    }
+
+    /**
+     * Executes a query as it is, without parsing it again. Meant for queries whose terms are already written as they
+     * are in the index (like the ones on trigram fields), which the analyser would otherwise change.
+     *
+     * @param query         the query to execute
+     * @param indexSearcher a searcher obtained with {@link #acquire(String)}
+     * @return the top results
+     * @throws IOException if there is an error reading the index
+     */
+    public TopDocs searchAsIs(Query query, IndexSearcher indexSearcher) throws IOException {
+        logger.info("Search with query: {\n{}\n}", query);
+        return searchWithDeadline(indexSearcher, searcher -> searcher.search(query, NUM_RESULTS), () -> NO_RESULTS);
+    }
+
+    /**
+     * Returns the ids of all the documents that match a query, in index order. Unlike
+     * {@link #search(Query, IndexSearcher)}, the query is executed as it is, without scoring and without limiting
+     * the number of results. It is meant for filters like "all the documents of a target type".
+     *
+     * @param query         the query to execute
+     * @param indexSearcher a searcher obtained with {@link #acquire(String)}
+     * @return the ids of the matching documents, valid for the reader of {@code indexSearcher}
+     * @throws IOException if there is an error reading the index
+     */
+    public static int[] collectDocIds(Query query, IndexSearcher indexSearcher) throws IOException {
+        List<Integer> docIds = new ArrayList<>();
+        indexSearcher.search(query, new SimpleCollector() {
+            private int docBase;
+
+            @Override
+            protected void doSetNextReader(LeafReaderContext context) {
+                docBase = context.docBase;
+            }
+
+            @Override
+            public void collect(int doc) {
+                docIds.add(docBase + doc);
+            }
+
+            @Override
+            public ScoreMode scoreMode() {
+                return ScoreMode.COMPLETE_NO_SCORES;
+            }
+        });
+        return docIds.stream().mapToInt(Integer::intValue).toArray();
     }
 }
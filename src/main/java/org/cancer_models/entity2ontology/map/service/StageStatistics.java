@@ -0,0 +1,194 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps, per entity type, how often each stage of {@link DefaultSuggestionsFinder} adds suggestions (its yield), how
+ * long it takes, and how long the bookkeeping around the stages takes. The yield is what the adaptive mode (see
+ * {@link MappingConfiguration.AdaptiveStages}) uses to skip stages that rarely add anything.
+ *
+ * <p>It is safe to use from several threads mapping entities at the same time.
+ */
+final class StageStatistics {
+
+    /**
+     * The stages of the search, in the order they run.
+     */
+    enum Stage {
+        // Rules are curated mappings looked up in memory, so they are always searched
+        EXACT_RULES(false, false),
+        SIMILAR_RULES(true, false),
+        COMBINED_ONTOLOGIES(true, true),
+        EXACT_ONTOLOGIES(true, false),
+        SIMILAR_ONTOLOGIES(true, true);
+
+        // Whether the stage can be skipped because of its low yield
+        private final boolean skippable;
+
+        // The last stage that can run. It is not skipped when no suggestions were found yet
+        private final boolean lastResort;
+
+        Stage(boolean skippable, boolean lastResort) {
+            this.skippable = skippable;
+            this.lastResort = lastResort;
+        }
+
+        boolean isSkippable() {
+            return skippable;
+        }
+
+        boolean isLastResort() {
+            return lastResort;
+        }
+    }
+
+    /**
+     * What a stage did for an entity type.
+     *
+     * @param runs           times the stage ran
+     * @param productiveRuns times the stage added at least one suggestion
+     * @param skips          times the stage was skipped because of its low yield
+     * @param nanos          total time the stage took to run
+     */
+    record StageSummary(long runs, long productiveRuns, long skips, long nanos) {
+
+        /**
+         * Returns the fraction of the runs that added suggestions.
+         *
+         * @return a number between 0 and 1, or 1 if the stage never ran
+         */
+        double yield() {
+            return runs == 0 ? 1 : (double) productiveRuns / runs;
+        }
+    }
+
+    private static final class StageCounters {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder productiveRuns = new LongAdder();
+        private final LongAdder skips = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+    private static final class TypeStatistics {
+        private final AtomicLong entities = new AtomicLong();
+        private final LongAdder overheadNanos = new LongAdder();
+        private final StageCounters[] stages = new StageCounters[Stage.values().length];
+
+        private TypeStatistics() {
+            for (int i = 0; i < stages.length; i++) {
+                stages[i] = new StageCounters();
+            }
+        }
+    }
+
+    private final Map<String, TypeStatistics> statisticsByType = new ConcurrentHashMap<>();
+
+    private TypeStatistics get(String entityType) {
+        return statisticsByType.computeIfAbsent(entityType, k -> new TypeStatistics());
+    }
+
+    /**
+     * Counts a new entity of a type.
+     *
+     * @param entityType the type of the entity
+     * @return the number of entities of the type counted so far, including this one
+     */
+    long countEntity(String entityType) {
+        return get(entityType).entities.incrementAndGet();
+    }
+
+    /**
+     * Tells whether a stage adds suggestions so rarely for an entity type that it can be skipped.
+     *
+     * @param entityType the type of the entity
+     * @param stage      the stage
+     * @param settings   the settings of the adaptive mode
+     * @return true if the stage ran at least {@code minSamples} times and its yield is lower than {@code minYield}
+     */
+    boolean isLowYield(String entityType, Stage stage, MappingConfiguration.AdaptiveStages settings) {
+        StageCounters counters = get(entityType).stages[stage.ordinal()];
+        long runs = counters.runs.sum();
+        return runs >= settings.getMinSamples()
+            && (double) counters.productiveRuns.sum() / runs < settings.getMinYield();
+    }
+
+    /**
+     * Records a run of a stage.
+     *
+     * @param entityType the type of the entity
+     * @param stage      the stage
+     * @param productive whether the stage added at least one suggestion
+     * @param nanos      the time the stage took
+     */
+    void recordRun(String entityType, Stage stage, boolean productive, long nanos) {
+        StageCounters counters = get(entityType).stages[stage.ordinal()];
+        counters.runs.increment();
+        if (productive) {
+            counters.productiveRuns.increment();
+        }
+        counters.nanos.add(nanos);
+    }
+
+    /**
+     * Records that a stage was skipped because of its low yield.
+     *
+     * @param entityType the type of the entity
+     * @param stage      the stage
+     */
+    void recordSkip(String entityType, Stage stage) {
+        get(entityType).stages[stage.ordinal()].skips.increment();
+    }
+
+    /**
+     * Records the time spent deciding whether to run the stages and recording what they did.
+     *
+     * @param entityType the type of the entity
+     * @param nanos      the time spent
+     */
+    void recordOverhead(String entityType, long nanos) {
+        get(entityType).overheadNanos.add(nanos);
+    }
+
+    /**
+     * Returns what a stage did for an entity type.
+     *
+     * @param entityType the type of the entity
+     * @param stage      the stage
+     * @return the summary of the stage
+     */
+    StageSummary getSummary(String entityType, Stage stage) {
+        StageCounters counters = get(entityType).stages[stage.ordinal()];
+        return new StageSummary(
+            counters.runs.sum(), counters.productiveRuns.sum(), counters.skips.sum(), counters.nanos.sum());
+    }
+
+    /**
+     * Returns the time spent deciding whether to run the stages and recording what they did.
+     *
+     * @param entityType the type of the entity
+     * @return the time, in nanoseconds
+     */
+    long getOverheadNanos(String entityType) {
+        return get(entityType).overheadNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        statisticsByType.forEach((entityType, statistics) -> {
+            sb.append(entityType).append(": ").append(statistics.entities.get()).append(" entities, overhead ")
+                .append(statistics.overheadNanos.sum() / 1000).append(" us").append(System.lineSeparator());
+            for (Stage stage : Stage.values()) {
+                StageSummary summary = getSummary(entityType, stage);
+                sb.append(String.format("  %-20s runs: %d, yield: %.3f, skips: %d, time: %d ms%n",
+                    stage, summary.runs(), summary.yield(), summary.skips(), summary.nanos() / 1_000_000));
+            }
+        });
+        return sb.toString();
+    }
+}
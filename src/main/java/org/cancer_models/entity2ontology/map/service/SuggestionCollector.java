@@ -3,6 +3,8 @@ package org.cancer_models.entity2ontology.map.service;
 import org.cancer_models.entity2ontology.map.model.Suggestion;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class SuggestionCollector {
 
@@ -50,4 +52,32 @@ public class SuggestionCollector {
         }
         return done;
     }
+
+    /**
+     * Adds the suggestions of a search that finds both exact and similar matches, like
+     * {@link #addSuggestionsUntilLimitReached}, but adding first the ones tagged as exact matches in their scoring
+     * details and then the rest, as if the exact and the similar searches had been run one after the other.
+     *
+     * @param currentSuggestions the list to which valid suggestions will be added
+     * @param additionalSuggestions the new suggestions to evaluate and potentially add
+     * @param maxSuggestions the maximum total number of suggestions desired
+     * @param minimumScore the minimum score a suggestion must meet to be considered
+     * @return {@code true} if the maximum number of suggestions has been reached; {@code false} otherwise
+     */
+    static boolean addExactThenSimilarUntilLimitReached(
+        List<Suggestion> currentSuggestions,
+        List<Suggestion> additionalSuggestions,
+        int maxSuggestions,
+        double minimumScore) {
+        Map<Boolean, List<Suggestion>> suggestionsByExactMatch = additionalSuggestions.stream()
+            .collect(Collectors.partitioningBy(
+                suggestion -> suggestion.getScoringDetails() != null && suggestion.getScoringDetails().isExactMatch()));
+        boolean done = addSuggestionsUntilLimitReached(
+            currentSuggestions, suggestionsByExactMatch.get(true), maxSuggestions, minimumScore);
+        if (!done) {
+            done = addSuggestionsUntilLimitReached(
+                currentSuggestions, suggestionsByExactMatch.get(false), maxSuggestions, minimumScore);
+        }
+        return done;
+    }
 }
@@ -34,4 +34,18 @@ public interface SuggestionScoreCalculator {
      * @return A number (percentage) representing how similar the suggestion and the source entity are.
      */
     double computeScoreOntology(Suggestion suggestion);
+
+    /**
+     * Calculates the suggestion (an ontology term) score as a percentage, like
+     * {@link #computeScoreOntology(Suggestion)}, for callers that discard the suggestions with a score lower than
+     * {@code minimumScore}. Implementations can avoid calculating the exact score of a suggestion that cannot reach
+     * it, returning 0 instead.
+     * @param suggestion   The suggestion for the mapping
+     * @param minimumScore The minimum score the suggestion needs to be useful
+     * @return A number (percentage) representing how similar the suggestion and the source entity are, or 0 if the
+     * suggestion cannot reach {@code minimumScore}.
+     */
+    default double computeScoreOntology(Suggestion suggestion, double minimumScore) {
+        return computeScoreOntology(suggestion);
+    }
 }
@@ -28,4 +28,10 @@ public interface SuggestionsFinder {
         String indexPath,
         int maxNumSuggestions,
         MappingConfiguration config) throws MappingException;
+
+    /**
+     * Logs what the searches done so far did, if the implementation keeps track of it. Does nothing by default.
+     */
+    default void logStatistics() {
+    }
 }
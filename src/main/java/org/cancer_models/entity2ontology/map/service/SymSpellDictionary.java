@@ -0,0 +1,145 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The terms of a field of an index, arranged by their deletion neighbourhood (the SymSpell approach), so the terms at
+ * one edit of distance from a word are found with a few hash lookups instead of intersecting an automaton with the
+ * terms dictionary.
+ *
+ * <p>Every term is stored under itself and under each of the strings obtained by deleting one of its characters.
+ * Two strings at one edit of distance (insertion, deletion, substitution or transposition of adjacent characters)
+ * always share one of those keys, so looking up the word and its own deletions finds all the candidates, which are
+ * then checked with the real distance.
+ */
+final class SymSpellDictionary {
+
+    /**
+     * Longest word (and term) handled by the dictionary. Longer words are rare and have many deletions, so they are
+     * left to fuzzy queries.
+     */
+    static final int MAX_WORD_LENGTH = 40;
+
+    // Terms per key (the term itself or one of its deletions)
+    private final Map<String, List<String>> termsByKey;
+
+    private SymSpellDictionary(Map<String, List<String>> termsByKey) {
+        this.termsByKey = termsByKey;
+    }
+
+    /**
+     * Builds the dictionary with the terms of {@code field} in the index read by {@code reader}.
+     *
+     * @param reader the reader of the index
+     * @param field  the name of the field
+     * @return the dictionary. Empty if the field has no terms
+     * @throws IOException if the terms cannot be read
+     */
+    static SymSpellDictionary build(IndexReader reader, String field) throws IOException {
+        Map<String, List<String>> termsByKey = new HashMap<>();
+        Terms terms = MultiTerms.getTerms(reader, field);
+        if (terms != null) {
+            TermsEnum termsEnum = terms.iterator();
+            BytesRef bytes;
+            while ((bytes = termsEnum.next()) != null) {
+                String term = bytes.utf8ToString();
+                if (term.length() <= MAX_WORD_LENGTH) {
+                    for (String key : keys(term)) {
+                        termsByKey.computeIfAbsent(key, k -> new ArrayList<>(1)).add(term);
+                    }
+                }
+            }
+        }
+        return new SymSpellDictionary(termsByKey);
+    }
+
+    /**
+     * Checks if the dictionary can look up a word.
+     *
+     * @param word the word
+     * @return {@code true} if the word is not longer than {@link #MAX_WORD_LENGTH}
+     */
+    static boolean canLookUp(String word) {
+        return word.length() <= MAX_WORD_LENGTH;
+    }
+
+    /**
+     * Returns the terms at one edit of distance at most from {@code word}.
+     *
+     * @param word a word, analysed like the terms of the field
+     * @return the terms, with the word itself first if it is a term. Empty if there are none
+     */
+    List<String> lookUp(String word) {
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String key : keys(word)) {
+            candidates.addAll(termsByKey.getOrDefault(key, List.of()));
+        }
+        List<String> neighbours = new ArrayList<>();
+        if (candidates.remove(word)) {
+            neighbours.add(word);
+        }
+        for (String candidate : candidates) {
+            if (isWithinOneEdit(word, candidate)) {
+                neighbours.add(candidate);
+            }
+        }
+        return neighbours;
+    }
+
+    // The word and all the strings obtained by deleting one of its characters
+    private static Set<String> keys(String word) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(word);
+        for (int i = 0; i < word.length(); i++) {
+            keys.add(word.substring(0, i) + word.substring(i + 1));
+        }
+        return keys;
+    }
+
+    // Optimal string alignment distance of at most 1, the distance fuzzy queries use
+    static boolean isWithinOneEdit(String a, String b) {
+        int lengthDifference = a.length() - b.length();
+        if (Math.abs(lengthDifference) > 1) {
+            return false;
+        }
+        int prefix = 0;
+        int shortest = Math.min(a.length(), b.length());
+        while (prefix < shortest && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix == shortest) {
+            // Equal, or one is the other with an extra character at the end
+            return true;
+        }
+        if (lengthDifference > 0) {
+            return a.substring(prefix + 1).equals(b.substring(prefix));
+        }
+        if (lengthDifference < 0) {
+            return a.substring(prefix).equals(b.substring(prefix + 1));
+        }
+        if (a.substring(prefix + 1).equals(b.substring(prefix + 1))) {
+            return true;
+        }
+        // Transposition of two adjacent characters
+        return prefix + 1 < a.length()
+            && a.charAt(prefix) == b.charAt(prefix + 1)
+            && a.charAt(prefix + 1) == b.charAt(prefix)
+            && a.substring(prefix + 2).equals(b.substring(prefix + 2));
+    }
+
+    /**
+     * Returns the number of keys in the dictionary.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return termsByKey.size();
+    }
+}
@@ -0,0 +1,68 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts texts into a normalised form, so texts that only differ in case, punctuation, stop words or word order
+ * are considered the same. For example, both "Carcinoma of the Breast" and "breast carcinoma" are normalised as
+ * "breast carcinoma".
+ *
+ * <p>The words are obtained with the same analyser used to index the documents (see {@link AnalyzerProvider}), so
+ * a normalised text has the same tokens Lucene stores for it.
+ */
+@Component
+class TextNormalizer {
+
+    private final Analyzer analyzer;
+
+    public TextNormalizer(AnalyzerProvider analyzerProvider) {
+        this.analyzer = analyzerProvider.getAnalyzer();
+    }
+
+    /**
+     * Normalises a text: lower-cased tokens, without stop words, sorted alphabetically and separated by a space.
+     *
+     * @param text the text to normalise
+     * @return the normalised text. Empty if the text is null or has no tokens other than stop words
+     */
+    public String normalize(String text) {
+        List<String> tokens = tokenize(text);
+        Collections.sort(tokens);
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * Splits a text into the tokens the analyser produces for it, in the order they appear.
+     *
+     * @param text the text to split
+     * @return a mutable list with the tokens. Empty if the text is null
+     */
+    public List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        try (TokenStream tokenStream = analyzer.tokenStream("", text)) {
+            CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                tokens.add(termAttribute.toString());
+            }
+            tokenStream.end();
+        } catch (IOException e) {
+            // The text is read from memory, so this is not expected
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+}
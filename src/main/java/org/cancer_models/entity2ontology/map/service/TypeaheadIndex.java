@@ -0,0 +1,242 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingSuggester;
+import org.apache.lucene.search.suggest.analyzing.FuzzySuggester;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.cancer_models.entity2ontology.common.model.OntologyEntityDataFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityFieldName;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+import org.cancer_models.entity2ontology.map.model.TypeaheadSuggestion;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * In-memory suggesters (finite state transducers from the Lucene suggest module) over the labels and synonyms of the
+ * ontology terms in an index, to find the terms matching a partially typed text.
+ *
+ * <p>Suggesters only match the beginning of the texts they are built with, so each label and synonym is added once
+ * per word it has, starting at that word: "Alveolar Rhabdomyosarcoma" is also found by "rhabdo". Weights favour labels
+ * over synonyms like the queries do ({@link QueryBuilder#LABEL_MULTIPLIER}), and texts matched from their first word
+ * over texts matched from a later one.
+ *
+ * <p>The suggester without fuzziness is built with the table. The fuzzy one, which allows one edit after the first
+ * character of the text, is built the first time it is used. Tables are kept in a {@link ReaderScopedCache}, so they
+ * are built again when the index changes.
+ */
+final class TypeaheadIndex {
+
+    private static final String ONTOLOGY_PREFIX = TargetEntityType.ONTOLOGY.getValue() + ".";
+    private static final String LABEL_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.LABEL.getValue();
+    private static final String SYNONYMS_FIELD = ONTOLOGY_PREFIX + OntologyEntityDataFieldName.SYNONYMS.getValue();
+
+    // Maximum number of words a text is added from, so very long synonyms do not blow up the suggesters
+    private static final int MAX_START_WORDS = 10;
+
+    // Suggesters separate the payload from the text with this character, so texts with it cannot be added
+    private static final char RESERVED_CHARACTER = '\u001F';
+
+    // How many more results than requested are looked up, as a term can be found through several of its texts
+    private static final int RESULTS_PER_SUGGESTION = 4;
+
+    // A label or a synonym of the ontology term in a document
+    private record Entry(int docId, String id, String label, String url, String text, boolean synonym) {
+    }
+
+    private final List<Entry> entries;
+    private final Lookup suggester;
+    private volatile Lookup fuzzySuggester;
+
+    private TypeaheadIndex(List<Entry> entries, Lookup suggester) {
+        this.entries = entries;
+        this.suggester = suggester;
+    }
+
+    /**
+     * Builds the table with the labels and synonyms of all the ontology documents read by {@code indexSearcher}.
+     *
+     * @param indexSearcher the searcher whose documents are loaded
+     * @return the table
+     * @throws IOException if the index cannot be read or the suggester cannot be built
+     */
+    static TypeaheadIndex build(IndexSearcher indexSearcher) throws IOException {
+        TermQuery ontologiesQuery = new TermQuery(
+            new Term(TargetEntityFieldName.TARGET_TYPE.getValue(), TargetEntityType.ONTOLOGY.getValue()));
+        int[] ontologyDocs = Searcher.collectDocIds(ontologiesQuery, indexSearcher);
+        List<Entry> entries = new ArrayList<>();
+        StoredFields storedFields = indexSearcher.storedFields();
+        Set<String> fieldsToLoad = Set.of(
+            TargetEntityFieldName.ID.getValue(), TargetEntityFieldName.URL.getValue(), LABEL_FIELD, SYNONYMS_FIELD);
+        for (int docId : ontologyDocs) {
+            Document document = storedFields.document(docId, fieldsToLoad);
+            String id = document.get(TargetEntityFieldName.ID.getValue());
+            String label = document.get(LABEL_FIELD);
+            String url = document.get(TargetEntityFieldName.URL.getValue());
+            addEntry(entries, new Entry(docId, id, label, url, label, false));
+            for (String synonym : document.getValues(SYNONYMS_FIELD)) {
+                addEntry(entries, new Entry(docId, id, label, url, synonym, true));
+            }
+        }
+        return new TypeaheadIndex(entries, buildSuggester(entries, false));
+    }
+
+    private static void addEntry(List<Entry> entries, Entry entry) {
+        if (entry.text() != null && !entry.text().isBlank() && entry.text().indexOf(RESERVED_CHARACTER) < 0) {
+            entries.add(entry);
+        }
+    }
+
+    private static Lookup buildSuggester(List<Entry> entries, boolean fuzzy) throws IOException {
+        // Stop words are kept, otherwise a text ending in one ("carcinoma of") would not match while being typed
+        Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+        // The directory only holds the temporary files used to sort the entries while building
+        try (ByteBuffersDirectory tempDir = new ByteBuffersDirectory()) {
+            AnalyzingSuggester suggester = fuzzy
+                ? new FuzzySuggester(tempDir, "typeahead", analyzer)
+                : new AnalyzingSuggester(tempDir, "typeahead", analyzer);
+            suggester.build(new EntriesIterator(entries));
+            return suggester;
+        }
+    }
+
+    /**
+     * Finds the ontology terms with a label or a synonym that has a word starting with {@code text}, or a sequence of
+     * words starting with the words of {@code text}.
+     *
+     * @param text              the text typed so far
+     * @param maxNumSuggestions the maximum number of terms to return
+     * @param fuzzy             whether to allow one edit (after the first character) between the text and the terms
+     * @return the terms, the best first, each one with the best of its matching texts
+     * @throws IOException if the fuzzy suggester has to be built and cannot be
+     */
+    List<TypeaheadSuggestion> lookUp(String text, int maxNumSuggestions, boolean fuzzy) throws IOException {
+        Lookup lookup = fuzzy ? getFuzzySuggester() : suggester;
+        List<Lookup.LookupResult> results = lookup.lookup(text, false, maxNumSuggestions * RESULTS_PER_SUGGESTION);
+        // Suggestions per document, as different documents could have the same term id
+        Map<Integer, TypeaheadSuggestion> suggestionsByDoc = new LinkedHashMap<>();
+        for (Lookup.LookupResult result : results) {
+            if (suggestionsByDoc.size() == maxNumSuggestions) {
+                break;
+            }
+            Entry entry = entries.get(decodeEntry(result.payload));
+            suggestionsByDoc.putIfAbsent(entry.docId(),
+                new TypeaheadSuggestion(entry.id(), entry.label(), entry.url(), entry.text(), entry.synonym()));
+        }
+        return new ArrayList<>(suggestionsByDoc.values());
+    }
+
+    private Lookup getFuzzySuggester() throws IOException {
+        Lookup lookup = fuzzySuggester;
+        if (lookup == null) {
+            synchronized (this) {
+                lookup = fuzzySuggester;
+                if (lookup == null) {
+                    lookup = buildSuggester(entries, true);
+                    fuzzySuggester = lookup;
+                }
+            }
+        }
+        return lookup;
+    }
+
+    /**
+     * Returns the number of labels and synonyms in the table.
+     *
+     * @return the size of the table
+     */
+    int size() {
+        return entries.size();
+    }
+
+    // Positions in the text where a word starts, at most MAX_START_WORDS
+    static List<Integer> wordStarts(String text) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < text.length() && starts.size() < MAX_START_WORDS; i++) {
+            boolean isWordCharacter = Character.isLetterOrDigit(text.charAt(i));
+            if (isWordCharacter && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))) {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private static BytesRef encodeEntry(int position) {
+        return new BytesRef(new byte[]{
+            (byte) (position >>> 24), (byte) (position >>> 16), (byte) (position >>> 8), (byte) position});
+    }
+
+    private static int decodeEntry(BytesRef payload) {
+        byte[] bytes = payload.bytes;
+        int offset = payload.offset;
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+            | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    // Feeds the suggester with the text of each entry from each of its word starts
+    private static class EntriesIterator implements InputIterator {
+
+        private final List<Entry> entries;
+        private int position = -1;
+        private List<Integer> starts = List.of();
+        private int startIndex;
+        private long weight;
+
+        EntriesIterator(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public BytesRef next() {
+            startIndex++;
+            while (startIndex >= starts.size()) {
+                position++;
+                if (position >= entries.size()) {
+                    return null;
+                }
+                starts = wordStarts(entries.get(position).text());
+                startIndex = 0;
+            }
+            Entry entry = entries.get(position);
+            int fieldMultiplier = entry.synonym() ? QueryBuilder.SYNONYM_MULTIPLIER : QueryBuilder.LABEL_MULTIPLIER;
+            // A text matched from its first word is a better suggestion than one matched from the middle
+            weight = (long) fieldMultiplier * (startIndex == 0 ? 2 : 1);
+            return new BytesRef(entry.text().substring(starts.get(startIndex)));
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public BytesRef payload() {
+            return encodeEntry(position);
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return true;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
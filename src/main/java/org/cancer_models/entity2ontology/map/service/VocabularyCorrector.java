@@ -0,0 +1,112 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replaces the fuzzy queries of up to one edit in a query by blended term queries with the terms of the index that are
+ * at that distance, found in a {@link SymSpellDictionary}.
+ *
+ * <p>Most source words are spelled as in the index, and the few that are not are usually one edit away from an index
+ * term, so the terms are found with a handful of hash lookups instead of building and intersecting an automaton per
+ * word. A word with no term at one edit cannot match a fuzzy query either, so its clause matches nothing. Fuzzy
+ * queries that the dictionary does not handle (more edits, a prefix, very long words) are left as they are.
+ *
+ * <p>The terms are weighted and blended as the default rewrite of a fuzzy query does: each one is boosted by
+ * {@code 1 - edits / min(length of the term, length of the word)}, only the {@link FuzzyQuery#defaultMaxExpansions}
+ * with the highest boost are kept, and their document frequencies are blended so a rare misspelling does not
+ * outscore the word itself. The results and their scores are the ones of the fuzzy query.
+ *
+ * <p>Dictionaries are built per field the first time the field is searched in a reader, and are dropped with the
+ * reader, so they always have the terms of the index version being searched.
+ */
+class VocabularyCorrector {
+
+    // Dictionaries per field, for each open reader
+    private final ReaderScopedCache<Map<String, SymSpellDictionary>> dictionaries =
+        new ReaderScopedCache<>("vocabulary dictionaries", indexSearcher -> new ConcurrentHashMap<>());
+
+    /**
+     * Returns a query equivalent to {@code query}, with its fuzzy queries of up to one edit replaced by blended term
+     * queries.
+     *
+     * @param query         the query to rewrite, with terms analysed as in the index
+     * @param indexSearcher a searcher obtained with {@link Searcher#acquire(String)}, not released yet
+     * @return the rewritten query
+     * @throws IOException if the terms of the index cannot be read
+     */
+    Query correct(Query query, IndexSearcher indexSearcher) throws IOException {
+        Map<String, SymSpellDictionary> fieldDictionaries = dictionaries.get(indexSearcher);
+        try {
+            return rewrite(query, fieldDictionaries, indexSearcher);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Query rewrite(
+        Query query, Map<String, SymSpellDictionary> fieldDictionaries, IndexSearcher indexSearcher) {
+        if (query instanceof BooleanQuery booleanQuery) {
+            BooleanQuery.Builder builder = new BooleanQuery.Builder();
+            builder.setMinimumNumberShouldMatch(booleanQuery.getMinimumNumberShouldMatch());
+            for (BooleanClause clause : booleanQuery.clauses()) {
+                builder.add(rewrite(clause.getQuery(), fieldDictionaries, indexSearcher), clause.getOccur());
+            }
+            return builder.build();
+        }
+        if (query instanceof BoostQuery boostQuery) {
+            Query rewritten = rewrite(boostQuery.getQuery(), fieldDictionaries, indexSearcher);
+            return new BoostQuery(rewritten, boostQuery.getBoost());
+        }
+        if (query instanceof FuzzyQuery fuzzyQuery && canCorrect(fuzzyQuery)) {
+            Term term = fuzzyQuery.getTerm();
+            if (fuzzyQuery.getMaxEdits() == 0) {
+                return new TermQuery(term);
+            }
+            SymSpellDictionary dictionary = fieldDictionaries.computeIfAbsent(
+                term.field(), field -> buildDictionary(indexSearcher, field));
+            String word = term.text();
+            int wordLength = word.codePointCount(0, word.length());
+            List<String> neighbours = dictionary.lookUp(word);
+            Map<String, Float> boosts = new HashMap<>();
+            for (String neighbour : neighbours) {
+                int edits = neighbour.equals(word) ? 0 : 1;
+                int length = Math.min(neighbour.codePointCount(0, neighbour.length()), wordLength);
+                boosts.put(neighbour, 1 - (float) edits / length);
+            }
+            // Like fuzzy queries, only the closest terms are kept
+            BlendedTermQuery.Builder builder = new BlendedTermQuery.Builder()
+                .setRewriteMethod(BlendedTermQuery.BOOLEAN_REWRITE);
+            neighbours.stream()
+                .sorted(Comparator.comparing((String neighbour) -> boosts.get(neighbour)).reversed()
+                    .thenComparing(Comparator.naturalOrder()))
+                .limit(FuzzyQuery.defaultMaxExpansions)
+                .forEach(neighbour -> builder.add(new Term(term.field(), neighbour), boosts.get(neighbour)));
+            return builder.build();
+        }
+        return query;
+    }
+
+    private static boolean canCorrect(FuzzyQuery fuzzyQuery) {
+        return fuzzyQuery.getMaxEdits() <= 1
+            && fuzzyQuery.getPrefixLength() == 0
+            && fuzzyQuery.getTranspositions()
+            && SymSpellDictionary.canLookUp(fuzzyQuery.getTerm().text());
+    }
+
+    private static SymSpellDictionary buildDictionary(IndexSearcher indexSearcher, String field) {
+        try {
+            return SymSpellDictionary.build(indexSearcher.getIndexReader(), field);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -16,12 +16,34 @@ public class IndexTestCreator {
     private static final Indexer indexer = new Indexer();
 
     public static String createIndex(String inputFile) throws IOException {
+        return createIndex(inputFile, null);
+    }
+
+    /**
+     * Creates an index from a JSON file with target entities. Test classes that use the same data give each index
+     * its own name, so deleting the index of one class does not affect the others.
+     *
+     * @param inputFile the JSON file, relative to the input data directory
+     * @param indexName the name of the directory of the index. If null, the name in the JSON file is used
+     * @return the location of the index
+     */
+    public static String createIndex(String inputFile, String indexName) throws IOException {
         String jsonFilePath = INPUT_DATA_DIR + inputFile;
         File jsonFile = FileUtils.getNonEmptyFileFromPath(jsonFilePath);
         IndexInputDataStructure input = JsonConverter.fromJsonFile(jsonFile, IndexInputDataStructure.class);
-        String indexLocation = OUTPUT_DATA_DIR + input.name;
+        String indexLocation = OUTPUT_DATA_DIR + (indexName == null ? input.name : indexName);
         indexer.deleteAll(indexLocation);
         indexer.indexEntities(input.targetEntities, indexLocation);
         return indexLocation;
     }
+
+    /**
+     * Closes the writer of an index created with {@link #createIndex} and deletes it, so it can be created again.
+     *
+     * @param indexLocation the location of the index
+     */
+    public static void deleteIndex(String indexLocation) throws IOException {
+        indexer.close(indexLocation);
+        FileUtils.deleteRecursively(new File(indexLocation));
+    }
 }
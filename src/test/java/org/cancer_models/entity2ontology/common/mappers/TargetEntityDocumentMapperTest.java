@@ -62,6 +62,29 @@ class TargetEntityDocumentMapperTest {
         assertArrayEquals(SYNONYMS_TEST, synonymsData);
     }
 
+    @Test
+    void givenValidTargetEntity_whenTargetEntityToDocument_thenIndexTrigramsOfLabelAndSynonyms() {
+        TargetEntityDataFields dataFields = new TargetEntityDataFields();
+        dataFields.addStringField("label", "Osteoma");
+        dataFields.addStringField("description", DESCRIPTION_TEST);
+        dataFields.addListField("synonyms", new ArrayList<>(List.of("Bone Osteoma", "osteoma")));
+        TargetEntity targetEntity = new TargetEntity(
+            ENTITY_ID_TEST, ENTITY_TYPE_TEST, TARGET_TYPE_TEST, dataFields, "Osteoma", URL_TEST);
+
+        Document document = TargetEntityDocumentMapper.targetEntityToDocument(targetEntity);
+
+        String labelTrigramsField = TargetEntityDocumentMapper.getTrigramFieldName("ontology.label");
+        String synonymsTrigramsField = TargetEntityDocumentMapper.getTrigramFieldName("ontology.synonyms");
+        assertArrayEquals(
+            new String[]{"$os", "ost", "ste", "teo", "eom", "oma", "ma$"}, document.getValues(labelTrigramsField));
+        // Trigrams repeated across synonyms are only indexed once
+        assertEquals(11, document.getValues(synonymsTrigramsField).length);
+        assertEquals(0, document.getValues(
+            TargetEntityDocumentMapper.getTrigramFieldName("ontology.description")).length);
+        // Trigrams are not stored, so they are not part of the data read back from the index
+        assertFalse(document.getField(labelTrigramsField).fieldType().stored());
+    }
+
     @Test
     void givenValidDocument_whenDocumentToTargetEntity_thenReturnTargetEntity() {
         Document document = new Document();
@@ -13,7 +13,14 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class DefaultOntologyExtractorTest {
@@ -27,6 +34,9 @@ class DefaultOntologyExtractorTest {
         OntologyLocation ontologyLocation = createOntologyLocation();
 
         // When we extract target entities
+        doReturn(Set.of()).when(instance).findAncestorIds("ncit", "NCIT_C9305", null);
+        doReturn(Set.of()).when(instance).findAncestorIds("ncit", "NCIT_C3262", null);
+        doReturn(Set.of()).when(instance).findAncestorIds("ncit", "NCIT_C35814", null);
         doReturn(createMockedTermsBranch1())
             .when(instance).downloadOntologyTerms("ncit", "NCIT_C9305", "ncit ontology diagnosis");
         doReturn(createMockedTermsBranch2())
@@ -54,6 +64,100 @@ class DefaultOntologyExtractorTest {
 
     }
 
+    @Test
+    void shouldNotDownloadBranchesThatDescendFromOtherBranches() throws IOException {
+        // Given we have an OntologyLocation where NCIT_C9305 descends from NCIT_C3262
+        OntologyLocation ontologyLocation = createOntologyLocation();
+        doReturn(Set.of("NCIT_C3262", "NCIT_C2991")).when(instance).findAncestorIds("ncit", "NCIT_C9305", null);
+        doReturn(Set.of("NCIT_C2991")).when(instance).findAncestorIds("ncit", "NCIT_C3262", null);
+        doReturn(Set.of()).when(instance).findAncestorIds("ncit", "NCIT_C35814", null);
+        Set<OntologyTerm> neoplasmTerms = new HashSet<>(createMockedTermsBranch2());
+        neoplasmTerms.addAll(createMockedTermsBranch1());
+        doReturn(neoplasmTerms)
+            .when(instance).downloadOntologyTerms("ncit", "NCIT_C3262", "ncit ontology diagnosis");
+        doReturn(createMockedTermsBranch3())
+            .when(instance).downloadOntologyTerms("ncit", "NCIT_C35814", "ncit ontology diagnosis");
+
+        // When we extract target entities
+        List<TargetEntity> targetEntities = instance.extract(ontologyLocation);
+
+        // Then the contained branch is not downloaded, but its terms are still extracted
+        verify(instance, never()).downloadOntologyTerms("ncit", "NCIT_C9305", "ncit ontology diagnosis");
+        assertEquals(3, targetEntities.size());
+        assertNotNull(find(targetEntities, "NCIT_C9305"));
+    }
+
+    @Test
+    void shouldDownloadAllBranchesWhenAncestorsCannotBeObtained() throws IOException {
+        // Given the ancestors of the branches cannot be downloaded
+        OntologyLocation ontologyLocation = createOntologyLocation();
+        doThrow(new IOException("Connection refused")).when(instance).findAncestorIds("ncit", "NCIT_C9305", null);
+        doReturn(createMockedTermsBranch1())
+            .when(instance).downloadOntologyTerms("ncit", "NCIT_C9305", "ncit ontology diagnosis");
+        doReturn(createMockedTermsBranch2())
+            .when(instance).downloadOntologyTerms("ncit", "NCIT_C3262", "ncit ontology diagnosis");
+        doReturn(createMockedTermsBranch3())
+            .when(instance).downloadOntologyTerms("ncit", "NCIT_C35814", "ncit ontology diagnosis");
+
+        // When we extract target entities
+        List<TargetEntity> targetEntities = instance.extract(ontologyLocation);
+
+        // Then every branch is downloaded
+        assertEquals(3, targetEntities.size());
+    }
+
+    @Test
+    void shouldDownloadAllBranchesWhenOntologyCannotBeVerified() throws IOException {
+        // Given the existence of the ontology cannot be verified when getting the ancestors of the branches
+        OntologyLocation ontologyLocation = createOntologyLocation();
+        doThrow(new IllegalArgumentException("Error verifying existence of ontology ncit"))
+            .when(instance).findAncestorIds("ncit", "NCIT_C9305", null);
+        doReturn(createMockedTermsBranch1())
+            .when(instance).downloadOntologyTerms("ncit", "NCIT_C9305", "ncit ontology diagnosis");
+        doReturn(createMockedTermsBranch2())
+            .when(instance).downloadOntologyTerms("ncit", "NCIT_C3262", "ncit ontology diagnosis");
+        doReturn(createMockedTermsBranch3())
+            .when(instance).downloadOntologyTerms("ncit", "NCIT_C35814", "ncit ontology diagnosis");
+
+        // When we extract target entities
+        List<TargetEntity> targetEntities = instance.extract(ontologyLocation);
+
+        // Then every branch is downloaded
+        assertEquals(3, targetEntities.size());
+    }
+
+    @Test
+    void shouldPassEachTermOnceWhenStreamingOverlappingBranches() throws IOException {
+        // Given two branches whose downloaded pages share a term
+        OntologyLocation ontologyLocation = new OntologyLocation(
+            "ncit", "ncit ontology diagnosis", List.of("NCIT_C3262", "NCIT_C35814"), false);
+        doReturn(Set.of()).when(instance).findAncestorIds("ncit", "NCIT_C3262", null);
+        doReturn(Set.of()).when(instance).findAncestorIds("ncit", "NCIT_C35814", null);
+        doAnswer(invocation -> {
+            OntologyDownloader.TermsConsumer consumer = invocation.getArgument(4);
+            consumer.accept(List.copyOf(createMockedTermsBranch2()));
+            consumer.accept(List.copyOf(createMockedTermsBranch1()));
+            return null;
+        }).when(instance).downloadOntologyTerms(
+            eq("ncit"), eq("NCIT_C3262"), eq("ncit ontology diagnosis"), isNull(), any());
+        doAnswer(invocation -> {
+            OntologyDownloader.TermsConsumer consumer = invocation.getArgument(4);
+            consumer.accept(List.copyOf(createMockedTermsBranch3()));
+            consumer.accept(List.copyOf(createMockedTermsBranch1()));
+            return null;
+        }).when(instance).downloadOntologyTerms(
+            eq("ncit"), eq("NCIT_C35814"), eq("ncit ontology diagnosis"), isNull(), any());
+
+        // When we extract the target entities page by page
+        List<TargetEntity> targetEntities = new ArrayList<>();
+        int extracted = instance.extract(ontologyLocation, null, targetEntities::add);
+
+        // Then the shared term is passed only once
+        assertEquals(3, extracted);
+        assertEquals(3, targetEntities.size());
+        assertEquals("Malignant Neoplasm", find(targetEntities, "NCIT_C9305").label());
+    }
+
     @Test
     void shouldRemoveDuplicateSynonyms() throws IOException {
 
@@ -0,0 +1,211 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.common.model.TargetEntityDataFields;
+import org.cancer_models.entity2ontology.common.model.TargetEntityType;
+import org.cancer_models.entity2ontology.index.model.SynchronizationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexerTest {
+
+    private static final String ENTITY_TYPE = "treatment";
+
+    private final Indexer instance = new Indexer();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldAddAllEntitiesWhenIndexIsEmpty() throws IOException {
+        String indexPath = tempDir.resolve("index").toString();
+        List<TargetEntity> entities = List.of(
+            createRule("1", "cisplatin", "Cisplatin"),
+            createRule("2", "carboplatin", "Carboplatin"));
+
+        SynchronizationResult result = instance.synchronizeEntities(
+            entities, ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath);
+
+        assertEquals(new SynchronizationResult(2, 0, 0, 0), result);
+        assertEquals(Map.of("1", "Cisplatin", "2", "Carboplatin"), readLabelsById(indexPath));
+    }
+
+    @Test
+    void shouldOnlyWriteChangesWhenEntitiesAreSynchronizedAgain() throws IOException {
+        String indexPath = tempDir.resolve("index").toString();
+        instance.synchronizeEntities(
+            List.of(
+                createRule("1", "cisplatin", "Cisplatin"),
+                createRule("2", "carboplatin", "Carboplatin"),
+                createRule("3", "paclitaxel", "Paclitaxel")),
+            ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath);
+
+        // Rule 1 is unchanged, rule 2 changed its label, rule 3 was removed and rule 4 is new
+        SynchronizationResult result = instance.synchronizeEntities(
+            List.of(
+                createRule("1", "cisplatin", "Cisplatin"),
+                createRule("2", "carboplatin", "Carboplatin Regimen"),
+                createRule("4", "docetaxel", "Docetaxel")),
+            ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath);
+
+        assertEquals(new SynchronizationResult(1, 1, 1, 1), result);
+        assertEquals(
+            Map.of("1", "Cisplatin", "2", "Carboplatin Regimen", "4", "Docetaxel"), readLabelsById(indexPath));
+    }
+
+    @Test
+    void shouldNotTouchOtherEntityTypesWhenSynchronizing() throws IOException {
+        String indexPath = tempDir.resolve("index").toString();
+        instance.synchronizeEntities(
+            List.of(createRule("1", "cisplatin", "Cisplatin")),
+            ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath);
+        TargetEntity diagnosis = new TargetEntity(
+            "1", "diagnosis", TargetEntityType.RULE, new TargetEntityDataFields(), "Melanoma", "url");
+
+        SynchronizationResult result = instance.synchronizeEntities(
+            List.of(diagnosis), "diagnosis", TargetEntityType.RULE.getValue(), indexPath);
+
+        assertEquals(new SynchronizationResult(1, 0, 0, 0), result);
+        assertEquals(2, countDocuments(indexPath));
+    }
+
+    @Test
+    void shouldRecogniseDocumentsWrittenByIndexEntitiesWhenSynchronizing() throws IOException {
+        String indexPath = tempDir.resolve("index").toString();
+        instance.indexEntities(List.of(createRule("1", "cisplatin", "Cisplatin")), indexPath);
+
+        SynchronizationResult result = instance.synchronizeEntities(
+            List.of(createRule("1", "cisplatin", "Cisplatin")),
+            ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath);
+
+        // Documents written by indexEntities have a hash, so the rule is recognised as unchanged
+        assertEquals(new SynchronizationResult(0, 0, 0, 1), result);
+        assertEquals(1, countDocuments(indexPath));
+    }
+
+    @Test
+    void shouldSynchronizeEntitiesWhileTheyAreProduced() throws IOException {
+        String indexPath = tempDir.resolve("index").toString();
+        instance.synchronizeEntities(
+            List.of(createRule("1", "cisplatin", "Cisplatin")),
+            ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath);
+
+        // More entities than fit in the queues of the pipeline, so the producer has to wait for the writer
+        SynchronizationResult result = instance.synchronizeEntities(
+            ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath, consumer -> {
+                for (int i = 1; i <= 3000; i++) {
+                    consumer.accept(createRule(String.valueOf(i), "treatment" + i, "Treatment " + i));
+                }
+            });
+
+        assertEquals(new SynchronizationResult(2999, 1, 0, 0), result);
+        Map<String, String> labels = readLabelsById(indexPath);
+        assertEquals(3000, labels.size());
+        assertEquals("Treatment 1", labels.get("1"));
+        assertEquals("Treatment 3000", labels.get("3000"));
+    }
+
+    @Test
+    void shouldWriteDocumentsInTheOrderTheyAreProduced() throws IOException {
+        String indexPath = tempDir.resolve("index").toString();
+        List<String> producedIds = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            producedIds.add(String.valueOf(i));
+        }
+
+        // Several converters and small queues, so documents are converted out of order
+        EntitySynchronizer synchronizer =
+            instance.startSynchronization(ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath);
+        new IndexingPipeline(synchronizer, 4, 8).run(consumer -> {
+            for (String id : producedIds) {
+                consumer.accept(createRule(id, "treatment" + id, "Treatment " + id));
+            }
+        });
+        synchronizer.finish();
+
+        assertEquals(producedIds, readIdsInDocumentOrder(indexPath));
+    }
+
+    @Test
+    void shouldKeepIndexUnchangedWhenProducerFails() throws IOException {
+        String indexPath = tempDir.resolve("index").toString();
+        instance.synchronizeEntities(
+            List.of(createRule("1", "cisplatin", "Cisplatin"), createRule("2", "carboplatin", "Carboplatin")),
+            ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath);
+
+        IOException exception = assertThrows(IOException.class, () -> instance.synchronizeEntities(
+            ENTITY_TYPE, TargetEntityType.RULE.getValue(), indexPath, consumer -> {
+                consumer.accept(createRule("3", "paclitaxel", "Paclitaxel"));
+                throw new IOException("Connection reset");
+            }));
+
+        assertEquals("Connection reset", exception.getMessage());
+        assertEquals(Map.of("1", "Cisplatin", "2", "Carboplatin"), readLabelsById(indexPath));
+    }
+
+    private TargetEntity createRule(String id, String treatmentName, String label) {
+        TargetEntityDataFields dataFields = new TargetEntityDataFields();
+        dataFields.addStringField("TreatmentName", treatmentName);
+        return new TargetEntity(id, ENTITY_TYPE, TargetEntityType.RULE, dataFields, label, "url_" + id);
+    }
+
+    private Map<String, String> readLabelsById(String indexPath) throws IOException {
+        Map<String, String> labels = new HashMap<>();
+        instance.close(indexPath);
+        try (DirectoryReader reader = openReader(indexPath)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            TopDocs topDocs = searcher.search(
+                new TermQuery(new Term("entityType", ENTITY_TYPE)), Math.max(1, reader.numDocs()));
+            StoredFields storedFields = searcher.storedFields();
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                Document document = storedFields.document(scoreDoc.doc);
+                assertNull(labels.put(document.get("id"), document.get("label")), "Duplicated document");
+            }
+        }
+        return labels;
+    }
+
+    private List<String> readIdsInDocumentOrder(String indexPath) throws IOException {
+        List<String> ids = new ArrayList<>();
+        instance.close(indexPath);
+        try (DirectoryReader reader = openReader(indexPath)) {
+            StoredFields storedFields = reader.storedFields();
+            for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                ids.add(storedFields.document(doc).get("id"));
+            }
+        }
+        return ids;
+    }
+
+    private int countDocuments(String indexPath) throws IOException {
+        instance.close(indexPath);
+        try (DirectoryReader reader = openReader(indexPath)) {
+            return new IndexSearcher(reader).count(new MatchAllDocsQuery());
+        }
+    }
+
+    private DirectoryReader openReader(String indexPath) throws IOException {
+        Directory directory = FSDirectory.open(Path.of(indexPath));
+        return DirectoryReader.open(directory);
+    }
+}
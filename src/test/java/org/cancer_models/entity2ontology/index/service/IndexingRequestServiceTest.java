@@ -1,16 +1,22 @@
 package org.cancer_models.entity2ontology.index.service;
 
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.FSDirectory;
 import org.cancer_models.entity2ontology.common.utils.FileUtils;
 import org.cancer_models.entity2ontology.index.model.IndexingRequest;
 import org.cancer_models.entity2ontology.index.model.IndexingResponse;
 import org.cancer_models.entity2ontology.index.model.OntologyLocation;
 import org.cancer_models.entity2ontology.index.model.RuleLocation;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -19,11 +25,17 @@ class IndexingRequestServiceTest {
 
     private static final String DATA_DIR = "src/test/resources/indexingRequest/";
 
-    private final RulesetExtractor rulesetExtractor = new DefaultRulesetExtractor();
+    private final RulesetExtractor rulesetExtractor = new StreamingRulesetExtractor();
     private final OntologyExtractor ontologyExtractor = new DefaultOntologyExtractor();
     private final Indexer indexer = new Indexer();
-    private final IndexingService indexingService = new IndexingService(rulesetExtractor, ontologyExtractor, indexer);
-    private final IndexingRequestService instance = new IndexingRequestService(indexingService);
+    private final OntologyExtractor localFileOntologyExtractor = new LocalFileOntologyExtractor();
+    private final IndexingService indexingService = new IndexingService(
+        rulesetExtractor, ontologyExtractor, localFileOntologyExtractor, indexer);
+    private final IndexVersionManager indexVersionManager = new IndexVersionManager();
+    private final IndexingRequestService instance = new IndexingRequestService(indexingService, indexVersionManager);
+
+    @TempDir
+    Path tempDir;
 
     @Test
     void shouldProcessIndexingRequestByFile() throws IOException {
@@ -41,6 +53,98 @@ class IndexingRequestServiceTest {
         FileUtils.deleteRecursively(new File(response.indexPath()));
     }
 
+    @Test
+    void shouldPublishNewVersionWhenAtomicSwapIsEnabled() throws IOException {
+        // Given a request that indexes into a versioned index
+        String indexPath = tempDir.resolve("index").toString();
+        IndexingRequest request = new IndexingRequest(indexPath, List.of(createTreatmentRuleLocation()), null, true, null);
+
+        // When we process the request twice
+        instance.processRequest(request);
+        Path firstVersion = indexVersionManager.getLiveVersion(indexPath);
+        IndexingResponse response = instance.processRequest(request);
+        Path secondVersion = indexVersionManager.getLiveVersion(indexPath);
+
+        // Then the index path is a link to the latest version, which contains the indexed data
+        assertTrue(Files.isSymbolicLink(Path.of(indexPath)));
+        assertNotEquals(firstVersion, secondVersion);
+        assertEquals(2, response.indexedElementsPerTarget().get("treatment"));
+        assertTrue(Indexer.isValidLuceneIndex(indexPath));
+
+        // And the previous version can be restored
+        instance.rollback(indexPath);
+        assertEquals(firstVersion, indexVersionManager.getLiveVersion(indexPath));
+        assertTrue(Indexer.isValidLuceneIndex(indexPath));
+    }
+
+    @Test
+    void shouldRollBackToTheVersionLiveBeforeTheCurrentOne() throws IOException {
+        // Given a good version and a bad one, which is rolled back
+        String indexPath = tempDir.resolve("index").toString();
+        IndexingRequest request = new IndexingRequest(indexPath, List.of(createTreatmentRuleLocation()), null, true, null);
+        instance.processRequest(request);
+        Path goodVersion = indexVersionManager.getLiveVersion(indexPath);
+        instance.processRequest(request);
+        Path badVersion = indexVersionManager.getLiveVersion(indexPath);
+        instance.rollback(indexPath);
+
+        // When a new version is published and then rolled back
+        instance.processRequest(request);
+        Path newVersion = indexVersionManager.getLiveVersion(indexPath);
+        instance.rollback(indexPath);
+
+        // Then the good version is live again, and the bad one was removed when the new version was published
+        assertNotEquals(goodVersion, newVersion);
+        assertEquals(goodVersion, indexVersionManager.getLiveVersion(indexPath));
+        assertTrue(Indexer.isValidLuceneIndex(indexPath));
+        assertFalse(Files.exists(badVersion));
+    }
+
+    @Test
+    void shouldKeepCurrentVersionWhenAtomicBuildFails() throws IOException {
+        // Given a published version of the index
+        String indexPath = tempDir.resolve("index").toString();
+        instance.processRequest(new IndexingRequest(indexPath, List.of(createTreatmentRuleLocation()), null, true, null));
+        Path liveVersion = indexVersionManager.getLiveVersion(indexPath);
+
+        // When a new build fails
+        RuleLocation wrongLocation = new RuleLocation(
+            "src/test/resources/indexingRequest/rules/missing_id_treatment_mappings.json",
+            "treatment", false, createTreatmentRuleLocation().fieldsConversion());
+        IndexingRequest wrongRequest = new IndexingRequest(indexPath, List.of(wrongLocation), null, true, null);
+        assertThrows(IllegalArgumentException.class, () -> instance.processRequest(wrongRequest));
+
+        // Then the index still points to the same version
+        assertEquals(liveVersion, indexVersionManager.getLiveVersion(indexPath));
+        assertTrue(Indexer.isValidLuceneIndex(indexPath));
+    }
+
+    @Test
+    void shouldNotIndexPartOfRulesetWhenARuleIsInvalid() throws IOException {
+        // Given a ruleset where the first rule is valid and the second one is not
+        Path rulesFile = tempDir.resolve("rules.json");
+        String validRule = Files.readString(Path.of(createTreatmentRuleLocation().filePath()));
+        String invalidRule = Files.readString(Path.of(DATA_DIR + "rules/missing_url_treatment_mappings.json"));
+        Files.writeString(rulesFile, validRule.substring(0, validRule.lastIndexOf(']')) + ","
+            + invalidRule.substring(invalidRule.indexOf('[') + 1));
+        RuleLocation wrongLocation = new RuleLocation(
+            rulesFile.toString(), "treatment", false, createTreatmentRuleLocation().fieldsConversion());
+        String indexPath = tempDir.resolve("index").toString();
+
+        // When indexing the ruleset fails and another location is indexed afterwards
+        IndexingRequest wrongRequest = new IndexingRequest(indexPath, List.of(wrongLocation), null, false, null);
+        assertThrows(IllegalArgumentException.class, () -> instance.processRequest(wrongRequest));
+        RuleLocation otherLocation = new RuleLocation(
+            createTreatmentRuleLocation().filePath(), "other", false, createTreatmentRuleLocation().fieldsConversion());
+        instance.processRequest(new IndexingRequest(indexPath, List.of(otherLocation), null, false, null));
+        indexingService.closeIndex(indexPath);
+
+        // Then only the documents of the second location are in the index
+        try (DirectoryReader reader = DirectoryReader.open(FSDirectory.open(Path.of(indexPath)))) {
+            assertEquals(2, reader.numDocs());
+        }
+    }
+
     @Test
     void shouldReturnIndexingRequestWhenFileHasCorrectData() throws IOException {
         // Given a file that has right data
@@ -113,4 +217,16 @@ class IndexingRequestServiceTest {
         // Then we get an IOException
         assertEquals("File is empty: " + fileToRead, exception.getMessage());
     }
+
+    private RuleLocation createTreatmentRuleLocation() {
+        Map<String, String> fieldsConversion = Map.of(
+            "id", "mappingKey",
+            "entityType", "entityType",
+            "data", "mappingValues",
+            "label", "mappedTermLabel",
+            "url", "mappedTermUrl");
+        return new RuleLocation(
+            "src/test/resources/indexingRequest/rules/correct_treatment_mappings.json",
+            "treatment", false, fieldsConversion);
+    }
 }
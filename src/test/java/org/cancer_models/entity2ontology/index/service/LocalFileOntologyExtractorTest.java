@@ -0,0 +1,144 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.index.model.OntologyLocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFileOntologyExtractorTest {
+
+    private static final String DATA_DIR = "src/test/resources/ontologyFiles/";
+    private static final String OBO_FILE = DATA_DIR + "small_ncit.obo";
+    private static final String OWL_FILE = DATA_DIR + "small_ncit.owl";
+
+    private final LocalFileOntologyExtractor instance = new LocalFileOntologyExtractor();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldExtractBranchDescendantsFromOboFile() throws IOException {
+        // Given a location pointing to an OBO file and the "Malignant Neoplasm" branch
+        OntologyLocation location = createLocation(OBO_FILE, List.of("NCIT_C9305"));
+
+        // When we extract the target entities
+        List<TargetEntity> targetEntities = instance.extract(location);
+
+        // Then we get the branch root and its (non obsolete) descendants
+        assertEquals(Set.of("NCIT_C9305", "NCIT_C3850"), getIds(targetEntities));
+        TargetEntity pancreatic = find(targetEntities, "NCIT_C3850");
+        assertEquals("Malignant Pancreatic Neoplasm", pancreatic.label());
+        assertEquals("http://purl.obolibrary.org/obo/NCIT_C3850", pancreatic.url());
+        assertEquals("diagnosis", pancreatic.entityType());
+        assertEquals("A primary or metastatic malignant neoplasm involving the \"pancreas\".",
+            pancreatic.dataFields().getStringField("description"));
+        assertEquals(List.of("pancreatic cancer"), pancreatic.dataFields().getListField("synonyms"));
+    }
+
+    @Test
+    void shouldExtractBranchDescendantsFromOwlFile() throws IOException {
+        // Given a location pointing to an OWL file and the "Neoplasm" branch
+        OntologyLocation location = createLocation(OWL_FILE, List.of("NCIT_C3262"));
+
+        // When we extract the target entities
+        List<TargetEntity> targetEntities = instance.extract(location);
+
+        // Then we get the branch root and all its descendants, ignoring anonymous superclasses
+        assertEquals(Set.of("NCIT_C3262", "NCIT_C9305", "NCIT_C3850"), getIds(targetEntities));
+        TargetEntity malignantNeoplasm = find(targetEntities, "NCIT_C9305");
+        assertEquals("Malignant Neoplasm", malignantNeoplasm.label());
+        assertEquals(
+            Set.of("cancer", "malignant tumor"), Set.copyOf(malignantNeoplasm.dataFields().getListField("synonyms")));
+        assertEquals("A primary or metastatic malignant neoplasm involving the \"pancreas\".",
+            find(targetEntities, "NCIT_C3850").dataFields().getStringField("description"));
+    }
+
+    @Test
+    void shouldProduceSameTermsFromOboAndOwlFiles() throws IOException {
+        List<String> branches = List.of("NCIT_C3262", "NCIT_C3999");
+
+        List<TargetEntity> fromObo = instance.extract(createLocation(OBO_FILE, branches));
+        List<TargetEntity> fromOwl = instance.extract(createLocation(OWL_FILE, branches));
+
+        assertEquals(getIds(fromObo), getIds(fromOwl));
+        assertEquals(4, fromObo.size());
+    }
+
+    @Test
+    void shouldReadGzipCompressedFile() throws IOException {
+        // Given a gzip compressed OBO file
+        Path compressedFile = tempDir.resolve("small_ncit.obo.gz");
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(compressedFile))) {
+            Files.copy(Path.of(OBO_FILE), outputStream);
+        }
+
+        // When we extract the target entities
+        List<TargetEntity> targetEntities = instance.extract(
+            createLocation(compressedFile.toString(), List.of("NCIT_C9305")));
+
+        // Then we get the same terms as with the uncompressed file
+        assertEquals(Set.of("NCIT_C9305", "NCIT_C3850"), getIds(targetEntities));
+    }
+
+    @Test
+    void shouldReadOntologyInsideZipFile() throws IOException {
+        // Given a zip archive containing an OWL file
+        Path archive = tempDir.resolve("release.zip");
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(archive))) {
+            outputStream.putNextEntry(new ZipEntry("README.txt"));
+            outputStream.write("release notes".getBytes());
+            outputStream.putNextEntry(new ZipEntry("ontology/small_ncit.owl"));
+            Files.copy(Path.of(OWL_FILE), outputStream);
+        }
+
+        // When we extract the target entities
+        List<TargetEntity> targetEntities = instance.extract(
+            createLocation(archive.toString(), List.of("NCIT_C9305")));
+
+        // Then the OWL file in the archive is read
+        assertEquals(Set.of("NCIT_C9305", "NCIT_C3850"), getIds(targetEntities));
+    }
+
+    @Test
+    void shouldFailWhenFileDoesNotExist() {
+        OntologyLocation location = createLocation(DATA_DIR + "NonExisting.obo", List.of("NCIT_C9305"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            instance.extract(location));
+
+        assertEquals(DATA_DIR + "NonExisting.obo (No such file or directory)", exception.getMessage());
+    }
+
+    @Test
+    void shouldFailWhenFormatIsNotSupported() {
+        OntologyLocation location = createLocation(
+            "src/test/resources/indexingRequest/indexingRequest.json", List.of("NCIT_C9305"));
+
+        assertThrows(IllegalArgumentException.class, () -> instance.extract(location));
+    }
+
+    private OntologyLocation createLocation(String filePath, List<String> branches) {
+        return new OntologyLocation("ncit", "diagnosis", branches, false, filePath);
+    }
+
+    private Set<String> getIds(List<TargetEntity> targetEntities) {
+        return targetEntities.stream().map(TargetEntity::id).collect(Collectors.toSet());
+    }
+
+    private TargetEntity find(List<TargetEntity> targetEntities, String id) {
+        return targetEntities.stream().filter(e -> e.id().equals(id)).findFirst().orElseThrow();
+    }
+}
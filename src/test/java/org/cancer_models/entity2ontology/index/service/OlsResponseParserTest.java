@@ -0,0 +1,91 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.cancer_models.entity2ontology.common.model.OntologyTerm;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OlsResponseParserTest {
+
+    private static final String DATA_DIR = "src/test/resources/olsResponses/";
+
+    private final OlsResponseParser instance = new OlsResponseParser();
+
+    @Test
+    void shouldParseRootTermAndDescendantsLink() throws IOException {
+        // Given the OLS response for a term
+        try (InputStream inputStream = Files.newInputStream(Path.of(DATA_DIR + "rootTerm.json"))) {
+
+            // When we parse it
+            OlsResponseParser.RootTerm rootTerm = instance.parseRootTerm(inputStream, "diagnosis");
+
+            // Then we get the term, using only the first description, and the link to its descendants
+            OntologyTerm term = rootTerm.term();
+            assertEquals("NCIT_C158908", term.id());
+            assertEquals("http://purl.obolibrary.org/obo/NCIT_C158908", term.url());
+            assertEquals("Pancreatic Neoplasm", term.label());
+            assertEquals("diagnosis", term.type());
+            assertEquals("A neoplasm that arises from the pancreas.", term.description());
+            assertEquals(List.of("Pancreatic Neoplasm", "Tumor of Pancreas"), term.synonyms());
+            assertTrue(rootTerm.descendantsHref().endsWith("NCIT_C158908/hierarchicalDescendants"));
+        }
+    }
+
+    @Test
+    void shouldParseTermsPage() throws IOException {
+        // Given a page of descendants
+        try (InputStream inputStream = Files.newInputStream(Path.of(DATA_DIR + "descendantsPage.json"))) {
+
+            // When we parse it
+            OlsResponseParser.TermsPage page = instance.parseTermsPage(inputStream, "diagnosis");
+
+            // Then we get the terms and the pagination information
+            assertEquals(5, page.totalPages());
+            assertTrue(page.nextHref().contains("page=1"));
+            assertEquals(2, page.terms().size());
+
+            OntologyTerm first = page.terms().get(0);
+            assertEquals("NCIT_C3850", first.id());
+            assertEquals("Malignant Pancreatic Neoplasm", first.label());
+            assertEquals("A malignant neoplasm arising from the pancreas.", first.description());
+            assertEquals(List.of("Pancreatic Cancer", "Malignant Pancreatic Neoplasm"), first.synonyms());
+
+            // Missing fields are empty
+            OntologyTerm second = page.terms().get(1);
+            assertEquals("NCIT_C4341", second.id());
+            assertEquals("", second.description());
+            assertTrue(second.synonyms().isEmpty());
+        }
+    }
+
+    @Test
+    void shouldReturnNoTermsWhenPageHasNoEmbeddedTerms() throws IOException {
+        // Given a page without terms or pagination
+        InputStream inputStream = new ByteArrayInputStream("{\"_links\": {}}".getBytes(StandardCharsets.UTF_8));
+
+        // When we parse it
+        OlsResponseParser.TermsPage page = instance.parseTermsPage(inputStream, "diagnosis");
+
+        // Then the page is empty and has no pagination information
+        assertTrue(page.terms().isEmpty());
+        assertEquals(-1, page.totalPages());
+        assertNull(page.nextHref());
+    }
+
+    @Test
+    void shouldFailWhenResponseIsNotAnObject() {
+        // Given a response that is not a JSON object
+        InputStream inputStream = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+
+        // When we parse it, then we get an exception
+        assertThrows(IOException.class, () -> instance.parseTermsPage(inputStream, "diagnosis"));
+    }
+}
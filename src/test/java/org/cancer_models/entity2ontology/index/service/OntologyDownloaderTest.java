@@ -1,16 +1,49 @@
 package org.cancer_models.entity2ontology.index.service;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
 import org.cancer_models.entity2ontology.common.model.OntologyTerm;
+import org.cancer_models.entity2ontology.index.model.OntologyCacheSettings;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class OntologyDownloaderTest {
 
+    private static final int STUB_TOTAL_PAGES = 3;
+
+    private HttpServer stubServer;
+
+    @TempDir
+    Path cacheDir;
+
+    // Number of requests received by the stub server per path
+    private final Map<String, AtomicInteger> stubRequests = new ConcurrentHashMap<>();
+
+    @AfterEach
+    void stopStubServer() {
+        if (stubServer != null) {
+            stubServer.stop(0);
+        }
+    }
+
     @Test
     void shouldFailWhenNullOntologyName() {
         // Given a null ontologyName
@@ -90,4 +123,175 @@ class OntologyDownloaderTest {
         // Then we get a collection of ontology terms
         assertTrue(ontologyTermSet.size() > 1);
     }
+
+    @Test
+    void shouldDownloadAllPagesWhenBranchHasSeveralPages() throws IOException {
+        // Given a stub OLS server with a branch whose descendants are split in 3 pages
+        OntologyDownloader ontologyDownloader = createStubDownloader(0);
+
+        // When we download the branch
+        Set<OntologyTerm> ontologyTermSet = ontologyDownloader.downloadOntologyTerms("ncit", "NCIT_C1", "diagnosis");
+
+        // Then we get the root term and the terms of every page
+        Set<String> ids = ontologyTermSet.stream().map(OntologyTerm::id).collect(Collectors.toSet());
+        assertEquals(Set.of("NCIT_C1", "NCIT_C10", "NCIT_C11", "NCIT_C12"), ids);
+        assertEquals(1, stubRequests.get("page=2").get());
+    }
+
+    @Test
+    void shouldRetryWhenServerIsTemporarilyUnavailable() throws IOException {
+        // Given a stub OLS server that fails twice with 503 for each page before answering
+        OntologyDownloader ontologyDownloader = createStubDownloader(2);
+
+        // When we download the branch
+        Set<OntologyTerm> ontologyTermSet = ontologyDownloader.downloadOntologyTerms("ncit", "NCIT_C1", "diagnosis");
+
+        // Then the requests are retried and all the terms are downloaded
+        assertEquals(4, ontologyTermSet.size());
+        assertEquals(3, stubRequests.get("page=1").get());
+    }
+
+    @Test
+    void shouldCheckOntologyExistsOnlyOnce() throws IOException {
+        // Given a stub OLS server
+        OntologyDownloader ontologyDownloader = createStubDownloader(0);
+
+        // When we download two branches of the same ontology
+        ontologyDownloader.downloadOntologyTerms("ncit", "NCIT_C1", "diagnosis");
+        ontologyDownloader.downloadOntologyTerms("ncit", "NCIT_C1", "treatment");
+
+        // Then the existence of the ontology is checked only once
+        assertEquals(1, stubRequests.get("ontology").get());
+    }
+
+    @Test
+    void shouldFailWhenUnknownOntologyInStubServer() throws IOException {
+        // Given a stub OLS server
+        OntologyDownloader ontologyDownloader = createStubDownloader(0);
+
+        // When we try to download the branch of an ontology the server does not have
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            ontologyDownloader.downloadOntologyTerms("unknown", "NCIT_C1", "diagnosis"));
+
+        // Then we get an exception explaining the ontology does not exist
+        assertEquals("The ontology unknown does not exist in OLS", exception.getMessage());
+    }
+
+    @Test
+    void shouldDownloadFromCacheWhenOffline() throws IOException {
+        // Given a branch downloaded once using a cache
+        OntologyDownloader ontologyDownloader = createStubDownloader(0);
+        OntologyPageCache onlineCache = new OntologyPageCache(
+            new OntologyCacheSettings(cacheDir.toString(), 60, false));
+        Set<OntologyTerm> onlineTerms = ontologyDownloader.downloadOntologyTerms(
+            "ncit", "NCIT_C1", "diagnosis", onlineCache);
+
+        // When OLS is not available and we download the branch in offline mode
+        stubServer.stop(0);
+        OntologyPageCache offlineCache = new OntologyPageCache(
+            new OntologyCacheSettings(cacheDir.toString(), 60, true));
+        Set<OntologyTerm> offlineTerms = ontologyDownloader.downloadOntologyTerms(
+            "ncit", "NCIT_C1", "diagnosis", offlineCache);
+
+        // Then we get the same terms
+        assertEquals(onlineTerms, offlineTerms);
+    }
+
+    @Test
+    void shouldUseStalePagesWhenOlsCannotBeReached() throws IOException {
+        // Given a branch downloaded once using a cache whose pages are always stale
+        OntologyDownloader ontologyDownloader = createStubDownloader(0);
+        OntologyPageCache staleCache = new OntologyPageCache(cacheDir, Duration.ZERO, false, Clock.systemUTC());
+        Set<OntologyTerm> onlineTerms = ontologyDownloader.downloadOntologyTerms(
+            "ncit", "NCIT_C1", "diagnosis", staleCache);
+
+        // When OLS is not available and a new downloader gets the branch in online mode
+        String serverUrl = "http://localhost:" + stubServer.getAddress().getPort() + "/ontologies/";
+        stubServer.stop(0);
+        OntologyDownloader networkDownDownloader = new OntologyDownloader(
+            serverUrl, HttpClient.newHttpClient(), 2, 3, Duration.ofMillis(1));
+        Set<OntologyTerm> cachedTerms = networkDownDownloader.downloadOntologyTerms(
+            "ncit", "NCIT_C1", "diagnosis", staleCache);
+
+        // Then the stale pages in the cache are used
+        assertEquals(onlineTerms, cachedTerms);
+    }
+
+    @Test
+    void shouldDownloadAncestorIds() throws IOException {
+        // Given a stub OLS server
+        OntologyDownloader ontologyDownloader = createStubDownloader(0);
+
+        // When we download the ancestors of a term
+        Set<String> ancestorIds = ontologyDownloader.downloadAncestorIds("ncit", "NCIT_C1", null);
+
+        // Then we get the ids of all the ancestors
+        assertEquals(Set.of("NCIT_C0", "NCIT_C00"), ancestorIds);
+        assertEquals(1, stubRequests.get("ancestors").get());
+    }
+
+    /**
+     * Starts a stub server imitating the OLS API for the ontology "ncit": the term NCIT_C1 has 3 pages of
+     * descendants (NCIT_C10, NCIT_C11 and NCIT_C12, one per page) and 2 ancestors (NCIT_C0 and NCIT_C00).
+     *
+     * @param failuresPerPage number of times each page after the first one answers 503 before answering the data
+     */
+    private OntologyDownloader createStubDownloader(int failuresPerPage) throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        String serverUrl = "http://localhost:" + stubServer.getAddress().getPort();
+        String descendantsUrl = serverUrl + "/ontologies/ncit/terms/root/hierarchicalDescendants";
+
+        stubServer.createContext("/ontologies/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getQuery();
+            if (path.equals("/ontologies/ncit")) {
+                countRequest("ontology");
+                respond(exchange, 200, "{\"ontologyId\": \"ncit\"}");
+            } else if (path.endsWith("/hierarchicalDescendants")) {
+                String page = query.substring(query.indexOf("page="));
+                int requests = countRequest(page);
+                int pageNumber = Integer.parseInt(page.substring("page=".length()));
+                if (pageNumber > 0 && requests <= failuresPerPage) {
+                    respond(exchange, 503, "");
+                } else {
+                    respond(exchange, 200, String.format(
+                        "{\"_embedded\": {\"terms\": [%s]}, \"page\": {\"totalPages\": %d}}",
+                        termJson("NCIT_C1" + pageNumber), STUB_TOTAL_PAGES));
+                }
+            } else if (path.endsWith("/hierarchicalAncestors")) {
+                countRequest("ancestors");
+                respond(exchange, 200, String.format(
+                    "{\"_embedded\": {\"terms\": [%s, %s]}, \"page\": {\"totalPages\": 1}}",
+                    termJson("NCIT_C0"), termJson("NCIT_C00")));
+            } else if (path.startsWith("/ontologies/ncit/terms/")) {
+                respond(exchange, 200, termJson("NCIT_C1").replace(
+                    "}", String.format(", \"_links\": {\"hierarchicalDescendants\": {\"href\": \"%s\"}}}",
+                        descendantsUrl)));
+            } else {
+                respond(exchange, 404, "");
+            }
+        });
+        stubServer.start();
+
+        return new OntologyDownloader(
+            serverUrl + "/ontologies/", HttpClient.newHttpClient(), 2, 3, Duration.ofMillis(1));
+    }
+
+    private int countRequest(String key) {
+        return stubRequests.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private String termJson(String id) {
+        return String.format(
+            "{\"short_form\": \"%s\", \"label\": \"label %s\", \"iri\": \"http://purl.obolibrary.org/obo/%s\"}",
+            id, id, id);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
 }
@@ -0,0 +1,174 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OntologyPageCacheTest {
+
+    private static final String URL = "https://www.ebi.ac.uk/ols4/api/ontologies/ncit/terms/x?size=1000&page=0";
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @TempDir
+    Path cacheDir;
+
+    // Conditional headers (etag, lastModified) received by the fetcher in each request
+    private final List<String> requests = new ArrayList<>();
+
+    @Test
+    void shouldDownloadPageWhenNotCached() throws IOException {
+        OntologyPageCache cache = createCache(NOW, false);
+
+        Path page = cache.getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 1}"));
+
+        assertEquals("{\"a\": 1}", Files.readString(page));
+        assertEquals(cacheDir.resolve("ncit").resolve("NCIT_C1").resolve("page-0.json"), page);
+        assertEquals(List.of("null/null"), requests);
+    }
+
+    @Test
+    void shouldNotContactServerWhenPageIsFresh() throws IOException {
+        createCache(NOW, false).getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 1}"));
+
+        Path page = createCache(NOW.plus(Duration.ofMinutes(30)), false)
+            .getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 2}"));
+
+        assertEquals("{\"a\": 1}", Files.readString(page));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void shouldRevalidatePageWhenItIsStale() throws IOException {
+        createCache(NOW, false).getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 1}"));
+
+        OntologyPageCache laterCache = createCache(NOW.plus(Duration.ofHours(2)), false);
+        Path page = laterCache.getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(304, ""));
+
+        // The conditional headers are sent, and the cached copy is kept as it was not modified
+        assertEquals("\"v1\"/Wed, 01 Jan 2025 09:00:00 GMT", requests.get(1));
+        assertEquals("{\"a\": 1}", Files.readString(page));
+
+        // The revalidation makes the page fresh again
+        laterCache.getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 3}"));
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void shouldReplacePageWhenItChanged() throws IOException {
+        createCache(NOW, false).getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 1}"));
+
+        Path page = createCache(NOW.plus(Duration.ofHours(2)), false)
+            .getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 2}"));
+
+        assertEquals("{\"a\": 2}", Files.readString(page));
+    }
+
+    @Test
+    void shouldUseStalePageWhenServerCannotBeReached() throws IOException {
+        createCache(NOW, false).getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 1}"));
+
+        Path page = createCache(NOW.plus(Duration.ofHours(2)), false).getPage(
+            "ncit", "NCIT_C1", "page-0", URL, (url, etag, lastModified) -> {
+                throw new IOException("Connection refused");
+            });
+
+        assertEquals("{\"a\": 1}", Files.readString(page));
+    }
+
+    @Test
+    void shouldUseCachedPageWithoutRequestsWhenOffline() throws IOException {
+        createCache(NOW, false).getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 1}"));
+
+        Path page = createCache(NOW.plus(Duration.ofDays(30)), true)
+            .getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{\"a\": 2}"));
+
+        assertEquals("{\"a\": 1}", Files.readString(page));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void shouldFailWhenPageIsNotCachedAndOffline() {
+        OntologyPageCache cache = createCache(NOW, true);
+
+        IOException exception = assertThrows(IOException.class, () ->
+            cache.getPage("ncit", "NCIT_C1", "page-0", URL, fetcher(200, "{}")));
+
+        assertTrue(exception.getMessage().contains("offline mode is enabled"));
+        assertTrue(requests.isEmpty());
+    }
+
+    private OntologyPageCache createCache(Instant now, boolean offline) {
+        return new OntologyPageCache(cacheDir, TTL, offline, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private OntologyPageCache.PageFetcher fetcher(int status, String body) {
+        return (url, etag, lastModified) -> {
+            requests.add(etag + "/" + lastModified);
+            return new StubResponse(status, body);
+        };
+    }
+
+    // Minimal HttpResponse with fixed ETag and Last-Modified headers
+    private record StubResponse(int statusCode, String content) implements HttpResponse<InputStream> {
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(URI.create(URL)).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<InputStream>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(
+                Map.of("ETag", List.of("\"v1\""), "Last-Modified", List.of("Wed, 01 Jan 2025 09:00:00 GMT")),
+                (name, value) -> true);
+        }
+
+        @Override
+        public InputStream body() {
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return URI.create(URL);
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_2;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.cancer_models.entity2ontology.index.service;
+
+import org.cancer_models.entity2ontology.common.model.TargetEntity;
+import org.cancer_models.entity2ontology.index.model.RuleLocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingRulesetExtractorTest {
+
+    private static final String TEST_FOLDER = "src/test/resources/indexingRequest/rules/";
+    private final StreamingRulesetExtractor instance = new StreamingRulesetExtractor();
+    private final Map<String, String> fieldsConversion = buildFieldsConversion();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldGetSameRulesetAsDefaultExtractor() throws IOException {
+        // Given a ruleSetTarget with valid information
+        RuleLocation ruleLocation = buildRuleLocation("correct_treatment_mappings.json");
+
+        // When we extract the ruleset with both extractors
+        List<TargetEntity> entities = instance.extract(ruleLocation);
+        List<TargetEntity> expected = new DefaultRulesetExtractor().extract(ruleLocation);
+
+        // Then we get the same entities
+        assertEquals(2, entities.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).id(), entities.get(i).id());
+            assertEquals(expected.get(i).entityType(), entities.get(i).entityType());
+            assertEquals(expected.get(i).targetType(), entities.get(i).targetType());
+            assertEquals(expected.get(i).label(), entities.get(i).label());
+            assertEquals(expected.get(i).url(), entities.get(i).url());
+            assertEquals(expected.get(i).dataFields().getStringFields(), entities.get(i).dataFields().getStringFields());
+        }
+    }
+
+    @Test
+    void shouldPassEntitiesToConsumerInOrder() throws IOException {
+        // Given a ruleSetTarget with valid information
+        RuleLocation ruleLocation = buildRuleLocation("correct_treatment_mappings.json");
+
+        // When we extract the ruleset with a consumer
+        List<String> ids = new ArrayList<>();
+        int count = instance.extract(ruleLocation, targetEntity -> ids.add(targetEntity.id()));
+
+        // Then the consumer receives each rule in the order of the file
+        assertEquals(2, count);
+        assertEquals(List.of(
+            "000af81b6bc1715523ea537847899c3c7a1f589d1404b302cfeddce2a997eaec",
+            "0055a7ad3bb5270aa9a6e53a95d5b730a11d0709830c13b69594a046c9a00ec5"), ids);
+    }
+
+    @Test
+    void shouldReadSeveralFieldsFromSameProperty() throws IOException {
+        // Given a fields conversion where the label and the id come from the same property
+        Path rulesFile = tempDir.resolve("rules.json");
+        Files.writeString(rulesFile, """
+            [{"name": "cisplatin", "type": "treatment", "values": {"TreatmentName": "cisplatin", "Dose": 10},
+              "url": "http://purl.obolibrary.org/obo/NCIT_C376", "comments": [{"text": "ignored"}]}]""");
+        Map<String, String> conversion = Map.of(
+            "id", "name", "label", "name", "entityType", "type", "data", "values", "url", "url");
+
+        // When we extract the ruleset
+        List<TargetEntity> entities = instance.extract(
+            new RuleLocation(rulesFile.toString(), "name", false, conversion));
+
+        // Then both fields get the value, and numeric data values are read as text
+        TargetEntity entity = entities.getFirst();
+        assertEquals("cisplatin", entity.id());
+        assertEquals("cisplatin", entity.label());
+        assertEquals(Map.of("TreatmentName", "cisplatin", "Dose", "10"), entity.dataFields().getStringFields());
+    }
+
+    @Test
+    void shouldFailIfRootIsNotAnArray() throws IOException {
+        // Given a rules file with an object instead of an array
+        Path rulesFile = tempDir.resolve("rules.json");
+        Files.writeString(rulesFile, "{\"mappingKey\": \"1\"}");
+        RuleLocation ruleLocation = new RuleLocation(rulesFile.toString(), "name", false, fieldsConversion);
+
+        // When we try to extract the ruleset
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            instance.extract(ruleLocation));
+
+        // Then we get an exception
+        assertEquals("Invalid JSON format in the ruleset file. Expected an array.", exception.getMessage());
+    }
+
+    @Test
+    void shouldFailIfRuleSetFieldsConversionWithoutDataField() {
+        // Given a ruleSetTarget without data in the FieldsConversion section
+        RuleLocation ruleLocation = buildRuleLocation("correct_treatment_mappings.json");
+        ruleLocation.fieldsConversion().remove("data");
+
+        // When we try to extract the ruleset
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            instance.extract(ruleLocation));
+
+        // Then we get an exception
+        assertEquals(
+            "Invalid ruleset target. Field conversion section is missing an entry for 'data'", exception.getMessage());
+    }
+
+    @Test
+    void shouldFailIfRuleWithoutEquivalentId() {
+        checkMissingFieldInRule("id", "mappingKey", "missing_id_treatment_mappings.json");
+    }
+
+    @Test
+    void shouldFailIfRuleWithoutEquivalentEntityType() {
+        checkMissingFieldInRule("entityType", "entityType", "missing_entityType_treatment_mappings.json");
+    }
+
+    @Test
+    void shouldFailIfRuleWithoutEquivalentData() {
+        checkMissingFieldInRule("data", "mappingValues", "missing_data_treatment_mappings.json");
+    }
+
+    @Test
+    void shouldFailIfRuleWithoutEquivalentUrl() {
+        checkMissingFieldInRule("url", "mappedTermUrl", "missing_url_treatment_mappings.json");
+    }
+
+    @Test
+    void shouldFailIfRuleWithoutEquivalentLabel() {
+        checkMissingFieldInRule("label", "mappedTermLabel", "missing_label_treatment_mappings.json");
+    }
+
+    private void checkMissingFieldInRule(String fieldName, String equivalentName, String rulesetFileName) {
+        // Given a ruleset where a rule does not have the property for a field
+        RuleLocation ruleLocation = buildRuleLocation(rulesetFileName);
+
+        // When we try to extract the ruleset
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+            instance.extract(ruleLocation));
+
+        // Then we get the same exception as with the default extractor
+        assertEquals(
+            "The rule does not have a property called '" +
+                equivalentName + "' (the mapping for the field " + fieldName + ")",
+            exception.getMessage());
+    }
+
+    private RuleLocation buildRuleLocation(String fileName) {
+        return new RuleLocation(TEST_FOLDER + fileName, "name", false, fieldsConversion);
+    }
+
+    private Map<String, String> buildFieldsConversion() {
+        Map<String, String> data = new HashMap<>();
+        data.put("id", "mappingKey");
+        data.put("entityType", "entityType");
+        data.put("data", "mappingValues");
+        data.put("label", "mappedTermLabel");
+        data.put("url", "mappedTermUrl");
+        return data;
+    }
+}
@@ -0,0 +1,77 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickAutomatonTest {
+
+    @Test
+    void shouldFindAllPhrasesIncludingOverlappingOnes() {
+        AhoCorasickAutomaton<String> automaton = new AhoCorasickAutomaton.Builder<String>()
+            .add(List.of("breast", "carcinoma"), "breast carcinoma")
+            .add(List.of("carcinoma"), "carcinoma")
+            .add(List.of("carcinoma", "situ"), "carcinoma in situ")
+            .add(List.of("lung"), "lung")
+            .build();
+
+        List<AhoCorasickAutomaton.Match<String>> matches =
+            automaton.scan(List.of("invasive", "breast", "carcinoma", "situ"));
+
+        assertEquals(List.of(
+            new AhoCorasickAutomaton.Match<>(1, 3, "breast carcinoma"),
+            new AhoCorasickAutomaton.Match<>(2, 3, "carcinoma"),
+            new AhoCorasickAutomaton.Match<>(2, 4, "carcinoma in situ")), matches);
+    }
+
+    @Test
+    void shouldContinueFromSuffixWhenMatchBreaks() {
+        AhoCorasickAutomaton<String> automaton = new AhoCorasickAutomaton.Builder<String>()
+            .add(List.of("a", "b", "c", "d"), "abcd")
+            .add(List.of("b", "c", "e"), "bce")
+            .build();
+
+        List<AhoCorasickAutomaton.Match<String>> matches = automaton.scan(List.of("a", "b", "c", "e", "a"));
+
+        assertEquals(List.of(new AhoCorasickAutomaton.Match<>(1, 4, "bce")), matches);
+    }
+
+    @Test
+    void shouldReturnAllValuesOfSamePhrase() {
+        AhoCorasickAutomaton<Integer> automaton = new AhoCorasickAutomaton.Builder<Integer>()
+            .add(List.of("sorafenib"), 1)
+            .add(List.of("sorafenib"), 2)
+            .add(List.of(), 3)
+            .build();
+
+        List<AhoCorasickAutomaton.Match<Integer>> matches = automaton.scan(List.of("sorafenib", "and", "sorafenib"));
+
+        assertEquals(4, matches.size());
+        assertEquals(List.of(1, 2, 1, 2), matches.stream().map(AhoCorasickAutomaton.Match::value).toList());
+    }
+
+    @Test
+    void shouldFindNothingInTextWithoutPhrases() {
+        AhoCorasickAutomaton<String> automaton = new AhoCorasickAutomaton.Builder<String>()
+            .add(List.of("lung", "cancer"), "lung cancer")
+            .build();
+
+        assertTrue(automaton.scan(List.of("lung", "adenocarcinoma", "cancer")).isEmpty());
+        assertTrue(automaton.scan(List.of()).isEmpty());
+    }
+
+    @Test
+    void shouldKeepOnlyOutermostMentions() {
+        List<AhoCorasickAutomaton.Match<String>> mentions = List.of(
+            new AhoCorasickAutomaton.Match<>(1, 3, "breast carcinoma"),
+            new AhoCorasickAutomaton.Match<>(2, 3, "carcinoma"),
+            new AhoCorasickAutomaton.Match<>(2, 4, "carcinoma in situ"));
+
+        List<AhoCorasickAutomaton.Match<String>> kept = MentionMatcher.keepOutermost(mentions);
+
+        assertEquals(2, kept.size());
+        assertFalse(kept.contains(new AhoCorasickAutomaton.Match<>(2, 3, "carcinoma")));
+    }
+}
@@ -352,4 +352,90 @@ class DefaultSuggestionScoreCalculatorTest {
         assertEquals(expectedScoringDetailsNote, obtainedScoringDetailsNote);
     }
 
+    @Test
+    void testComputeScore_ontologyCannotReachMinimumScore_notScored() {
+        String key = "key_1";
+
+        SourceEntity sourceEntity = EntityCreatorUtil.createDiagnosisSourceEntity(
+            key, "fusion negative rhabdomyosarcoma", "orbit", "primary");
+
+        String targetLabel = "breast rhabdomyosarcoma";
+        List<String> targetSynonyms = Arrays.asList("invasive ductal carcinoma", "breast cancer");
+        Suggestion suggestion = createOntologySuggestion(sourceEntity, targetLabel, targetSynonyms);
+        Suggestion sameSuggestion = createOntologySuggestion(sourceEntity, targetLabel, targetSynonyms);
+
+        double score = instance.computeScoreOntology(suggestion);
+        double scoreWithMinimum = instance.computeScoreOntology(sameSuggestion, 50);
+
+        // Without a minimum the suggestion is scored. With one, it is not, and its score is 0
+        assertTrue(score > 0 && score < 50);
+        assertEquals("Matched label:[breast rhabdomyosarcoma]", suggestion.getScoringDetails().getNote());
+        assertEquals(0, scoreWithMinimum);
+        assertEquals("Below minimum score:[50.0]", sameSuggestion.getScoringDetails().getNote());
+    }
+
+    @Test
+    void testComputeScore_ontologyCanReachMinimumScore_sameScore() {
+        String key = "key_1";
+
+        SourceEntity sourceEntity = EntityCreatorUtil.createDiagnosisSourceEntity(
+            key, "fusion negative rhabdomyosarcoma", "orbit", "primary");
+
+        String targetLabel = "alveolar rhabdomyosarcoma";
+        List<String> targetSynonyms = Arrays.asList(
+            "breast ductal carcinoma", "primary orbit fusion negative rhabdomyosarcoma", "orbit rhabdomyosarcoma");
+        Suggestion suggestion = createOntologySuggestion(sourceEntity, targetLabel, targetSynonyms);
+        Suggestion sameSuggestion = createOntologySuggestion(sourceEntity, targetLabel, targetSynonyms);
+
+        double score = instance.computeScoreOntology(suggestion);
+        double scoreWithMinimum = instance.computeScoreOntology(sameSuggestion, 50);
+
+        assertEquals(100 * DefaultSuggestionScoreCalculator.SYNONYM_MATCH_MULTIPLIER, score, 1e-9);
+        assertEquals(score, scoreWithMinimum, 1e-9);
+        assertEquals("Matched synonym:[primary orbit fusion negative rhabdomyosarcoma]",
+            sameSuggestion.getScoringDetails().getNote());
+    }
+
+    @Test
+    void testComputeScoreOntologyWords_sameScoreAsComputeScoreOntology() {
+        String key = "key_1";
+
+        SourceEntity sourceEntity = EntityCreatorUtil.createDiagnosisSourceEntity(
+            key, "fusion negative rhabdomyosarcoma", "orbit", "primary");
+
+        String targetLabel = "primary orbit fusion positive rhabdomyosarcoma";
+        List<String> targetSynonyms = Arrays.asList("orbit alveolar rhabdomyosarcoma", "fusion negative sarcoma");
+        TargetEntity targetEntity = EntityCreatorUtil.createDiagnosisOntologyTargetEntity(
+            key, targetLabel, targetSynonyms, "url");
+
+        Suggestion suggestion = new Suggestion(targetEntity);
+        List<SearchQueryItem> items = templateQueryProcessor.extractSearchQueryItems(
+            DIAGNOSIS_TEMPLATE, sourceEntity, config.getFieldsWeightsByEntityType("diagnosis"));
+        ScoringDetails scoringDetails = new ScoringDetails();
+        scoringDetails.setSearchQueryItems(items);
+        suggestion.setScoringDetails(scoringDetails);
+        suggestion.setTermLabel(targetLabel);
+
+        double expected = instance.computeScoreOntology(suggestion);
+        double score = DefaultSuggestionScoreCalculator.computeScoreOntologyWords(
+            DefaultSuggestionScoreCalculator.OntologyQueryWords.of(items),
+            DefaultSuggestionScoreCalculator.textToList(targetLabel),
+            targetSynonyms.stream().map(DefaultSuggestionScoreCalculator::textToList).toList());
+
+        assertEquals(expected, score, 1e-9);
+    }
+
+    private Suggestion createOntologySuggestion(
+        SourceEntity sourceEntity, String targetLabel, List<String> targetSynonyms) {
+        TargetEntity targetEntity = EntityCreatorUtil.createDiagnosisOntologyTargetEntity(
+            sourceEntity.getId(), targetLabel, targetSynonyms, "url");
+        Suggestion suggestion = new Suggestion(targetEntity);
+        ScoringDetails scoringDetails = new ScoringDetails();
+        scoringDetails.setSearchQueryItems(templateQueryProcessor.extractSearchQueryItems(
+            DIAGNOSIS_TEMPLATE, sourceEntity, config.getFieldsWeightsByEntityType("diagnosis")));
+        suggestion.setScoringDetails(scoringDetails);
+        suggestion.setTermLabel(targetLabel);
+        return suggestion;
+    }
+
 }
@@ -4,6 +4,8 @@ import org.cancer_models.entity2ontology.common.model.TargetEntityDataFields;
 import org.cancer_models.entity2ontology.common.model.TargetEntityType;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.ScoringDetails;
+import org.cancer_models.entity2ontology.map.model.SimilarMatchStrategy;
 import org.cancer_models.entity2ontology.map.model.SourceEntity;
 import org.cancer_models.entity2ontology.map.model.Suggestion;
 import org.cancer_models.entity2ontology.common.model.TargetEntity;
@@ -18,6 +20,8 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,7 +49,9 @@ class DefaultSuggestionsFinderTest {
     // A suggestion (mocked) as the result of a non-perfect match with an ontology
     private Suggestion suggestionSimilarOntology;
 
-    private static final MappingConfiguration conf = new MappingConfiguration();
+    private static final MappingConfiguration conf = new MappingConfiguration("test configuration", List.of(
+        new MappingConfiguration.ConfigurationPerType(
+            "diagnosis", List.of(), List.of(), SimilarMatchStrategy.FUZZY, false, false, false, null, false)));
 
     private static final String INDEX_PATH = "dummyIndexPath";
 
@@ -93,7 +99,7 @@ class DefaultSuggestionsFinderTest {
 
     @Test
     void testFindSuggestions_foundOneExactRuleMatch() throws MappingException {
-        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf))
+        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf, 10))
             .thenReturn(List.of(suggestionExactRule));
 
         List<Suggestion> suggestions = instance.findSuggestions(sourceEntity, INDEX_PATH, 10, conf);
@@ -105,7 +111,7 @@ class DefaultSuggestionsFinderTest {
 
     @Test
     void testFindSuggestions_foundOneSimilarRuleMatch() throws MappingException {
-        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf))
+        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf, 10))
             .thenReturn(List.of(suggestionSimilarRule));
 
         List<Suggestion> suggestions = instance.findSuggestions(sourceEntity, INDEX_PATH, 10, conf);
@@ -117,7 +123,7 @@ class DefaultSuggestionsFinderTest {
 
     @Test
     void testFindSuggestions_foundOneExactOntologyMatch() throws MappingException {
-        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf))
+        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf, 10))
             .thenReturn(List.of(suggestionExactOntology));
 
         List<Suggestion> suggestions = instance.findSuggestions(sourceEntity, INDEX_PATH, 10, conf);
@@ -129,7 +135,7 @@ class DefaultSuggestionsFinderTest {
 
     @Test
     void testFindSuggestions_foundOneSimilarOntologyMatch() throws MappingException {
-        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf))
+        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf, 10))
             .thenReturn(List.of(suggestionSimilarOntology));
 
         List<Suggestion> suggestions = instance.findSuggestions(sourceEntity, INDEX_PATH, 10, conf);
@@ -141,7 +147,7 @@ class DefaultSuggestionsFinderTest {
 
     @Test
     void testFindSuggestions_foundOneSuggestionEachStep() throws MappingException {
-        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf))
+        when(rulesSearcher.findExactMatchingRules(sourceEntity, INDEX_PATH, conf, 10))
             .thenReturn(List.of(
                 suggestionExactRule, suggestionSimilarRule, suggestionExactOntology, suggestionSimilarOntology));
 
@@ -151,6 +157,88 @@ class DefaultSuggestionsFinderTest {
         assertTrue(isSortedDescending(suggestions), "The suggestions should be sorted (desc) by `score`");
     }
 
+    @Test
+    void testFindSuggestions_combinedOntologySearchPrefersExactMatches() throws MappingException {
+        ScoringDetails exactScoringDetails = new ScoringDetails();
+        exactScoringDetails.setExactMatch(true);
+        suggestionExactOntology.setScoringDetails(exactScoringDetails);
+        suggestionExactOntology.setScore(70.0);
+        suggestionSimilarOntology.setScoringDetails(new ScoringDetails());
+        when(ontologiesSearcher.isCombinedSearch(sourceEntity, conf)).thenReturn(true);
+        when(ontologiesSearcher.findMatchingOntologies(sourceEntity, INDEX_PATH, conf, 1))
+            .thenReturn(List.of(suggestionSimilarOntology, suggestionExactOntology));
+
+        List<Suggestion> suggestions = instance.findSuggestions(sourceEntity, INDEX_PATH, 1, conf);
+
+        // The exact match is taken although the similar one has a higher score
+        assertEquals(1, suggestions.size(), "We expect 1 suggestion");
+        assertEquals("key_3", suggestions.getFirst().getTargetEntity().id(), "Unexpected suggestion");
+    }
+
+    @Test
+    void testFindSuggestions_adaptiveStagesSkipsLowYieldStages() throws MappingException {
+        MappingConfiguration adaptiveConf = createAdaptiveConfiguration(3, 100);
+        when(ontologiesSearcher.findExactMatchingOntologies(sourceEntity, INDEX_PATH, adaptiveConf, 10))
+            .thenReturn(List.of(suggestionExactOntology));
+
+        for (int i = 0; i < 10; i++) {
+            List<Suggestion> suggestions = instance.findSuggestions(sourceEntity, INDEX_PATH, 10, adaptiveConf);
+            assertEquals(List.of(suggestionExactOntology), suggestions);
+        }
+
+        // The stages that never added suggestions stop running once they have enough samples, except exact rules
+        verify(rulesSearcher, times(10)).findExactMatchingRules(sourceEntity, INDEX_PATH, adaptiveConf, 10);
+        verify(rulesSearcher, times(3)).findSimilarRules(sourceEntity, INDEX_PATH, adaptiveConf, 10);
+        verify(ontologiesSearcher, times(10)).findExactMatchingOntologies(sourceEntity, INDEX_PATH, adaptiveConf, 10);
+        verify(ontologiesSearcher, times(3)).findSimilarMatchingOntologies(sourceEntity, INDEX_PATH, adaptiveConf, 9);
+        StageStatistics.StageSummary summary =
+            instance.getStageStatistics().getSummary("diagnosis", StageStatistics.Stage.SIMILAR_RULES);
+        assertEquals(3, summary.runs());
+        assertEquals(7, summary.skips());
+        assertEquals(0, summary.yield());
+        assertEquals(1, instance.getStageStatistics()
+            .getSummary("diagnosis", StageStatistics.Stage.EXACT_ONTOLOGIES).yield());
+        assertEquals(0, instance.getStageStatistics()
+            .getSummary("diagnosis", StageStatistics.Stage.EXACT_RULES).skips());
+    }
+
+    @Test
+    void testFindSuggestions_adaptiveStagesResamplesSkippedStages() throws MappingException {
+        MappingConfiguration adaptiveConf = createAdaptiveConfiguration(3, 2);
+
+        for (int i = 0; i < 10; i++) {
+            instance.findSuggestions(sourceEntity, INDEX_PATH, 10, adaptiveConf);
+        }
+
+        // Every second entity runs all the stages
+        StageStatistics.StageSummary summary =
+            instance.getStageStatistics().getSummary("diagnosis", StageStatistics.Stage.SIMILAR_RULES);
+        assertEquals(7, summary.runs());
+        assertEquals(3, summary.skips());
+        // Nothing was found, so the last stage always runs
+        verify(ontologiesSearcher, times(10)).findSimilarMatchingOntologies(sourceEntity, INDEX_PATH, adaptiveConf, 10);
+    }
+
+    @Test
+    void testFindSuggestions_withoutAdaptiveStagesRunsAllStages() throws MappingException {
+        for (int i = 0; i < 10; i++) {
+            instance.findSuggestions(sourceEntity, INDEX_PATH, 10, conf);
+        }
+
+        verify(rulesSearcher, times(10)).findSimilarRules(sourceEntity, INDEX_PATH, conf, 10);
+        StageStatistics.StageSummary summary =
+            instance.getStageStatistics().getSummary("diagnosis", StageStatistics.Stage.SIMILAR_RULES);
+        assertEquals(10, summary.runs());
+        assertEquals(0, summary.skips());
+    }
+
+    private MappingConfiguration createAdaptiveConfiguration(int minSamples, int resampleInterval) {
+        MappingConfiguration.ConfigurationPerType configurationPerType = new MappingConfiguration.ConfigurationPerType(
+            "diagnosis", List.of(), List.of(), SimilarMatchStrategy.FUZZY, false, false, false,
+            new MappingConfiguration.AdaptiveStages(minSamples, 0.5, resampleInterval), false);
+        return new MappingConfiguration("adaptive configuration", List.of(configurationPerType));
+    }
+
     private boolean isSortedDescending(List<Suggestion> list) {
         for (int i = 0; i < list.size() - 1; i++) {
             if (list.get(i).getScore() < list.get(i + 1).getScore()) {
@@ -0,0 +1,108 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.FSDirectory;
+import org.cancer_models.entity2ontology.IndexTestCreator;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.cancer_models.entity2ontology.map.model.SearchQueryItem;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExactLabelMatcherTest {
+
+    // Directory with the index data
+    private static final String INDEX_DATA_DIR = "ontologiesSearcher/";
+
+    // Name of the JSON file with the index to use in these tests
+    private static final String INDEX_DATA_FILE = "smallOntologiesIndex.json";
+
+    // Location of the Lucene Index
+    private static String indexLocation;
+
+    private final Searcher searcher = new Searcher(new AnalyzerProvider());
+    private final TextNormalizer textNormalizer = new TextNormalizer(new AnalyzerProvider());
+    private final ExactLabelMatcher instance = new ExactLabelMatcher(searcher, textNormalizer);
+
+    @BeforeAll
+    static void init() throws IOException {
+        indexLocation = IndexTestCreator.createIndex(INDEX_DATA_DIR + INDEX_DATA_FILE, "exact_label_matcher_index");
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        IndexTestCreator.deleteIndex(indexLocation);
+    }
+
+    @Test
+    void shouldFindTermByLabel() throws MappingException {
+        List<Suggestion> suggestions = instance.findExactMatches(
+            List.of(createItem("SampleDiagnosis", "fusion negative alveolar rhabdomyosarcoma")), indexLocation);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("ontology_1", suggestions.getFirst().getTargetEntity().id());
+        assertEquals("Fusion Negative Alveolar Rhabdomyosarcoma", suggestions.getFirst().getTermLabel());
+    }
+
+    @Test
+    void shouldFindTermBySynonymFormedBySeveralItems() throws MappingException {
+        List<Suggestion> suggestions = instance.findExactMatches(
+            List.of(createItem("OriginTissue", "Skull"), createItem("SampleDiagnosis", "Osteoma")), indexLocation);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("ontology_2", suggestions.getFirst().getTargetEntity().id());
+    }
+
+    @Test
+    void shouldNotFindTermsContainingThePhrase() throws MappingException {
+        // Several labels and synonyms contain "temozolomide", but only one of them is just that word
+        List<Suggestion> suggestions = instance.findExactMatches(
+            List.of(createItem("TreatmentName", "Temozolomide")), indexLocation);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("ontology_3", suggestions.getFirst().getTargetEntity().id());
+    }
+
+    @Test
+    void shouldReturnEmptyListWhenNoMatch() throws MappingException {
+        List<Suggestion> suggestions = instance.findExactMatches(
+            List.of(createItem("TreatmentName", "noMatch")), indexLocation);
+
+        assertTrue(suggestions.isEmpty());
+    }
+
+    @Test
+    void shouldBuildCachedValueOncePerReader() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        ReaderScopedCache<ExactLabelIndex> cache = new ReaderScopedCache<>("test table", indexSearcher -> {
+            loads.incrementAndGet();
+            return ExactLabelIndex.build(indexSearcher, textNormalizer);
+        });
+
+        DirectoryReader reader = DirectoryReader.open(FSDirectory.open(Path.of(indexLocation)));
+        IndexSearcher indexSearcher = new IndexSearcher(reader);
+        ExactLabelIndex labelIndex = cache.get(indexSearcher);
+
+        assertSame(labelIndex, cache.get(indexSearcher));
+        assertEquals(1, loads.get());
+        assertEquals(1, labelIndex.find(textNormalizer.normalize("Sorafenib Tosylate")).length);
+
+        // Closing the reader drops its value
+        reader.close();
+        assertEquals(0, cache.size());
+    }
+
+    private SearchQueryItem createItem(String field, String value) {
+        return SearchQueryItem.builder().field(field).value(value).build();
+    }
+}
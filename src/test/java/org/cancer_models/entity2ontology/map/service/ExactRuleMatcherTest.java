@@ -0,0 +1,105 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.cancer_models.entity2ontology.IndexTestCreator;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExactRuleMatcherTest {
+
+    // File with the configuration for the search
+    private static final String CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmMappingConfiguration.json";
+
+    // Directory with the index data
+    private static final String INDEX_DATA_DIR = "rulesSearcher/";
+
+    // Name of the JSON file with the index to use in these tests
+    private static final String INDEX_DATA_FILE = "smallNumberDiagnosisRule.json";
+
+    // Location of the Lucene Index
+    private static String indexLocation;
+
+    private static MappingConfiguration mappingConfiguration;
+
+    private final Searcher searcher = new Searcher(new AnalyzerProvider());
+    private final ExactRuleMatcher instance =
+        new ExactRuleMatcher(searcher, new TextNormalizer(new AnalyzerProvider()));
+
+    @BeforeAll
+    static void init() throws IOException {
+        indexLocation = IndexTestCreator.createIndex(INDEX_DATA_DIR + INDEX_DATA_FILE, "exact_rule_matcher_index");
+        mappingConfiguration = MappingIO.readMappingConfiguration(CONFIGURATION_FILE);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        IndexTestCreator.deleteIndex(indexLocation);
+    }
+
+    @Test
+    void shouldFindRuleWithSameValues() throws MappingException {
+        List<Suggestion> suggestions = instance.findExactMatches(
+            createEntity("diagnosis", "Fusion-Negative Rhabdomyosarcoma", "orbit", "primary"),
+            indexLocation,
+            mappingConfiguration);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        assertEquals("Fusion-Negative Alveolar Rhabdomyosarcoma", suggestions.getFirst().getTermLabel());
+    }
+
+    @Test
+    void shouldNotFindRuleContainingTheValues() throws MappingException {
+        List<Suggestion> suggestions = instance.findExactMatches(
+            createEntity("diagnosis", "rhabdomyosarcoma", "orbit", "primary"),
+            indexLocation,
+            mappingConfiguration);
+
+        assertTrue(suggestions.isEmpty());
+    }
+
+    @Test
+    void shouldNotFindRuleWithOtherValueInOneField() throws MappingException {
+        List<Suggestion> suggestions = instance.findExactMatches(
+            createEntity("diagnosis", "fusion negative rhabdomyosarcoma", "orbit", "metastatic"),
+            indexLocation,
+            mappingConfiguration);
+
+        assertTrue(suggestions.isEmpty());
+    }
+
+    @Test
+    void shouldFailIfFieldMissingInEntity() {
+        SourceEntity sourceEntity = createEntity("diagnosis", "fusion negative rhabdomyosarcoma", "orbit", "primary");
+        sourceEntity.getData().remove("TumorType");
+
+        assertThrows(IllegalArgumentException.class,
+            () -> instance.findExactMatches(sourceEntity, indexLocation, mappingConfiguration));
+    }
+
+    private SourceEntity createEntity(String type, String diagnosis, String originTissue, String tumorType) {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType(type);
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", diagnosis);
+        data.put("OriginTissue", originTissue);
+        data.put("TumorType", tumorType);
+        sourceEntity.setData(data);
+        return sourceEntity;
+    }
+}
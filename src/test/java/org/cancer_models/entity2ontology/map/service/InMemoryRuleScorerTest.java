@@ -0,0 +1,150 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.cancer_models.entity2ontology.IndexTestCreator;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.SimilarMatchStrategy;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRuleScorerTest {
+
+    // File with the configuration for the search
+    private static final String CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmMappingConfiguration.json";
+
+    // Name of the JSON file with the index to use in these tests (two diagnosis rules and some ontology terms)
+    private static final String INDEX_DATA_FILE = "input_data_small_diagnosis_index/data.json";
+
+    // Location of the Lucene Index
+    private static String indexLocation;
+
+    private static MappingConfiguration mappingConfiguration;
+
+    private final Searcher searcher = new Searcher(new AnalyzerProvider());
+    private final InMemoryRuleScorer instance = new InMemoryRuleScorer(searcher);
+
+    @BeforeAll
+    static void init() throws IOException {
+        indexLocation = IndexTestCreator.createIndex(INDEX_DATA_FILE, "in_memory_rule_scorer_index");
+        mappingConfiguration = MappingIO.readMappingConfiguration(CONFIGURATION_FILE);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        IndexTestCreator.deleteIndex(indexLocation);
+    }
+
+    @Test
+    void shouldScoreLikeTheScoreCalculator() throws MappingException {
+        SourceEntity sourceEntity = createEntity("fusion POSITIVE rhabdomyosarcoma", "orbit", "primary");
+
+        List<Suggestion> suggestions = instance.findSimilarRules(sourceEntity, indexLocation, mappingConfiguration, 10);
+
+        // Both rules share the tumor type, so both get a score
+        assertEquals(2, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        SuggestionScoreCalculator scoreCalculator = new DefaultSuggestionScoreCalculator();
+        for (Suggestion suggestion : suggestions) {
+            assertEquals(
+                scoreCalculator.computeScoreRule(suggestion, sourceEntity, mappingConfiguration),
+                suggestion.getScore(),
+                1e-9);
+        }
+        assertTrue(suggestions.get(0).getScore() > suggestions.get(1).getScore());
+    }
+
+    @Test
+    void shouldReturnOnlyTheBestRules() throws MappingException {
+        SourceEntity sourceEntity = createEntity("breast cancer", "breast", "primary");
+
+        List<Suggestion> suggestions = instance.findSimilarRules(sourceEntity, indexLocation, mappingConfiguration, 1);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_3", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(100.0, suggestions.getFirst().getScore(), 1e-9);
+    }
+
+    @Test
+    void shouldReturnEmptyListWhenNoRuleIsSimilar() throws MappingException {
+        SourceEntity sourceEntity = createEntity("noMatch", "noMatch", "noMatch");
+
+        List<Suggestion> suggestions = instance.findSimilarRules(sourceEntity, indexLocation, mappingConfiguration, 10);
+
+        assertTrue(suggestions.isEmpty());
+    }
+
+    @Test
+    void shouldReturnEmptyListWhenNoRulesOfEntityType() throws MappingException {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("treatment");
+        sourceEntity.setData(Map.of("TreatmentName", "breast cancer"));
+
+        List<Suggestion> suggestions = instance.findSimilarRules(sourceEntity, indexLocation, mappingConfiguration, 10);
+
+        assertTrue(suggestions.isEmpty());
+    }
+
+    @Test
+    void shouldStopScoringWhenTheDeadlinePasses() throws MappingException {
+        SourceEntity sourceEntity = createEntity("breast cancer", "breast", "primary");
+
+        try (MappingDeadline deadline = MappingDeadline.start(Duration.ofNanos(1))) {
+            List<Suggestion> suggestions =
+                instance.findSimilarRules(sourceEntity, indexLocation, mappingConfiguration, 10);
+
+            assertTrue(suggestions.isEmpty());
+            assertTrue(deadline.isPartial());
+        }
+    }
+
+    @Test
+    void shouldFailIfMaxNumSuggestionsNotPositive() {
+        SourceEntity sourceEntity = createEntity("breast cancer", "breast", "primary");
+
+        assertThrows(IllegalArgumentException.class,
+            () -> instance.findSimilarRules(sourceEntity, indexLocation, mappingConfiguration, 0));
+    }
+
+    @Test
+    void shouldFailIfRulesDoNotHaveAConfiguredField() {
+        SourceEntity sourceEntity = createEntity("breast cancer", "breast", "primary");
+        sourceEntity.getData().put("PatientAge", "adult");
+        MappingConfiguration configuration = new MappingConfiguration("with a field the rules do not have", List.of(
+            new MappingConfiguration.ConfigurationPerType(
+                "diagnosis",
+                List.of(
+                    new MappingConfiguration.FieldConfiguration("SampleDiagnosis", 1),
+                    new MappingConfiguration.FieldConfiguration("PatientAge", 0.5)),
+                List.of("${SampleDiagnosis}"), SimilarMatchStrategy.IN_MEMORY, false, false, false, null, false)));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> instance.findSimilarRules(sourceEntity, indexLocation, configuration, 10));
+    }
+
+    private SourceEntity createEntity(String diagnosis, String originTissue, String tumorType) {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", diagnosis);
+        data.put("OriginTissue", originTissue);
+        data.put("TumorType", tumorType);
+        sourceEntity.setData(data);
+        return sourceEntity;
+    }
+}
@@ -0,0 +1,80 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MappingRequestPlanTest {
+
+    @Test
+    void shouldGroupEntitiesWithSameTypeAndCleanedData() {
+        SourceEntity entity1 = createEntity("key_1", "diagnosis", "lung carcinoma", "jax");
+        SourceEntity entity2 = createEntity("key_2", "diagnosis", "  lung   carcinoma", "jax ");
+        SourceEntity entity3 = createEntity("key_3", "treatment", "lung carcinoma", "jax");
+        SourceEntity entity4 = createEntity("key_4", "diagnosis", "lung carcinoma", "trace");
+
+        MappingRequestPlan plan = MappingRequestPlan.of(List.of(entity1, entity2, entity3, entity4));
+
+        List<MappingRequestPlan.Group> groups = plan.getGroups();
+        assertEquals(3, groups.size());
+        assertSame(entity1, groups.get(0).representative());
+        assertEquals(List.of(0, 1), groups.get(0).positions());
+        assertEquals(4, plan.getNumEntities());
+        assertEquals(0.25, plan.getDeduplicationRatio());
+    }
+
+    @Test
+    void shouldOrderGroupsByType() {
+        SourceEntity entity1 = createEntity("key_1", "diagnosis", "lung carcinoma", "jax");
+        SourceEntity entity2 = createEntity("key_2", "treatment", "cisplatin", "jax");
+        SourceEntity entity3 = createEntity("key_3", "diagnosis", "breast carcinoma", "jax");
+        SourceEntity entity4 = createEntity("key_4", "treatment", "cisplatin", "jax");
+
+        MappingRequestPlan plan = MappingRequestPlan.of(List.of(entity1, entity2, entity3, entity4));
+
+        List<MappingRequestPlan.Group> groups = plan.getGroups();
+        assertEquals(
+            List.of(entity1, entity3, entity2),
+            groups.stream().map(MappingRequestPlan.Group::representative).toList());
+        assertEquals(List.of(1, 3), groups.get(2).positions());
+    }
+
+    @Test
+    void shouldNotGroupEntitiesThatCannotBeMapped() {
+        SourceEntity entity1 = createEntity(null, "diagnosis", "lung carcinoma", "jax");
+        SourceEntity entity2 = createEntity(null, "diagnosis", "lung carcinoma", "jax");
+        SourceEntity entity3 = createEntity("key_3", "diagnosis", null, "jax");
+        SourceEntity entity4 = createEntity("key_4", "diagnosis", null, "jax");
+        List<SourceEntity> entities = new ArrayList<>(List.of(entity1, entity2, entity3, entity4));
+        entities.add(null);
+
+        MappingRequestPlan plan = MappingRequestPlan.of(entities);
+
+        assertEquals(5, plan.getGroups().size());
+        assertEquals(0, plan.getDeduplicationRatio());
+    }
+
+    @Test
+    void shouldPlanEmptyRequest() {
+        MappingRequestPlan plan = MappingRequestPlan.of(List.of());
+
+        assertEquals(0, plan.getGroups().size());
+        assertEquals(0, plan.getDeduplicationRatio());
+    }
+
+    private SourceEntity createEntity(String id, String type, String diagnosis, String dataSource) {
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", diagnosis);
+        data.put("DataSource", dataSource);
+        SourceEntity entity = new SourceEntity(id, data);
+        entity.setType(type);
+        return entity;
+    }
+}
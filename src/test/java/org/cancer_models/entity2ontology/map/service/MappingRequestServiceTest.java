@@ -1,11 +1,16 @@
 package org.cancer_models.entity2ontology.map.service;
 
+import org.cancer_models.entity2ontology.common.EntityCreatorUtil;
 import org.cancer_models.entity2ontology.common.utils.FileUtils;
 import org.cancer_models.entity2ontology.common.utils.JsonConverter;
 import org.cancer_models.entity2ontology.exceptions.MalformedMappingConfigurationException;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.map.model.MappingRequest;
 import org.cancer_models.entity2ontology.map.model.MappingResponse;
+import org.cancer_models.entity2ontology.map.model.MappingResponseEntry;
+import org.cancer_models.entity2ontology.map.model.ScoringDetails;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,9 +19,21 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class MappingRequestServiceTest {
@@ -35,8 +52,15 @@ class MappingRequestServiceTest {
         instance = new MappingRequestService(mappingService);
     }
 
+    private void givenEntitiesAreMapped() throws MalformedMappingConfigurationException, MappingException {
+        when(mappingService.mapEntityWithinBudget(any(SourceEntity.class), anyString(), anyInt(), any(), any()))
+            .thenReturn(new MappingService.EntityMapping(List.of(), false));
+    }
+
     @Test
-    void shouldProcessMappingRequestWithRequestFile() throws MappingException, IOException {
+    void shouldProcessMappingRequestWithRequestFile()
+        throws MalformedMappingConfigurationException, MappingException, IOException {
+        givenEntitiesAreMapped();
         // Given a file that has right data
         String fileToRead = DATA_DIR + "mappingRequest.json";
 
@@ -64,6 +88,7 @@ class MappingRequestServiceTest {
 
     @Test
     void shouldProcessMappingRequestWithRequestObject() throws IOException, MalformedMappingConfigurationException, MappingException {
+        givenEntitiesAreMapped();
         // Given a mapping request object
         MappingRequest request = MappingIO.readMappingRequest(DATA_DIR + "mappingRequest.json");
 
@@ -75,4 +100,90 @@ class MappingRequestServiceTest {
         assertNotNull(mappingResponse.getMappingsResults());
         assertEquals(1, mappingResponse.getMappingsResults().size());
     }
+
+    @Test
+    void shouldMapIdenticalEntitiesOnce() throws MalformedMappingConfigurationException, MappingException {
+        givenEntitiesAreMapped();
+        // Given a request where two entities have the same data once cleaned
+        List<SourceEntity> entities = List.of(
+            createEntity("key_1", "diagnosis", "lung carcinoma"),
+            createEntity("key_2", "treatment", "cisplatin"),
+            createEntity("key_3", "diagnosis", " lung  carcinoma "),
+            createEntity("key_4", "diagnosis", "breast carcinoma"));
+        MappingRequest request = new MappingRequest(
+            5, "IndexPath", "src/test/resources/mappingConfigurations/pdcmMappingConfiguration.json", entities);
+
+        // When we process the request
+        MappingResponse mappingResponse = instance.processMappingRequest(request);
+
+        // The duplicated entity is only searched once, but all the entities are in the results, in the same order
+        verify(mappingService, times(3))
+            .mapEntityWithinBudget(any(SourceEntity.class), anyString(), anyInt(), any(), any());
+        List<MappingResponseEntry> entries = mappingResponse.getMappingsResults();
+        assertEquals(
+            List.of("key_1", "key_2", "key_3", "key_4"),
+            entries.stream().map(e -> e.getEntity().getId()).toList());
+        assertEquals("lung carcinoma", entries.get(2).getEntity().getData().get("SampleDiagnosis"));
+        assertEquals(3, mappingResponse.getDistinctEntities());
+        assertEquals(0.25, mappingResponse.getDeduplicationRatio());
+    }
+
+    @Test
+    void shouldFlagEntriesAsPartialWhenTimeBudgetRunsOut()
+        throws MalformedMappingConfigurationException, MappingException {
+        // Given a request whose entity runs out of time before any suggestion is found
+        List<SourceEntity> entities = List.of(
+            createEntity("key_1", "diagnosis", "lung carcinoma"),
+            createEntity("key_2", "diagnosis", "lung carcinoma"));
+        MappingRequest request = new MappingRequest(
+            5, "IndexPath", "src/test/resources/mappingConfigurations/pdcmMappingConfiguration.json", entities, 1L);
+        when(mappingService.mapEntityWithinBudget(any(SourceEntity.class), anyString(), anyInt(), any(), any()))
+            .thenReturn(new MappingService.EntityMapping(List.of(), true));
+
+        // When we process the request
+        MappingResponse mappingResponse = instance.processMappingRequest(request);
+
+        // Both entries are flagged, including the one copied from the mapped entity
+        List<MappingResponseEntry> entries = mappingResponse.getMappingsResults();
+        assertEquals(2, entries.size());
+        entries.forEach(entry -> assertTrue(entry.isPartial()));
+    }
+
+    @Test
+    void shouldCopySuggestionsOfIdenticalEntities() throws MalformedMappingConfigurationException, MappingException {
+        // Given a request with two identical entities
+        Suggestion suggestion = new Suggestion(EntityCreatorUtil.createTreatmentRuleTargetEntity(
+            "rule_1", "cisplatin", "Cisplatin", "http://example.org/cisplatin"));
+        suggestion.setScore(100);
+        suggestion.setScoringDetails(new ScoringDetails());
+        List<SourceEntity> entities = List.of(
+            createEntity("key_1", "treatment", "cisplatin"),
+            createEntity("key_2", "treatment", "cisplatin"));
+        MappingRequest request = new MappingRequest(
+            5, "IndexPath", "src/test/resources/mappingConfigurations/pdcmMappingConfiguration.json", entities);
+        when(mappingService.mapEntityWithinBudget(any(SourceEntity.class), anyString(), anyInt(), any(), any()))
+            .thenReturn(new MappingService.EntityMapping(List.of(suggestion), false));
+
+        // When we process the request
+        MappingResponse mappingResponse = instance.processMappingRequest(request);
+
+        // The copied entry has the same suggestions, but changing them does not change the other entry
+        Suggestion mapped = mappingResponse.getMappingsResults().get(0).getSuggestions().getFirst();
+        Suggestion copied = mappingResponse.getMappingsResults().get(1).getSuggestions().getFirst();
+        assertEquals(mapped, copied);
+        assertNotSame(mapped, copied);
+        assertNotSame(mapped.getScoringDetails(), copied.getScoringDetails());
+        copied.setScore(50);
+        copied.getScoringDetails().setNote("Changed");
+        assertEquals(100, mapped.getScore());
+        assertNull(mapped.getScoringDetails().getNote());
+    }
+
+    private SourceEntity createEntity(String id, String type, String value) {
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", value);
+        SourceEntity entity = new SourceEntity(id, data);
+        entity.setType(type);
+        return entity;
+    }
 }
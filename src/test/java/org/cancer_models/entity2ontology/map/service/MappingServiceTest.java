@@ -1,17 +1,18 @@
 package org.cancer_models.entity2ontology.map.service;
 
 import org.cancer_models.entity2ontology.*;
-import org.cancer_models.entity2ontology.common.utils.FileUtils;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
 import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
 import org.cancer_models.entity2ontology.map.model.SourceEntity;
 import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
 
-import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,23 +36,47 @@ public class MappingServiceTest {
 
     private final SuggestionScoreCalculator scoreCalculator = new DefaultSuggestionScoreCalculator();
 
-    private final RulesSearcher rulesSearcher = new RulesSearcher(queryBuilder, queryProcessor, scoreCalculator);
+    private final TextNormalizer textNormalizer = new TextNormalizer(new AnalyzerProvider());
+
+    private final RulesSearcher rulesSearcher = new RulesSearcher(queryBuilder, queryProcessor, scoreCalculator,
+        new ExactRuleMatcher(searcher, textNormalizer), new InMemoryRuleScorer(searcher),
+        new MinHashMatcher(searcher, textNormalizer));
 
     private final TemplateQueryProcessor templateQueryProcessor = new TemplateQueryProcessor();
 
     private final OntologiesSearcher ontologiesSearcher =
-        new OntologiesSearcher(queryBuilder, templateQueryProcessor, queryProcessor, scoreCalculator);
+        new OntologiesSearcher(queryBuilder, templateQueryProcessor, queryProcessor, scoreCalculator,
+            new ExactLabelMatcher(searcher, textNormalizer), new MinHashMatcher(searcher, textNormalizer));
 
     private final SuggestionsFinder suggestionsFinder = new DefaultSuggestionsFinder(rulesSearcher, ontologiesSearcher);
 
     private static final int NUM_SUGGESTIONS = 10;
 
-    private final MappingService instance = new MappingService(suggestionsFinder);
+    // Locations of the indexes, created once for all the tests
+    private static String smallDiagnosisIndexLocation;
+    private static String smallTreatmentsIndexLocation;
+
+    private final MappingService instance =
+        new MappingService(suggestionsFinder,
+            new MentionMatcher(searcher, textNormalizer, new ExactRuleMatcher(searcher, textNormalizer)));
 
     public MappingServiceTest() throws IOException {
         config = MappingIO.readMappingConfiguration(CONFIGURATION_FILE);
     }
 
+    @BeforeAll
+    static void init() throws IOException {
+        // Indexes at src/test/output/small_diagnosis_index and src/test/output/small_treatments_index
+        smallDiagnosisIndexLocation = IndexTestCreator.createIndex("input_data_small_diagnosis_index/data.json");
+        smallTreatmentsIndexLocation = IndexTestCreator.createIndex("input_data_small_treatments_index/data.json");
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        IndexTestCreator.deleteIndex(smallDiagnosisIndexLocation);
+        IndexTestCreator.deleteIndex(smallTreatmentsIndexLocation);
+    }
+
     @Test
     void shouldFailIfNullEntity() {
         // When we try to map an entity that is null
@@ -143,9 +168,6 @@ public class MappingServiceTest {
     @Test
     void shouldGetExpectedMappingsForDiagnosisSet() throws IOException {
         // Given we have an index with diagnosis at src/test/output/small_diagnosis_index
-        String smallDiagnosisIndexLocation = IndexTestCreator.createIndex(
-            "input_data_small_diagnosis_index/data.json");
-
         // And we read a tsv file which contains a list of diagnosis to map and the expected results
         List<DiagnosisMappingInputFileEntry> entries =
             DiagnosisMappingInputReader.parseTSV(DATA_DIR + "set_1/diagnosis.tsv");
@@ -154,9 +176,6 @@ public class MappingServiceTest {
         for (DiagnosisMappingInputFileEntry entry : entries) {
             testExpectedDiagnosisMapping(entry);
         }
-
-        // Delete the index
-        FileUtils.deleteRecursively(new File(smallDiagnosisIndexLocation));
     }
 
     private void testExpectedDiagnosisMapping(DiagnosisMappingInputFileEntry entry) {
@@ -197,10 +216,7 @@ public class MappingServiceTest {
 
     @Test
     void shouldGetExpectedMappingsForTreatmentsSet() throws IOException {
-        // Given we have an index with diagnosis at src/test/output/small_diagnosis_index
-        String smallDiagnosisIndexLocation = IndexTestCreator.createIndex(
-            "input_data_small_treatments_index/data.json");
-
+        // Given we have an index with treatments at src/test/output/small_treatments_index
         // And we read a tsv file which contains a list of diagnosis to map and the expected results
         List<TreatmentMappingInputFileEntry> entries =
             TreatmentMappingInputReader.parseTSV(DATA_DIR + "set_1/treatments.tsv");
@@ -210,9 +226,6 @@ public class MappingServiceTest {
             System.out.println(entry);
             testExpectedTreatmentMapping(entry);
         }
-
-        // Delete the index
-        FileUtils.deleteRecursively(new File(smallDiagnosisIndexLocation));
     }
 
     private void testExpectedTreatmentMapping(TreatmentMappingInputFileEntry entry) {
@@ -249,6 +262,67 @@ public class MappingServiceTest {
         }
     }
 
+    @Test
+    void shouldFlagSuggestionsAsPartialWhenTimeBudgetRunsOut() throws Exception {
+        List<Suggestion> expected = instance.mapEntity(
+            createDiagnosisEntity(), smallDiagnosisIndexLocation, NUM_SUGGESTIONS, config);
+        List<Suggestion> withEnoughTime = instance.mapEntity(
+            createDiagnosisEntity(), smallDiagnosisIndexLocation, NUM_SUGGESTIONS, config, Duration.ofMinutes(1));
+        // The budget runs out before the first query
+        MappingService.EntityMapping withoutTime = instance.mapEntityWithinBudget(
+            createDiagnosisEntity(), smallDiagnosisIndexLocation, NUM_SUGGESTIONS, config, Duration.ofNanos(1));
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, withEnoughTime);
+        assertEquals(expected.getFirst().getScore(), withEnoughTime.getFirst().getScore());
+        withEnoughTime.forEach(suggestion -> assertFalse(
+            suggestion.getScoringDetails() != null && suggestion.getScoringDetails().isPartial()));
+        assertTrue(withoutTime.partial());
+        withoutTime.suggestions().forEach(suggestion -> assertTrue(suggestion.getScoringDetails().isPartial()));
+        assertNull(MappingDeadline.current(), "The deadline should end with the mapping");
+    }
+
+    @Test
+    void shouldScoreTermsMentionedInLongTextByTheirCoverage() throws Exception {
+        SourceEntity sourceEntity = createDiagnosisEntity();
+        sourceEntity.getData().put("SampleDiagnosis",
+            "Final pathology report: the biopsy taken from the retroperitoneum shows a retroperitoneal "
+                + "rhabdomyosarcoma with extensive necrosis and areas of haemorrhage. Margins are not involved "
+                + "and no lymphovascular invasion is identified in the sections examined.");
+
+        List<Suggestion> suggestions =
+            instance.mapEntity(sourceEntity, smallDiagnosisIndexLocation, NUM_SUGGESTIONS, config);
+
+        assertEquals("ontology_6", suggestions.getFirst().getTargetEntity().id());
+        // A short mention in a long text is not a perfect match
+        assertTrue(suggestions.getFirst().getScore() < OntologiesSearcher.MINIMUM_ACCEPTABLE_SCORE);
+    }
+
+    @Test
+    void shouldIgnoreLongTextsInFieldsNotUsedToSearch() throws Exception {
+        SourceEntity sourceEntity = createDiagnosisEntity();
+        sourceEntity.getData().put("Notes", "word ".repeat(100));
+
+        List<Suggestion> suggestions =
+            instance.mapEntity(sourceEntity, smallDiagnosisIndexLocation, NUM_SUGGESTIONS, config);
+
+        assertEquals(
+            instance.mapEntity(createDiagnosisEntity(), smallDiagnosisIndexLocation, NUM_SUGGESTIONS, config),
+            suggestions);
+    }
+
+    private SourceEntity createDiagnosisEntity() {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "fusion negative rhabdomyosarcoma");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+        return sourceEntity;
+    }
+
     // Executes the mapping process for a sourceEntity and gets the top (best) suggestion
     private Suggestion getTopSuggestion(SourceEntity sourceEntity, String indexName, int numSuggestions) {
         Suggestion bestSuggestion = null;
@@ -0,0 +1,134 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.cancer_models.entity2ontology.IndexTestCreator;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.SourceEntity;
+import org.cancer_models.entity2ontology.map.model.Suggestion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MentionMatcherTest {
+
+    // File with the configuration for the search
+    private static final String CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmMappingConfiguration.json";
+
+    // Name of the JSON file with the index to use in these tests
+    private static final String INDEX_DATA_FILE = "ontologiesSearcher/smallOntologiesIndex.json";
+
+    // Location of the Lucene Index
+    private static String indexLocation;
+
+    private static MappingConfiguration mappingConfiguration;
+
+    private final Searcher searcher = new Searcher(new AnalyzerProvider());
+    private final TextNormalizer textNormalizer = new TextNormalizer(new AnalyzerProvider());
+    private final MentionMatcher instance =
+        new MentionMatcher(searcher, textNormalizer, new ExactRuleMatcher(searcher, textNormalizer));
+
+    @BeforeAll
+    static void init() throws IOException {
+        indexLocation = IndexTestCreator.createIndex(INDEX_DATA_FILE, "mention_matcher_index");
+        mappingConfiguration = MappingIO.readMappingConfiguration(CONFIGURATION_FILE);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        IndexTestCreator.deleteIndex(indexLocation);
+    }
+
+    @Test
+    void shouldFindTermsMentionedInLongText() throws MappingException {
+        String text = "Final pathology: the biopsy of the orbit shows a Skull Osteoma next to an area that is "
+            + "suggestive of fusion-negative alveolar rhabdomyosarcoma. No other relevant findings in the sample.";
+        SourceEntity sourceEntity = createEntity(text);
+        int numWords = textNormalizer.tokenize(text).size();
+
+        List<Suggestion> suggestions = instance.findMentionedTerms(sourceEntity, indexLocation, 10, mappingConfiguration);
+
+        assertEquals(2, suggestions.size());
+        // The score is the part of the text the mention covers, so the longest mention gets the highest score
+        assertEquals("ontology_1", suggestions.get(0).getTargetEntity().id());
+        assertEquals(100.0 * 4 / numWords, suggestions.get(0).getScore(), 1e-9);
+        // Half the words, in a synonym
+        assertEquals("ontology_2", suggestions.get(1).getTargetEntity().id());
+        assertEquals(100.0 * 2 / numWords * 0.99, suggestions.get(1).getScore(), 1e-9);
+        // None of them is the whole text, so none is a perfect match
+        assertTrue(suggestions.get(0).getScore() < OntologiesSearcher.MINIMUM_ACCEPTABLE_SCORE);
+        assertEquals("Mentioned in SampleDiagnosis: 'skull osteoma'",
+            suggestions.get(1).getScoringDetails().getNote());
+    }
+
+    @Test
+    void shouldScoreMentionCoveringTheWholeFieldAsPerfectMatch() throws MappingException {
+        SourceEntity sourceEntity = createEntity("Fusion negative alveolar rhabdomyosarcoma");
+
+        List<Suggestion> suggestions = instance.findMentionedTerms(sourceEntity, indexLocation, 10, mappingConfiguration);
+
+        assertEquals("ontology_1", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(100.0, suggestions.getFirst().getScore(), 1e-9);
+    }
+
+    @Test
+    void shouldIgnoreMentionsInsideLongerOnes() throws MappingException {
+        // "Temozolomide" is mentioned only as part of "Lapatinib/Temozolomide Regimen"
+        SourceEntity sourceEntity = createEntity("treated with the lapatinib/temozolomide regimen for two cycles");
+
+        List<Suggestion> suggestions = instance.findMentionedTerms(sourceEntity, indexLocation, 10, mappingConfiguration);
+
+        assertEquals(List.of("ontology_5"), suggestions.stream().map(s -> s.getTargetEntity().id()).toList());
+    }
+
+    @Test
+    void shouldReturnAtMostMaxNumSuggestions() throws MappingException {
+        SourceEntity sourceEntity = createEntity("skull osteoma and fusion negative alveolar rhabdomyosarcoma");
+
+        List<Suggestion> suggestions = instance.findMentionedTerms(sourceEntity, indexLocation, 1, mappingConfiguration);
+
+        assertEquals(1, suggestions.size());
+    }
+
+    @Test
+    void shouldReturnEmptyListWhenNoTermIsMentioned() throws MappingException {
+        SourceEntity sourceEntity = createEntity("no ontology term is mentioned in this text");
+
+        assertTrue(instance.findMentionedTerms(sourceEntity, indexLocation, 10, mappingConfiguration).isEmpty());
+    }
+
+    @Test
+    void shouldStopLookingForMentionsWhenTheDeadlinePasses() throws MappingException {
+        SourceEntity sourceEntity = createEntity("Fusion negative alveolar rhabdomyosarcoma");
+
+        try (MappingDeadline deadline = MappingDeadline.start(Duration.ofNanos(1))) {
+            List<Suggestion> suggestions =
+                instance.findMentionedTerms(sourceEntity, indexLocation, 10, mappingConfiguration);
+
+            assertTrue(suggestions.isEmpty());
+            assertTrue(deadline.isPartial());
+        }
+    }
+
+    private SourceEntity createEntity(String diagnosis) {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", diagnosis);
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+        return sourceEntity;
+    }
+}
@@ -0,0 +1,36 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MinHashIndexTest {
+
+    @Test
+    void shouldEstimateOneForSameWordsInAnyOrder() {
+        assertEquals(1.0,
+            MinHashIndex.estimateSimilarity(Set.of("lung", "cancer"), Set.of("cancer", "lung")), 1e-9);
+    }
+
+    @Test
+    void shouldEstimateCloseToZeroForDisjointWords() {
+        assertEquals(0.0,
+            MinHashIndex.estimateSimilarity(Set.of("lung", "cancer"), Set.of("breast", "carcinoma")), 0.1);
+    }
+
+    @Test
+    void shouldEstimateJaccardSimilarity() {
+        // 3 words shared out of 6 distinct words
+        double similarity = MinHashIndex.estimateSimilarity(
+            Set.of("fusion", "negative", "alveolar", "rhabdomyosarcoma"),
+            Set.of("alveolar", "rhabdomyosarcoma", "fusion", "positive", "orbit"));
+        assertEquals(0.5, similarity, 0.2);
+    }
+
+    @Test
+    void shouldFindTextsFromAboutHalfTheWordsInCommon() {
+        assertEquals(0.5, MinHashIndex.BANDING_THRESHOLD, 0.01);
+    }
+}
@@ -1,7 +1,6 @@
 package org.cancer_models.entity2ontology.map.service;
 
 import org.cancer_models.entity2ontology.IndexTestCreator;
-import org.cancer_models.entity2ontology.common.utils.FileUtils;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
 import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
@@ -17,7 +16,16 @@ import java.io.IOException;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class OntologiesSearcherTest {
 
@@ -25,6 +33,26 @@ class OntologiesSearcherTest {
     private static final String CONFIGURATION_FILE =
         "src/test/resources/mappingConfigurations/pdcmMappingConfiguration.json";
 
+    // Same configuration, but searching similar matches with trigrams
+    private static final String TRIGRAM_CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmTrigramMappingConfiguration.json";
+
+    // Same configuration, but searching similar matches with MinHash signatures
+    private static final String MINHASH_CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmMinHashMappingConfiguration.json";
+
+    // Same configuration, but searching all the templates with a single query
+    private static final String SINGLE_PASS_CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmSinglePassMappingConfiguration.json";
+
+    // Same configuration, but searching exact and similar matches with a single query
+    private static final String COMBINED_CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmCombinedMappingConfiguration.json";
+
+    // Same configuration, but keeping the ontology terms with the best final score
+    private static final String RANK_BY_SCORE_CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmRankByScoreMappingConfiguration.json";
+
     // Directory with the index data
     private static final String INDEX_DATA_DIR = "ontologiesSearcher/";
 
@@ -41,7 +69,11 @@ class OntologiesSearcherTest {
     private final SuggestionScoreCalculator scoreCalculator = new DefaultSuggestionScoreCalculator();
 
     private final Searcher searcher = new Searcher(new AnalyzerProvider());
-    private final QueryProcessor queryProcessor = new QueryProcessor(searcher);
+    private final QueryProcessor queryProcessor = spy(new QueryProcessor(searcher));
+    private final ExactLabelMatcher exactLabelMatcher =
+        new ExactLabelMatcher(searcher, new TextNormalizer(new AnalyzerProvider()));
+    private final MinHashMatcher minHashMatcher =
+        new MinHashMatcher(searcher, new TextNormalizer(new AnalyzerProvider()));
 
     private OntologiesSearcher instance;
 
@@ -53,14 +85,15 @@ class OntologiesSearcherTest {
     }
 
     @AfterAll
-    static void tearDown() {
+    static void tearDown() throws IOException {
         // Delete the index
-        FileUtils.deleteRecursively(new File(indexLocation));
+        IndexTestCreator.deleteIndex(indexLocation);
     }
 
     @BeforeEach
     void setup() {
-        instance = new OntologiesSearcher(queryBuilder, templateQueryProcessor, queryProcessor, scoreCalculator);
+        instance = new OntologiesSearcher(
+            queryBuilder, templateQueryProcessor, queryProcessor, scoreCalculator, exactLabelMatcher, minHashMatcher);
     }
 
     @Test
@@ -108,6 +141,65 @@ class OntologiesSearcherTest {
         assertEquals(99.0, suggestions.get(0).getScore());
     }
 
+    @Test
+    void testFindExactMatchingOntologies_exactMatchLabelWordsInDifferentOrder() throws MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "Alveolar Rhabdomyosarcoma Fusion Negative");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        List<Suggestion> suggestions = instance.findExactMatchingOntologies(
+            sourceEntity, indexLocation, mappingConfiguration);
+
+        // The phrase query does not match, but the in-memory lookup ignores the order of the words
+        assertEquals(1, suggestions.size());
+        assertEquals("ontology_1", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(100.0, suggestions.getFirst().getScore());
+    }
+
+    @Test
+    void testFindExactMatchingOntologies_enoughMatchesInLookup() throws MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("treatment");
+        Map<String, String> data = new HashMap<>();
+        data.put("TreatmentName", "Temozolomide-Irinotecan");
+        sourceEntity.setData(data);
+
+        List<Suggestion> suggestions = instance.findExactMatchingOntologies(
+            sourceEntity, indexLocation, mappingConfiguration, 1);
+
+        // The synonym is found in memory, so the index is not queried
+        assertEquals(1, suggestions.size());
+        assertEquals("ontology_4", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(99.0, suggestions.getFirst().getScore());
+        verify(queryProcessor, never()).executeQuery(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testFindExactMatchingOntologies_notEnoughMatchesInLookup() throws MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("treatment");
+        Map<String, String> data = new HashMap<>();
+        data.put("TreatmentName", "Temozolomide-Irinotecan");
+        sourceEntity.setData(data);
+
+        List<Suggestion> suggestions = instance.findExactMatchingOntologies(
+            sourceEntity, indexLocation, mappingConfiguration, 10);
+
+        // The index is queried to look for more suggestions
+        assertEquals("ontology_4", suggestions.getFirst().getTargetEntity().id());
+        verify(queryProcessor, atLeastOnce()).executeQuery(any(), any(), anyBoolean());
+    }
+
     @Test
     void testFindExactMatchingOntologies_noMatch() throws MappingException {
 
@@ -189,6 +281,179 @@ class OntologiesSearcherTest {
         assertTrue(suggestion.getScore() <= 75.0);
     }
 
+    @Test
+    void testFindSimilarMatchingOntologies_similarMatchSynonymWithTrigrams() throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "Head Osteoma");
+        data.put("OriginTissue", "skull");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        MappingConfiguration trigramConfiguration = MappingIO.readMappingConfiguration(TRIGRAM_CONFIGURATION_FILE);
+        List<Suggestion> suggestions = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, trigramConfiguration);
+
+        // Candidates are found with the trigram fields, and then scored as usual
+        assertEquals("ontology_2", suggestions.getFirst().getTargetEntity().id());
+        assertTrue(suggestions.getFirst().getScore() <= 75.0);
+        verify(queryProcessor, atLeastOnce()).executeQueryAsIs(any(), any());
+        verify(queryProcessor, never()).executeQuery(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testFindSimilarMatchingOntologies_singlePassSameScoresAsOneQueryPerTemplate()
+        throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "Head Osteoma");
+        data.put("OriginTissue", "skull");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        List<Suggestion> expected = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, mappingConfiguration);
+
+        MappingConfiguration singlePassConfiguration =
+            MappingIO.readMappingConfiguration(SINGLE_PASS_CONFIGURATION_FILE);
+        List<Suggestion> suggestions = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, singlePassConfiguration);
+
+        assertEquals(expected.size(), suggestions.size());
+        assertEquals("ontology_2", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(expected.getFirst().getScore(), suggestions.getFirst().getScore(), 1e-9);
+        // One query per template (5) and then a single one
+        verify(queryProcessor, times(6)).executeQuery(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testFindSimilarMatchingOntologies_singlePassStopsWhenEnoughPerfectScores()
+        throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("treatment");
+        sourceEntity.setData(new HashMap<>(Map.of("TreatmentName", "temozolomide")));
+
+        MappingConfiguration singlePassConfiguration =
+            MappingIO.readMappingConfiguration(SINGLE_PASS_CONFIGURATION_FILE);
+        List<Suggestion> allSuggestions = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, singlePassConfiguration);
+        List<Suggestion> suggestions = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, singlePassConfiguration, 1);
+
+        assertTrue(allSuggestions.size() > 1);
+        // The label is the best candidate, and a perfect match, so the other candidates are not scored
+        assertEquals(1, suggestions.size());
+        assertEquals("ontology_3", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(100.0, suggestions.getFirst().getScore(), 1e-9);
+    }
+
+    @Test
+    void testFindSimilarMatchingOntologies_rankByFinalScoreSameBestSuggestion()
+        throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "Head Osteoma");
+        data.put("OriginTissue", "skull");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        List<Suggestion> expected = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, mappingConfiguration);
+
+        MappingConfiguration rankByScoreConfiguration =
+            MappingIO.readMappingConfiguration(RANK_BY_SCORE_CONFIGURATION_FILE);
+        List<Suggestion> suggestions = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, rankByScoreConfiguration);
+
+        assertEquals("ontology_2", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(expected.getFirst().getScore(), suggestions.getFirst().getScore(), 1e-9);
+        // Every term found is scored, so none of the ones found by the Lucene ranked queries is missing
+        for (Suggestion suggestion : expected) {
+            assertTrue(suggestions.contains(suggestion), suggestion.getTargetEntity().id() + " not found");
+        }
+        verify(queryProcessor, times(5)).executeQueryRankedByScore(any(), any(), anyBoolean(), anyBoolean(), any());
+    }
+
+    @Test
+    void testFindMatchingOntologies_exactMatchTagged() throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("treatment");
+        sourceEntity.setData(new HashMap<>(Map.of("TreatmentName", "Temozolomide")));
+
+        MappingConfiguration combinedConfiguration = MappingIO.readMappingConfiguration(COMBINED_CONFIGURATION_FILE);
+        List<Suggestion> suggestions = instance.findMatchingOntologies(
+            sourceEntity, indexLocation, combinedConfiguration, 10);
+
+        Suggestion suggestion = suggestions.getFirst();
+        assertEquals("ontology_3", suggestion.getTargetEntity().id());
+        assertEquals(100.0, suggestion.getScore());
+        assertTrue(suggestion.getScoringDetails().isExactMatch());
+        // The exact and the similar queries are executed together, once
+        verify(queryProcessor, times(1))
+            .executeCombinedQuery(any(), any(), anyBoolean(), anyBoolean(), anyInt(), any());
+        verify(queryProcessor, never()).executeQuery(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testFindMatchingOntologies_similarMatchTagged() throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "Head Osteoma");
+        data.put("OriginTissue", "skull");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        List<Suggestion> expected = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, mappingConfiguration);
+
+        MappingConfiguration combinedConfiguration = MappingIO.readMappingConfiguration(COMBINED_CONFIGURATION_FILE);
+        List<Suggestion> suggestions = instance.findMatchingOntologies(
+            sourceEntity, indexLocation, combinedConfiguration, 10);
+
+        Suggestion suggestion = suggestions.getFirst();
+        assertEquals("ontology_2", suggestion.getTargetEntity().id());
+        assertEquals(expected.getFirst().getScore(), suggestion.getScore(), 1e-9);
+        assertFalse(suggestion.getScoringDetails().isExactMatch());
+    }
+
+    @Test
+    void testFindSimilarMatchingOntologies_wordsInOtherOrderWithMinHash() throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "Rhabdomyosarcoma, Alveolar, Fusion Negative");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        MappingConfiguration minHashConfiguration = MappingIO.readMappingConfiguration(MINHASH_CONFIGURATION_FILE);
+        List<Suggestion> suggestions = instance.findSimilarMatchingOntologies(
+            sourceEntity, indexLocation, minHashConfiguration);
+
+        // Candidates are found in memory, and then scored as usual
+        assertEquals("ontology_1", suggestions.getFirst().getTargetEntity().id());
+        verify(queryProcessor, never()).executeQueryAsIs(any(), any());
+        verify(queryProcessor, never()).executeQuery(any(), any(), anyBoolean());
+    }
+
     @Test
     void testFindSimilarMatchingOntologies_noMatch() throws MappingException {
 
@@ -0,0 +1,100 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.cancer_models.entity2ontology.IndexTestCreator;
+import org.cancer_models.entity2ontology.exceptions.MappingException;
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.cancer_models.entity2ontology.map.model.TypeaheadSuggestion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OntologyTypeaheadTest {
+
+    // Name of the JSON file with the index to use in these tests
+    private static final String INDEX_DATA_FILE = "ontologiesSearcher/smallOntologiesIndex.json";
+
+    // Location of the Lucene Index
+    private static String indexLocation;
+
+    private final OntologyTypeahead instance = new OntologyTypeahead(new Searcher(new AnalyzerProvider()));
+
+    @BeforeAll
+    static void init() throws IOException {
+        indexLocation = IndexTestCreator.createIndex(INDEX_DATA_FILE, "ontology_typeahead_index");
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        IndexTestCreator.deleteIndex(indexLocation);
+    }
+
+    @Test
+    void shouldSuggestLabelStartingWithText() throws MappingException {
+        List<TypeaheadSuggestion> suggestions = instance.suggest("Temozolo", indexLocation, 10, false);
+
+        // Labels starting with the text rank before labels containing it and before synonyms
+        TypeaheadSuggestion first = suggestions.getFirst();
+        assertEquals("ontology_3", first.id());
+        assertEquals("Temozolomide", first.matchedText());
+        assertFalse(first.synonym());
+        assertTrue(suggestions.size() > 1);
+    }
+
+    @Test
+    void shouldSuggestLabelContainingText() throws MappingException {
+        List<TypeaheadSuggestion> suggestions = instance.suggest("rhabdo", indexLocation, 10, false);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("ontology_1", suggestions.getFirst().id());
+        assertEquals("Fusion Negative Alveolar Rhabdomyosarcoma", suggestions.getFirst().matchedText());
+    }
+
+    @Test
+    void shouldSuggestTermBySynonym() throws MappingException {
+        List<TypeaheadSuggestion> suggestions = instance.suggest("skull oste", indexLocation, 10, false);
+
+        assertEquals(1, suggestions.size());
+        TypeaheadSuggestion suggestion = suggestions.getFirst();
+        assertEquals("ontology_2", suggestion.id());
+        assertEquals("label1", suggestion.label());
+        assertEquals("Skull Osteoma", suggestion.matchedText());
+        assertTrue(suggestion.synonym());
+    }
+
+    @Test
+    void shouldTolerateTypoOnlyIfFuzzy() throws MappingException {
+        assertTrue(instance.suggest("rabdomyo", indexLocation, 10, false).isEmpty());
+
+        List<TypeaheadSuggestion> suggestions = instance.suggest("rabdomyo", indexLocation, 10, true);
+
+        assertEquals("ontology_1", suggestions.getFirst().id());
+    }
+
+    @Test
+    void shouldReturnAtMostMaxNumSuggestions() throws MappingException {
+        List<TypeaheadSuggestion> suggestions = instance.suggest("temozolomide", indexLocation, 2, false);
+
+        assertEquals(2, suggestions.size());
+    }
+
+    @Test
+    void shouldReturnEmptyListForBlankText() throws MappingException {
+        assertTrue(instance.suggest(" ", indexLocation, 10, false).isEmpty());
+    }
+
+    @Test
+    void shouldFailIfMaxNumSuggestionsNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> instance.suggest("temo", indexLocation, 0, false));
+    }
+
+    @Test
+    void shouldFindWordStarts() {
+        assertEquals(List.of(0, 11), TypeaheadIndex.wordStarts("Irinotecan/Temozolomide"));
+        assertEquals(List.of(1, 8), TypeaheadIndex.wordStarts(" Skull  Osteoma"));
+    }
+}
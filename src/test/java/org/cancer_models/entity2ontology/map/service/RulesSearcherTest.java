@@ -1,10 +1,10 @@
 package org.cancer_models.entity2ontology.map.service;
 
 import org.cancer_models.entity2ontology.IndexTestCreator;
-import org.cancer_models.entity2ontology.common.utils.FileUtils;
 import org.cancer_models.entity2ontology.exceptions.MappingException;
 import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
 import org.cancer_models.entity2ontology.map.model.MappingConfiguration;
+import org.cancer_models.entity2ontology.map.model.SimilarMatchStrategy;
 import org.cancer_models.entity2ontology.map.model.SourceEntity;
 import org.cancer_models.entity2ontology.map.model.Suggestion;
 import org.junit.jupiter.api.AfterAll;
@@ -20,6 +20,12 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 class RulesSearcherTest {
 
@@ -27,6 +33,18 @@ class RulesSearcherTest {
     private static final String CONFIGURATION_FILE =
         "src/test/resources/mappingConfigurations/pdcmMappingConfiguration.json";
 
+    // Same configuration, but searching similar matches with trigrams
+    private static final String TRIGRAM_CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmTrigramMappingConfiguration.json";
+
+    // Same configuration, but searching similar matches with MinHash signatures
+    private static final String MINHASH_CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmMinHashMappingConfiguration.json";
+
+    // Same configuration, but scoring all the rules in memory
+    private static final String IN_MEMORY_CONFIGURATION_FILE =
+        "src/test/resources/mappingConfigurations/pdcmInMemoryMappingConfiguration.json";
+
     // Directory with the index data
     private static final String INDEX_DATA_DIR = "rulesSearcher/";
 
@@ -40,7 +58,9 @@ class RulesSearcherTest {
     private final SuggestionScoreCalculator scoreCalculator = new DefaultSuggestionScoreCalculator();
 
     private final Searcher searcher = new Searcher(new AnalyzerProvider());
-    private final QueryProcessor queryProcessor = new QueryProcessor(searcher);
+    private final QueryProcessor queryProcessor = spy(new QueryProcessor(searcher));
+    private final ExactRuleMatcher exactRuleMatcher =
+        new ExactRuleMatcher(searcher, new TextNormalizer(new AnalyzerProvider()));
 
     private RulesSearcher instance;
 
@@ -51,14 +71,16 @@ class RulesSearcherTest {
     }
 
     @AfterAll
-    static void tearDown() {
+    static void tearDown() throws IOException {
         // Delete the index
-        FileUtils.deleteRecursively(new File(indexLocation));
+        IndexTestCreator.deleteIndex(indexLocation);
     }
 
     @BeforeEach
     void setup() {
-        instance = new RulesSearcher(queryBuilder, queryProcessor, scoreCalculator);
+        instance = new RulesSearcher(
+            queryBuilder, queryProcessor, scoreCalculator, exactRuleMatcher, new InMemoryRuleScorer(searcher),
+            new MinHashMatcher(searcher, new TextNormalizer(new AnalyzerProvider())));
     }
 
     @Test
@@ -85,6 +107,75 @@ class RulesSearcherTest {
         assertEquals(100.0, suggestion.getScore());
     }
 
+    @Test
+    void testFindExactMatchingRules_exactMatchWordsInDifferentOrderAndCase() throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "Rhabdomyosarcoma, Fusion Negative");
+        data.put("OriginTissue", "Orbit");
+        data.put("TumorType", "PRIMARY");
+        sourceEntity.setData(data);
+
+        MappingConfiguration mappingConfiguration = MappingIO.readMappingConfiguration(CONFIGURATION_FILE);
+
+        List<Suggestion> suggestions = instance.findExactMatchingRules(
+            sourceEntity, indexLocation, mappingConfiguration);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(100.0, suggestions.getFirst().getScore());
+    }
+
+    @Test
+    void testFindExactMatchingRules_enoughMatchesInLookup() throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "fusion negative rhabdomyosarcoma");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        MappingConfiguration mappingConfiguration = MappingIO.readMappingConfiguration(CONFIGURATION_FILE);
+
+        List<Suggestion> suggestions = instance.findExactMatchingRules(
+            sourceEntity, indexLocation, mappingConfiguration, 1);
+
+        // The rule is found in memory, so the index is not queried
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(100.0, suggestions.getFirst().getScore());
+        verify(queryProcessor, never()).executeQuery(any(), any());
+    }
+
+    @Test
+    void testFindExactMatchingRules_containedValuesNeedQuery() throws IOException, MappingException {
+
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "rhabdomyosarcoma");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        MappingConfiguration mappingConfiguration = MappingIO.readMappingConfiguration(CONFIGURATION_FILE);
+
+        List<Suggestion> suggestions = instance.findExactMatchingRules(
+            sourceEntity, indexLocation, mappingConfiguration, 1);
+
+        // The rule only contains the diagnosis, so it is found by the Lucene query
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        verify(queryProcessor, atLeastOnce()).executeQuery(any(), any());
+    }
+
     @Test
     void testFindExactMatchingRules_NoMatch() throws IOException, MappingException {
 
@@ -129,6 +220,102 @@ class RulesSearcherTest {
         assertTrue(suggestion.getScore() <= 90, "The score should be less than 90");
     }
 
+    @Test
+    void testFindSimilarRules_similarMatchWithTrigrams() throws IOException, MappingException {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "fusion POSITIVE rhabdomiosarcoma");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        MappingConfiguration mappingConfiguration = MappingIO.readMappingConfiguration(TRIGRAM_CONFIGURATION_FILE);
+        assertEquals(SimilarMatchStrategy.TRIGRAM,
+            mappingConfiguration.getConfigurationByEntityType("diagnosis").getSimilarMatchStrategy());
+
+        List<Suggestion> suggestions = instance.findSimilarRules(
+            sourceEntity, indexLocation, mappingConfiguration);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        verify(queryProcessor, never()).executeQuery(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testFindSimilarRules_wordsInOtherOrderWithMinHash() throws IOException, MappingException {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "rhabdomyosarcoma, fusion negative");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        MappingConfiguration mappingConfiguration = MappingIO.readMappingConfiguration(MINHASH_CONFIGURATION_FILE);
+        assertEquals(SimilarMatchStrategy.MINHASH,
+            mappingConfiguration.getConfigurationByEntityType("diagnosis").getSimilarMatchStrategy());
+
+        List<Suggestion> suggestions = instance.findSimilarRules(
+            sourceEntity, indexLocation, mappingConfiguration);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        assertTrue(suggestions.getFirst().getScore() > 0);
+        verify(queryProcessor, never()).executeQuery(any(), any(), anyBoolean());
+        verify(queryProcessor, never()).executeQueryAsIs(any(), any());
+    }
+
+    @Test
+    void testFindSimilarRules_similarMatchInMemory() throws IOException, MappingException {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "fusion POSITIVE rhabdomyosarcoma");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        MappingConfiguration mappingConfiguration = MappingIO.readMappingConfiguration(IN_MEMORY_CONFIGURATION_FILE);
+        assertEquals(SimilarMatchStrategy.IN_MEMORY,
+            mappingConfiguration.getConfigurationByEntityType("diagnosis").getSimilarMatchStrategy());
+
+        List<Suggestion> suggestions = instance.findSimilarRules(
+            sourceEntity, indexLocation, mappingConfiguration, 10);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        assertEquals(
+            scoreCalculator.computeScoreRule(suggestions.getFirst(), sourceEntity, mappingConfiguration),
+            suggestions.getFirst().getScore(),
+            1e-9);
+        verify(queryProcessor, never()).executeQuery(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testFindSimilarRules_fuzzyByDefault() throws IOException, MappingException {
+        SourceEntity sourceEntity = new SourceEntity();
+        sourceEntity.setId("key_1");
+        sourceEntity.setType("diagnosis");
+        Map<String, String> data = new HashMap<>();
+        data.put("SampleDiagnosis", "fusion POSITIVE rhabdomyosarcoma");
+        data.put("OriginTissue", "orbit");
+        data.put("TumorType", "primary");
+        sourceEntity.setData(data);
+
+        MappingConfiguration mappingConfiguration = MappingIO.readMappingConfiguration(CONFIGURATION_FILE);
+
+        List<Suggestion> suggestions = instance.findSimilarRules(
+            sourceEntity, indexLocation, mappingConfiguration, 10);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("rule_1", suggestions.getFirst().getTargetEntity().id());
+        verify(queryProcessor, atLeastOnce()).executeQuery(any(), any(), anyBoolean());
+    }
+
     @Test
     void testFindSimilarRules_NoMatch() throws IOException, MappingException {
         SourceEntity sourceEntity = new SourceEntity();
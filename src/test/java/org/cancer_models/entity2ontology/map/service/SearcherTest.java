@@ -0,0 +1,125 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.cancer_models.entity2ontology.common.EntityCreatorUtil;
+import org.cancer_models.entity2ontology.common.utils.FileUtils;
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.cancer_models.entity2ontology.index.service.Indexer;
+import org.cancer_models.entity2ontology.map.model.SearchExecutorSettings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearcherTest {
+
+    private static final String INDEX_LOCATION = "src/test/output/searcherTestIndex";
+
+    // Each batch is committed separately, so the index has a segment per batch
+    private static final int NUM_SEGMENTS = 3;
+
+    private final Searcher instance = new Searcher(new AnalyzerProvider());
+
+    @BeforeAll
+    static void init() throws IOException {
+        Indexer indexer = new Indexer();
+        indexer.deleteAll(INDEX_LOCATION);
+        for (int segment = 0; segment < NUM_SEGMENTS; segment++) {
+            indexer.indexEntities(List.of(
+                EntityCreatorUtil.createDiagnosisOntologyTargetEntity(
+                    "carcinoma_" + segment, "Carcinoma " + segment, List.of(), "url"),
+                EntityCreatorUtil.createDiagnosisOntologyTargetEntity(
+                    "sarcoma_" + segment, "Sarcoma " + segment, List.of(), "url")), INDEX_LOCATION);
+        }
+        indexer.close(INDEX_LOCATION);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        FileUtils.deleteRecursively(new File(INDEX_LOCATION));
+    }
+
+    @Test
+    void shouldFindSameResultsSearchingSlicesConcurrently() throws IOException {
+        TermQuery query = new TermQuery(new Term("ontology.label", "carcinoma"));
+        List<Integer> expected = searchDocIds(query);
+
+        instance.configureExecutor(new SearchExecutorSettings(2, false, null, 1));
+        IndexSearcher indexSearcher = instance.acquire(INDEX_LOCATION);
+        try {
+            assertEquals(NUM_SEGMENTS, indexSearcher.getSlices().length);
+        } finally {
+            instance.release(indexSearcher);
+        }
+        List<Integer> docIds = searchDocIds(query);
+
+        assertEquals(NUM_SEGMENTS, docIds.size());
+        assertEquals(expected, docIds);
+    }
+
+    @Test
+    void shouldSearchSlicesWithVirtualThreads() throws IOException {
+        instance.configureExecutor(new SearchExecutorSettings(2, true, null, 1));
+
+        List<Integer> docIds = searchDocIds(new TermQuery(new Term("ontology.label", "sarcoma")));
+
+        assertEquals(NUM_SEGMENTS, docIds.size());
+    }
+
+    @Test
+    void shouldRecreateSearcherOnSameReaderWhenExecutorChanges() throws IOException {
+        IndexSearcher first = instance.acquire(INDEX_LOCATION);
+        instance.release(first);
+
+        // Same settings as the current ones
+        instance.configureExecutor(null);
+        IndexSearcher second = instance.acquire(INDEX_LOCATION);
+        instance.release(second);
+
+        instance.configureExecutor(new SearchExecutorSettings(2, false, null, null));
+        IndexSearcher third = instance.acquire(INDEX_LOCATION);
+        instance.release(third);
+
+        assertSame(first, second);
+        assertNotSame(first, third);
+        assertSame(first.getIndexReader(), third.getIndexReader());
+        assertTrue(third.getIndexReader().getRefCount() > 0, "The reader should still be open");
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void shouldKeepSearchingByIndexPath() throws IOException {
+        assertNull(instance.getIndexSearcher(INDEX_LOCATION));
+
+        TopDocs topDocs = instance.search(new TermQuery(new Term("ontology.label", "carcinoma")), INDEX_LOCATION);
+
+        assertEquals(NUM_SEGMENTS, topDocs.scoreDocs.length);
+        IndexSearcher indexSearcher = instance.getIndexSearcher(INDEX_LOCATION);
+        assertNotNull(indexSearcher);
+        assertTrue(indexSearcher.getIndexReader().getRefCount() > 0, "The reader should still be open");
+    }
+
+    @Test
+    void shouldRejectNegativeThreads() {
+        assertThrows(IllegalArgumentException.class, () -> new SearchExecutorSettings(-1, false, null, null));
+    }
+
+    private List<Integer> searchDocIds(TermQuery query) throws IOException {
+        IndexSearcher indexSearcher = instance.acquire(INDEX_LOCATION);
+        try {
+            TopDocs topDocs = instance.searchAsIs(query, indexSearcher);
+            return Arrays.stream(topDocs.scoreDocs).map(scoreDoc -> scoreDoc.doc).sorted().toList();
+        } finally {
+            instance.release(indexSearcher);
+        }
+    }
+}
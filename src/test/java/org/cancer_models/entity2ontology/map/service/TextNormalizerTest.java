@@ -0,0 +1,37 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextNormalizerTest {
+
+    private final TextNormalizer instance = new TextNormalizer(new AnalyzerProvider());
+
+    @Test
+    void shouldIgnoreCaseStopWordsAndWordOrder() {
+        assertEquals("breast carcinoma", instance.normalize("Carcinoma of the Breast"));
+        assertEquals("breast carcinoma", instance.normalize("breast  CARCINOMA"));
+    }
+
+    @Test
+    void shouldSplitWordsOnPunctuation() {
+        assertEquals("irinotecan temozolomide", instance.normalize("Temozolomide/Irinotecan"));
+        assertEquals("irinotecan temozolomide", instance.normalize("Irinotecan-Temozolomide"));
+    }
+
+    @Test
+    void shouldReturnEmptyTextWhenThereAreNoWords() {
+        assertEquals("", instance.normalize(null));
+        assertEquals("", instance.normalize("  "));
+        assertEquals("", instance.normalize("the"));
+    }
+
+    @Test
+    void shouldTokenizeKeepingTheOrderOfTheWords() {
+        assertEquals(List.of("skull", "osteoma"), instance.tokenize("Skull Osteoma"));
+    }
+}
@@ -0,0 +1,139 @@
+package org.cancer_models.entity2ontology.map.service;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.cancer_models.entity2ontology.IndexTestCreator;
+import org.cancer_models.entity2ontology.index.service.AnalyzerProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VocabularyCorrectorTest {
+
+    // Name of the JSON file with the index to use in these tests
+    private static final String INDEX_DATA_FILE = "ontologiesSearcher/smallOntologiesIndex.json";
+
+    private static final String SYNONYMS_FIELD = "ontology.synonyms";
+
+    // Location of the Lucene Index
+    private static String indexLocation;
+
+    private final Searcher searcher = new Searcher(new AnalyzerProvider());
+    private final VocabularyCorrector instance = new VocabularyCorrector();
+
+    @BeforeAll
+    static void init() throws IOException {
+        indexLocation = IndexTestCreator.createIndex(INDEX_DATA_FILE, "vocabulary_corrector_index");
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        IndexTestCreator.deleteIndex(indexLocation);
+    }
+
+    @Test
+    void shouldReplaceFuzzyQueryByTermsAtOneEdit() throws IOException {
+        Query query = new FuzzyQuery(new Term(SYNONYMS_FIELD, "osteomma"), 1);
+
+        IndexSearcher indexSearcher = searcher.acquire(indexLocation);
+        try {
+            Query corrected = instance.correct(query, indexSearcher);
+
+            // Boosted by the edit distance relative to the length of the shortest word, like in the fuzzy query
+            Query expected = new BlendedTermQuery.Builder()
+                .setRewriteMethod(BlendedTermQuery.BOOLEAN_REWRITE)
+                .add(new Term(SYNONYMS_FIELD, "osteoma"), 1 - 1f / 7)
+                .build();
+            assertEquals(expected, corrected);
+            assertEquals(indexSearcher.count(query), indexSearcher.count(corrected));
+        } finally {
+            searcher.release(indexSearcher);
+        }
+    }
+
+    @Test
+    void shouldKeepBooleanStructureAndBoosts() throws IOException {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new BoostQuery(new FuzzyQuery(new Term(SYNONYMS_FIELD, "skul"), 1), 2), BooleanClause.Occur.MUST);
+        builder.add(new TermQuery(new Term(SYNONYMS_FIELD, "osteoma")), BooleanClause.Occur.SHOULD);
+        builder.setMinimumNumberShouldMatch(1);
+        Query query = builder.build();
+
+        IndexSearcher indexSearcher = searcher.acquire(indexLocation);
+        try {
+            BooleanQuery corrected = assertInstanceOf(BooleanQuery.class, instance.correct(query, indexSearcher));
+
+            assertEquals(1, corrected.getMinimumNumberShouldMatch());
+            assertEquals(BooleanClause.Occur.MUST, corrected.clauses().get(0).getOccur());
+            BoostQuery boostQuery = assertInstanceOf(BoostQuery.class, corrected.clauses().get(0).getQuery());
+            assertEquals(2, boostQuery.getBoost());
+            assertInstanceOf(BlendedTermQuery.class, boostQuery.getQuery());
+            assertEquals(new TermQuery(new Term(SYNONYMS_FIELD, "osteoma")), corrected.clauses().get(1).getQuery());
+            assertEquals(indexSearcher.count(query), indexSearcher.count(corrected));
+        } finally {
+            searcher.release(indexSearcher);
+        }
+    }
+
+    @Test
+    void shouldScoreLikeTheFuzzyQuery() throws IOException {
+        Query query = new FuzzyQuery(new Term(SYNONYMS_FIELD, "osteoma"), 1);
+
+        IndexSearcher indexSearcher = searcher.acquire(indexLocation);
+        try {
+            ScoreDoc[] expected = indexSearcher.search(query, 10).scoreDocs;
+            ScoreDoc[] actual = indexSearcher.search(instance.correct(query, indexSearcher), 10).scoreDocs;
+
+            assertTrue(expected.length > 0);
+            assertEquals(expected.length, actual.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i].doc, actual[i].doc);
+                assertEquals(expected[i].score, actual[i].score, 1e-6);
+            }
+        } finally {
+            searcher.release(indexSearcher);
+        }
+    }
+
+    @Test
+    void shouldMatchNothingWhenNoTermAtOneEdit() throws IOException {
+        Query query = new FuzzyQuery(new Term(SYNONYMS_FIELD, "nomatch"), 1);
+
+        IndexSearcher indexSearcher = searcher.acquire(indexLocation);
+        try {
+            Query corrected = instance.correct(query, indexSearcher);
+
+            assertEquals(0, indexSearcher.count(corrected));
+        } finally {
+            searcher.release(indexSearcher);
+        }
+    }
+
+    @Test
+    void shouldLeaveFuzzyQueriesWithTwoEditsUnchanged() throws IOException {
+        Query query = new FuzzyQuery(new Term(SYNONYMS_FIELD, "osteomaaa"), 2);
+
+        IndexSearcher indexSearcher = searcher.acquire(indexLocation);
+        try {
+            assertSame(query, instance.correct(query, indexSearcher));
+        } finally {
+            searcher.release(indexSearcher);
+        }
+    }
+
+    @Test
+    void shouldDetectWordsWithinOneEdit() {
+        assertTrue(SymSpellDictionary.isWithinOneEdit("osteoma", "osteoma"));
+        assertTrue(SymSpellDictionary.isWithinOneEdit("osteoma", "osteona"));
+        assertTrue(SymSpellDictionary.isWithinOneEdit("osteoma", "osteomas"));
+        assertTrue(SymSpellDictionary.isWithinOneEdit("osteoma", "steoma"));
+        assertTrue(SymSpellDictionary.isWithinOneEdit("osteoma", "ostoema"));
+        assertFalse(SymSpellDictionary.isWithinOneEdit("osteoma", "otseoam"));
+        assertFalse(SymSpellDictionary.isWithinOneEdit("osteoma", "osteomass"));
+        assertFalse(SymSpellDictionary.isWithinOneEdit("osteoma", "ostxomx"));
+    }
+}